@@ -0,0 +1,37 @@
+plugins {
+    java
+    alias(libs.plugins.defaults)
+}
+
+group = "io.microraft"
+version = "0.9-SNAPSHOT"
+
+java {
+    toolchain {
+        languageVersion = JavaLanguageVersion.of(11)
+    }
+}
+
+dependencies {
+    implementation(project(":microraft"))
+    implementation(testFixtures(project(":microraft")))
+    implementation(project(":microraft-store-sqlite"))
+    implementation(libs.jooq)
+    implementation(libs.sqlite)
+    implementation(libs.jmh.core)
+    annotationProcessor(libs.jmh.generator.annprocess)
+    compileOnly(libs.findbugs.annotations)
+    runtimeOnly(libs.log4j.slf4j.impl)
+}
+
+// Runs the benchmarks, e.g. ./gradlew :microraft-benchmark:jmh -Pjmh.args="RaftMessageDispatchBenchmark -prof gc"
+tasks.register<JavaExec>("jmh") {
+    group = "benchmark"
+    description = "Runs the JMH benchmarks"
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass = "org.openjdk.jmh.Main"
+    val jmhArgs = providers.gradleProperty("jmh.args")
+    argumentProviders.add(CommandLineArgumentProvider {
+        jmhArgs.map { it.split(" ").filter(String::isNotBlank) }.getOrElse(emptyList())
+    })
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.microraft.benchmark;
+
+import static io.microraft.RaftConfig.DEFAULT_RAFT_CONFIG;
+import static io.microraft.RaftNodeStatus.isTerminal;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.microraft.RaftEndpoint;
+import io.microraft.RaftNode;
+import io.microraft.executor.impl.DefaultRaftNodeExecutor;
+import io.microraft.impl.RaftNodeImpl;
+import io.microraft.impl.local.LocalRaftEndpoint;
+import io.microraft.impl.local.LocalTransport;
+import io.microraft.impl.local.SimpleStateMachine;
+import io.microraft.impl.task.RaftNodeStatusAwareTask;
+import io.microraft.model.RaftModelFactory;
+import io.microraft.model.impl.DefaultRaftModelFactory;
+import io.microraft.model.message.AppendEntriesFailureResponse;
+import io.microraft.model.message.AppendEntriesRequest;
+import io.microraft.model.message.AppendEntriesSuccessResponse;
+import io.microraft.model.message.InstallSnapshotRequest;
+import io.microraft.model.message.InstallSnapshotResponse;
+import io.microraft.model.message.PreVoteRequest;
+import io.microraft.model.message.PreVoteResponse;
+import io.microraft.model.message.RaftMessage;
+import io.microraft.model.message.TriggerLeaderElectionRequest;
+import io.microraft.model.message.VoteRequest;
+import io.microraft.model.message.VoteResponse;
+
+/**
+ * Measures the cost of dispatching received Raft messages to their handlers
+ * on the Raft node thread.
+ * <p>
+ * Each invocation hands a batch of messages to a Raft node which runs on a
+ * {@link DefaultRaftNodeExecutor}, and waits until the Raft node thread
+ * processes all of them. The Raft node is not started, so handlers return
+ * right after the status check and the benchmark captures only the dispatch
+ * path. {@link #legacyDispatch()} replicates the previous dispatch path: it
+ * checks the Raft node status, walks the {@code instanceof} chain, allocates a
+ * new {@link RaftNodeStatusAwareTask} handler for each message and submits it
+ * to the executor. Run with {@code -prof gc} to compare the allocation rates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RaftMessageDispatchBenchmark {
+
+    private static final int BATCH_SIZE = 64;
+
+    @Param({"APPEND_ENTRIES_REQUEST", "APPEND_ENTRIES_SUCCESS_RESPONSE", "TRIGGER_LEADER_ELECTION_REQUEST"})
+    private String messageType;
+
+    private DefaultRaftNodeExecutor executor;
+    private RaftNodeImpl raftNode;
+    private RaftMessage message;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        RaftEndpoint localEndpoint = LocalRaftEndpoint.newEndpoint();
+        RaftEndpoint follower = LocalRaftEndpoint.newEndpoint();
+        executor = new DefaultRaftNodeExecutor();
+        raftNode = (RaftNodeImpl) RaftNode.newBuilder().setGroupId("default").setLocalEndpoint(localEndpoint)
+                .setInitialGroupMembers(List.of(localEndpoint, follower)).setConfig(DEFAULT_RAFT_CONFIG)
+                .setExecutor(executor).setTransport(new LocalTransport(localEndpoint))
+                .setStateMachine(new SimpleStateMachine()).build();
+        message = createMessage(new DefaultRaftModelFactory(), follower);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        raftNode.terminate();
+        executor.getExecutor().shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void dispatch() throws InterruptedException {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            raftNode.handle(message);
+        }
+
+        awaitRaftNodeThread();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void legacyDispatch() throws InterruptedException {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            legacyHandle(message);
+        }
+
+        awaitRaftNodeThread();
+    }
+
+    private void legacyHandle(RaftMessage msg) {
+        if (isTerminal(raftNode.getStatus())) {
+            return;
+        }
+
+        Runnable handler;
+        if (msg instanceof AppendEntriesRequest) {
+            handler = new LegacyHandler(raftNode, msg);
+        } else if (msg instanceof AppendEntriesSuccessResponse) {
+            handler = new LegacyHandler(raftNode, msg);
+        } else if (msg instanceof AppendEntriesFailureResponse) {
+            handler = new LegacyHandler(raftNode, msg);
+        } else if (msg instanceof InstallSnapshotRequest) {
+            handler = new LegacyHandler(raftNode, msg);
+        } else if (msg instanceof InstallSnapshotResponse) {
+            handler = new LegacyHandler(raftNode, msg);
+        } else if (msg instanceof VoteRequest) {
+            handler = new LegacyHandler(raftNode, msg);
+        } else if (msg instanceof VoteResponse) {
+            handler = new LegacyHandler(raftNode, msg);
+        } else if (msg instanceof PreVoteRequest) {
+            handler = new LegacyHandler(raftNode, msg);
+        } else if (msg instanceof PreVoteResponse) {
+            handler = new LegacyHandler(raftNode, msg);
+        } else if (msg instanceof TriggerLeaderElectionRequest) {
+            handler = new LegacyHandler(raftNode, msg);
+        } else {
+            throw new IllegalArgumentException("Invalid Raft msg: " + msg);
+        }
+
+        executor.execute(handler);
+    }
+
+    // the executor runs its tasks in order, so the Raft node thread has
+    // processed the batch once this task runs
+    private void awaitRaftNodeThread() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        executor.submit(latch::countDown);
+        latch.await();
+    }
+
+    private RaftMessage createMessage(RaftModelFactory modelFactory, RaftEndpoint sender) {
+        switch (messageType) {
+            case "APPEND_ENTRIES_REQUEST":
+                return modelFactory.createAppendEntriesRequestBuilder().setGroupId("default").setSender(sender)
+                        .setTerm(1).setPreviousLogTerm(0).setPreviousLogIndex(0).setCommitIndex(0)
+                        .setLogEntries(Collections.emptyList()).setQuerySequenceNumber(0)
+                        .setFlowControlSequenceNumber(0).build();
+            case "APPEND_ENTRIES_SUCCESS_RESPONSE":
+                return modelFactory.createAppendEntriesSuccessResponseBuilder().setGroupId("default").setSender(sender)
+                        .setTerm(1).setLastLogIndex(0).setQuerySequenceNumber(0).setFlowControlSequenceNumber(0)
+                        .build();
+            case "TRIGGER_LEADER_ELECTION_REQUEST":
+                return modelFactory.createTriggerLeaderElectionRequestBuilder().setGroupId("default")
+                        .setSender(sender).setTerm(1).setLastLogTerm(0).setLastLogIndex(0).build();
+            default:
+                throw new IllegalArgumentException("Unknown message type: " + messageType);
+        }
+    }
+
+    /**
+     * Handler object allocated per message by the previous dispatch path. The
+     * message is never handled since the Raft node is not started.
+     */
+    private static final class LegacyHandler extends RaftNodeStatusAwareTask {
+        private final RaftMessage message;
+
+        LegacyHandler(RaftNodeImpl node, RaftMessage message) {
+            super(node);
+            this.message = message;
+        }
+
+        @Override
+        protected void doRun() {
+            throw new IllegalStateException("Raft node is not started to handle " + message);
+        }
+    }
+
+}
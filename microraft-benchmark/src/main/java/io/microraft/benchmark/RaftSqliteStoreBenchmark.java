@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.microraft.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import org.jooq.CloseableDSLContext;
+import org.jooq.Field;
+import org.jooq.InsertValuesStep2;
+import org.jooq.Record;
+import org.jooq.Table;
+import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sqlite.SQLiteConfig;
+import org.sqlite.SQLiteConfig.JournalMode;
+import org.sqlite.SQLiteConfig.LockingMode;
+import org.sqlite.SQLiteConfig.Pragma;
+
+import io.microraft.RaftEndpoint;
+import io.microraft.model.impl.DefaultModelSerializers;
+import io.microraft.model.impl.DefaultRaftModelFactory;
+import io.microraft.model.log.LogEntry;
+import io.microraft.model.log.RaftGroupMembersView;
+import io.microraft.model.log.SnapshotChunk;
+import io.microraft.model.persistence.RaftEndpointPersistentState;
+import io.microraft.model.persistence.RaftTermPersistentState;
+import io.microraft.persistence.RaftStoreSerializer;
+import io.microraft.persistence.RaftStoreSerializer.BufferSerializer;
+import io.microraft.store.sqlite.RaftSqliteStore;
+import io.microraft.store.sqlite.RaftSqliteStoreConfig;
+import io.microraft.store.sqlite.RaftSqliteStoreConfig.SynchronousMode;
+
+/**
+ * Measures how fast log entries are persisted and flushed by
+ * {@link RaftSqliteStore}.
+ * <p>
+ * Each invocation persists a batch of {@link #batchSize} log entries and
+ * flushes them, hence the number of persisted log entries per second is the
+ * reported throughput multiplied by the batch size.
+ * {@link #legacyPersistLogEntries()} emulates the previous persistence path
+ * which built a multi-row jOOQ insert statement for each batch.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RaftSqliteStoreBenchmark {
+
+    private static final Table<Record> LOG_ENTRIES = DSL.table("logEntries");
+    private static final Field<Long> INDEX = DSL.field("logIndex", SQLDataType.BIGINT);
+    private static final Field<byte[]> LOG_ENTRY = DSL.field("logEntry", SQLDataType.BINARY);
+
+    @Param({"1", "32", "256"})
+    private int batchSize;
+
+    @Param({"EXTRA", "NORMAL"})
+    private SynchronousMode synchronousMode;
+
+    @Param({"128"})
+    private int operationSize;
+
+    private final DefaultRaftModelFactory modelFactory = new DefaultRaftModelFactory();
+    private final BenchmarkSerializer serializer = new BenchmarkSerializer();
+    private File directory;
+    private RaftSqliteStore store;
+    private CloseableDSLContext legacyDsl;
+    private byte[] operation;
+    private long nextLogIndex = 1;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("microraft-sqlite-benchmark").toFile();
+        store = RaftSqliteStore.create(new File(directory, "store.db"), modelFactory, serializer,
+                RaftSqliteStoreConfig.newBuilder().setSynchronousMode(synchronousMode).build());
+
+        SQLiteConfig config = new SQLiteConfig();
+        config.setPragma(Pragma.JOURNAL_MODE, JournalMode.WAL.getValue());
+        config.setPragma(Pragma.LOCKING_MODE, LockingMode.EXCLUSIVE.getValue());
+        config.setPragma(Pragma.SYNCHRONOUS, synchronousMode.name());
+        legacyDsl = DSL.using("jdbc:sqlite:" + new File(directory, "legacy.db"), config.toProperties());
+        legacyDsl.connection(conn -> conn.setAutoCommit(false));
+        legacyDsl.createTableIfNotExists(LOG_ENTRIES).column(INDEX).column(LOG_ENTRY).primaryKey(INDEX).execute();
+        legacyDsl.connection(Connection::commit);
+
+        operation = new byte[operationSize];
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        store.onRaftNodeTerminate();
+        legacyDsl.close();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Benchmark
+    public void persistLogEntries() {
+        store.persistLogEntries(nextBatch());
+        store.flush();
+    }
+
+    @Benchmark
+    public void legacyPersistLogEntries() {
+        InsertValuesStep2<Record, Long, byte[]> statement = legacyDsl.insertInto(LOG_ENTRIES, INDEX, LOG_ENTRY);
+        for (LogEntry entry : nextBatch()) {
+            statement.values(entry.getIndex(), serializer.logEntrySerializer().serialize(entry));
+        }
+        statement.onDuplicateKeyIgnore().execute();
+        legacyDsl.connection(Connection::commit);
+    }
+
+    private List<LogEntry> nextBatch() {
+        List<LogEntry> entries = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            entries.add(modelFactory.createLogEntryBuilder().setIndex(nextLogIndex++).setTerm(1)
+                    .setOperation(operation).build());
+        }
+
+        return entries;
+    }
+
+    /**
+     * Serializes only the log entries, whose operations are byte arrays.
+     */
+    private static final class BenchmarkSerializer implements RaftStoreSerializer {
+
+        private final BufferSerializer<LogEntry> logEntrySerializer = DefaultModelSerializers
+                .logEntrySerializer(new BytesSerializer(), new UnsupportedSerializer<>());
+
+        @Override
+        public Serializer<RaftGroupMembersView> raftGroupMembersViewSerializer() {
+            return new UnsupportedSerializer<>();
+        }
+
+        @Override
+        public Serializer<RaftEndpoint> raftEndpointSerializer() {
+            return new UnsupportedSerializer<>();
+        }
+
+        @Override
+        public Serializer<LogEntry> logEntrySerializer() {
+            return logEntrySerializer;
+        }
+
+        @Override
+        public Serializer<SnapshotChunk> snapshotChunkSerializer() {
+            return new UnsupportedSerializer<>();
+        }
+
+        @Override
+        public Serializer<RaftEndpointPersistentState> raftEndpointPersistentStateSerializer() {
+            return new UnsupportedSerializer<>();
+        }
+
+        @Override
+        public Serializer<RaftTermPersistentState> raftTermPersistentState() {
+            return new UnsupportedSerializer<>();
+        }
+    }
+
+    private static final class BytesSerializer implements BufferSerializer<Object> {
+        @Override
+        public int serializedSize(@Nonnull Object element) {
+            return 4 + ((byte[]) element).length;
+        }
+
+        @Override
+        public void serialize(@Nonnull Object element, @Nonnull ByteBuffer target) {
+            byte[] bytes = (byte[]) element;
+            target.putInt(bytes.length).put(bytes);
+        }
+
+        @Nonnull
+        @Override
+        public Object deserialize(@Nonnull ByteBuffer source) {
+            byte[] bytes = new byte[source.getInt()];
+            source.get(bytes);
+            return bytes;
+        }
+    }
+
+    private static final class UnsupportedSerializer<T> implements BufferSerializer<T> {
+        @Override
+        public int serializedSize(@Nonnull T element) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void serialize(@Nonnull T element, @Nonnull ByteBuffer target) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Nonnull
+        @Override
+        public T deserialize(@Nonnull ByteBuffer source) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microraft.benchmark;
+
+import static io.microraft.RaftConfig.DEFAULT_RAFT_CONFIG;
+import static io.microraft.impl.local.SimpleStateMachine.applyValue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.microraft.RaftEndpoint;
+import io.microraft.RaftNode;
+import io.microraft.impl.local.LinkProfile;
+import io.microraft.impl.local.LocalRaftEndpoint;
+import io.microraft.impl.local.ShapedLocalTransport;
+import io.microraft.impl.local.SimpleStateMachine;
+
+/**
+ * Measures the replication throughput of a 3-node Raft group whose nodes talk
+ * over {@link ShapedLocalTransport}, e.g., to model a group spread over the
+ * availability zones of a cloud region on a single machine.
+ * <p>
+ * {@link #replicate()} waits for each operation to commit before replicating
+ * the next one, so it is bounded by the round-trip time. {@link #pipeline()}
+ * keeps {@value #PIPELINE_DEPTH} operations in flight and shows how much of the
+ * round-trip time the log replication pipeline hides.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShapedReplicationBenchmark {
+
+    private static final int GROUP_SIZE = 3;
+    private static final int PIPELINE_DEPTH = 32;
+    private static final long LEADER_ELECTION_TIMEOUT_MILLIS = 60_000;
+
+    @Param({"0", "500", "2000"})
+    private long delayMicros;
+
+    @Param({"0", "12500000"})
+    private long bandwidthBytesPerSecond;
+
+    private final List<RaftNode> nodes = new ArrayList<>();
+    private ScheduledExecutorService deliveryExecutor;
+    private RaftNode leader;
+
+    @Setup(Level.Trial)
+    public void setup() throws InterruptedException {
+        LinkProfile profile = LinkProfile.newBuilder().setDelay(delayMicros, TimeUnit.MICROSECONDS)
+                .setJitter(delayMicros / 10, TimeUnit.MICROSECONDS).setBandwidth(bandwidthBytesPerSecond).build();
+        deliveryExecutor = Executors.newSingleThreadScheduledExecutor();
+
+        List<RaftEndpoint> members = new ArrayList<>();
+        for (int i = 0; i < GROUP_SIZE; i++) {
+            members.add(LocalRaftEndpoint.newEndpoint());
+        }
+
+        List<ShapedLocalTransport> transports = new ArrayList<>();
+        for (RaftEndpoint endpoint : members) {
+            ShapedLocalTransport transport = new ShapedLocalTransport(endpoint, deliveryExecutor, profile);
+            transports.add(transport);
+            nodes.add(RaftNode.newBuilder().setGroupId("default").setLocalEndpoint(endpoint)
+                    .setInitialGroupMembers(members).setConfig(DEFAULT_RAFT_CONFIG).setTransport(transport)
+                    .setStateMachine(new SimpleStateMachine()).build());
+        }
+
+        for (int i = 0; i < GROUP_SIZE; i++) {
+            for (int j = 0; j < GROUP_SIZE; j++) {
+                if (i != j) {
+                    transports.get(i).discoverNode(nodes.get(j));
+                }
+            }
+        }
+
+        nodes.forEach(RaftNode::start);
+        leader = waitUntilLeaderElected();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        nodes.forEach(RaftNode::terminate);
+        nodes.clear();
+        deliveryExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public Object replicate() {
+        return leader.replicate(applyValue("value")).join();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PIPELINE_DEPTH)
+    public void pipeline() {
+        CompletableFuture<?>[] futures = new CompletableFuture[PIPELINE_DEPTH];
+        for (int i = 0; i < PIPELINE_DEPTH; i++) {
+            futures[i] = leader.replicate(applyValue("value"));
+        }
+
+        CompletableFuture.allOf(futures).join();
+    }
+
+    private RaftNode waitUntilLeaderElected() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + LEADER_ELECTION_TIMEOUT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            for (RaftNode node : nodes) {
+                if (node.getLocalEndpoint().equals(node.getTerm().getLeaderEndpoint())) {
+                    return node;
+                }
+            }
+
+            Thread.sleep(10);
+        }
+
+        throw new IllegalStateException("No leader is elected in " + LEADER_ELECTION_TIMEOUT_MILLIS + " ms!");
+    }
+
+}
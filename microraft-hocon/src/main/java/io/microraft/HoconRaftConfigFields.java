@@ -66,6 +66,36 @@ public final class HoconRaftConfigFields {
      */
     public static final String RAFT_NODE_REPORT_PUBLISH_PERIOD_SECS_FIELD_NAME = "raft.raft-node-report-publish-period-secs";
 
+    /**
+     * Field name of {@link RaftConfig#isReplicationTickEnabled()}
+     */
+    public static final String REPLICATION_TICK_ENABLED_FIELD_NAME = "raft.replication-tick-enabled";
+
+    /**
+     * Field name of {@link RaftConfig#getReplicationTickMicros()}
+     */
+    public static final String REPLICATION_TICK_MICROS_FIELD_NAME = "raft.replication-tick-micros";
+
+    /**
+     * Field name of {@link RaftConfig#isQuiescenceEnabled()}
+     */
+    public static final String QUIESCENCE_ENABLED_FIELD_NAME = "raft.quiescence-enabled";
+
+    /**
+     * Field name of {@link RaftConfig#isFastLeadershipTransferEnabled()}
+     */
+    public static final String FAST_LEADERSHIP_TRANSFER_ENABLED_FIELD_NAME = "raft.fast-leadership-transfer-enabled";
+
+    /**
+     * Field name of {@link RaftConfig#getMaxLearnerCount()}
+     */
+    public static final String MAX_LEARNER_COUNT_FIELD_NAME = "raft.max-learner-count";
+
+    /**
+     * Field name of {@link RaftConfig#getMaxLearnerPromotionLag()}
+     */
+    public static final String MAX_LEARNER_PROMOTION_LAG_FIELD_NAME = "raft.max-learner-promotion-lag";
+
     private HoconRaftConfigFields() {
     }
 }
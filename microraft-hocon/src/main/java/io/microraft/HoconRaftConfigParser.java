@@ -18,12 +18,18 @@ package io.microraft;
 
 import static io.microraft.HoconRaftConfigFields.APPEND_ENTRIES_REQUEST_BATCH_SIZE_FIELD_NAME;
 import static io.microraft.HoconRaftConfigFields.COMMIT_COUNT_TO_TAKE_SNAPSHOT_FIELD_NAME;
+import static io.microraft.HoconRaftConfigFields.FAST_LEADERSHIP_TRANSFER_ENABLED_FIELD_NAME;
 import static io.microraft.HoconRaftConfigFields.LEADER_ELECTION_TIMEOUT_MILLIS_FIELD_NAME;
 import static io.microraft.HoconRaftConfigFields.LEADER_HEARTBEAT_PERIOD_SECS_FIELD_NAME;
 import static io.microraft.HoconRaftConfigFields.LEADER_HEARTBEAT_TIMEOUT_SECS_FIELD_NAME;
+import static io.microraft.HoconRaftConfigFields.MAX_LEARNER_COUNT_FIELD_NAME;
+import static io.microraft.HoconRaftConfigFields.MAX_LEARNER_PROMOTION_LAG_FIELD_NAME;
 import static io.microraft.HoconRaftConfigFields.MAX_PENDING_LOG_ENTRY_COUNT_FIELD_NAME;
+import static io.microraft.HoconRaftConfigFields.QUIESCENCE_ENABLED_FIELD_NAME;
 import static io.microraft.HoconRaftConfigFields.RAFT_CONFIG_CONTAINER_NAME;
 import static io.microraft.HoconRaftConfigFields.RAFT_NODE_REPORT_PUBLISH_PERIOD_SECS_FIELD_NAME;
+import static io.microraft.HoconRaftConfigFields.REPLICATION_TICK_ENABLED_FIELD_NAME;
+import static io.microraft.HoconRaftConfigFields.REPLICATION_TICK_MICROS_FIELD_NAME;
 import static io.microraft.HoconRaftConfigFields.TRANSFER_SNAPSHOTS_FROM_FOLLOWERS_ENABLED_FIELD_NAME;
 import static java.util.Objects.requireNonNull;
 
@@ -105,6 +111,30 @@ public final class HoconRaftConfigParser {
             builder.setRaftNodeReportPublishPeriodSecs(getInt(config, RAFT_NODE_REPORT_PUBLISH_PERIOD_SECS_FIELD_NAME));
         }
 
+        if (config.hasPath(REPLICATION_TICK_ENABLED_FIELD_NAME)) {
+            builder.setReplicationTickEnabled(config.getBoolean(REPLICATION_TICK_ENABLED_FIELD_NAME));
+        }
+
+        if (config.hasPath(REPLICATION_TICK_MICROS_FIELD_NAME)) {
+            builder.setReplicationTickMicros(getLong(config, REPLICATION_TICK_MICROS_FIELD_NAME));
+        }
+
+        if (config.hasPath(QUIESCENCE_ENABLED_FIELD_NAME)) {
+            builder.setQuiescenceEnabled(config.getBoolean(QUIESCENCE_ENABLED_FIELD_NAME));
+        }
+
+        if (config.hasPath(FAST_LEADERSHIP_TRANSFER_ENABLED_FIELD_NAME)) {
+            builder.setFastLeadershipTransferEnabled(config.getBoolean(FAST_LEADERSHIP_TRANSFER_ENABLED_FIELD_NAME));
+        }
+
+        if (config.hasPath(MAX_LEARNER_COUNT_FIELD_NAME)) {
+            builder.setMaxLearnerCount(getInt(config, MAX_LEARNER_COUNT_FIELD_NAME));
+        }
+
+        if (config.hasPath(MAX_LEARNER_PROMOTION_LAG_FIELD_NAME)) {
+            builder.setMaxLearnerPromotionLag(getInt(config, MAX_LEARNER_PROMOTION_LAG_FIELD_NAME));
+        }
+
         return builder.build();
     }
 
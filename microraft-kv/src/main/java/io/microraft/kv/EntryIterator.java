@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.microraft.kv;
+
+/**
+ * A cursor over entries sorted by key. {@link #value()} returns
+ * {@link LsmKvStore#TOMBSTONE} for deleted keys.
+ */
+interface EntryIterator {
+
+    /**
+     * Moves to the next entry.
+     *
+     * @return true if there is a next entry, false otherwise
+     */
+    boolean next();
+
+    /**
+     * Returns the key of the current entry.
+     *
+     * @return the key of the current entry
+     */
+    byte[] key();
+
+    /**
+     * Returns the value of the current entry.
+     *
+     * @return the value of the current entry
+     */
+    byte[] value();
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.microraft.kv;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * A key-value pair returned by the scans of {@link LsmKvStore}.
+ * <p>
+ * The key and value are not copied, hence they must not be modified.
+ */
+@SuppressFBWarnings({"EI_EXPOSE_REP", "EI_EXPOSE_REP2"})
+public final class KvEntry {
+
+    private final byte[] key;
+    private final byte[] value;
+
+    public KvEntry(@Nonnull byte[] key, @Nonnull byte[] value) {
+        this.key = requireNonNull(key);
+        this.value = requireNonNull(value);
+    }
+
+    /**
+     * Returns the key.
+     *
+     * @return the key
+     */
+    @Nonnull
+    public byte[] getKey() {
+        return key;
+    }
+
+    /**
+     * Returns the value.
+     *
+     * @return the value
+     */
+    @Nonnull
+    public byte[] getValue() {
+        return value;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        KvEntry that = (KvEntry) o;
+        return Arrays.equals(key, that.key) && Arrays.equals(value, that.value);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(key) + Arrays.hashCode(value);
+    }
+
+    @Override
+    public String toString() {
+        return "KvEntry{" + "key=" + Arrays.toString(key) + ", value=" + Arrays.toString(value) + '}';
+    }
+
+}
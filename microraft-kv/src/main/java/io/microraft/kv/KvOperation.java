@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.microraft.kv;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Arrays;
+import java.util.List;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * The operations executed by {@link KvStateMachine}.
+ * <p>
+ * {@link Put}, {@link Delete}, and {@link Batch} are write operations and must
+ * be replicated via {@link io.microraft.RaftNode#replicate(Object)}.
+ * {@link Get} and {@link Scan} are read operations and can be run via
+ * {@link io.microraft.RaftNode#query(Object, io.microraft.QueryPolicy,
+ * java.util.Optional, java.util.Optional)}.
+ * <p>
+ * Users are responsible for serializing the operations in their
+ * {@link io.microraft.transport.Transport} and
+ * {@link io.microraft.persistence.RaftStore} implementations.
+ * <p>
+ * The operations do not copy the given keys and values, hence they must not
+ * be modified after the operations are created.
+ */
+public interface KvOperation {
+
+    /**
+     * Returns an operation which sets the value of the given key. The
+     * operation returns null.
+     *
+     * @param key
+     *            the key to set the value of
+     * @param value
+     *            the value to set
+     * @return the put operation
+     */
+    static Put put(@Nonnull byte[] key, @Nonnull byte[] value) {
+        return new Put(key, value);
+    }
+
+    /**
+     * Returns an operation which deletes the given key. The operation returns
+     * null.
+     *
+     * @param key
+     *            the key to delete
+     * @return the delete operation
+     */
+    static Delete delete(@Nonnull byte[] key) {
+        return new Delete(key);
+    }
+
+    /**
+     * Returns an operation which applies the given put and delete operations
+     * in order, as a single Raft log entry. The operation returns null.
+     *
+     * @param operations
+     *            the put and delete operations to apply
+     * @return the batch operation
+     * @throws IllegalArgumentException
+     *             if the given list contains an operation other than put or
+     *             delete
+     */
+    static Batch batch(@Nonnull List<KvOperation> operations) {
+        return new Batch(operations);
+    }
+
+    /**
+     * Returns an operation which returns the value of the given key, or null
+     * if the key does not exist.
+     *
+     * @param key
+     *            the key to get the value of
+     * @return the get operation
+     */
+    static Get get(@Nonnull byte[] key) {
+        return new Get(key);
+    }
+
+    /**
+     * Returns an operation which returns the entries in the given key range as
+     * a list of {@link KvEntry}.
+     *
+     * @param fromInclusive
+     *            the first key of the range, or null to start from the first
+     *            key
+     * @param toExclusive
+     *            the key after the range, or null to scan until the last key
+     * @param limit
+     *            the maximum number of entries to return
+     * @return the scan operation
+     */
+    static Scan scan(@Nullable byte[] fromInclusive, @Nullable byte[] toExclusive, @Nonnegative int limit) {
+        return new Scan(fromInclusive, toExclusive, limit);
+    }
+
+    /**
+     * Sets the value of a key.
+     */
+    @SuppressFBWarnings({"EI_EXPOSE_REP", "EI_EXPOSE_REP2"})
+    final class Put implements KvOperation {
+        private final byte[] key;
+        private final byte[] value;
+
+        private Put(byte[] key, byte[] value) {
+            this.key = requireNonNull(key);
+            this.value = requireNonNull(value);
+        }
+
+        public byte[] getKey() {
+            return key;
+        }
+
+        public byte[] getValue() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return "Put{" + "key=" + Arrays.toString(key) + ", value=" + Arrays.toString(value) + '}';
+        }
+    }
+
+    /**
+     * Deletes a key.
+     */
+    @SuppressFBWarnings({"EI_EXPOSE_REP", "EI_EXPOSE_REP2"})
+    final class Delete implements KvOperation {
+        private final byte[] key;
+
+        private Delete(byte[] key) {
+            this.key = requireNonNull(key);
+        }
+
+        public byte[] getKey() {
+            return key;
+        }
+
+        @Override
+        public String toString() {
+            return "Delete{" + "key=" + Arrays.toString(key) + '}';
+        }
+    }
+
+    /**
+     * Applies multiple put and delete operations in order.
+     */
+    final class Batch implements KvOperation {
+        private final List<KvOperation> operations;
+
+        private Batch(List<KvOperation> operations) {
+            for (KvOperation operation : operations) {
+                if (!(operation instanceof Put || operation instanceof Delete)) {
+                    throw new IllegalArgumentException("Invalid operation in batch: " + operation);
+                }
+            }
+            this.operations = List.copyOf(operations);
+        }
+
+        public List<KvOperation> getOperations() {
+            return operations;
+        }
+
+        @Override
+        public String toString() {
+            return "Batch{" + "operations=" + operations + '}';
+        }
+    }
+
+    /**
+     * Appended by the Raft leader after it is elected in a new term. Does not
+     * change the state.
+     */
+    final class NoOp implements KvOperation {
+        public static final NoOp INSTANCE = new NoOp();
+
+        private NoOp() {
+        }
+
+        @Override
+        public String toString() {
+            return "NoOp{}";
+        }
+    }
+
+    /**
+     * Returns the value of a key.
+     */
+    @SuppressFBWarnings({"EI_EXPOSE_REP", "EI_EXPOSE_REP2"})
+    final class Get implements KvOperation {
+        private final byte[] key;
+
+        private Get(byte[] key) {
+            this.key = requireNonNull(key);
+        }
+
+        public byte[] getKey() {
+            return key;
+        }
+
+        @Override
+        public String toString() {
+            return "Get{" + "key=" + Arrays.toString(key) + '}';
+        }
+    }
+
+    /**
+     * Returns the entries in a key range.
+     */
+    @SuppressFBWarnings({"EI_EXPOSE_REP", "EI_EXPOSE_REP2"})
+    final class Scan implements KvOperation {
+        private final byte[] fromInclusive;
+        private final byte[] toExclusive;
+        private final int limit;
+
+        private Scan(byte[] fromInclusive, byte[] toExclusive, int limit) {
+            if (limit < 0) {
+                throw new IllegalArgumentException("limit: " + limit + " cannot be negative!");
+            }
+            this.fromInclusive = fromInclusive;
+            this.toExclusive = toExclusive;
+            this.limit = limit;
+        }
+
+        @Nullable
+        public byte[] getFromInclusive() {
+            return fromInclusive;
+        }
+
+        @Nullable
+        public byte[] getToExclusive() {
+            return toExclusive;
+        }
+
+        public int getLimit() {
+            return limit;
+        }
+
+        @Override
+        public String toString() {
+            return "Scan{" + "fromInclusive=" + Arrays.toString(fromInclusive) + ", toExclusive="
+                    + Arrays.toString(toExclusive) + ", limit=" + limit + '}';
+        }
+    }
+
+}
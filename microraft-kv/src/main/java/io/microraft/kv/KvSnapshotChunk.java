@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.microraft.kv;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * A snapshot chunk created by {@link KvStateMachine}.
+ * <p>
+ * Contains a range of entries in the key order, each one encoded as
+ * {@code [int key length][key][int value length][value]}. The chunk is
+ * self-contained, so users can serialize it simply by writing its data. The
+ * data is not copied, hence it must not be modified.
+ */
+@SuppressFBWarnings({"EI_EXPOSE_REP", "EI_EXPOSE_REP2"})
+public final class KvSnapshotChunk {
+
+    private final byte[] data;
+
+    public KvSnapshotChunk(@Nonnull byte[] data) {
+        this.data = requireNonNull(data);
+    }
+
+    /**
+     * Returns the encoded entries of the chunk.
+     *
+     * @return the encoded entries of the chunk
+     */
+    @Nonnull
+    public byte[] getData() {
+        return data;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        return Arrays.equals(data, ((KvSnapshotChunk) o).data);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(data);
+    }
+
+    @Override
+    public String toString() {
+        return "KvSnapshotChunk{" + "size=" + data.length + '}';
+    }
+
+}
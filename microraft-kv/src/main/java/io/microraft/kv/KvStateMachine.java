@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.microraft.kv;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnull;
+
+import io.microraft.kv.KvOperation.Batch;
+import io.microraft.kv.KvOperation.Delete;
+import io.microraft.kv.KvOperation.Get;
+import io.microraft.kv.KvOperation.NoOp;
+import io.microraft.kv.KvOperation.Put;
+import io.microraft.kv.KvOperation.Scan;
+import io.microraft.lifecycle.RaftNodeLifecycleAware;
+import io.microraft.statemachine.StateMachine;
+
+/**
+ * A replicated key-value {@link StateMachine} built on {@link LsmKvStore}.
+ * <p>
+ * Runs the operations created via the factory methods of {@link KvOperation}.
+ * A {@link Batch} operation applies all of its writes with a single memtable
+ * size check, so a batch does not trigger multiple flushes.
+ * <p>
+ * Snapshots are taken by iterating the merged content of the store and cutting
+ * it into {@link KvSnapshotChunk} objects of roughly
+ * {@link KvStoreConfig#getSnapshotChunkSizeBytes()} bytes. Since the chunks
+ * depend only on the content of the store, and not on how it is laid out in
+ * the memtable and the SSTable files, all Raft nodes create the same chunks
+ * for the same commit index. Snapshots are installed by clearing the store and
+ * bulk-loading the chunks into a sorted run of SSTable files of at most
+ * {@link KvStoreConfig#getMaxSSTableSizeBytes()} bytes each, without going
+ * through the memtable.
+ * <p>
+ * The store is deleted when the Raft node terminates.
+ */
+public class KvStateMachine implements StateMachine, RaftNodeLifecycleAware {
+
+    private final KvStoreConfig config;
+    private final LsmKvStore store;
+
+    public KvStateMachine(@Nonnull Path directory) {
+        this(directory, KvStoreConfig.DEFAULT_KV_STORE_CONFIG);
+    }
+
+    public KvStateMachine(@Nonnull Path directory, @Nonnull KvStoreConfig config) {
+        this.config = config;
+        this.store = new LsmKvStore(directory, config);
+    }
+
+    @Override
+    public Object runOperation(long commitIndex, @Nonnull Object operation) {
+        if (operation instanceof Put) {
+            Put put = (Put) operation;
+            store.put(put.getKey(), put.getValue());
+            return null;
+        } else if (operation instanceof Delete) {
+            store.delete(((Delete) operation).getKey());
+            return null;
+        } else if (operation instanceof Batch) {
+            for (KvOperation write : ((Batch) operation).getOperations()) {
+                if (write instanceof Put) {
+                    Put put = (Put) write;
+                    store.putWithoutFlush(put.getKey(), put.getValue());
+                } else {
+                    store.deleteWithoutFlush(((Delete) write).getKey());
+                }
+            }
+            store.maybeFlush();
+            return null;
+        } else if (operation instanceof Get) {
+            return store.get(((Get) operation).getKey());
+        } else if (operation instanceof Scan) {
+            Scan scan = (Scan) operation;
+            return store.scan(scan.getFromInclusive(), scan.getToExclusive(), scan.getLimit());
+        } else if (operation instanceof NoOp) {
+            return null;
+        }
+
+        throw new IllegalArgumentException("Invalid operation: " + operation + " at commit index: " + commitIndex);
+    }
+
+    @Override
+    public void takeSnapshot(long commitIndex, Consumer<Object> snapshotChunkConsumer) {
+        int chunkSize = config.getSnapshotChunkSizeBytes();
+        ByteArrayOutputStream chunk = new ByteArrayOutputStream();
+        ByteBuffer lengthBuffer = ByteBuffer.allocate(Integer.BYTES);
+        int chunkCount = 0;
+        EntryIterator it = store.liveIterator(null);
+        while (it.next()) {
+            byte[] key = it.key();
+            byte[] value = it.value();
+            writeBytes(chunk, lengthBuffer, key);
+            writeBytes(chunk, lengthBuffer, value);
+            if (chunk.size() >= chunkSize) {
+                snapshotChunkConsumer.accept(new KvSnapshotChunk(chunk.toByteArray()));
+                chunk.reset();
+                chunkCount++;
+            }
+        }
+
+        // a snapshot must contain at least one chunk, even if the store is empty
+        if (chunk.size() > 0 || chunkCount == 0) {
+            snapshotChunkConsumer.accept(new KvSnapshotChunk(chunk.toByteArray()));
+        }
+    }
+
+    @Override
+    public void installSnapshot(long commitIndex, @Nonnull List<Object> snapshotChunks) {
+        store.clear();
+
+        try (SortedRun.Writer writer = store.newSortedRunWriter()) {
+            for (Object chunk : snapshotChunks) {
+                ByteBuffer data = ByteBuffer.wrap(((KvSnapshotChunk) chunk).getData());
+                while (data.hasRemaining()) {
+                    byte[] key = new byte[data.getInt()];
+                    data.get(key);
+                    byte[] value = new byte[data.getInt()];
+                    data.get(value);
+                    writer.add(key, value);
+                }
+            }
+
+            if (writer.entryCount() > 0) {
+                store.addSortedRun(writer.finish());
+            }
+        }
+    }
+
+    @Nonnull
+    @Override
+    public Object getNewTermOperation() {
+        return NoOp.INSTANCE;
+    }
+
+    @Override
+    public void onRaftNodeTerminate() {
+        store.close();
+    }
+
+    private static void writeBytes(ByteArrayOutputStream out, ByteBuffer lengthBuffer, byte[] bytes) {
+        lengthBuffer.clear();
+        lengthBuffer.putInt(bytes.length);
+        out.write(lengthBuffer.array(), 0, Integer.BYTES);
+        out.write(bytes, 0, bytes.length);
+    }
+
+}
@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.microraft.kv;
+
+/**
+ * Contains the configuration parameters of {@link LsmKvStore}.
+ * <p>
+ * KvStoreConfig is an immutable configuration class. You can use a
+ * KvStoreConfigBuilder to build a KvStoreConfig object.
+ * <p>
+ * All Raft nodes of a Raft group must use the same
+ * {@link #getSnapshotChunkSizeBytes()} value, since snapshot chunks must be
+ * populated deterministically on all Raft nodes.
+ */
+public final class KvStoreConfig {
+
+    /**
+     * The default value for {@link #memTableSizeBytes}, which is 4 MB.
+     */
+    public static final int DEFAULT_MEM_TABLE_SIZE_BYTES = 4 * 1024 * 1024;
+
+    /**
+     * The default value for {@link #maxSortedRunCount}.
+     */
+    public static final int DEFAULT_MAX_SORTED_RUN_COUNT = 8;
+
+    /**
+     * The default value for {@link #maxSSTableSizeBytes}, which is 64 MB.
+     */
+    public static final int DEFAULT_MAX_SSTABLE_SIZE_BYTES = 64 * 1024 * 1024;
+
+    /**
+     * The upper bound of {@link #maxSSTableSizeBytes}, which is 1 GB. SSTable
+     * files address their entries with int offsets, and a file can be larger
+     * than the configured size by a single entry and its sparse index.
+     */
+    public static final int MAX_SSTABLE_SIZE_BYTES_LIMIT = 1024 * 1024 * 1024;
+
+    /**
+     * The default value for {@link #indexInterval}.
+     */
+    public static final int DEFAULT_INDEX_INTERVAL = 16;
+
+    /**
+     * The default value for {@link #snapshotChunkSizeBytes}, which is 1 MB.
+     */
+    public static final int DEFAULT_SNAPSHOT_CHUNK_SIZE_BYTES = 1024 * 1024;
+
+    /**
+     * The config object with default configuration.
+     */
+    public static final KvStoreConfig DEFAULT_KV_STORE_CONFIG = new KvStoreConfigBuilder().build();
+
+    /**
+     * The number of bytes the off-heap memtable can hold before it is flushed
+     * into a new SSTable file.
+     */
+    private final int memTableSizeBytes;
+
+    /**
+     * The maximum number of sorted runs, i.e., groups of SSTable files with
+     * non-overlapping key ranges, each of which is written by a single flush,
+     * compaction or snapshot installation. When a flush exceeds this number,
+     * sorted runs of similar sizes are merged into one. The deleted keys are
+     * purged if the oldest sorted run takes part in the merge.
+     */
+    private final int maxSortedRunCount;
+
+    /**
+     * The number of bytes after which a new SSTable file is started while
+     * writing a sorted run. A file can be larger than this value by the size of
+     * a single entry and its sparse index.
+     */
+    private final int maxSSTableSizeBytes;
+
+    /**
+     * The number of entries between two consecutive keys in the sparse index of
+     * an SSTable file. Smaller values make lookups faster and the in-memory
+     * index larger.
+     */
+    private final int indexInterval;
+
+    /**
+     * The number of bytes after which a new snapshot chunk is started while
+     * taking a snapshot. A chunk can be larger than this value by the size of a
+     * single entry.
+     */
+    private final int snapshotChunkSizeBytes;
+
+    private KvStoreConfig(int memTableSizeBytes, int maxSortedRunCount, int maxSSTableSizeBytes, int indexInterval,
+            int snapshotChunkSizeBytes) {
+        this.memTableSizeBytes = memTableSizeBytes;
+        this.maxSortedRunCount = maxSortedRunCount;
+        this.maxSSTableSizeBytes = maxSSTableSizeBytes;
+        this.indexInterval = indexInterval;
+        this.snapshotChunkSizeBytes = snapshotChunkSizeBytes;
+    }
+
+    /**
+     * Creates a new config builder.
+     *
+     * @return the builder to populate the parameters for KvStoreConfig.
+     */
+    public static KvStoreConfigBuilder newBuilder() {
+        return new KvStoreConfigBuilder();
+    }
+
+    private static void checkPositive(long value, String errorMessage) {
+        if (value <= 0) {
+            throw new IllegalArgumentException(errorMessage);
+        }
+    }
+
+    /**
+     * @return the memtable size in bytes
+     *
+     * @see #memTableSizeBytes
+     */
+    public int getMemTableSizeBytes() {
+        return memTableSizeBytes;
+    }
+
+    /**
+     * @return the maximum number of sorted runs
+     *
+     * @see #maxSortedRunCount
+     */
+    public int getMaxSortedRunCount() {
+        return maxSortedRunCount;
+    }
+
+    /**
+     * @return the maximum SSTable file size in bytes
+     *
+     * @see #maxSSTableSizeBytes
+     */
+    public int getMaxSSTableSizeBytes() {
+        return maxSSTableSizeBytes;
+    }
+
+    /**
+     * @return the number of entries between two keys of the sparse index
+     *
+     * @see #indexInterval
+     */
+    public int getIndexInterval() {
+        return indexInterval;
+    }
+
+    /**
+     * @return the snapshot chunk size in bytes
+     *
+     * @see #snapshotChunkSizeBytes
+     */
+    public int getSnapshotChunkSizeBytes() {
+        return snapshotChunkSizeBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "KvStoreConfig{" + "memTableSizeBytes=" + memTableSizeBytes + ", maxSortedRunCount="
+                + maxSortedRunCount + ", maxSSTableSizeBytes=" + maxSSTableSizeBytes + ", indexInterval="
+                + indexInterval + ", snapshotChunkSizeBytes=" + snapshotChunkSizeBytes + '}';
+    }
+
+    /**
+     * The builder for KvStoreConfig.
+     */
+    public static final class KvStoreConfigBuilder {
+
+        private int memTableSizeBytes = DEFAULT_MEM_TABLE_SIZE_BYTES;
+        private int maxSortedRunCount = DEFAULT_MAX_SORTED_RUN_COUNT;
+        private int maxSSTableSizeBytes = DEFAULT_MAX_SSTABLE_SIZE_BYTES;
+        private int indexInterval = DEFAULT_INDEX_INTERVAL;
+        private int snapshotChunkSizeBytes = DEFAULT_SNAPSHOT_CHUNK_SIZE_BYTES;
+
+        private KvStoreConfigBuilder() {
+        }
+
+        /**
+         * @param memTableSizeBytes
+         *            the memtable size in bytes to set
+         *
+         * @return the builder object for fluent calls
+         *
+         * @see #memTableSizeBytes
+         */
+        public KvStoreConfigBuilder setMemTableSizeBytes(int memTableSizeBytes) {
+            checkPositive(memTableSizeBytes, "mem table size bytes: " + memTableSizeBytes + " must be positive!");
+            this.memTableSizeBytes = memTableSizeBytes;
+            return this;
+        }
+
+        /**
+         * @param maxSortedRunCount
+         *            the maximum number of sorted runs to set
+         *
+         * @return the builder object for fluent calls
+         *
+         * @see #maxSortedRunCount
+         */
+        public KvStoreConfigBuilder setMaxSortedRunCount(int maxSortedRunCount) {
+            checkPositive(maxSortedRunCount, "max sorted run count: " + maxSortedRunCount + " must be positive!");
+            this.maxSortedRunCount = maxSortedRunCount;
+            return this;
+        }
+
+        /**
+         * @param maxSSTableSizeBytes
+         *            the maximum SSTable file size in bytes to set
+         *
+         * @return the builder object for fluent calls
+         *
+         * @see #maxSSTableSizeBytes
+         */
+        public KvStoreConfigBuilder setMaxSSTableSizeBytes(int maxSSTableSizeBytes) {
+            checkPositive(maxSSTableSizeBytes,
+                    "max SSTable size bytes: " + maxSSTableSizeBytes + " must be positive!");
+            if (maxSSTableSizeBytes > MAX_SSTABLE_SIZE_BYTES_LIMIT) {
+                throw new IllegalArgumentException("max SSTable size bytes: " + maxSSTableSizeBytes
+                        + " cannot be greater than " + MAX_SSTABLE_SIZE_BYTES_LIMIT + "!");
+            }
+            this.maxSSTableSizeBytes = maxSSTableSizeBytes;
+            return this;
+        }
+
+        /**
+         * @param indexInterval
+         *            the number of entries between two keys of the sparse index
+         *
+         * @return the builder object for fluent calls
+         *
+         * @see #indexInterval
+         */
+        public KvStoreConfigBuilder setIndexInterval(int indexInterval) {
+            checkPositive(indexInterval, "index interval: " + indexInterval + " must be positive!");
+            this.indexInterval = indexInterval;
+            return this;
+        }
+
+        /**
+         * @param snapshotChunkSizeBytes
+         *            the snapshot chunk size in bytes to set
+         *
+         * @return the builder object for fluent calls
+         *
+         * @see #snapshotChunkSizeBytes
+         */
+        public KvStoreConfigBuilder setSnapshotChunkSizeBytes(int snapshotChunkSizeBytes) {
+            checkPositive(snapshotChunkSizeBytes,
+                    "snapshot chunk size bytes: " + snapshotChunkSizeBytes + " must be positive!");
+            this.snapshotChunkSizeBytes = snapshotChunkSizeBytes;
+            return this;
+        }
+
+        /**
+         * Builds the KvStoreConfig object.
+         *
+         * @return the KvStoreConfig object.
+         */
+        public KvStoreConfig build() {
+            return new KvStoreConfig(memTableSizeBytes, maxSortedRunCount, maxSSTableSizeBytes, indexInterval,
+                    snapshotChunkSizeBytes);
+        }
+    }
+
+}
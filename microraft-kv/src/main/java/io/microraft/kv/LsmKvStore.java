@@ -0,0 +1,368 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.microraft.kv;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An embedded, sorted key-value store built as a log-structured merge tree.
+ * <p>
+ * Writes go to an off-heap {@link MemTable}. Once the memtable reaches
+ * {@link KvStoreConfig#getMemTableSizeBytes()}, it is flushed into a new
+ * {@link SortedRun} of immutable {@link SSTable} files. Reads check the
+ * memtable first and then the sorted runs from the newest to the oldest.
+ * <p>
+ * When the number of sorted runs exceeds
+ * {@link KvStoreConfig#getMaxSortedRunCount()}, the store performs a
+ * size-tiered compaction: it merges a window of consecutive sorted runs of
+ * similar sizes into a new one, hence an entry is rewritten a logarithmic
+ * number of times in the size of the store, rather than on each compaction.
+ * The deleted keys are purged when the oldest sorted run takes part in the
+ * merge. Keys are compared lexicographically as unsigned bytes.
+ * <p>
+ * The store does not have a write-ahead log of its own. When it is used by
+ * {@link KvStateMachine}, its state is rebuilt from the Raft snapshot and log
+ * after a restart. Hence, the store owns its directory and deletes the
+ * SSTable files found in it on open.
+ * <p>
+ * This class is not thread-safe. Compactions run on the calling thread and
+ * their cost is amortized over the flushes as described above. Each SSTable
+ * file is at most {@link KvStoreConfig#getMaxSSTableSizeBytes()} long, hence
+ * the size of the store is not bounded by the size of a single file. Failures
+ * of the file system operations are thrown as {@link UncheckedIOException}.
+ */
+public final class LsmKvStore implements Closeable {
+
+    /**
+     * Marks a deleted key in the memtable and SSTable files. Compared by
+     * identity.
+     */
+    static final byte[] TOMBSTONE = new byte[0];
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LsmKvStore.class);
+    private static final String SSTABLE_FILE_SUFFIX = ".sst";
+    /**
+     * An older sorted run joins a compaction window if it is at most this many
+     * times larger than the newer sorted runs in the window combined.
+     */
+    private static final int COMPACTION_SIZE_RATIO = 2;
+
+    private final Path directory;
+    private final KvStoreConfig config;
+    private final MemTable memTable = new MemTable();
+    // from the newest to the oldest
+    private final List<SortedRun> sortedRuns = new ArrayList<>();
+    private long nextFileId;
+
+    public LsmKvStore(@Nonnull Path directory, @Nonnull KvStoreConfig config) {
+        this.directory = requireNonNull(directory);
+        this.config = requireNonNull(config);
+        try {
+            Files.createDirectories(directory);
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SSTABLE_FILE_SUFFIX)) {
+                for (Path file : files) {
+                    Files.delete(file);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open KV store in " + directory, e);
+        }
+    }
+
+    /**
+     * Returns the value of the given key, or null if the key does not exist.
+     *
+     * @param key
+     *            the key to get the value of
+     * @return the value of the given key, or null if the key does not exist
+     */
+    @Nullable
+    public byte[] get(@Nonnull byte[] key) {
+        byte[] value = memTable.get(key);
+        for (int i = 0; value == null && i < sortedRuns.size(); i++) {
+            value = sortedRuns.get(i).get(key);
+        }
+
+        return value != TOMBSTONE ? value : null;
+    }
+
+    /**
+     * Sets the value of the given key.
+     *
+     * @param key
+     *            the key to set the value of
+     * @param value
+     *            the value to set
+     */
+    public void put(@Nonnull byte[] key, @Nonnull byte[] value) {
+        putWithoutFlush(key, value);
+        maybeFlush();
+    }
+
+    /**
+     * Deletes the given key.
+     *
+     * @param key
+     *            the key to delete
+     */
+    public void delete(@Nonnull byte[] key) {
+        deleteWithoutFlush(key);
+        maybeFlush();
+    }
+
+    /**
+     * Returns the entries whose keys are in the given range, in the key order.
+     *
+     * @param fromInclusive
+     *            the first key of the range, or null to start from the first
+     *            key
+     * @param toExclusive
+     *            the key after the range, or null to scan until the last key
+     * @param limit
+     *            the maximum number of entries to return
+     * @return the entries whose keys are in the given range
+     */
+    @Nonnull
+    public List<KvEntry> scan(@Nullable byte[] fromInclusive, @Nullable byte[] toExclusive,
+            @Nonnegative int limit) {
+        List<KvEntry> entries = new ArrayList<>();
+        EntryIterator it = liveIterator(fromInclusive);
+        while (entries.size() < limit && it.next()) {
+            if (toExclusive != null && Arrays.compareUnsigned(it.key(), toExclusive) >= 0) {
+                break;
+            }
+            entries.add(new KvEntry(it.key(), it.value()));
+        }
+
+        return entries;
+    }
+
+    /**
+     * Flushes the memtable into a new sorted run, if it is not empty.
+     */
+    public void flush() {
+        if (memTable.isEmpty()) {
+            return;
+        }
+
+        try (SortedRun.Writer writer = newSortedRunWriter()) {
+            EntryIterator it = memTable.iterator(null);
+            while (it.next()) {
+                writer.add(it.key(), it.value());
+            }
+            sortedRuns.add(0, writer.finish());
+        }
+
+        memTable.clear();
+        maybeCompact();
+    }
+
+    /**
+     * Returns the number of sorted runs.
+     *
+     * @return the number of sorted runs
+     */
+    public int getSortedRunCount() {
+        return sortedRuns.size();
+    }
+
+    /**
+     * Returns the number of SSTable files.
+     *
+     * @return the number of SSTable files
+     */
+    public int getSSTableCount() {
+        int count = 0;
+        for (SortedRun sortedRun : sortedRuns) {
+            count += sortedRun.ssTableCount();
+        }
+
+        return count;
+    }
+
+    /**
+     * Deletes all entries and SSTable files.
+     */
+    public void clear() {
+        memTable.clear();
+        for (SortedRun sortedRun : sortedRuns) {
+            sortedRun.delete();
+        }
+        sortedRuns.clear();
+    }
+
+    @Override
+    public void close() {
+        clear();
+    }
+
+    void putWithoutFlush(byte[] key, byte[] value) {
+        memTable.put(key.clone(), requireNonNull(value));
+    }
+
+    void deleteWithoutFlush(byte[] key) {
+        memTable.put(key.clone(), TOMBSTONE);
+    }
+
+    void maybeFlush() {
+        if (memTable.sizeBytes() >= config.getMemTableSizeBytes()) {
+            flush();
+        }
+    }
+
+    /**
+     * Returns an iterator over the existing keys, i.e., skips the deleted ones.
+     */
+    EntryIterator liveIterator(byte[] fromInclusive) {
+        List<EntryIterator> iterators = new ArrayList<>(sortedRuns.size() + 1);
+        iterators.add(memTable.iterator(fromInclusive));
+        for (SortedRun sortedRun : sortedRuns) {
+            iterators.add(sortedRun.iterator(fromInclusive));
+        }
+
+        MergingIterator merged = new MergingIterator(iterators);
+        return new EntryIterator() {
+            @Override
+            public boolean next() {
+                while (merged.next()) {
+                    if (merged.value() != TOMBSTONE) {
+                        return true;
+                    }
+                }
+
+                return false;
+            }
+
+            @Override
+            public byte[] key() {
+                return merged.key();
+            }
+
+            @Override
+            public byte[] value() {
+                return merged.value();
+            }
+        };
+    }
+
+    SortedRun.Writer newSortedRunWriter() {
+        return new SortedRun.Writer(this::newSSTableWriter, config.getMaxSSTableSizeBytes());
+    }
+
+    /**
+     * Adds the given sorted run as the newest one. Used for bulk-loading sorted
+     * entries without going through the memtable.
+     */
+    void addSortedRun(SortedRun sortedRun) {
+        flush();
+        sortedRuns.add(0, sortedRun);
+        maybeCompact();
+    }
+
+    private SSTable.Writer newSSTableWriter() {
+        return new SSTable.Writer(directory.resolve(String.format("%020d", nextFileId++) + SSTABLE_FILE_SUFFIX),
+                config.getIndexInterval());
+    }
+
+    private void maybeCompact() {
+        while (sortedRuns.size() > config.getMaxSortedRunCount()) {
+            compact();
+        }
+    }
+
+    /**
+     * Merges the first window of consecutive sorted runs, starting from the
+     * newest one, in which each sorted run is at most
+     * {@link #COMPACTION_SIZE_RATIO} times larger than the newer ones in the
+     * window combined. If there is no such window of at least 2 sorted runs,
+     * the newest sorted runs are merged as many as needed to get back to the
+     * maximum sorted run count.
+     */
+    private void compact() {
+        int from = 0;
+        int to = 1;
+        for (int start = 0; start < sortedRuns.size() - 1; start++) {
+            long windowSizeBytes = sortedRuns.get(start).sizeBytes();
+            int end = start + 1;
+            while (end < sortedRuns.size()
+                    && sortedRuns.get(end).sizeBytes() <= COMPACTION_SIZE_RATIO * windowSizeBytes) {
+                windowSizeBytes += sortedRuns.get(end++).sizeBytes();
+            }
+
+            if (end - start > 1) {
+                from = start;
+                to = end;
+                break;
+            }
+        }
+
+        if (to - from < 2) {
+            to = sortedRuns.size() - config.getMaxSortedRunCount() + 1;
+        }
+
+        compact(from, to);
+    }
+
+    private void compact(int from, int to) {
+        List<SortedRun> merged = sortedRuns.subList(from, to);
+        List<EntryIterator> iterators = new ArrayList<>(merged.size());
+        for (SortedRun sortedRun : merged) {
+            iterators.add(sortedRun.iterator(null));
+        }
+
+        // the deleted keys can be dropped only if there is no older entry
+        boolean purgeDeletedKeys = to == sortedRuns.size();
+        SortedRun compacted;
+        try (SortedRun.Writer writer = newSortedRunWriter()) {
+            MergingIterator it = new MergingIterator(iterators);
+            while (it.next()) {
+                if (!purgeDeletedKeys || it.value() != TOMBSTONE) {
+                    writer.add(it.key(), it.value());
+                }
+            }
+            compacted = writer.finish();
+        }
+
+        LOGGER.debug("Compacted {} sorted runs into {}", merged.size(), compacted);
+
+        for (SortedRun sortedRun : merged) {
+            sortedRun.delete();
+        }
+        merged.clear();
+        if (compacted != null) {
+            sortedRuns.add(from, compacted);
+        }
+    }
+
+}
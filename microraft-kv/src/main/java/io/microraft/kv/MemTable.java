@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.microraft.kv;
+
+import static io.microraft.kv.LsmKvStore.TOMBSTONE;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * The in-memory write buffer of {@link LsmKvStore}.
+ * <p>
+ * Keys are kept in a sorted on-heap map, and values are appended to off-heap
+ * arena chunks. Each map entry points to the location of its latest value in
+ * the arena. The arena chunks are reused after the memtable is flushed and
+ * cleared, so a flush does not allocate new direct buffers.
+ */
+final class MemTable {
+
+    private static final int ARENA_CHUNK_SIZE = 1024 * 1024;
+    // rough per-entry cost of the map node and the boxed location
+    private static final int ENTRY_OVERHEAD = 64;
+
+    private final NavigableMap<byte[], Long> index = new TreeMap<>(Arrays::compareUnsigned);
+    private final List<ByteBuffer> arenaChunks = new ArrayList<>();
+    private int currentChunk;
+    private long sizeBytes;
+
+    void put(byte[] key, byte[] value) {
+        int length = value == TOMBSTONE ? -1 : value.length;
+        long location = append(value, length);
+        if (index.put(key, location) == null) {
+            sizeBytes += key.length + ENTRY_OVERHEAD;
+        }
+        sizeBytes += Integer.BYTES + Math.max(length, 0);
+    }
+
+    /**
+     * Returns the value of the given key, {@link LsmKvStore#TOMBSTONE} if the key
+     * is deleted, or null if the key is not in the memtable.
+     */
+    byte[] get(byte[] key) {
+        Long location = index.get(key);
+        return location != null ? read(location) : null;
+    }
+
+    EntryIterator iterator(byte[] fromInclusive) {
+        Iterator<Entry<byte[], Long>> it = (fromInclusive != null ? index.tailMap(fromInclusive, true) : index)
+                .entrySet().iterator();
+        return new EntryIterator() {
+            Entry<byte[], Long> current;
+
+            @Override
+            public boolean next() {
+                current = it.hasNext() ? it.next() : null;
+                return current != null;
+            }
+
+            @Override
+            public byte[] key() {
+                return current.getKey();
+            }
+
+            @Override
+            public byte[] value() {
+                return read(current.getValue());
+            }
+        };
+    }
+
+    boolean isEmpty() {
+        return index.isEmpty();
+    }
+
+    long sizeBytes() {
+        return sizeBytes;
+    }
+
+    void clear() {
+        index.clear();
+        for (ByteBuffer chunk : arenaChunks) {
+            chunk.clear();
+        }
+        currentChunk = 0;
+        sizeBytes = 0;
+    }
+
+    private long append(byte[] value, int length) {
+        int required = Integer.BYTES + Math.max(length, 0);
+        while (currentChunk < arenaChunks.size() && arenaChunks.get(currentChunk).remaining() < required) {
+            currentChunk++;
+        }
+
+        if (currentChunk == arenaChunks.size()) {
+            arenaChunks.add(ByteBuffer.allocateDirect(Math.max(ARENA_CHUNK_SIZE, required)));
+        }
+
+        ByteBuffer chunk = arenaChunks.get(currentChunk);
+        int offset = chunk.position();
+        chunk.putInt(length);
+        if (length > 0) {
+            chunk.put(value);
+        }
+
+        return ((long) currentChunk << 32) | offset;
+    }
+
+    private byte[] read(long location) {
+        ByteBuffer chunk = arenaChunks.get((int) (location >>> 32)).duplicate();
+        chunk.position((int) location);
+        int length = chunk.getInt();
+        if (length < 0) {
+            return TOMBSTONE;
+        }
+
+        byte[] value = new byte[length];
+        chunk.get(value);
+        return value;
+    }
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.microraft.kv;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Merges sorted entry iterators into a single sorted iterator.
+ * <p>
+ * Iterators are given from the newest to the oldest. When a key exists in
+ * multiple iterators, only the entry of the newest one is returned.
+ */
+final class MergingIterator implements EntryIterator {
+
+    private final PriorityQueue<Source> queue = new PriorityQueue<>(Source::compare);
+    private byte[] key;
+    private byte[] value;
+
+    MergingIterator(List<EntryIterator> iterators) {
+        for (int i = 0; i < iterators.size(); i++) {
+            Source source = new Source(iterators.get(i), i);
+            if (source.iterator.next()) {
+                queue.add(source);
+            }
+        }
+    }
+
+    @Override
+    public boolean next() {
+        Source source = queue.poll();
+        if (source == null) {
+            key = null;
+            value = null;
+            return false;
+        }
+
+        key = source.iterator.key();
+        value = source.iterator.value();
+        advance(source);
+
+        // skip the older entries of the same key
+        while (!queue.isEmpty() && Arrays.equals(queue.peek().iterator.key(), key)) {
+            advance(queue.poll());
+        }
+
+        return true;
+    }
+
+    @Override
+    public byte[] key() {
+        return key;
+    }
+
+    @Override
+    public byte[] value() {
+        return value;
+    }
+
+    private void advance(Source source) {
+        if (source.iterator.next()) {
+            queue.add(source);
+        }
+    }
+
+    private static final class Source {
+        final EntryIterator iterator;
+        final int rank;
+
+        Source(EntryIterator iterator, int rank) {
+            this.iterator = iterator;
+            this.rank = rank;
+        }
+
+        static int compare(Source s1, Source s2) {
+            int c = Arrays.compareUnsigned(s1.iterator.key(), s2.iterator.key());
+            return c != 0 ? c : Integer.compare(s1.rank, s2.rank);
+        }
+    }
+
+}
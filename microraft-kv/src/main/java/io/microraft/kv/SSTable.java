@@ -0,0 +1,394 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.microraft.kv;
+
+import static io.microraft.kv.LsmKvStore.TOMBSTONE;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An immutable file of entries sorted by key.
+ * <p>
+ * The file is written in the following format:
+ * {@code [entries][sparse index][footer]}. Each entry is written as
+ * {@code [int key length][key][int value length][value]}, where a value length
+ * of -1 denotes a deleted key. The sparse index contains every
+ * {@link KvStoreConfig#getIndexInterval()}-th key as
+ * {@code [int key length][key][int entry offset]}, and the footer is
+ * {@code [int index offset][int index size][long entry count][int magic]}.
+ * <p>
+ * The file is memory-mapped for reads and its sparse index is loaded into
+ * memory. A lookup binary searches the sparse index and scans at most one
+ * interval of entries. Since offsets are ints, an SSTable file cannot be
+ * larger than 2 GB. Hence, {@link SortedRun.Writer} cuts large outputs into
+ * multiple files of at most {@link KvStoreConfig#getMaxSSTableSizeBytes()}
+ * bytes.
+ */
+final class SSTable {
+
+    private static final int MAGIC = 0x4D524B56;
+    private static final int FOOTER_SIZE = 4 + 4 + 8 + 4;
+
+    private final Path file;
+    private final ByteBuffer buffer;
+    private final byte[][] indexKeys;
+    private final int[] indexOffsets;
+    private final int dataEnd;
+    private final long entryCount;
+
+    private SSTable(Path file, ByteBuffer buffer, byte[][] indexKeys, int[] indexOffsets, int dataEnd,
+            long entryCount) {
+        this.file = file;
+        this.buffer = buffer;
+        this.indexKeys = indexKeys;
+        this.indexOffsets = indexOffsets;
+        this.dataEnd = dataEnd;
+        this.entryCount = entryCount;
+    }
+
+    static SSTable open(Path file) {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open SSTable " + file, e);
+        }
+
+        if (buffer.limit() < FOOTER_SIZE || buffer.getInt(buffer.limit() - 4) != MAGIC) {
+            throw new IllegalStateException("Invalid SSTable " + file);
+        }
+
+        int footer = buffer.limit() - FOOTER_SIZE;
+        int indexOffset = buffer.getInt(footer);
+        int indexSize = buffer.getInt(footer + 4);
+        long entryCount = buffer.getLong(footer + 8);
+
+        ByteBuffer index = buffer.duplicate();
+        index.position(indexOffset);
+        byte[][] indexKeys = new byte[indexSize][];
+        int[] indexOffsets = new int[indexSize];
+        for (int i = 0; i < indexSize; i++) {
+            indexKeys[i] = new byte[index.getInt()];
+            index.get(indexKeys[i]);
+            indexOffsets[i] = index.getInt();
+        }
+
+        return new SSTable(file, buffer, indexKeys, indexOffsets, indexOffset, entryCount);
+    }
+
+    /**
+     * Returns the value of the given key, {@link LsmKvStore#TOMBSTONE} if the key
+     * is deleted, or null if the key is not in the file.
+     */
+    byte[] get(byte[] key) {
+        int i = floorIndex(key);
+        if (i < 0) {
+            return null;
+        }
+
+        int end = i + 1 < indexOffsets.length ? indexOffsets[i + 1] : dataEnd;
+        Cursor cursor = new Cursor(indexOffsets[i], end);
+        while (cursor.next()) {
+            int c = Arrays.compareUnsigned(cursor.key(), key);
+            if (c == 0) {
+                return cursor.value();
+            } else if (c > 0) {
+                return null;
+            }
+        }
+
+        return null;
+    }
+
+    EntryIterator iterator(byte[] fromInclusive) {
+        int i = fromInclusive != null ? floorIndex(fromInclusive) : -1;
+        Cursor cursor = new Cursor(i >= 0 ? indexOffsets[i] : 0, dataEnd);
+        if (fromInclusive == null) {
+            return cursor;
+        }
+
+        return new EntryIterator() {
+            boolean positioned;
+
+            @Override
+            public boolean next() {
+                if (positioned) {
+                    return cursor.next();
+                }
+
+                positioned = true;
+                while (cursor.next()) {
+                    if (Arrays.compareUnsigned(cursor.key(), fromInclusive) >= 0) {
+                        return true;
+                    }
+                }
+
+                return false;
+            }
+
+            @Override
+            public byte[] key() {
+                return cursor.key();
+            }
+
+            @Override
+            public byte[] value() {
+                return cursor.value();
+            }
+        };
+    }
+
+    long entryCount() {
+        return entryCount;
+    }
+
+    /**
+     * Returns the first key of the file. Must not be called on an empty file.
+     */
+    byte[] firstKey() {
+        return indexKeys[0];
+    }
+
+    long sizeBytes() {
+        return buffer.capacity();
+    }
+
+    Path file() {
+        return file;
+    }
+
+    void delete() {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not delete SSTable " + file, e);
+        }
+    }
+
+    /**
+     * Returns the position of the greatest index key that is less than or equal
+     * to the given key, or -1 if there is no such key.
+     */
+    private int floorIndex(byte[] key) {
+        int low = 0;
+        int high = indexKeys.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int c = Arrays.compareUnsigned(indexKeys[mid], key);
+            if (c < 0) {
+                low = mid + 1;
+            } else if (c > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+
+        return high;
+    }
+
+    @Override
+    public String toString() {
+        return "SSTable{" + "file=" + file + ", entryCount=" + entryCount + '}';
+    }
+
+    /**
+     * Reads the entries between the given offsets sequentially. Values are
+     * copied out of the mapped file only when they are requested.
+     */
+    private final class Cursor implements EntryIterator {
+        final ByteBuffer data = buffer.duplicate();
+        final int end;
+        byte[] key;
+        int valueOffset;
+
+        Cursor(int start, int end) {
+            this.data.position(start);
+            this.end = end;
+        }
+
+        @Override
+        public boolean next() {
+            if (key != null) {
+                // skip the value of the current entry
+                int valueLength = data.getInt(valueOffset);
+                data.position(valueOffset + 4 + Math.max(valueLength, 0));
+            }
+
+            if (data.position() >= end) {
+                key = null;
+                return false;
+            }
+
+            key = new byte[data.getInt()];
+            data.get(key);
+            valueOffset = data.position();
+            return true;
+        }
+
+        @Override
+        public byte[] key() {
+            return key;
+        }
+
+        @Override
+        public byte[] value() {
+            int valueLength = data.getInt(valueOffset);
+            if (valueLength < 0) {
+                return TOMBSTONE;
+            }
+
+            byte[] value = new byte[valueLength];
+            ByteBuffer source = data.duplicate();
+            source.position(valueOffset + 4);
+            source.get(value);
+            return value;
+        }
+    }
+
+    /**
+     * Writes entries in key order into a new SSTable file.
+     */
+    static final class Writer implements Closeable {
+        private final Path file;
+        private final int indexInterval;
+        private final DataOutputStream out;
+        private final List<byte[]> indexKeys = new ArrayList<>();
+        private final List<Integer> indexOffsets = new ArrayList<>();
+        private byte[] lastKey;
+        private long position;
+        private long entryCount;
+        private boolean finished;
+
+        Writer(Path file, int indexInterval) {
+            this.file = file;
+            this.indexInterval = indexInterval;
+            try {
+                this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not create SSTable " + file, e);
+            }
+        }
+
+        void add(byte[] key, byte[] value) {
+            if (lastKey != null && Arrays.compareUnsigned(lastKey, key) >= 0) {
+                throw new IllegalArgumentException("Keys must be added in increasing order!");
+            }
+
+            try {
+                if (entryCount % indexInterval == 0) {
+                    indexKeys.add(key);
+                    indexOffsets.add(checkOffset(position));
+                }
+
+                out.writeInt(key.length);
+                out.write(key);
+                if (value == TOMBSTONE) {
+                    out.writeInt(-1);
+                    position += 4 + key.length + 4;
+                } else {
+                    out.writeInt(value.length);
+                    out.write(value);
+                    position += 4 + key.length + 4 + value.length;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not write SSTable " + file, e);
+            }
+
+            lastKey = key;
+            entryCount++;
+        }
+
+        long entryCount() {
+            return entryCount;
+        }
+
+        /**
+         * Returns the number of bytes of the entries written so far.
+         */
+        long sizeBytes() {
+            return position;
+        }
+
+        /**
+         * Writes the sparse index and the footer, and opens the file for reads.
+         */
+        SSTable finish() {
+            try {
+                int indexOffset = checkOffset(position);
+                for (int i = 0; i < indexKeys.size(); i++) {
+                    byte[] key = indexKeys.get(i);
+                    out.writeInt(key.length);
+                    out.write(key);
+                    out.writeInt(indexOffsets.get(i));
+                    position += 4 + key.length + 4;
+                }
+
+                checkOffset(position + FOOTER_SIZE);
+                out.writeInt(indexOffset);
+                out.writeInt(indexKeys.size());
+                out.writeLong(entryCount);
+                out.writeInt(MAGIC);
+                out.close();
+                finished = true;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not write SSTable " + file, e);
+            }
+
+            return open(file);
+        }
+
+        /**
+         * Deletes the file if it is not finished.
+         */
+        @Override
+        public void close() {
+            if (finished) {
+                return;
+            }
+
+            try {
+                out.close();
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not delete SSTable " + file, e);
+            }
+        }
+
+        private int checkOffset(long offset) {
+            if (offset > Integer.MAX_VALUE) {
+                throw new IllegalStateException("SSTable " + file + " cannot be larger than 2 GB!");
+            }
+
+            return (int) offset;
+        }
+    }
+
+}
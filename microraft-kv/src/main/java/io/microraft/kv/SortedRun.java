@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.microraft.kv;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * A sequence of {@link SSTable} files with non-overlapping key ranges, sorted
+ * by key. A sorted run is written by a single flush, compaction or snapshot
+ * installation, and its output is cut into files of at most
+ * {@link KvStoreConfig#getMaxSSTableSizeBytes()} bytes, so that the size of
+ * the store is not bounded by the size limit of a single file.
+ * <p>
+ * A lookup binary searches the first keys of the files and checks a single
+ * file.
+ */
+final class SortedRun {
+
+    private final List<SSTable> ssTables;
+    private final byte[][] firstKeys;
+    private final long sizeBytes;
+
+    private SortedRun(List<SSTable> ssTables) {
+        this.ssTables = ssTables;
+        this.firstKeys = new byte[ssTables.size()][];
+        long sizeBytes = 0;
+        for (int i = 0; i < ssTables.size(); i++) {
+            firstKeys[i] = ssTables.get(i).firstKey();
+            sizeBytes += ssTables.get(i).sizeBytes();
+        }
+        this.sizeBytes = sizeBytes;
+    }
+
+    /**
+     * Returns the value of the given key, {@link LsmKvStore#TOMBSTONE} if the key
+     * is deleted, or null if the key is not in this sorted run.
+     */
+    byte[] get(byte[] key) {
+        int i = floorIndex(key);
+        return i >= 0 ? ssTables.get(i).get(key) : null;
+    }
+
+    EntryIterator iterator(byte[] fromInclusive) {
+        int start = fromInclusive != null ? Math.max(floorIndex(fromInclusive), 0) : 0;
+        return new EntryIterator() {
+            int i = start;
+            EntryIterator current = ssTables.get(start).iterator(fromInclusive);
+
+            @Override
+            public boolean next() {
+                while (!current.next()) {
+                    if (i + 1 == ssTables.size()) {
+                        return false;
+                    }
+                    // the keys of the next files are greater than fromInclusive
+                    current = ssTables.get(++i).iterator(null);
+                }
+
+                return true;
+            }
+
+            @Override
+            public byte[] key() {
+                return current.key();
+            }
+
+            @Override
+            public byte[] value() {
+                return current.value();
+            }
+        };
+    }
+
+    int ssTableCount() {
+        return ssTables.size();
+    }
+
+    long sizeBytes() {
+        return sizeBytes;
+    }
+
+    void delete() {
+        for (SSTable ssTable : ssTables) {
+            ssTable.delete();
+        }
+    }
+
+    /**
+     * Returns the position of the file with the greatest first key that is less
+     * than or equal to the given key, or -1 if there is no such file.
+     */
+    private int floorIndex(byte[] key) {
+        int low = 0;
+        int high = firstKeys.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int c = Arrays.compareUnsigned(firstKeys[mid], key);
+            if (c < 0) {
+                low = mid + 1;
+            } else if (c > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+
+        return high;
+    }
+
+    @Override
+    public String toString() {
+        return "SortedRun{" + "ssTables=" + ssTables + ", sizeBytes=" + sizeBytes + '}';
+    }
+
+    /**
+     * Writes entries in key order into a new sorted run, starting a new SSTable
+     * file once the current one reaches the maximum SSTable file size.
+     */
+    static final class Writer implements Closeable {
+        private final Supplier<SSTable.Writer> ssTableWriterFactory;
+        private final long maxSSTableSizeBytes;
+        private final List<SSTable> ssTables = new ArrayList<>();
+        private SSTable.Writer current;
+        private long entryCount;
+        private boolean finished;
+
+        Writer(Supplier<SSTable.Writer> ssTableWriterFactory, long maxSSTableSizeBytes) {
+            this.ssTableWriterFactory = ssTableWriterFactory;
+            this.maxSSTableSizeBytes = maxSSTableSizeBytes;
+        }
+
+        void add(byte[] key, byte[] value) {
+            if (current == null) {
+                current = ssTableWriterFactory.get();
+            }
+
+            current.add(key, value);
+            entryCount++;
+
+            if (current.sizeBytes() >= maxSSTableSizeBytes) {
+                finishCurrent();
+            }
+        }
+
+        long entryCount() {
+            return entryCount;
+        }
+
+        /**
+         * Finishes the last SSTable file and returns the sorted run, or null if
+         * no entry is written.
+         */
+        SortedRun finish() {
+            if (current != null) {
+                finishCurrent();
+            }
+            finished = true;
+
+            return ssTables.isEmpty() ? null : new SortedRun(ssTables);
+        }
+
+        /**
+         * Deletes the written files if the sorted run is not finished.
+         */
+        @Override
+        public void close() {
+            if (finished) {
+                return;
+            }
+
+            if (current != null) {
+                current.close();
+            }
+            for (SSTable ssTable : ssTables) {
+                ssTable.delete();
+            }
+        }
+
+        private void finishCurrent() {
+            SSTable.Writer writer = current;
+            current = null;
+            try {
+                ssTables.add(writer.finish());
+            } finally {
+                // deletes the file if it could not be finished
+                writer.close();
+            }
+        }
+    }
+
+}
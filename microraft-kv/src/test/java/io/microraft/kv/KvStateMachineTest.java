@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.microraft.kv;
+
+import static io.microraft.kv.LsmKvStoreTest.SMALL_CONFIG;
+import static io.microraft.kv.LsmKvStoreTest.bytes;
+import static io.microraft.kv.LsmKvStoreTest.string;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import io.microraft.test.util.BaseTest;
+
+public class KvStateMachineTest extends BaseTest {
+
+    @Rule
+    public final TemporaryFolder tempDir = new TemporaryFolder();
+
+    private final List<KvStateMachine> stateMachines = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        stateMachines.forEach(KvStateMachine::onRaftNodeTerminate);
+    }
+
+    @Test
+    public void testBatchIsApplied() throws IOException {
+        KvStateMachine stateMachine = newStateMachine();
+        stateMachine.runOperation(1, KvOperation.put(bytes("key1"), bytes("value1")));
+
+        stateMachine.runOperation(2, KvOperation.batch(List.of(KvOperation.put(bytes("key2"), bytes("value2")),
+                KvOperation.delete(bytes("key1")), KvOperation.put(bytes("key3"), bytes("value3")))));
+
+        assertThat(stateMachine.runOperation(3, KvOperation.get(bytes("key1")))).isNull();
+        assertThat(string((byte[]) stateMachine.runOperation(3, KvOperation.get(bytes("key2"))))).isEqualTo("value2");
+        assertThat((List<?>) stateMachine.runOperation(3, KvOperation.scan(null, null, 10))).hasSize(2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBatchWithReadOperationIsRejected() {
+        KvOperation.batch(List.of(KvOperation.get(bytes("key"))));
+    }
+
+    @Test
+    public void testSnapshotIsInstalledToEmptyStateMachine() throws IOException {
+        KvStateMachine stateMachine = newStateMachine();
+        populate(stateMachine, 200, false);
+
+        List<Object> chunks = new ArrayList<>();
+        stateMachine.takeSnapshot(200, chunks::add);
+
+        assertThat(chunks.size()).isGreaterThan(1);
+
+        KvStateMachine restored = newStateMachine();
+        restored.installSnapshot(200, chunks);
+
+        assertThat(scanAll(restored)).isEqualTo(scanAll(stateMachine));
+    }
+
+    @Test
+    public void testSnapshotIsInstalledIntoBoundedSSTables() throws IOException {
+        KvStateMachine stateMachine = newStateMachine();
+        populate(stateMachine, 200, false);
+
+        List<Object> chunks = new ArrayList<>();
+        stateMachine.takeSnapshot(200, chunks::add);
+
+        Path dir = tempDir.newFolder().toPath();
+        KvStateMachine restored = newStateMachine(dir);
+        restored.installSnapshot(200, chunks);
+
+        try (Stream<Path> files = Files.list(dir)) {
+            assertThat(files.count()).isGreaterThan(1);
+        }
+        assertThat(scanAll(restored)).isEqualTo(scanAll(stateMachine));
+    }
+
+    @Test
+    public void testSnapshotChunksDoNotDependOnFlushHistory() throws IOException {
+        KvStateMachine stateMachine1 = newStateMachine();
+        KvStateMachine stateMachine2 = newStateMachine();
+        populate(stateMachine1, 200, false);
+        populate(stateMachine2, 200, true);
+
+        List<Object> chunks1 = new ArrayList<>();
+        List<Object> chunks2 = new ArrayList<>();
+        stateMachine1.takeSnapshot(200, chunks1::add);
+        stateMachine2.takeSnapshot(200, chunks2::add);
+
+        assertThat(chunks2).isEqualTo(chunks1);
+    }
+
+    @Test
+    public void testEmptySnapshotHasSingleChunk() throws IOException {
+        KvStateMachine stateMachine = newStateMachine();
+        stateMachine.runOperation(1, KvOperation.put(bytes("key"), bytes("value")));
+
+        List<Object> chunks = new ArrayList<>();
+        newStateMachine().takeSnapshot(1, chunks::add);
+
+        assertThat(chunks).hasSize(1);
+
+        stateMachine.installSnapshot(1, chunks);
+
+        assertThat(scanAll(stateMachine)).isEmpty();
+    }
+
+    private KvStateMachine newStateMachine() throws IOException {
+        return newStateMachine(tempDir.newFolder().toPath());
+    }
+
+    private KvStateMachine newStateMachine(Path dir) {
+        KvStateMachine stateMachine = new KvStateMachine(dir, SMALL_CONFIG);
+        stateMachines.add(stateMachine);
+        return stateMachine;
+    }
+
+    private void populate(KvStateMachine stateMachine, int count, boolean batched) {
+        List<KvOperation> batch = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            KvOperation operation = i % 5 == 4
+                    ? KvOperation.delete(bytes("key" + (i - 1)))
+                    : KvOperation.put(bytes("key" + i), bytes("value" + i));
+            if (batched) {
+                batch.add(operation);
+            } else {
+                stateMachine.runOperation(i + 1, operation);
+            }
+        }
+
+        if (batched) {
+            stateMachine.runOperation(1, KvOperation.batch(batch));
+        }
+    }
+
+    private List<?> scanAll(KvStateMachine stateMachine) {
+        return (List<?>) stateMachine.runOperation(0, KvOperation.scan(null, null, Integer.MAX_VALUE));
+    }
+
+}
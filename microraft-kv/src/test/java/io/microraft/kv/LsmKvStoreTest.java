@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.microraft.kv;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import io.microraft.test.util.BaseTest;
+
+public class LsmKvStoreTest extends BaseTest {
+
+    static final KvStoreConfig SMALL_CONFIG = KvStoreConfig.newBuilder().setMemTableSizeBytes(1024)
+            .setMaxSortedRunCount(3).setMaxSSTableSizeBytes(512).setIndexInterval(4).setSnapshotChunkSizeBytes(256)
+            .build();
+
+    private static final KvStoreConfig LARGE_MEMTABLE_CONFIG = KvStoreConfig.newBuilder()
+            .setMemTableSizeBytes(1 << 16).setMaxSortedRunCount(3).setMaxSSTableSizeBytes(128).setIndexInterval(4)
+            .build();
+
+    @Rule
+    public final TemporaryFolder tempDir = new TemporaryFolder();
+
+    private Path dir;
+    private LsmKvStore store;
+
+    @Before
+    public void init() throws IOException {
+        dir = tempDir.newFolder().toPath();
+        store = new LsmKvStore(dir, SMALL_CONFIG);
+    }
+
+    @After
+    public void tearDown() {
+        store.close();
+    }
+
+    @Test
+    public void testGetReturnsLatestValueAcrossFlushes() {
+        store.put(bytes("key"), bytes("v1"));
+        store.flush();
+        store.put(bytes("key"), bytes("v2"));
+
+        assertThat(string(store.get(bytes("key")))).isEqualTo("v2");
+
+        store.flush();
+
+        assertThat(store.getSSTableCount()).isEqualTo(2);
+        assertThat(string(store.get(bytes("key")))).isEqualTo("v2");
+    }
+
+    @Test
+    public void testDeletedKeyIsNotReturnedAfterFlush() {
+        store.put(bytes("key"), bytes("value"));
+        store.flush();
+        store.delete(bytes("key"));
+
+        assertThat(store.get(bytes("key"))).isNull();
+
+        store.flush();
+
+        assertThat(store.get(bytes("key"))).isNull();
+        assertThat(store.scan(null, null, 10)).isEmpty();
+    }
+
+    @Test
+    public void testEmptyValueIsNotTreatedAsDeleted() {
+        store.put(bytes("key"), new byte[0]);
+        store.flush();
+
+        assertThat(store.get(bytes("key"))).isNotNull();
+        assertThat(store.scan(null, null, 10)).hasSize(1);
+    }
+
+    @Test
+    public void testCompactionMergesSortedRuns() throws IOException {
+        for (int i = 0; i <= SMALL_CONFIG.getMaxSortedRunCount(); i++) {
+            store.put(bytes("key" + i), bytes("value" + i));
+            store.delete(bytes("key" + (i - 1)));
+            store.flush();
+        }
+
+        assertThat(store.getSortedRunCount()).isEqualTo(1);
+        assertThat(store.getSSTableCount()).isEqualTo(1);
+        try (Stream<Path> files = Files.list(dir)) {
+            assertThat(files.count()).isEqualTo(1);
+        }
+
+        int last = SMALL_CONFIG.getMaxSortedRunCount();
+        assertThat(store.scan(null, null, 10)).hasSize(1);
+        assertThat(string(store.get(bytes("key" + last)))).isEqualTo("value" + last);
+    }
+
+    @Test
+    public void testFlushIsSplitIntoBoundedSSTables() throws IOException {
+        store.close();
+        store = new LsmKvStore(dir, LARGE_MEMTABLE_CONFIG);
+        for (int i = 0; i < 20; i++) {
+            store.put(bytes(String.format("key%02d", i)), bytes("value" + i));
+        }
+        store.flush();
+
+        assertThat(store.getSortedRunCount()).isEqualTo(1);
+        assertThat(store.getSSTableCount()).isGreaterThan(1);
+        try (Stream<Path> files = Files.list(dir)) {
+            assertThat(files.count()).isEqualTo(store.getSSTableCount());
+        }
+
+        for (int i = 0; i < 20; i++) {
+            assertThat(string(store.get(bytes(String.format("key%02d", i))))).isEqualTo("value" + i);
+        }
+
+        List<KvEntry> entries = store.scan(bytes("key05"), bytes("key15"), 20);
+
+        assertThat(entries).hasSize(10);
+        assertThat(string(entries.get(0).getKey())).isEqualTo("key05");
+        assertThat(string(entries.get(9).getKey())).isEqualTo("key14");
+    }
+
+    @Test
+    public void testCompactionDoesNotRewriteLargerSortedRun() throws IOException {
+        store.close();
+        store = new LsmKvStore(dir, LARGE_MEMTABLE_CONFIG);
+        for (int i = 0; i < 20; i++) {
+            store.put(bytes(String.format("key%02d", i)), bytes("value" + i));
+        }
+        store.flush();
+
+        List<Path> largeRunFiles;
+        try (Stream<Path> files = Files.list(dir)) {
+            largeRunFiles = files.collect(Collectors.toList());
+        }
+
+        for (int i = 0; i < LARGE_MEMTABLE_CONFIG.getMaxSortedRunCount(); i++) {
+            store.put(bytes("key" + i), bytes("value" + i));
+            store.flush();
+        }
+
+        assertThat(store.getSortedRunCount()).isEqualTo(2);
+        assertThat(largeRunFiles).hasSizeGreaterThan(1).allMatch(Files::exists);
+        assertThat(store.scan(null, null, 30)).hasSize(20 + LARGE_MEMTABLE_CONFIG.getMaxSortedRunCount());
+    }
+
+    @Test
+    public void testScanReturnsKeysInRange() {
+        for (int i = 0; i < 10; i++) {
+            store.put(bytes("key" + i), bytes("value" + i));
+            if (i % 3 == 0) {
+                store.flush();
+            }
+        }
+
+        List<KvEntry> entries = store.scan(bytes("key3"), bytes("key7"), 10);
+
+        assertThat(entries).hasSize(4);
+        assertThat(string(entries.get(0).getKey())).isEqualTo("key3");
+        assertThat(string(entries.get(3).getKey())).isEqualTo("key6");
+        assertThat(store.scan(bytes("key3"), null, 2)).hasSize(2);
+    }
+
+    @Test
+    public void testReopenedStoreIsEmpty() {
+        store.put(bytes("key"), bytes("value"));
+        store.flush();
+
+        LsmKvStore reopened = new LsmKvStore(dir, SMALL_CONFIG);
+
+        assertThat(reopened.get(bytes("key"))).isNull();
+        assertThat(reopened.getSSTableCount()).isEqualTo(0);
+
+        reopened.close();
+    }
+
+    @Test
+    public void testRandomOperationsMatchSortedMap() {
+        Random random = new Random(2020);
+        NavigableMap<byte[], byte[]> expected = new TreeMap<>(Arrays::compareUnsigned);
+        for (int i = 0; i < 5000; i++) {
+            byte[] key = bytes("key" + random.nextInt(500));
+            if (random.nextInt(4) == 0) {
+                store.delete(key);
+                expected.remove(key);
+            } else {
+                byte[] value = new byte[random.nextInt(32)];
+                random.nextBytes(value);
+                store.put(key, value);
+                expected.put(key, value);
+            }
+        }
+
+        assertThat(store.getSSTableCount()).isGreaterThan(0);
+
+        for (int i = 0; i < 500; i++) {
+            byte[] key = bytes("key" + i);
+            byte[] value = store.get(key);
+            byte[] expectedValue = expected.get(key);
+            assertThat(value == null ? null : Arrays.toString(value))
+                    .isEqualTo(expectedValue == null ? null : Arrays.toString(expectedValue));
+        }
+
+        byte[] from = bytes("key2");
+        byte[] to = bytes("key4");
+        List<KvEntry> expectedEntries = new ArrayList<>();
+        for (Entry<byte[], byte[]> e : expected.subMap(from, true, to, false).entrySet()) {
+            expectedEntries.add(new KvEntry(e.getKey(), e.getValue()));
+        }
+
+        assertThat(store.scan(from, to, Integer.MAX_VALUE)).isEqualTo(expectedEntries);
+    }
+
+    static byte[] bytes(String s) {
+        return s.getBytes(UTF_8);
+    }
+
+    static String string(byte[] bytes) {
+        return bytes != null ? new String(bytes, UTF_8) : null;
+    }
+
+}
@@ -22,6 +22,7 @@ import static java.util.stream.Collectors.toList;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 import javax.annotation.Nonnull;
@@ -40,6 +41,7 @@ import io.microraft.RaftRole;
 import io.microraft.report.RaftNodeReport;
 import io.microraft.report.RaftNodeReport.RaftNodeReportReason;
 import io.microraft.report.RaftNodeReportListener;
+import io.microraft.report.RaftNodeStats;
 
 /**
  * Collect metrics reported by Raft nodes and publishes them to Metric
@@ -49,6 +51,15 @@ import io.microraft.report.RaftNodeReportListener;
  * {@link RaftNodeBuilder#setRaftNodeReportListener(RaftNodeReportListener)}.
  * Then, it will publish metrics from published {@link RaftNodeReport} objects.
  * <p>
+ * Raft node reports are published periodically, hence the metrics reflect the
+ * local state of the Raft node only as of the last report. Once the Raft node
+ * is created, {@link #setStats(RaftNodeStats)} can be called with
+ * {@link RaftNode#getStats()} to make the metrics of the role, status, term,
+ * group members commit indices and the Raft log read the live values of the
+ * Raft node instead. Those values are polled without scheduling any task on
+ * the Raft node's executor. The remaining metrics are still published from
+ * Raft node reports.
+ * <p>
  * The list of metrics are as follows:
  * <ul>
  * <li>"raft.node.role": The role of the Raft node (0: leader, 1: candidate, 2:
@@ -115,6 +126,7 @@ public final class RaftNodeMetrics implements RaftNodeReportListener, MeterBinde
 
     private final List<Tag> tags;
     private volatile RaftNodeReport report;
+    private volatile RaftNodeStats stats;
     private volatile MultiGauge followerMatchIndicesGauge;
 
     /**
@@ -143,6 +155,18 @@ public final class RaftNodeMetrics implements RaftNodeReportListener, MeterBinde
         this.tags = List.copyOf(requireNonNull(tags));
     }
 
+    /**
+     * Sets the live statistics of the Raft node to be polled by the metrics of
+     * the role, status, term, group members commit indices and the Raft log.
+     *
+     * @param stats
+     *            the live statistics of the Raft node
+     * @see RaftNode#getStats()
+     */
+    public void setStats(@Nonnull RaftNodeStats stats) {
+        this.stats = requireNonNull(stats);
+    }
+
     @Override
     public void accept(@Nonnull RaftNodeReport report) {
         this.report = report;
@@ -227,11 +251,12 @@ public final class RaftNodeMetrics implements RaftNodeReportListener, MeterBinde
     }
 
     private int getRaftRole() {
-        return getOrDefaultValue(() -> report.getRole().ordinal(), RaftRole.FOLLOWER.ordinal());
+        return getOrDefaultValue(s -> s.getRole().ordinal(),
+                () -> report.getRole().ordinal(), RaftRole.FOLLOWER.ordinal());
     }
 
     private int getRaftNodeStatus() {
-        return getOrDefaultValue(() -> report.getStatus().ordinal(), 0);
+        return getOrDefaultValue(s -> s.getStatus().ordinal(), () -> report.getStatus().ordinal(), 0);
     }
 
     private int getRaftNodeReportPublishReason() {
@@ -239,11 +264,12 @@ public final class RaftNodeMetrics implements RaftNodeReportListener, MeterBinde
     }
 
     private int getTerm() {
-        return getOrDefaultValue(() -> report.getTerm().getTerm(), 0);
+        return getOrDefaultValue(RaftNodeStats::getTerm, () -> report.getTerm().getTerm(), 0);
     }
 
     private long getCommittedRaftGroupMembersCommitIndex() {
-        return getOrDefaultValue(() -> report.getCommittedMembers().getLogIndex(), 0L);
+        return getOrDefaultValue(RaftNodeStats::getCommittedMembersLogIndex,
+                () -> report.getCommittedMembers().getLogIndex(), 0L);
     }
 
     private int getCommittedRaftGroupMembersSize() {
@@ -259,7 +285,8 @@ public final class RaftNodeMetrics implements RaftNodeReportListener, MeterBinde
     }
 
     private long getEffectiveRaftGroupMembersCommitIndex() {
-        return getOrDefaultValue(() -> report.getEffectiveMembers().getLogIndex(), 0L);
+        return getOrDefaultValue(RaftNodeStats::getEffectiveMembersLogIndex,
+                () -> report.getEffectiveMembers().getLogIndex(), 0L);
     }
 
     private int getEffectiveRaftGroupMembersSize() {
@@ -275,31 +302,34 @@ public final class RaftNodeMetrics implements RaftNodeReportListener, MeterBinde
     }
 
     private long getCommitIndex() {
-        return getOrDefaultValue(() -> report.getLog().getCommitIndex(), 0L);
+        return getOrDefaultValue(RaftNodeStats::getCommitIndex, () -> report.getLog().getCommitIndex(), 0L);
     }
 
     private int getLastLogOrSnapshotTerm() {
-        return getOrDefaultValue(() -> report.getLog().getLastLogOrSnapshotTerm(), 0);
+        return getOrDefaultValue(RaftNodeStats::getLastLogOrSnapshotTerm,
+                () -> report.getLog().getLastLogOrSnapshotTerm(), 0);
     }
 
     private long getLastLogOrSnapshotIndex() {
-        return getOrDefaultValue(() -> report.getLog().getLastLogOrSnapshotIndex(), 0L);
+        return getOrDefaultValue(RaftNodeStats::getLastLogOrSnapshotIndex,
+                () -> report.getLog().getLastLogOrSnapshotIndex(), 0L);
     }
 
     private int getLastSnapshotTerm() {
-        return getOrDefaultValue(() -> report.getLog().getLastSnapshotTerm(), 0);
+        return getOrDefaultValue(RaftNodeStats::getLastSnapshotTerm, () -> report.getLog().getLastSnapshotTerm(), 0);
     }
 
     private long getLastSnapshotIndex() {
-        return getOrDefaultValue(() -> report.getLog().getLastSnapshotIndex(), 0L);
+        return getOrDefaultValue(RaftNodeStats::getLastSnapshotIndex, () -> report.getLog().getLastSnapshotIndex(), 0L);
     }
 
     private int getTakeSnapshotCount() {
-        return getOrDefaultValue(() -> report.getLog().getTakeSnapshotCount(), 0);
+        return getOrDefaultValue(RaftNodeStats::getTakeSnapshotCount, () -> report.getLog().getTakeSnapshotCount(), 0);
     }
 
     private int getInstallSnapshotCount() {
-        return getOrDefaultValue(() -> report.getLog().getInstallSnapshotCount(), 0);
+        return getOrDefaultValue(RaftNodeStats::getInstallSnapshotCount,
+                () -> report.getLog().getInstallSnapshotCount(), 0);
     }
 
     private long getFollowerMatchIndex(RaftEndpoint endpoint) {
@@ -310,4 +340,9 @@ public final class RaftNodeMetrics implements RaftNodeReportListener, MeterBinde
         return report != null ? supplier.get() : defaultValue;
     }
 
+    private <T> T getOrDefaultValue(Function<RaftNodeStats, T> statsFunction, Supplier<T> supplier, T defaultValue) {
+        RaftNodeStats stats = this.stats;
+        return stats != null ? statsFunction.apply(stats) : getOrDefaultValue(supplier, defaultValue);
+    }
+
 }
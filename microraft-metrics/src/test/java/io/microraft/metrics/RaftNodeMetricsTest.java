@@ -98,6 +98,7 @@ public class RaftNodeMetricsTest extends BaseTest {
         RaftNode raftNode = RaftNode.newBuilder().setGroupId("default").setLocalEndpoint(endpoint)
                 .setInitialGroupMembers(initialMembers).setConfig(config).setTransport(transport)
                 .setStateMachine(stateMachine).setRaftNodeReportListener(metrics).build();
+        metrics.setStats(raftNode.getStats());
 
         raftNodes.add(raftNode);
         transports.add(transport);
@@ -1,9 +1,16 @@
 package io.microraft.store.sqlite;
 
 import java.io.File;
+import java.nio.ByteBuffer;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import javax.annotation.Nonnegative;
@@ -12,19 +19,20 @@ import javax.annotation.Nullable;
 
 import org.jooq.CloseableDSLContext;
 import org.jooq.Converter;
+import org.jooq.Cursor;
 import org.jooq.Field;
 import org.jooq.Name;
 import org.jooq.Record;
 import org.jooq.Record1;
 import org.jooq.Select;
 import org.jooq.Table;
+import org.jooq.exception.DataAccessException;
 import org.jooq.impl.DSL;
 import org.jooq.impl.SQLDataType;
 import org.sqlite.SQLiteConfig;
 import org.sqlite.SQLiteConfig.JournalMode;
 import org.sqlite.SQLiteConfig.LockingMode;
 import org.sqlite.SQLiteConfig.Pragma;
-import org.sqlite.SQLiteConfig.SynchronousMode;
 
 import io.microraft.RaftEndpoint;
 import io.microraft.lifecycle.RaftNodeLifecycleAware;
@@ -51,14 +59,23 @@ import io.microraft.persistence.RestoredRaftState;
  * major source of overhead when replicating messages.</li>
  * <li>Being as straightforward as possible with all other operations.</li>
  * </ul>
- * There are three tables which exist in this store.
+ * There are four tables which exist in this store.
  * <ol>
  * <li>logEntries stores the log entries</li>
- * <li>snapshots and snapshotChunks store which snapshots exist and pointers to
- * their chunks</li>
+ * <li>snapshotChunks stores the chunks of the snapshots</li>
+ * <li>completedSnapshots stores the indices of the snapshots whose all chunks
+ * are persisted. A snapshot is marked as completed in the same transaction as
+ * its last persisted chunk, so the latest completed snapshot is found via the
+ * primary key on restore.</li>
  * <li>kv stores the remaining metadata in a single-row, one-column-per-value
  * 'key-value store'.</li>
  * </ol>
+ * Log entries and snapshot chunks are written with cached JDBC prepared
+ * statements in batches. When the log is truncated after a snapshot, the
+ * truncated log entries are deleted in bounded chunks on the subsequent
+ * {@link #flush()} calls, so that a large truncated range does not block the
+ * Raft thread. Log entries that are pending deletion are not restored. The
+ * durability settings can be configured via {@link RaftSqliteStoreConfig}.
  */
 public final class RaftSqliteStore implements RaftStore, RaftNodeLifecycleAware {
 
@@ -71,33 +88,61 @@ public final class RaftSqliteStore implements RaftStore, RaftNodeLifecycleAware
     private static final Table<Record> LOG_ENTRIES = DSL.table("logEntries");
     private static final Field<Long> INDEX = DSL.field("logIndex", SQLDataType.BIGINT);
     private static final Table<Record> SNAPSHOT_CHUNKS = DSL.table("snapshotChunks");
+    private static final Table<Record> COMPLETED_SNAPSHOTS = DSL.table("completedSnapshots");
     private static final Field<Integer> CHUNK_INDEX = DSL.field("chunkIndex", SQLDataType.INTEGER);
     private static final Field<Integer> CHUNK_COUNT = DSL.field("chunkCount", SQLDataType.INTEGER);
     private static final Name COUNT = DSL.name("count");
+    private static final int LOG_ENTRY_FETCH_SIZE = 1000;
+
+    private static final String INSERT_LOG_ENTRY_SQL = "INSERT OR IGNORE INTO logEntries (logIndex, logEntry) "
+            + "VALUES (?, ?)";
+    private static final String INSERT_SNAPSHOT_CHUNK_SQL = "INSERT OR IGNORE INTO snapshotChunks "
+            + "(logIndex, chunkIndex, chunkCount, chunk) VALUES (?, ?, ?, ?)";
+    private static final String DELETE_TRUNCATED_LOG_ENTRIES_SQL = "DELETE FROM logEntries WHERE logIndex IN "
+            + "(SELECT logIndex FROM logEntries WHERE logIndex <= ? ORDER BY logIndex LIMIT ?)";
 
     private final Field<RaftGroupMembersView> initialGroupMembersField;
     private final Field<RaftEndpoint> localEndpointField;
     private final Field<RaftEndpoint> votedForField;
     private final Field<LogEntry> logEntryField;
     private final Field<SnapshotChunk> chunkField;
+    private final JooqConverterAdapter<LogEntry> logEntryConverter;
+    private final JooqConverterAdapter<SnapshotChunk> chunkConverter;
     private final CloseableDSLContext dsl;
+    private final Connection connection;
     private final RaftModelFactory raftModelFactory;
+    private final int truncationBatchSize;
+    private PreparedStatement insertLogEntryStatement;
+    private PreparedStatement insertSnapshotChunkStatement;
+    private PreparedStatement deleteTruncatedLogEntriesStatement;
+    // log entries until this index (inclusive) are truncated but not deleted yet
+    private long pendingTruncationIndex;
+    // number of persisted chunks of the snapshots which are not completed yet
+    private final Map<Long, Integer> persistedSnapshotChunkCounts = new HashMap<>();
 
     public RaftSqliteStore(CloseableDSLContext dsl, RaftStoreSerializer modelSerializer,
             RaftModelFactory raftModelFactory) {
+        this(dsl, modelSerializer, raftModelFactory, RaftSqliteStoreConfig.DEFAULT_CONFIG);
+    }
+
+    public RaftSqliteStore(CloseableDSLContext dsl, RaftStoreSerializer modelSerializer,
+            RaftModelFactory raftModelFactory, RaftSqliteStoreConfig storeConfig) {
         this.dsl = dsl;
+        this.connection = dsl.configuration().connectionProvider().acquire();
         this.raftModelFactory = raftModelFactory;
+        this.truncationBatchSize = storeConfig.getTruncationBatchSize();
+        this.logEntryConverter = new JooqConverterAdapter<>(modelSerializer.logEntrySerializer(), LogEntry.class);
+        this.chunkConverter = new JooqConverterAdapter<>(modelSerializer.snapshotChunkSerializer(),
+                SnapshotChunk.class);
         initialGroupMembersField = DSL.field("initialGroupMembers",
                 SQLDataType.BINARY.asConvertedDataType(new JooqConverterAdapter<>(
                         modelSerializer.raftGroupMembersViewSerializer(), RaftGroupMembersView.class)));
-        logEntryField = DSL.field("logEntry", SQLDataType.BINARY
-                .asConvertedDataType(new JooqConverterAdapter<>(modelSerializer.logEntrySerializer(), LogEntry.class)));
+        logEntryField = DSL.field("logEntry", SQLDataType.BINARY.asConvertedDataType(logEntryConverter));
         localEndpointField = DSL.field("localEndpoint", SQLDataType.BINARY.asConvertedDataType(
                 new JooqConverterAdapter<>(modelSerializer.raftEndpointSerializer(), RaftEndpoint.class)));
         votedForField = DSL.field("votedFor", SQLDataType.BINARY.asConvertedDataType(
                 new JooqConverterAdapter<>(modelSerializer.raftEndpointSerializer(), RaftEndpoint.class)));
-        chunkField = DSL.field("chunk", SQLDataType.BINARY.asConvertedDataType(
-                new JooqConverterAdapter<>(modelSerializer.snapshotChunkSerializer(), SnapshotChunk.class)));
+        chunkField = DSL.field("chunk", SQLDataType.BINARY.asConvertedDataType(chunkConverter));
     }
 
     private void createTablesIfNotExists() {
@@ -110,14 +155,33 @@ public final class RaftSqliteStore implements RaftStore, RaftNodeLifecycleAware
         dsl.createTableIfNotExists(SNAPSHOT_CHUNKS).columns(INDEX, CHUNK_INDEX).column(CHUNK_COUNT).column(chunkField)
                 .primaryKey(INDEX, CHUNK_INDEX).execute();
 
-        dsl.connection(Connection::commit);
+        boolean completedSnapshotsExist = dsl.fetchExists(DSL.table("sqlite_master"),
+                DSL.field("name", SQLDataType.VARCHAR).eq(COMPLETED_SNAPSHOTS.getName()));
+        dsl.createTableIfNotExists(COMPLETED_SNAPSHOTS).column(INDEX).primaryKey(INDEX).execute();
+        if (!completedSnapshotsExist) {
+            // the database is created by a version which did not mark the
+            // completed snapshots, so we find them once by counting the chunks.
+            dsl.insertInto(COMPLETED_SNAPSHOTS, INDEX).select(completedSnapshots()).onDuplicateKeyIgnore().execute();
+        }
+
+        commit();
     }
 
     /**
-     * Creates and initializes the SQLite based RaftStore implementation.
+     * Creates and initializes the SQLite based RaftStore implementation with the
+     * default configuration.
      */
     public static RaftSqliteStore create(File sqliteDb, RaftModelFactory raftModelFactory,
             RaftStoreSerializer modelSerializer) {
+        return create(sqliteDb, raftModelFactory, modelSerializer, RaftSqliteStoreConfig.DEFAULT_CONFIG);
+    }
+
+    /**
+     * Creates and initializes the SQLite based RaftStore implementation with the
+     * given configuration.
+     */
+    public static RaftSqliteStore create(File sqliteDb, RaftModelFactory raftModelFactory,
+            RaftStoreSerializer modelSerializer, RaftSqliteStoreConfig storeConfig) {
         SQLiteConfig config = new SQLiteConfig();
         // https://www.sqlite.org/pragma.html#pragma_journal_mode
         config.setPragma(Pragma.JOURNAL_MODE, JournalMode.WAL.getValue());
@@ -126,12 +190,14 @@ public final class RaftSqliteStore implements RaftStore, RaftNodeLifecycleAware
         // connection.
         config.setPragma(Pragma.LOCKING_MODE, LockingMode.EXCLUSIVE.getValue());
         // https://www.sqlite.org/pragma.html#pragma_synchronous
-        config.setPragma(Pragma.SYNCHRONOUS, "EXTRA");
+        config.setPragma(Pragma.SYNCHRONOUS, storeConfig.getSynchronousMode().name());
 
         CloseableDSLContext dsl = DSL.using(jdbcUrl(sqliteDb), config.toProperties());
+        // https://www.sqlite.org/pragma.html#pragma_wal_autocheckpoint
+        dsl.execute("PRAGMA wal_autocheckpoint = " + storeConfig.getWalAutoCheckpointPages());
         dsl.connection(conn -> conn.setAutoCommit(false));
 
-        RaftSqliteStore store = new RaftSqliteStore(dsl, modelSerializer, raftModelFactory);
+        RaftSqliteStore store = new RaftSqliteStore(dsl, modelSerializer, raftModelFactory, storeConfig);
         store.createTablesIfNotExists();
         return store;
     }
@@ -142,50 +208,99 @@ public final class RaftSqliteStore implements RaftStore, RaftNodeLifecycleAware
 
     @Override
     public void onRaftNodeTerminate() {
-        dsl.connection(Connection::rollback);
-        dsl.close();
+        try {
+            closeStatements();
+        } finally {
+            try {
+                connection.rollback();
+            } catch (SQLException e) {
+                throw new DataAccessException("Could not roll back", e);
+            } finally {
+                dsl.configuration().connectionProvider().release(connection);
+                dsl.close();
+            }
+        }
     }
 
     @Override
     public void persistAndFlushLocalEndpoint(@Nonnull RaftEndpointPersistentState localEndpointPersistentState) {
         dsl.update(KV).set(localEndpointField, localEndpointPersistentState.getLocalEndpoint())
                 .set(LOCAL_ENDPOINT_VOTING, localEndpointPersistentState.isVoting()).execute();
-        dsl.connection(Connection::commit);
+        commit();
     }
 
     @Override
     public void persistAndFlushInitialGroupMembers(@Nonnull RaftGroupMembersView initialGroupMembers) {
         dsl.update(KV).set(initialGroupMembersField, initialGroupMembers).execute();
-        dsl.connection(Connection::commit);
+        commit();
     }
 
     @Override
     public void persistAndFlushTerm(@Nonnull RaftTermPersistentState termPersistentState) {
         dsl.update(KV).set(TERM, termPersistentState.getTerm()).set(votedForField, termPersistentState.getVotedFor())
                 .execute();
-        dsl.connection(Connection::commit);
+        commit();
     }
 
     @Override
-    @SuppressWarnings("VarUsage")
     public void persistLogEntries(@Nonnull List<LogEntry> logEntries) {
-        var statement = dsl.insertInto(LOG_ENTRIES, INDEX, logEntryField);
-        for (LogEntry entry : logEntries) {
-            statement.values(entry.getIndex(), entry);
+        if (logEntries.isEmpty()) {
+            return;
+        }
+
+        try {
+            if (insertLogEntryStatement == null) {
+                insertLogEntryStatement = connection.prepareStatement(INSERT_LOG_ENTRY_SQL);
+            }
+
+            for (LogEntry entry : logEntries) {
+                insertLogEntryStatement.setLong(1, entry.getIndex());
+                insertLogEntryStatement.setBytes(2, logEntryConverter.to(entry));
+                insertLogEntryStatement.addBatch();
+            }
+            insertLogEntryStatement.executeBatch();
+        } catch (SQLException e) {
+            throw new DataAccessException("Could not persist log entries", e);
         }
-        statement.onDuplicateKeyIgnore().execute();
     }
 
     @Override
     public void persistSnapshotChunk(@Nonnull SnapshotChunk snapshotChunk) {
-        dsl.insertInto(SNAPSHOT_CHUNKS, INDEX, CHUNK_INDEX, CHUNK_COUNT, chunkField).values(snapshotChunk.getIndex(),
-                snapshotChunk.getSnapshotChunkIndex(), snapshotChunk.getSnapshotChunkCount(), snapshotChunk)
-                .onDuplicateKeyIgnore().execute();
+        try {
+            if (insertSnapshotChunkStatement == null) {
+                insertSnapshotChunkStatement = connection.prepareStatement(INSERT_SNAPSHOT_CHUNK_SQL);
+            }
+
+            insertSnapshotChunkStatement.setLong(1, snapshotChunk.getIndex());
+            insertSnapshotChunkStatement.setInt(2, snapshotChunk.getSnapshotChunkIndex());
+            insertSnapshotChunkStatement.setInt(3, snapshotChunk.getSnapshotChunkCount());
+            insertSnapshotChunkStatement.setBytes(4, chunkConverter.to(snapshotChunk));
+            if (insertSnapshotChunkStatement.executeUpdate() == 0) {
+                // the chunk is already persisted
+                return;
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Could not persist snapshot chunk", e);
+        }
+
+        long snapshotIndex = snapshotChunk.getIndex();
+        Integer persistedChunkCount = persistedSnapshotChunkCounts.get(snapshotIndex);
+        // the chunks persisted before a restart are counted once
+        int chunkCount = persistedChunkCount != null
+                ? persistedChunkCount + 1
+                : dsl.fetchCount(SNAPSHOT_CHUNKS, INDEX.eq(snapshotIndex));
+        if (chunkCount < snapshotChunk.getSnapshotChunkCount()) {
+            persistedSnapshotChunkCounts.put(snapshotIndex, chunkCount);
+            return;
+        }
+
+        persistedSnapshotChunkCounts.remove(snapshotIndex);
+        dsl.insertInto(COMPLETED_SNAPSHOTS, INDEX).values(snapshotIndex).onDuplicateKeyIgnore().execute();
     }
 
     // Visible for testing
     Optional<Long> getMaxCommittedSnapshotIndex() {
-        return Optional.ofNullable(dsl.select(DSL.max(INDEX).as(INDEX)).from(completedSnapshots()).fetchOne(INDEX));
+        return Optional.ofNullable(dsl.select(DSL.max(INDEX).as(INDEX)).from(COMPLETED_SNAPSHOTS).fetchOne(INDEX));
     }
 
     private static <T> Field<T> qualify(Table<?> table, Field<T> field) {
@@ -199,14 +314,42 @@ public final class RaftSqliteStore implements RaftStore, RaftNodeLifecycleAware
 
     @Override
     public void truncateLogEntriesUntil(@Nonnegative long logIndexInclusive) {
-        dsl.deleteFrom(LOG_ENTRIES).where(INDEX.lessOrEqual(logIndexInclusive)).execute();
+        // the log entries are deleted in chunks on the next flush calls
+        pendingTruncationIndex = Math.max(pendingTruncationIndex, logIndexInclusive);
         // we can remove all snapshot chunks belonging to the previous log indices
-        dsl.deleteFrom(SNAPSHOT_CHUNKS).where(INDEX.lessThan(logIndexInclusive)).execute();
+        deleteSnapshotsBefore(logIndexInclusive);
+    }
+
+    private void deleteSnapshotsBefore(long logIndex) {
+        dsl.deleteFrom(SNAPSHOT_CHUNKS).where(INDEX.lessThan(logIndex)).execute();
+        dsl.deleteFrom(COMPLETED_SNAPSHOTS).where(INDEX.lessThan(logIndex)).execute();
+        persistedSnapshotChunkCounts.keySet().removeIf(snapshotIndex -> snapshotIndex < logIndex);
+    }
+
+    /**
+     * Deletes a chunk of the log entries that are truncated but not deleted yet.
+     */
+    private void deleteTruncatedLogEntries() {
+        try {
+            if (deleteTruncatedLogEntriesStatement == null) {
+                deleteTruncatedLogEntriesStatement = connection.prepareStatement(DELETE_TRUNCATED_LOG_ENTRIES_SQL);
+            }
+
+            deleteTruncatedLogEntriesStatement.setLong(1, pendingTruncationIndex);
+            deleteTruncatedLogEntriesStatement.setInt(2, truncationBatchSize);
+            if (deleteTruncatedLogEntriesStatement.executeUpdate() < truncationBatchSize) {
+                pendingTruncationIndex = 0;
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Could not delete truncated log entries", e);
+        }
     }
 
     /**
      * This returns the completed snapshot offers by returning those snapshots for
      * which the number of persisted chunks is equal to the total number of chunks.
+     * It is used only once to populate the completedSnapshots table of a database
+     * created before the table was introduced.
      */
     @SuppressWarnings("VarUsage")
     private Select<? extends Record1<Long>> completedSnapshots() {
@@ -221,11 +364,17 @@ public final class RaftSqliteStore implements RaftStore, RaftNodeLifecycleAware
     @Override
     public void deleteSnapshotChunks(@Nonnegative long logIndex, @Nonnegative int snapshotChunkCount) {
         dsl.deleteFrom(SNAPSHOT_CHUNKS).where(qualify(SNAPSHOT_CHUNKS, INDEX).eq(logIndex)).execute();
+        dsl.deleteFrom(COMPLETED_SNAPSHOTS).where(INDEX.eq(logIndex)).execute();
+        persistedSnapshotChunkCounts.remove(logIndex);
     }
 
     @Override
     public void flush() {
-        dsl.connection(Connection::commit);
+        commit();
+        if (pendingTruncationIndex > 0) {
+            // committed with the next flush call
+            deleteTruncatedLogEntries();
+        }
     }
 
     public Optional<RestoredRaftState> getRestoredRaftState(boolean truncateStaleData) {
@@ -275,9 +424,29 @@ public final class RaftSqliteStore implements RaftStore, RaftNodeLifecycleAware
         RaftTermPersistentState termPersistentState = raftModelFactory.createRaftTermPersistentStateBuilder()
                 .setTerm(record.get(TERM)).setVotedFor(record.get(votedForField)).build();
 
+        // skip the log entries which are truncated but not deleted yet
+        long truncatedLogIndex = Math.max(pendingTruncationIndex, snapshot.map(SnapshotEntry::getIndex).orElse(0L));
+
         return Optional.of(new RestoredRaftState(localEndpointPersistentState, record.get(initialGroupMembersField),
-                termPersistentState, snapshot.orElse(null),
-                dsl.select(logEntryField).from(LOG_ENTRIES).orderBy(INDEX).fetch(logEntryField)));
+                termPersistentState, snapshot.orElse(null), restoreLogEntries(truncatedLogIndex)));
+    }
+
+    /**
+     * Reads the log entries after the given index with a cursor, so that the
+     * rows are converted to log entries one by one instead of materializing the
+     * whole result set first.
+     */
+    private List<LogEntry> restoreLogEntries(long truncatedLogIndex) {
+        List<LogEntry> logEntries = new ArrayList<>();
+        try (Cursor<Record1<LogEntry>> cursor = dsl.select(logEntryField).from(LOG_ENTRIES)
+                .where(INDEX.greaterThan(truncatedLogIndex)).orderBy(INDEX).fetchSize(LOG_ENTRY_FETCH_SIZE)
+                .fetchLazy()) {
+            for (Record1<LogEntry> logEntryRecord : cursor) {
+                logEntries.add(logEntryRecord.value1());
+            }
+        }
+
+        return logEntries;
     }
 
     // Visible for testing
@@ -285,9 +454,14 @@ public final class RaftSqliteStore implements RaftStore, RaftNodeLifecycleAware
         return dsl.select(chunkField).from(SNAPSHOT_CHUNKS).orderBy(INDEX, CHUNK_INDEX).fetch(chunkField);
     }
 
+    // Visible for testing
+    int getLogEntryCount() {
+        return dsl.fetchCount(LOG_ENTRIES);
+    }
+
     // Visible for testing
     void rawFlush() {
-        dsl.connection(Connection::commit);
+        commit();
     }
 
     private static void checkState(boolean condition, String errorMessage) {
@@ -299,9 +473,36 @@ public final class RaftSqliteStore implements RaftStore, RaftNodeLifecycleAware
     private void truncateUntil(long snapshotIndex) {
         // we know there is a snapshot persisted successfully at the given index,
         // so we can delete everything before it.
-        truncateLogEntriesUntil(snapshotIndex);
-        dsl.deleteFrom(SNAPSHOT_CHUNKS).where(INDEX.lessThan(snapshotIndex)).execute();
-        dsl.connection(Connection::commit);
+        dsl.deleteFrom(LOG_ENTRIES).where(INDEX.lessOrEqual(snapshotIndex)).execute();
+        deleteSnapshotsBefore(snapshotIndex);
+        commit();
+        if (pendingTruncationIndex <= snapshotIndex) {
+            pendingTruncationIndex = 0;
+        }
+    }
+
+    // commits on the connection the prepared statements are created on
+    private void commit() {
+        try {
+            connection.commit();
+        } catch (SQLException e) {
+            throw new DataAccessException("Could not commit", e);
+        }
+    }
+
+    private void closeStatements() {
+        for (PreparedStatement statement : Arrays.asList(insertLogEntryStatement, insertSnapshotChunkStatement,
+                deleteTruncatedLogEntriesStatement)) {
+            if (statement == null) {
+                continue;
+            }
+
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                throw new DataAccessException("Could not close statement", e);
+            }
+        }
     }
 
     private static final class JooqConverterAdapter<T> implements Converter<byte[], T> {
@@ -326,10 +527,29 @@ public final class RaftSqliteStore implements RaftStore, RaftNodeLifecycleAware
         public byte[] to(T element) {
             if (element == null) {
                 return null;
+            } else if (element instanceof LogEntry) {
+                // reuse the serialized form the leader may have already
+                // computed for the transport with the same serializer.
+                @SuppressWarnings("unchecked")
+                RaftStoreSerializer.Serializer<LogEntry> logEntrySerializer =
+                        (RaftStoreSerializer.Serializer<LogEntry>) serializer;
+                ByteBuffer buffer = ((LogEntry) element).getOrComputeSerializedForm(logEntrySerializer);
+                return toByteArray(buffer);
             }
             return serializer.serialize(element);
         }
 
+        private static byte[] toByteArray(ByteBuffer buffer) {
+            if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.position() == 0
+                    && buffer.remaining() == buffer.array().length) {
+                return buffer.array();
+            }
+
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            return bytes;
+        }
+
         @Override
         public Class<byte[]> fromType() {
             return byte[].class;
@@ -0,0 +1,203 @@
+package io.microraft.store.sqlite;
+
+import static java.util.Objects.requireNonNull;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Contains the configuration parameters of {@link RaftSqliteStore}.
+ * <p>
+ * RaftSqliteStoreConfig is an immutable configuration class. You can use a
+ * RaftSqliteStoreConfigBuilder to build a RaftSqliteStoreConfig object.
+ */
+public final class RaftSqliteStoreConfig {
+
+    /**
+     * The default value for {@link #synchronousMode}.
+     */
+    public static final SynchronousMode DEFAULT_SYNCHRONOUS_MODE = SynchronousMode.EXTRA;
+
+    /**
+     * The default value for {@link #walAutoCheckpointPages}. It is the default
+     * of SQLite.
+     */
+    public static final int DEFAULT_WAL_AUTO_CHECKPOINT_PAGES = 1000;
+
+    /**
+     * The default value for {@link #truncationBatchSize}.
+     */
+    public static final int DEFAULT_TRUNCATION_BATCH_SIZE = 1000;
+
+    /**
+     * The config object with default configuration.
+     */
+    public static final RaftSqliteStoreConfig DEFAULT_CONFIG = new RaftSqliteStoreConfigBuilder().build();
+
+    /**
+     * The synchronous mode of SQLite, which determines how often SQLite calls
+     * fsync. See https://www.sqlite.org/pragma.html#pragma_synchronous for
+     * details.
+     * <p>
+     * In the WAL journal mode, {@link SynchronousMode#NORMAL} does not fsync on
+     * each commit. Committed transactions can be rolled back after a power
+     * failure, which can violate the Raft guarantees. It should be used only if
+     * the durability is provided by other means, e.g., battery-backed disks.
+     */
+    private final SynchronousMode synchronousMode;
+
+    /**
+     * The number of pages the WAL file of SQLite can grow to before SQLite
+     * checkpoints it into the database file on a commit. A non-positive value
+     * disables the automatic checkpoints. See
+     * https://www.sqlite.org/pragma.html#pragma_wal_autocheckpoint for details.
+     */
+    private final int walAutoCheckpointPages;
+
+    /**
+     * The maximum number of log entries that are deleted in a single statement
+     * when the log is truncated after a snapshot. The store deletes a truncated
+     * range in chunks of this size on the subsequent flush calls instead of
+     * deleting it with a single unbounded statement.
+     */
+    private final int truncationBatchSize;
+
+    private RaftSqliteStoreConfig(SynchronousMode synchronousMode, int walAutoCheckpointPages,
+            int truncationBatchSize) {
+        this.synchronousMode = synchronousMode;
+        this.walAutoCheckpointPages = walAutoCheckpointPages;
+        this.truncationBatchSize = truncationBatchSize;
+    }
+
+    /**
+     * Creates a new config builder.
+     *
+     * @return the builder to populate the parameters for RaftSqliteStoreConfig.
+     */
+    public static RaftSqliteStoreConfigBuilder newBuilder() {
+        return new RaftSqliteStoreConfigBuilder();
+    }
+
+    /**
+     * @return the synchronous mode
+     *
+     * @see #synchronousMode
+     */
+    public SynchronousMode getSynchronousMode() {
+        return synchronousMode;
+    }
+
+    /**
+     * @return the number of WAL pages to trigger an automatic checkpoint
+     *
+     * @see #walAutoCheckpointPages
+     */
+    public int getWalAutoCheckpointPages() {
+        return walAutoCheckpointPages;
+    }
+
+    /**
+     * @return the maximum number of log entries to delete in one statement
+     *
+     * @see #truncationBatchSize
+     */
+    public int getTruncationBatchSize() {
+        return truncationBatchSize;
+    }
+
+    @Override
+    public String toString() {
+        return "RaftSqliteStoreConfig{" + "synchronousMode=" + synchronousMode + ", walAutoCheckpointPages="
+                + walAutoCheckpointPages + ", truncationBatchSize=" + truncationBatchSize + '}';
+    }
+
+    /**
+     * The synchronous modes of SQLite.
+     */
+    public enum SynchronousMode {
+        /**
+         * SQLite does not fsync at all.
+         */
+        OFF,
+        /**
+         * SQLite fsyncs at the critical moments, but not on each commit in the
+         * WAL journal mode.
+         */
+        NORMAL,
+        /**
+         * SQLite fsyncs on each commit.
+         */
+        FULL,
+        /**
+         * Same as {@link #FULL}, and SQLite also fsyncs the directory after a
+         * journal file is unlinked.
+         */
+        EXTRA
+    }
+
+    /**
+     * The builder for RaftSqliteStoreConfig.
+     */
+    public static final class RaftSqliteStoreConfigBuilder {
+
+        private SynchronousMode synchronousMode = DEFAULT_SYNCHRONOUS_MODE;
+        private int walAutoCheckpointPages = DEFAULT_WAL_AUTO_CHECKPOINT_PAGES;
+        private int truncationBatchSize = DEFAULT_TRUNCATION_BATCH_SIZE;
+
+        private RaftSqliteStoreConfigBuilder() {
+        }
+
+        /**
+         * @param synchronousMode
+         *            the synchronous mode to set
+         *
+         * @return the builder object for fluent calls
+         *
+         * @see #synchronousMode
+         */
+        public RaftSqliteStoreConfigBuilder setSynchronousMode(@Nonnull SynchronousMode synchronousMode) {
+            this.synchronousMode = requireNonNull(synchronousMode);
+            return this;
+        }
+
+        /**
+         * @param walAutoCheckpointPages
+         *            the number of WAL pages to trigger an automatic checkpoint
+         *
+         * @return the builder object for fluent calls
+         *
+         * @see #walAutoCheckpointPages
+         */
+        public RaftSqliteStoreConfigBuilder setWalAutoCheckpointPages(int walAutoCheckpointPages) {
+            this.walAutoCheckpointPages = walAutoCheckpointPages;
+            return this;
+        }
+
+        /**
+         * @param truncationBatchSize
+         *            the maximum number of log entries to delete in one
+         *            statement
+         *
+         * @return the builder object for fluent calls
+         *
+         * @see #truncationBatchSize
+         */
+        public RaftSqliteStoreConfigBuilder setTruncationBatchSize(int truncationBatchSize) {
+            if (truncationBatchSize < 1) {
+                throw new IllegalArgumentException(
+                        "truncation batch size: " + truncationBatchSize + " must be positive!");
+            }
+            this.truncationBatchSize = truncationBatchSize;
+            return this;
+        }
+
+        /**
+         * Builds the RaftSqliteStoreConfig object.
+         *
+         * @return the RaftSqliteStoreConfig object.
+         */
+        public RaftSqliteStoreConfig build() {
+            return new RaftSqliteStoreConfig(synchronousMode, walAutoCheckpointPages, truncationBatchSize);
+        }
+    }
+
+}
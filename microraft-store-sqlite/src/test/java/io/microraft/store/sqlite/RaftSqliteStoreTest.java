@@ -60,7 +60,12 @@ public class RaftSqliteStoreTest {
     }
 
     private void withRaftStore(Consumer<RaftSqliteStore> consumer) {
-        RaftSqliteStore store = RaftSqliteStore.create(sqlite, RAFT_MODEL_FACTORY, JacksonModelSerializer.INSTANCE);
+        withRaftStore(RaftSqliteStoreConfig.DEFAULT_CONFIG, consumer);
+    }
+
+    private void withRaftStore(RaftSqliteStoreConfig config, Consumer<RaftSqliteStore> consumer) {
+        RaftSqliteStore store = RaftSqliteStore.create(sqlite, RAFT_MODEL_FACTORY, JacksonModelSerializer.INSTANCE,
+                config);
         consumer.accept(store);
         store.onRaftNodeTerminate();
     }
@@ -171,6 +176,66 @@ public class RaftSqliteStoreTest {
         });
     }
 
+    @Test
+    public void testSnapshotIsCompletedAcrossRestarts() {
+        withRaftStore(RaftSqliteStoreTest::persistInitialState);
+        withRaftStore(store -> {
+            store.persistSnapshotChunk(snapshotChunk(5, 1, 2, 3));
+            store.persistSnapshotChunk(snapshotChunk(5, 1, 0, 3));
+            store.flush();
+            assertThat(store.getMaxCommittedSnapshotIndex()).isEmpty();
+        });
+        withRaftStore(store -> {
+            assertThat(store.getRestoredRaftState(false).get().getSnapshotEntry()).isNull();
+            // chunks persisted before the restart are not counted twice
+            store.persistSnapshotChunk(snapshotChunk(5, 1, 0, 3));
+            assertThat(store.getMaxCommittedSnapshotIndex()).isEmpty();
+            store.persistSnapshotChunk(snapshotChunk(5, 1, 1, 3));
+            store.flush();
+            assertThat(store.getMaxCommittedSnapshotIndex()).contains(5L);
+        });
+        withRaftStore(store -> {
+            assertThat(store.getRestoredRaftState(false).get().getSnapshotEntry().getOperation())
+                    .usingRecursiveComparison().isEqualTo(
+                            List.of(snapshotChunk(5, 1, 0, 3), snapshotChunk(5, 1, 1, 3), snapshotChunk(5, 1, 2, 3)));
+            store.deleteSnapshotChunks(5, 3);
+            store.flush();
+            assertThat(store.getMaxCommittedSnapshotIndex()).isEmpty();
+        });
+    }
+
+    @Test
+    public void testTruncatedLogEntriesAreDeletedInChunks() {
+        withRaftStore(RaftSqliteStoreTest::persistInitialState);
+        RaftSqliteStoreConfig config = RaftSqliteStoreConfig.newBuilder()
+                .setSynchronousMode(RaftSqliteStoreConfig.SynchronousMode.FULL).setTruncationBatchSize(2).build();
+        withRaftStore(config, store -> {
+            store.persistLogEntries(List.of(logEntry(1, 1), logEntry(2, 1), logEntry(3, 1), logEntry(4, 1),
+                    logEntry(5, 1), logEntry(6, 1)));
+            store.persistSnapshotChunk(snapshotChunk(5, 1, 0, 1));
+            store.flush();
+
+            store.truncateLogEntriesUntil(5);
+            assertThat(store.getLogEntryCount()).isEqualTo(6);
+            // log entries pending deletion are not restored
+            assertThat(store.getRestoredRaftState(false).get().getLogEntries())
+                    .usingRecursiveFieldByFieldElementComparator().containsExactly(logEntry(6, 1));
+
+            store.flush();
+            assertThat(store.getLogEntryCount()).isEqualTo(4);
+            store.flush();
+            assertThat(store.getLogEntryCount()).isEqualTo(2);
+            store.flush();
+            store.flush();
+            assertThat(store.getLogEntryCount()).isEqualTo(1);
+        });
+        withRaftStore(store -> {
+            assertThat(store.getLogEntryCount()).isEqualTo(1);
+            assertThat(store.getRestoredRaftState(false).get().getLogEntries())
+                    .usingRecursiveFieldByFieldElementComparator().containsExactly(logEntry(6, 1));
+        });
+    }
+
     @Test
     public void testRestoreCleansUpRedundantLogEntriesAndSnapshotChunks() {
         withRaftStore(RaftSqliteStoreTest::persistInitialState);
@@ -296,6 +361,9 @@ public class RaftSqliteStoreTest {
 
         @JsonDeserialize(contentAs = LocalRaftEndpoint.class)
         private Collection<RaftEndpoint> votingMembers;
+
+        @JsonDeserialize(contentAs = LocalRaftEndpoint.class)
+        private Collection<RaftEndpoint> witnessMembers;
     }
 
     @JsonDeserialize(builder = DefaultLogEntryOrBuilder.class)
@@ -0,0 +1,830 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.microraft.store.wal;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+import javax.annotation.Nonnull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.microraft.persistence.RaftStore;
+
+/**
+ * A segmented, append-only write-ahead log which can be shared by multiple
+ * {@link RaftStore} instances, i.e., Raft groups, running on the same disk.
+ * <p>
+ * Each user of the log attaches to it with a unique stream name and appends
+ * its records to the shared log via the returned {@link Stream} object.
+ * Records of all streams are written to the same segment file, and a single
+ * sync thread makes them durable. Flush requests arriving while an fsync is in
+ * progress are merged into the next fsync, hence concurrent flushes of many Raft
+ * groups cost a single fsync instead of one per group. Each flush request is
+ * completed once the bytes appended before it have become durable.
+ * <p>
+ * Records are written in the following format:
+ * {@code [int body length][int crc32c of body][short stream name length]
+ * [stream name][byte record type][payload]}. While opening the log, a torn
+ * record at the end of the last segment is truncated.
+ * <p>
+ * Segments are rolled when they reach the configured size. A segment is
+ * deleted once all streams that have records in it report via
+ * {@link Stream#retainFrom(long)} that they no longer need its records. Streams
+ * found in the log files are retained even if they are not attached yet, until
+ * they are deleted via {@link Stream#delete()}.
+ * <p>
+ * The log directory is fsynced after segment files are created or deleted.
+ * Flush requests are completed only after the directory entries of the
+ * segments they cover have become durable, so a crash cannot lose a freshly
+ * rolled segment with flushed records.
+ */
+public final class SharedWriteAheadLog implements Closeable {
+
+    /**
+     * The default size of a segment file, which is 64 MB.
+     */
+    public static final long DEFAULT_SEGMENT_SIZE = 64L * 1024 * 1024;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SharedWriteAheadLog.class);
+    private static final String SEGMENT_FILE_PREFIX = "wal-";
+    private static final String SEGMENT_FILE_SUFFIX = ".log";
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final byte DELETE_STREAM_RECORD_TYPE = -1;
+
+    private final Path directory;
+    private final FileChannel directoryChannel;
+    private final long segmentSize;
+    private final ConcurrentMap<String, Stream> streams = new ConcurrentHashMap<>();
+
+    /**
+     * Guards the segment list and the appends.
+     */
+    private final Object appendMutex = new Object();
+    private final List<Segment> segments = new ArrayList<>();
+    private final List<Segment> unsyncedSealedSegments = new ArrayList<>();
+    private boolean directorySyncRequired;
+
+    /**
+     * Guards the sync requests.
+     */
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final Condition syncRequested = syncLock.newCondition();
+    private List<CompletableFuture<Long>> syncRequests = new ArrayList<>();
+
+    private final Thread syncThread;
+    private volatile long writtenPosition;
+    private volatile long durablePosition;
+    private final AtomicLong syncCount = new AtomicLong();
+    private final AtomicLong directorySyncCount = new AtomicLong();
+    private volatile boolean closed;
+
+    private SharedWriteAheadLog(Path directory, FileChannel directoryChannel, long segmentSize) {
+        this.directory = directory;
+        this.directoryChannel = directoryChannel;
+        this.segmentSize = segmentSize;
+        this.syncThread = new Thread(this::syncLoop, "wal-sync-" + directory.getFileName());
+        this.syncThread.setDaemon(true);
+    }
+
+    /**
+     * Opens the write-ahead log in the given directory with the default segment
+     * size. Creates the directory if it does not exist.
+     *
+     * @param directory
+     *            the directory of the segment files
+     *
+     * @return the opened write-ahead log
+     *
+     * @throws IOException
+     *             if the log files cannot be opened or they are corrupted
+     */
+    public static SharedWriteAheadLog open(@Nonnull Path directory) throws IOException {
+        return open(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Opens the write-ahead log in the given directory with the given segment
+     * size. Creates the directory if it does not exist.
+     *
+     * @param directory
+     *            the directory of the segment files
+     * @param segmentSize
+     *            the size after which a new segment file is started
+     *
+     * @return the opened write-ahead log
+     *
+     * @throws IOException
+     *             if the log files cannot be opened or they are corrupted
+     */
+    public static SharedWriteAheadLog open(@Nonnull Path directory, long segmentSize) throws IOException {
+        if (segmentSize < RECORD_HEADER_SIZE) {
+            throw new IllegalArgumentException("segment size: " + segmentSize + " is too small!");
+        }
+
+        Files.createDirectories(directory);
+        // segment files are created and deleted in the directory, so its
+        // entries are made durable via this channel.
+        FileChannel directoryChannel = FileChannel.open(directory, StandardOpenOption.READ);
+        SharedWriteAheadLog wal = new SharedWriteAheadLog(directory, directoryChannel, segmentSize);
+        try {
+            wal.recover();
+        } catch (IOException | RuntimeException e) {
+            wal.closeSegments();
+            throw e;
+        }
+
+        wal.syncThread.start();
+        return wal;
+    }
+
+    private void recover() throws IOException {
+        List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+                SEGMENT_FILE_PREFIX + "*" + SEGMENT_FILE_SUFFIX)) {
+            files.forEach(paths::add);
+        }
+
+        List<Long> basePositions = new ArrayList<>();
+        for (Path path : paths) {
+            String fileName = requireNonNull(path.getFileName()).toString();
+            basePositions.add(Long.parseLong(fileName.substring(SEGMENT_FILE_PREFIX.length(),
+                    fileName.length() - SEGMENT_FILE_SUFFIX.length())));
+        }
+        basePositions.sort(Long::compare);
+
+        long expectedBasePosition = basePositions.isEmpty() ? 0 : basePositions.get(0);
+        for (int i = 0; i < basePositions.size(); i++) {
+            long basePosition = basePositions.get(i);
+            if (basePosition != expectedBasePosition) {
+                throw new IOException("Missing segment file before position: " + basePosition + " in " + directory);
+            }
+
+            Segment segment = openSegment(basePosition, false);
+            segments.add(segment);
+            long fileSize = segment.channel.size();
+            long validSize = scan(segment, fileSize, null, this::recoverStream);
+            if (validSize < fileSize) {
+                if (i < basePositions.size() - 1) {
+                    throw new IOException("Corrupted record at position: " + (basePosition + validSize) + " in "
+                            + segment.path);
+                }
+
+                LOGGER.warn("Truncating torn records after position: {} in {}", basePosition + validSize,
+                        segment.path);
+                segment.channel.truncate(validSize);
+                segment.channel.force(true);
+            }
+
+            segment.size = validSize;
+            expectedBasePosition = basePosition + validSize;
+        }
+
+        if (segments.isEmpty()) {
+            segments.add(openSegment(0, true));
+            syncDirectory();
+        }
+
+        Segment active = activeSegment();
+        writtenPosition = active.basePosition + active.size;
+        durablePosition = writtenPosition;
+    }
+
+    private void recoverStream(long position, byte[] body, int nameLength, byte type) {
+        String name = new String(body, 2, nameLength, UTF_8);
+        if (type == DELETE_STREAM_RECORD_TYPE) {
+            streams.remove(name);
+        } else {
+            // records of the stream before its last delete record belong to
+            // the deleted incarnation, hence the stream starts from its first
+            // record after the delete record.
+            streams.computeIfAbsent(name, n -> new Stream(n, position, position));
+        }
+    }
+
+    /**
+     * Attaches to the stream with the given name. There can be a single
+     * attachment to a stream at a time.
+     *
+     * @param name
+     *            the unique name of the stream
+     *
+     * @return the stream object to append and replay records
+     *
+     * @throws IllegalStateException
+     *             if the stream is already attached
+     */
+    @Nonnull
+    public Stream attach(@Nonnull String name) {
+        ensureOpen();
+        if (name.getBytes(UTF_8).length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Stream name is too long: " + name);
+        }
+
+        Stream stream = streams.computeIfAbsent(name, n -> new Stream(n, writtenPosition, Long.MAX_VALUE));
+        synchronized (stream) {
+            if (stream.attached) {
+                throw new IllegalStateException("Stream: " + name + " is already attached!");
+            }
+
+            stream.attached = true;
+        }
+
+        return stream;
+    }
+
+    /**
+     * Returns the position until which all appended records have become durable.
+     *
+     * @return the position until which all appended records have become durable
+     */
+    public long durablePosition() {
+        return durablePosition;
+    }
+
+    /**
+     * Returns the number of fsync rounds completed so far. Since concurrent
+     * flush requests are merged, it can be lower than the number of flushes.
+     *
+     * @return the number of fsync rounds completed so far
+     */
+    public long syncCount() {
+        return syncCount.get();
+    }
+
+    /**
+     * Returns the number of fsyncs of the log directory completed so far.
+     *
+     * @return the number of fsyncs of the log directory completed so far
+     */
+    long directorySyncCount() {
+        return directorySyncCount.get();
+    }
+
+    /**
+     * Returns the number of segment files of the log.
+     *
+     * @return the number of segment files of the log
+     */
+    public int segmentCount() {
+        synchronized (appendMutex) {
+            return segments.size();
+        }
+    }
+
+    /**
+     * Returns a future which is completed once all records appended to the log
+     * until the given position have become durable.
+     *
+     * @param position
+     *            the position to be durable
+     *
+     * @return the future to be completed with the durable position
+     */
+    @Nonnull
+    public CompletableFuture<Long> syncAsync(long position) {
+        long durable = durablePosition;
+        if (position <= durable) {
+            return CompletableFuture.completedFuture(durable);
+        }
+
+        CompletableFuture<Long> future = new CompletableFuture<>();
+        syncLock.lock();
+        try {
+            if (closed) {
+                future.completeExceptionally(new IOException("Write-ahead log is closed: " + directory));
+            } else {
+                syncRequests.add(future);
+                syncRequested.signal();
+            }
+        } finally {
+            syncLock.unlock();
+        }
+
+        return future;
+    }
+
+    /**
+     * Blocks until all records appended to the log until the given position have
+     * become durable.
+     *
+     * @param position
+     *            the position to be durable
+     *
+     * @throws IOException
+     *             if the fsync fails
+     */
+    public void sync(long position) throws IOException {
+        try {
+            syncAsync(position).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+
+            throw e;
+        }
+    }
+
+    /**
+     * Completes the pending flush requests and closes the log files.
+     */
+    @Override
+    public void close() {
+        syncLock.lock();
+        try {
+            closed = true;
+            syncRequested.signal();
+        } finally {
+            syncLock.unlock();
+        }
+
+        try {
+            syncThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        synchronized (appendMutex) {
+            closeSegments();
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Write-ahead log is closed: " + directory);
+        }
+    }
+
+    private Segment activeSegment() {
+        return segments.get(segments.size() - 1);
+    }
+
+    private Segment openSegment(long basePosition, boolean create) throws IOException {
+        Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_FILE_PREFIX, basePosition,
+                SEGMENT_FILE_SUFFIX));
+        FileChannel channel = create
+                ? FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE)
+                : FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new Segment(basePosition, path, channel);
+    }
+
+    private long append(Stream stream, byte type, byte[] payload) throws IOException {
+        int bodyLength = 2 + stream.nameBytes.length + 1 + payload.length;
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_SIZE + bodyLength);
+        buffer.putInt(bodyLength).putInt(0).putShort((short) stream.nameBytes.length).put(stream.nameBytes).put(type)
+                .put(payload);
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.array(), RECORD_HEADER_SIZE, bodyLength);
+        buffer.putInt(4, (int) crc.getValue());
+        buffer.flip();
+
+        synchronized (appendMutex) {
+            ensureOpen();
+            Segment segment = activeSegment();
+            if (segment.size > 0 && segment.size + buffer.remaining() > segmentSize) {
+                segment = rollSegment();
+            }
+
+            long start = segment.basePosition + segment.size;
+            long offset = segment.size;
+            while (buffer.hasRemaining()) {
+                offset += segment.channel.write(buffer, offset);
+            }
+
+            segment.size = offset;
+            writtenPosition = segment.basePosition + offset;
+            return start;
+        }
+    }
+
+    private Segment rollSegment() throws IOException {
+        Segment sealed = activeSegment();
+        Segment segment = openSegment(sealed.basePosition + sealed.size, true);
+        unsyncedSealedSegments.add(sealed);
+        segments.add(segment);
+        // the records appended to the new segment are not durable until the
+        // directory entry of its file is durable
+        directorySyncRequired = true;
+        return segment;
+    }
+
+    private void syncDirectory() throws IOException {
+        directoryChannel.force(true);
+        directorySyncCount.incrementAndGet();
+    }
+
+    private void syncLoop() {
+        while (true) {
+            List<CompletableFuture<Long>> requests;
+            syncLock.lock();
+            try {
+                while (syncRequests.isEmpty() && !closed) {
+                    syncRequested.awaitUninterruptibly();
+                }
+
+                if (syncRequests.isEmpty()) {
+                    return;
+                }
+
+                requests = syncRequests;
+                syncRequests = new ArrayList<>();
+            } finally {
+                syncLock.unlock();
+            }
+
+            // all requests are made for the positions appended before this point
+            long target;
+            List<Segment> segmentsToSync;
+            boolean syncDirectory;
+            synchronized (appendMutex) {
+                target = writtenPosition;
+                segmentsToSync = new ArrayList<>(unsyncedSealedSegments);
+                segmentsToSync.add(activeSegment());
+                unsyncedSealedSegments.clear();
+                syncDirectory = directorySyncRequired;
+                directorySyncRequired = false;
+            }
+
+            try {
+                for (Segment segment : segmentsToSync) {
+                    segment.channel.force(false);
+                }
+
+                if (syncDirectory) {
+                    syncDirectory();
+                }
+
+                durablePosition = target;
+                syncCount.incrementAndGet();
+                for (CompletableFuture<Long> request : requests) {
+                    request.complete(target);
+                }
+            } catch (IOException | RuntimeException e) {
+                LOGGER.error("fsync of " + directory + " failed for " + requests.size() + " flush requests", e);
+                synchronized (appendMutex) {
+                    segmentsToSync.remove(segmentsToSync.size() - 1);
+                    unsyncedSealedSegments.addAll(0, segmentsToSync);
+                    directorySyncRequired |= syncDirectory;
+                }
+
+                for (CompletableFuture<Long> request : requests) {
+                    request.completeExceptionally(e);
+                }
+
+                continue;
+            }
+
+            try {
+                deleteObsoleteSegments();
+            } catch (IOException e) {
+                LOGGER.warn("Could not delete obsolete segments of " + directory, e);
+            }
+        }
+    }
+
+    private void deleteObsoleteSegments() throws IOException {
+        long threshold = durablePosition;
+        for (Stream stream : streams.values()) {
+            threshold = Math.min(threshold, stream.retainedPosition);
+        }
+
+        boolean deleted = false;
+        synchronized (appendMutex) {
+            while (segments.size() > 1) {
+                Segment segment = segments.get(0);
+                if (segment.basePosition + segment.size > threshold || unsyncedSealedSegments.contains(segment)) {
+                    break;
+                }
+
+                segments.remove(0);
+                segment.channel.close();
+                Files.deleteIfExists(segment.path);
+                deleted = true;
+                LOGGER.debug("Deleted obsolete segment {}", segment.path);
+            }
+        }
+
+        if (deleted) {
+            syncDirectory();
+        }
+    }
+
+    private void closeSegments() {
+        for (Segment segment : segments) {
+            try {
+                segment.channel.close();
+            } catch (IOException e) {
+                LOGGER.warn("Could not close " + segment.path, e);
+            }
+        }
+
+        try {
+            directoryChannel.close();
+        } catch (IOException e) {
+            LOGGER.warn("Could not close " + directory, e);
+        }
+    }
+
+    /**
+     * Reads the records of the given segment until the given limit and passes
+     * them to the given visitor. Returns the size of the valid records.
+     */
+    private long scan(Segment segment, long limit, byte[] nameBytes, RecordVisitor visitor) throws IOException {
+        long offset = 0;
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(segment.path), READ_BUFFER_SIZE))) {
+            while (offset + RECORD_HEADER_SIZE <= limit) {
+                int bodyLength = in.readInt();
+                int checksum = in.readInt();
+                if (bodyLength < 3 || offset + RECORD_HEADER_SIZE + bodyLength > limit) {
+                    break;
+                }
+
+                byte[] body = new byte[bodyLength];
+                in.readFully(body);
+                CRC32C crc = new CRC32C();
+                crc.update(body, 0, bodyLength);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+
+                int nameLength = ((body[0] & 0xFF) << 8) | (body[1] & 0xFF);
+                if (2 + nameLength + 1 > bodyLength) {
+                    break;
+                }
+
+                if (nameBytes == null
+                        || Arrays.equals(body, 2, 2 + nameLength, nameBytes, 0, nameBytes.length)) {
+                    visitor.visit(segment.basePosition + offset, body, nameLength, body[2 + nameLength]);
+                }
+
+                offset += RECORD_HEADER_SIZE + bodyLength;
+            }
+        } catch (EOFException e) {
+            // torn record at the end of the file
+            LOGGER.debug("Reached the end of {} at offset: {}", segment.path, offset);
+        }
+
+        return offset;
+    }
+
+    @FunctionalInterface
+    private interface RecordVisitor {
+        void visit(long position, byte[] body, int nameLength, byte type) throws IOException;
+    }
+
+    /**
+     * Consumes the records replayed from a stream.
+     */
+    @FunctionalInterface
+    public interface RecordConsumer {
+
+        /**
+         * Consumes a record of the stream.
+         *
+         * @param position
+         *            the position of the record in the log
+         * @param type
+         *            the type of the record
+         * @param payload
+         *            the payload of the record
+         *
+         * @throws IOException
+         *             if the record cannot be consumed
+         */
+        void accept(long position, byte type, @Nonnull byte[] payload) throws IOException;
+
+    }
+
+    /**
+     * The attachment of a single user, such as a Raft group, to the shared
+     * write-ahead log. A stream object is meant to be used by a single thread
+     * at a time.
+     */
+    public final class Stream {
+
+        private final String name;
+        private final byte[] nameBytes;
+        /**
+         * The position from which the records of this stream are replayed.
+         * Records of a deleted stream with the same name are before it.
+         */
+        private final long startPosition;
+        private boolean attached;
+        private volatile long retainedPosition;
+        private volatile long lastPosition;
+
+        private Stream(String name, long startPosition, long retainedPosition) {
+            this.name = name;
+            this.nameBytes = name.getBytes(UTF_8);
+            this.startPosition = startPosition;
+            this.retainedPosition = retainedPosition;
+        }
+
+        /**
+         * Returns the name of the stream.
+         *
+         * @return the name of the stream
+         */
+        @Nonnull
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Appends a record to the log and returns its position. The record does
+         * not become durable until the stream is flushed.
+         *
+         * @param type
+         *            the non-negative type of the record
+         * @param payload
+         *            the payload of the record
+         *
+         * @return the position of the appended record
+         *
+         * @throws IOException
+         *             if the record cannot be written
+         */
+        public long append(byte type, @Nonnull byte[] payload) throws IOException {
+            if (type < 0) {
+                throw new IllegalArgumentException("Invalid record type: " + type);
+            }
+
+            return doAppend(type, payload);
+        }
+
+        private long doAppend(byte type, byte[] payload) throws IOException {
+            long position = SharedWriteAheadLog.this.append(this, type, requireNonNull(payload));
+            if (retainedPosition == Long.MAX_VALUE) {
+                // the first record of a new stream
+                retainedPosition = position;
+            }
+
+            lastPosition = position + RECORD_HEADER_SIZE + 3 + nameBytes.length + payload.length;
+            return position;
+        }
+
+        /**
+         * Blocks until all records appended to this stream have become durable.
+         * Flushes of multiple streams are merged into a single fsync.
+         *
+         * @throws IOException
+         *             if the fsync fails
+         */
+        public void flush() throws IOException {
+            sync(lastPosition);
+        }
+
+        /**
+         * Returns a future which is completed once all records appended to this
+         * stream until now have become durable.
+         *
+         * @return the future to be completed with the durable position
+         */
+        @Nonnull
+        public CompletableFuture<Long> flushAsync() {
+            return syncAsync(lastPosition);
+        }
+
+        /**
+         * Returns the position after the last record appended to this stream.
+         *
+         * @return the position after the last record appended to this stream
+         */
+        public long lastPosition() {
+            return lastPosition;
+        }
+
+        /**
+         * Reports that the records of this stream before the given position are
+         * no longer needed, hence the segments containing only such records can
+         * be deleted. Records before the given position must have been
+         * superseded by durable records.
+         *
+         * @param position
+         *            the position of the first record to retain
+         */
+        public void retainFrom(long position) {
+            retainedPosition = position;
+        }
+
+        /**
+         * Passes all records of this stream to the given consumer in the append
+         * order. Records appended before the stream was last deleted are not
+         * replayed.
+         *
+         * @param consumer
+         *            the consumer of the records
+         *
+         * @throws IOException
+         *             if the segment files cannot be read
+         */
+        public void replay(@Nonnull RecordConsumer consumer) throws IOException {
+            List<Segment> snapshot;
+            List<Long> sizes = new ArrayList<>();
+            synchronized (appendMutex) {
+                snapshot = new ArrayList<>(segments);
+                snapshot.forEach(segment -> sizes.add(segment.size));
+            }
+
+            for (int i = 0; i < snapshot.size(); i++) {
+                try {
+                    scan(snapshot.get(i), sizes.get(i), nameBytes, (position, body, nameLength, type) -> {
+                        if (position >= startPosition && type != DELETE_STREAM_RECORD_TYPE) {
+                            consumer.accept(position, type,
+                                    Arrays.copyOfRange(body, 2 + nameLength + 1, body.length));
+                        }
+                    });
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+            }
+        }
+
+        /**
+         * Detaches from the stream. The records of the stream are retained and
+         * the stream can be attached again.
+         */
+        public void detach() {
+            synchronized (this) {
+                attached = false;
+            }
+        }
+
+        /**
+         * Deletes the stream. Its records are ignored from now on and no longer
+         * prevent deleting the segment files.
+         *
+         * @throws IOException
+         *             if the delete record cannot be written
+         */
+        public void delete() throws IOException {
+            doAppend(DELETE_STREAM_RECORD_TYPE, new byte[0]);
+            flush();
+            streams.remove(name, this);
+            detach();
+        }
+
+        @Override
+        public String toString() {
+            return "Stream{" + "name=" + name + ", retainedPosition=" + retainedPosition + ", lastPosition="
+                    + lastPosition + '}';
+        }
+    }
+
+    private static final class Segment {
+        final long basePosition;
+        final Path path;
+        final FileChannel channel;
+        long size;
+
+        Segment(long basePosition, Path path, FileChannel channel) {
+            this.basePosition = basePosition;
+            this.path = path;
+            this.channel = channel;
+        }
+    }
+
+}
@@ -0,0 +1,489 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.microraft.store.wal;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+import io.microraft.lifecycle.RaftNodeLifecycleAware;
+import io.microraft.model.RaftModelFactory;
+import io.microraft.model.log.LogEntry;
+import io.microraft.model.log.RaftGroupMembersView;
+import io.microraft.model.log.SnapshotChunk;
+import io.microraft.model.log.SnapshotEntry;
+import io.microraft.model.persistence.RaftEndpointPersistentState;
+import io.microraft.model.persistence.RaftTermPersistentState;
+import io.microraft.persistence.RaftStore;
+import io.microraft.persistence.RaftStoreSerializer;
+import io.microraft.persistence.RaftStoreSerializer.BufferSerializer;
+import io.microraft.persistence.RaftStoreSerializer.Serializer;
+import io.microraft.persistence.RestoredRaftState;
+
+/**
+ * A {@link RaftStore} implementation which appends the persistent state of a
+ * Raft node to a {@link SharedWriteAheadLog} as a stream of records.
+ * <p>
+ * Multiple Raft nodes running on the same disk can share a single write-ahead
+ * log by creating their stores with different stream names. Then, concurrent
+ * {@link #flush()} calls of those Raft nodes are served by a single fsync
+ * instead of one fsync per Raft node.
+ * <p>
+ * A user of this class is advised to construct this class, and then use
+ * {@link WalRaftStore#getRestoredRaftState(boolean)} to acquire any
+ * previously persisted state. The state is rebuilt by replaying the records of
+ * the stream. When log entries are truncated after a snapshot is taken, the
+ * store reports to the write-ahead log that the older records are no longer
+ * needed, so that old segment files can be deleted. The local endpoint,
+ * initial group members and term records are re-appended if they are older
+ * than the records to retain.
+ */
+public final class WalRaftStore implements RaftStore, RaftNodeLifecycleAware {
+
+    private static final byte LOCAL_ENDPOINT = 0;
+    private static final byte INITIAL_GROUP_MEMBERS = 1;
+    private static final byte TERM = 2;
+    private static final byte LOG_ENTRIES = 3;
+    private static final byte SNAPSHOT_CHUNK = 4;
+    private static final byte TRUNCATE_FROM = 5;
+    private static final byte TRUNCATE_UNTIL = 6;
+    private static final byte DELETE_SNAPSHOT_CHUNKS = 7;
+
+    private final SharedWriteAheadLog.Stream stream;
+    private final RaftStoreSerializer serializer;
+    private final RaftModelFactory raftModelFactory;
+
+    // the records which must be retained in the log, by their positions
+
+    private final MetadataRecord[] metadata = new MetadataRecord[TERM + 1];
+    private final TreeMap<Long, LogEntriesRecord> logEntriesRecords = new TreeMap<>();
+    private final TreeMap<Long, Long> snapshotChunkPositions = new TreeMap<>();
+
+    private WalRaftStore(SharedWriteAheadLog.Stream stream, RaftStoreSerializer serializer,
+            RaftModelFactory raftModelFactory) {
+        this.stream = stream;
+        this.serializer = serializer;
+        this.raftModelFactory = raftModelFactory;
+    }
+
+    /**
+     * Creates a RaftStore which persists the Raft node state into the stream
+     * with the given name in the given write-ahead log.
+     *
+     * @param wal
+     *            the write-ahead log to append the records
+     * @param streamName
+     *            the unique name of the Raft node in the write-ahead log
+     * @param raftModelFactory
+     *            the model factory to create the restored objects
+     * @param serializer
+     *            the serializer of the persisted objects
+     *
+     * @return the created RaftStore
+     *
+     * @throws IOException
+     *             if the existing records cannot be read
+     */
+    public static WalRaftStore create(@Nonnull SharedWriteAheadLog wal, @Nonnull String streamName,
+            @Nonnull RaftModelFactory raftModelFactory, @Nonnull RaftStoreSerializer serializer) throws IOException {
+        SharedWriteAheadLog.Stream stream = wal.attach(streamName);
+        WalRaftStore store = new WalRaftStore(stream, requireNonNull(serializer), requireNonNull(raftModelFactory));
+        try {
+            stream.replay(store::track);
+        } catch (IOException | RuntimeException e) {
+            stream.detach();
+            throw e;
+        }
+
+        return store;
+    }
+
+    @Override
+    public void onRaftNodeTerminate() {
+        stream.detach();
+    }
+
+    @Override
+    public void persistAndFlushLocalEndpoint(@Nonnull RaftEndpointPersistentState localEndpointPersistentState)
+            throws IOException {
+        appendMetadata(LOCAL_ENDPOINT,
+                serializer.raftEndpointPersistentStateSerializer().serialize(localEndpointPersistentState));
+        stream.flush();
+    }
+
+    @Override
+    public void persistAndFlushInitialGroupMembers(@Nonnull RaftGroupMembersView initialGroupMembers)
+            throws IOException {
+        appendMetadata(INITIAL_GROUP_MEMBERS,
+                serializer.raftGroupMembersViewSerializer().serialize(initialGroupMembers));
+        stream.flush();
+    }
+
+    @Override
+    public void persistAndFlushTerm(@Nonnull RaftTermPersistentState termPersistentState) throws IOException {
+        appendMetadata(TERM, serializer.raftTermPersistentState().serialize(termPersistentState));
+        stream.flush();
+    }
+
+    @Override
+    public void persistLogEntries(@Nonnull List<LogEntry> logEntries) throws IOException {
+        if (logEntries.isEmpty()) {
+            return;
+        }
+
+        long firstIndex = logEntries.get(0).getIndex();
+        long lastIndex = logEntries.get(logEntries.size() - 1).getIndex();
+        Serializer<LogEntry> logEntrySerializer = serializer.logEntrySerializer();
+        ByteBuffer buffer;
+        if (logEntrySerializer instanceof BufferSerializer) {
+            // write the entries directly into the record payload
+            BufferSerializer<LogEntry> bufferSerializer = (BufferSerializer<LogEntry>) logEntrySerializer;
+            int size = 8 + 8 + 4;
+            for (LogEntry logEntry : logEntries) {
+                size += 4 + bufferSerializer.serializedSize(logEntry);
+            }
+
+            buffer = ByteBuffer.allocate(size).putLong(firstIndex).putLong(lastIndex).putInt(logEntries.size());
+            for (LogEntry logEntry : logEntries) {
+                int lengthPosition = buffer.position();
+                buffer.position(lengthPosition + 4);
+                bufferSerializer.serialize(logEntry, buffer);
+                buffer.putInt(lengthPosition, buffer.position() - lengthPosition - 4);
+            }
+        } else {
+            // the leader shares the serialized form of a log entry with the
+            // transport via the entry's cache, so the entry is encoded once.
+            List<ByteBuffer> serialized = new ArrayList<>(logEntries.size());
+            int size = 8 + 8 + 4;
+            for (LogEntry logEntry : logEntries) {
+                ByteBuffer bytes = logEntry.getOrComputeSerializedForm(logEntrySerializer);
+                serialized.add(bytes);
+                size += 4 + bytes.remaining();
+            }
+
+            buffer = ByteBuffer.allocate(size).putLong(firstIndex).putLong(lastIndex).putInt(serialized.size());
+            for (ByteBuffer bytes : serialized) {
+                buffer.putInt(bytes.remaining()).put(bytes);
+            }
+        }
+
+        long position = stream.append(LOG_ENTRIES, buffer.array());
+        trackLogEntries(firstIndex, lastIndex, position);
+    }
+
+    @Override
+    public void persistSnapshotChunk(@Nonnull SnapshotChunk snapshotChunk) throws IOException {
+        Serializer<SnapshotChunk> chunkSerializer = serializer.snapshotChunkSerializer();
+        ByteBuffer payload;
+        if (chunkSerializer instanceof BufferSerializer) {
+            // write the chunk directly into the record payload
+            BufferSerializer<SnapshotChunk> bufferSerializer = (BufferSerializer<SnapshotChunk>) chunkSerializer;
+            payload = ByteBuffer.allocate(8 + 4 + 4 + bufferSerializer.serializedSize(snapshotChunk));
+            putSnapshotChunkHeader(payload, snapshotChunk);
+            bufferSerializer.serialize(snapshotChunk, payload);
+        } else {
+            byte[] bytes = chunkSerializer.serialize(snapshotChunk);
+            payload = ByteBuffer.allocate(8 + 4 + 4 + bytes.length);
+            putSnapshotChunkHeader(payload, snapshotChunk);
+            payload.put(bytes);
+        }
+        long position = stream.append(SNAPSHOT_CHUNK, payload.array());
+        snapshotChunkPositions.putIfAbsent(snapshotChunk.getIndex(), position);
+    }
+
+    private static void putSnapshotChunkHeader(ByteBuffer payload, SnapshotChunk snapshotChunk) {
+        payload.putLong(snapshotChunk.getIndex()).putInt(snapshotChunk.getSnapshotChunkIndex())
+                .putInt(snapshotChunk.getSnapshotChunkCount());
+    }
+
+    @Override
+    public void truncateLogEntriesFrom(@Nonnegative long logIndexInclusive) throws IOException {
+        stream.append(TRUNCATE_FROM, indexPayload(logIndexInclusive));
+        trackTruncateFrom(logIndexInclusive);
+    }
+
+    @Override
+    public void truncateLogEntriesUntil(@Nonnegative long logIndexInclusive) throws IOException {
+        stream.append(TRUNCATE_UNTIL, indexPayload(logIndexInclusive));
+        trackTruncateUntil(logIndexInclusive);
+        releaseObsoleteRecords();
+    }
+
+    @Override
+    public void deleteSnapshotChunks(@Nonnegative long logIndex, @Nonnegative int snapshotChunkCount)
+            throws IOException {
+        stream.append(DELETE_SNAPSHOT_CHUNKS, indexPayload(logIndex));
+        snapshotChunkPositions.remove(logIndex);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        stream.flush();
+    }
+
+    /**
+     * Returns the persisted state of the Raft node, or an empty optional if the
+     * Raft node has not persisted its local endpoint, initial group members and
+     * term yet.
+     *
+     * @param truncateStaleData
+     *            whether the log entries and snapshot chunks made obsolete by
+     *            the restored snapshot should be truncated
+     *
+     * @return the restored Raft state
+     *
+     * @throws IOException
+     *             if the records cannot be read
+     */
+    public Optional<RestoredRaftState> getRestoredRaftState(boolean truncateStaleData) throws IOException {
+        StateBuilder state = new StateBuilder();
+        stream.replay(state::apply);
+
+        if (state.localEndpoint == null || state.initialGroupMembers == null || state.term == null) {
+            return Optional.empty();
+        }
+
+        SnapshotEntry snapshot = null;
+        for (Entry<Long, TreeMap<Integer, SnapshotChunk>> e : state.snapshotChunks.descendingMap().entrySet()) {
+            List<SnapshotChunk> snapshotChunks = new ArrayList<>(e.getValue().values());
+            if (snapshotChunks.get(0).getSnapshotChunkCount() == snapshotChunks.size()) {
+                snapshot = raftModelFactory.createSnapshotEntryBuilder().setSnapshotChunks(snapshotChunks)
+                        .setIndex(e.getKey()).setTerm(snapshotChunks.get(0).getTerm())
+                        .setGroupMembersView(snapshotChunks.get(0).getGroupMembersView()).build();
+                break;
+            }
+        }
+
+        if (truncateStaleData && snapshot != null) {
+            // we know there is a snapshot persisted successfully at the given
+            // index, so we can drop everything before it.
+            truncateLogEntriesUntil(snapshot.getIndex());
+            stream.flush();
+            state.logEntries.headMap(snapshot.getIndex(), true).clear();
+        }
+
+        return Optional.of(new RestoredRaftState(state.localEndpoint, state.initialGroupMembers, state.term, snapshot,
+                new ArrayList<>(state.logEntries.values())));
+    }
+
+    // Visible for testing
+    long getRetainedPosition() {
+        long position = stream.lastPosition();
+        for (MetadataRecord record : metadata) {
+            if (record != null) {
+                position = Math.min(position, record.position);
+            }
+        }
+
+        if (!logEntriesRecords.isEmpty()) {
+            position = Math.min(position,
+                    logEntriesRecords.values().stream().mapToLong(r -> r.position).min().getAsLong());
+        }
+
+        if (!snapshotChunkPositions.isEmpty()) {
+            position = Math.min(position, snapshotChunkPositions.values().stream().mapToLong(p -> p).min().getAsLong());
+        }
+
+        return position;
+    }
+
+    private void appendMetadata(byte type, byte[] payload) throws IOException {
+        long position = stream.append(type, payload);
+        metadata[type] = new MetadataRecord(position, payload);
+    }
+
+    /**
+     * Re-appends the metadata records which are older than the oldest log entry
+     * or snapshot chunk record, and lets the write-ahead log drop the records
+     * before the oldest record still needed.
+     */
+    private void releaseObsoleteRecords() throws IOException {
+        long oldestData = stream.lastPosition();
+        for (LogEntriesRecord record : logEntriesRecords.values()) {
+            oldestData = Math.min(oldestData, record.position);
+        }
+
+        for (long position : snapshotChunkPositions.values()) {
+            oldestData = Math.min(oldestData, position);
+        }
+
+        boolean appended = false;
+        for (byte type = LOCAL_ENDPOINT; type <= TERM; type++) {
+            MetadataRecord record = metadata[type];
+            if (record != null && record.position < oldestData) {
+                appendMetadata(type, record.payload);
+                appended = true;
+            }
+        }
+
+        if (appended) {
+            // the old metadata records can be dropped only after
+            // the new ones become durable
+            stream.flush();
+        }
+
+        stream.retainFrom(getRetainedPosition());
+    }
+
+    private void track(long position, byte type, byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        switch (type) {
+            case LOCAL_ENDPOINT :
+            case INITIAL_GROUP_MEMBERS :
+            case TERM :
+                metadata[type] = new MetadataRecord(position, payload);
+                break;
+            case LOG_ENTRIES :
+                trackLogEntries(buffer.getLong(), buffer.getLong(), position);
+                break;
+            case SNAPSHOT_CHUNK :
+                snapshotChunkPositions.putIfAbsent(buffer.getLong(), position);
+                break;
+            case TRUNCATE_FROM :
+                trackTruncateFrom(buffer.getLong());
+                break;
+            case TRUNCATE_UNTIL :
+                trackTruncateUntil(buffer.getLong());
+                break;
+            case DELETE_SNAPSHOT_CHUNKS :
+                snapshotChunkPositions.remove(buffer.getLong());
+                break;
+            default :
+                throw new IllegalStateException("Invalid record type: " + type + " in " + stream);
+        }
+    }
+
+    private void trackLogEntries(long firstIndex, long lastIndex, long position) {
+        trackTruncateFrom(firstIndex);
+        logEntriesRecords.put(firstIndex, new LogEntriesRecord(lastIndex, position));
+    }
+
+    private void trackTruncateFrom(long logIndexInclusive) {
+        logEntriesRecords.tailMap(logIndexInclusive, true).clear();
+        Entry<Long, LogEntriesRecord> last = logEntriesRecords.lastEntry();
+        if (last != null && last.getValue().lastIndex >= logIndexInclusive) {
+            last.getValue().lastIndex = logIndexInclusive - 1;
+        }
+    }
+
+    private void trackTruncateUntil(long logIndexInclusive) {
+        Iterator<LogEntriesRecord> it = logEntriesRecords.values().iterator();
+        while (it.hasNext() && it.next().lastIndex <= logIndexInclusive) {
+            it.remove();
+        }
+
+        snapshotChunkPositions.headMap(logIndexInclusive, false).clear();
+    }
+
+    private static byte[] indexPayload(long logIndex) {
+        return ByteBuffer.allocate(8).putLong(logIndex).array();
+    }
+
+    private static final class MetadataRecord {
+        final long position;
+        final byte[] payload;
+
+        MetadataRecord(long position, byte[] payload) {
+            this.position = position;
+            this.payload = payload;
+        }
+    }
+
+    private static final class LogEntriesRecord {
+        long lastIndex;
+        final long position;
+
+        LogEntriesRecord(long lastIndex, long position) {
+            this.lastIndex = lastIndex;
+            this.position = position;
+        }
+    }
+
+    /**
+     * Rebuilds the persisted state by applying the records in order.
+     */
+    private final class StateBuilder {
+        RaftEndpointPersistentState localEndpoint;
+        RaftGroupMembersView initialGroupMembers;
+        RaftTermPersistentState term;
+        final TreeMap<Long, LogEntry> logEntries = new TreeMap<>();
+        final TreeMap<Long, TreeMap<Integer, SnapshotChunk>> snapshotChunks = new TreeMap<>();
+
+        void apply(long position, byte type, byte[] payload) {
+            ByteBuffer buffer = ByteBuffer.wrap(payload);
+            switch (type) {
+                case LOCAL_ENDPOINT :
+                    localEndpoint = serializer.raftEndpointPersistentStateSerializer().deserialize(payload);
+                    break;
+                case INITIAL_GROUP_MEMBERS :
+                    initialGroupMembers = serializer.raftGroupMembersViewSerializer().deserialize(payload);
+                    break;
+                case TERM :
+                    term = serializer.raftTermPersistentState().deserialize(payload);
+                    break;
+                case LOG_ENTRIES :
+                    logEntries.tailMap(buffer.getLong(), true).clear();
+                    buffer.getLong();
+                    for (int i = buffer.getInt(); i > 0; i--) {
+                        LogEntry logEntry = serializer.logEntrySerializer().deserialize(read(buffer));
+                        logEntries.put(logEntry.getIndex(), logEntry);
+                    }
+                    break;
+                case SNAPSHOT_CHUNK :
+                    long snapshotIndex = buffer.getLong();
+                    buffer.getInt();
+                    buffer.getInt();
+                    SnapshotChunk snapshotChunk = serializer.snapshotChunkSerializer().deserialize(buffer);
+                    snapshotChunks.computeIfAbsent(snapshotIndex, i -> new TreeMap<>())
+                            .putIfAbsent(snapshotChunk.getSnapshotChunkIndex(), snapshotChunk);
+                    break;
+                case TRUNCATE_FROM :
+                    logEntries.tailMap(buffer.getLong(), true).clear();
+                    break;
+                case TRUNCATE_UNTIL :
+                    long logIndex = buffer.getLong();
+                    logEntries.headMap(logIndex, true).clear();
+                    snapshotChunks.headMap(logIndex, false).clear();
+                    break;
+                case DELETE_SNAPSHOT_CHUNKS :
+                    snapshotChunks.remove(buffer.getLong());
+                    break;
+                default :
+                    throw new IllegalStateException("Invalid record type: " + type + " in " + stream);
+            }
+        }
+
+        private ByteBuffer read(ByteBuffer buffer) {
+            int length = buffer.getInt();
+            ByteBuffer bytes = buffer.slice();
+            bytes.limit(length);
+            buffer.position(buffer.position() + length);
+            return bytes;
+        }
+    }
+
+}
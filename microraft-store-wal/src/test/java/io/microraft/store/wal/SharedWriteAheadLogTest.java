@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.microraft.store.wal;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import io.microraft.test.util.BaseTest;
+
+public class SharedWriteAheadLogTest extends BaseTest {
+
+    private static final byte RECORD_TYPE = 1;
+
+    @Rule
+    public final TemporaryFolder tempDir = new TemporaryFolder();
+
+    private Path dir;
+    private SharedWriteAheadLog wal;
+
+    @Before
+    public void init() throws IOException {
+        dir = tempDir.newFolder().toPath();
+        wal = SharedWriteAheadLog.open(dir, 4096);
+    }
+
+    @After
+    public void tearDown() {
+        wal.close();
+    }
+
+    @Test
+    public void when_streamIsDeletedAndReattached_then_recordsBeforeDeleteAreNotReplayed() throws IOException {
+        SharedWriteAheadLog.Stream stream = wal.attach("group");
+        append(stream, "old1");
+        append(stream, "old2");
+        stream.flush();
+        stream.delete();
+
+        stream = wal.attach("group");
+        append(stream, "new1");
+        stream.flush();
+
+        assertThat(replay(stream)).containsExactly("new1");
+
+        stream.detach();
+        wal.close();
+        wal = SharedWriteAheadLog.open(dir, 4096);
+
+        assertThat(replay(wal.attach("group"))).containsExactly("new1");
+    }
+
+    @Test
+    public void when_streamIsDeletedAndReattachedWithoutNewRecords_then_nothingIsReplayed() throws IOException {
+        SharedWriteAheadLog.Stream stream = wal.attach("group");
+        append(stream, "old1");
+        stream.flush();
+        stream.delete();
+
+        assertThat(replay(wal.attach("group"))).isEmpty();
+    }
+
+    @Test
+    public void when_streamsFlushConcurrently_then_flushesShareFsyncs() throws Exception {
+        int streamCount = 8;
+        int roundCount = 20;
+        List<SharedWriteAheadLog.Stream> streams = new ArrayList<>();
+        for (int i = 0; i < streamCount; i++) {
+            streams.add(wal.attach("group" + i));
+        }
+
+        // all records of a round are appended before any of them is flushed,
+        // so the first fsync of the round makes all of them durable.
+        CyclicBarrier appended = new CyclicBarrier(streamCount);
+        CyclicBarrier flushed = new CyclicBarrier(streamCount);
+        ExecutorService executor = Executors.newFixedThreadPool(streamCount);
+        long initialSyncCount = wal.syncCount();
+        try {
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (SharedWriteAheadLog.Stream stream : streams) {
+                futures.add(CompletableFuture.runAsync(() -> {
+                    for (int round = 0; round < roundCount; round++) {
+                        try {
+                            append(stream, stream.getName() + "-" + round);
+                            appended.await();
+                            stream.flush();
+                            flushed.await();
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        } catch (InterruptedException | BrokenBarrierException e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }
+                }, executor));
+            }
+
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long syncCount = wal.syncCount() - initialSyncCount;
+        assertThat(syncCount).isGreaterThan(0);
+        assertThat(syncCount).isLessThan((long) streamCount * roundCount);
+        assertThat(syncCount).isLessThanOrEqualTo(2L * roundCount);
+        for (SharedWriteAheadLog.Stream stream : streams) {
+            assertThat(wal.durablePosition()).isGreaterThanOrEqualTo(stream.lastPosition());
+            assertThat(replay(stream)).hasSize(roundCount);
+        }
+    }
+
+    @Test
+    public void when_segmentIsRolled_then_flushedRecordsAreRecoveredWithoutClose() throws IOException {
+        SharedWriteAheadLog.Stream stream = wal.attach("group");
+        long initialDirectorySyncCount = wal.directorySyncCount();
+        List<String> payloads = new ArrayList<>();
+        while (wal.segmentCount() < 2) {
+            String payload = "val" + payloads.size() + "-" + "x".repeat(500);
+            append(stream, payload);
+            payloads.add(payload);
+        }
+
+        stream.flush();
+
+        assertThat(wal.directorySyncCount()).isGreaterThan(initialDirectorySyncCount);
+
+        // the log is opened again without closing the current one to simulate
+        // a crash after the flush
+        SharedWriteAheadLog recovered = SharedWriteAheadLog.open(dir, 4096);
+        try {
+            assertThat(recovered.segmentCount()).isEqualTo(2);
+            assertThat(replay(recovered.attach("group"))).containsExactlyElementsOf(payloads);
+        } finally {
+            recovered.close();
+        }
+    }
+
+    private static void append(SharedWriteAheadLog.Stream stream, String payload) throws IOException {
+        stream.append(RECORD_TYPE, payload.getBytes(UTF_8));
+    }
+
+    private static List<String> replay(SharedWriteAheadLog.Stream stream) throws IOException {
+        List<String> records = new ArrayList<>();
+        stream.replay((position, type, payload) -> records.add(new String(payload, UTF_8)));
+        return records;
+    }
+
+}
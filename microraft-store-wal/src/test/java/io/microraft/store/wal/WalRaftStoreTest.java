@@ -0,0 +1,529 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.microraft.store.wal;
+
+import static io.microraft.test.util.AssertionUtils.eventually;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import javax.annotation.Nonnull;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+
+import io.microraft.RaftEndpoint;
+import io.microraft.impl.local.LocalRaftEndpoint;
+import io.microraft.model.RaftModelFactory;
+import io.microraft.model.impl.DefaultModelSerializers;
+import io.microraft.model.impl.DefaultRaftModelFactory;
+import io.microraft.model.impl.log.DefaultLogEntryOrBuilder;
+import io.microraft.model.impl.log.DefaultRaftGroupMembersViewOrBuilder;
+import io.microraft.model.impl.log.DefaultSnapshotChunkOrBuilder;
+import io.microraft.model.impl.persistence.DefaultRaftEndpointPersistentStateOrBuilder;
+import io.microraft.model.impl.persistence.DefaultRaftTermPersistentStateOrBuilder;
+import io.microraft.model.log.LogEntry;
+import io.microraft.model.log.RaftGroupMembersView;
+import io.microraft.model.log.SnapshotChunk;
+import io.microraft.model.persistence.RaftEndpointPersistentState;
+import io.microraft.model.persistence.RaftTermPersistentState;
+import io.microraft.persistence.RaftStoreSerializer;
+import io.microraft.persistence.RaftStoreSerializer.BufferSerializer;
+import io.microraft.persistence.RestoredRaftState;
+import io.microraft.test.util.BaseTest;
+
+public class WalRaftStoreTest extends BaseTest {
+
+    private static final RaftModelFactory RAFT_MODEL_FACTORY = new DefaultRaftModelFactory();
+    private static final RaftEndpoint ENDPOINT_A = LocalRaftEndpoint.newEndpoint();
+    private static final RaftEndpoint ENDPOINT_B = LocalRaftEndpoint.newEndpoint();
+    private static final int TERM = 235;
+    private static final boolean VOTING = true;
+
+    private static final RaftGroupMembersView INITIAL_GROUP_MEMBERS = RAFT_MODEL_FACTORY
+            .createRaftGroupMembersViewBuilder().setLogIndex(0).setMembers(List.of(ENDPOINT_A, ENDPOINT_B))
+            .setVotingMembers(List.of(ENDPOINT_A, ENDPOINT_B)).build();
+
+    @Rule
+    public final TemporaryFolder tempDir = new TemporaryFolder();
+
+    private Path dir;
+    private SharedWriteAheadLog wal;
+
+    @Before
+    public void init() throws IOException {
+        dir = tempDir.newFolder().toPath();
+        wal = SharedWriteAheadLog.open(dir, 4096);
+    }
+
+    @After
+    public void tearDown() {
+        wal.close();
+    }
+
+    private WalRaftStore createStore(String name) throws IOException {
+        return WalRaftStore.create(wal, name, RAFT_MODEL_FACTORY, JacksonModelSerializer.INSTANCE);
+    }
+
+    private WalRaftStore reopen(WalRaftStore store, String name) throws IOException {
+        store.onRaftNodeTerminate();
+        wal.close();
+        wal = SharedWriteAheadLog.open(dir, 4096);
+        return createStore(name);
+    }
+
+    @Test
+    public void when_nothingIsPersisted_then_noStateIsRestored() throws IOException {
+        WalRaftStore store = createStore("group");
+
+        assertThat(store.getRestoredRaftState(false)).isEmpty();
+    }
+
+    @Test
+    public void when_initialStateIsPersisted_then_itIsRestored() throws IOException {
+        WalRaftStore store = createStore("group");
+        persistInitialState(store);
+
+        store = reopen(store, "group");
+
+        RestoredRaftState restored = store.getRestoredRaftState(false).get();
+        assertThat(restored.getLocalEndpointPersistentState().getLocalEndpoint()).isEqualTo(ENDPOINT_A);
+        assertThat(restored.getLocalEndpointPersistentState().isVoting()).isEqualTo(VOTING);
+        assertThat(restored.getInitialGroupMembers()).usingRecursiveComparison().isEqualTo(INITIAL_GROUP_MEMBERS);
+        assertThat(restored.getTermPersistentState().getTerm()).isEqualTo(TERM);
+        assertThat(restored.getTermPersistentState().getVotedFor()).isEqualTo(ENDPOINT_B);
+    }
+
+    @Test
+    public void when_logEntriesAreTruncated_then_restoredLogReflectsTruncation() throws IOException {
+        WalRaftStore store = createStore("group");
+        persistInitialState(store);
+        store.persistLogEntries(List.of(logEntry(1, 1), logEntry(2, 1), logEntry(3, 1)));
+        store.persistLogEntries(List.of(logEntry(4, 1), logEntry(5, 1)));
+        store.truncateLogEntriesFrom(2);
+        store.persistLogEntries(List.of(logEntry(2, 2)));
+        store.flush();
+
+        store = reopen(store, "group");
+
+        assertThat(store.getRestoredRaftState(false).get().getLogEntries())
+                .usingRecursiveFieldByFieldElementComparator().containsExactly(logEntry(1, 1), logEntry(2, 2));
+    }
+
+    @Test
+    public void when_snapshotIsPersisted_then_latestCompleteSnapshotIsRestored() throws IOException {
+        WalRaftStore store = createStore("group");
+        persistInitialState(store);
+        store.persistLogEntries(List.of(logEntry(1, 1), logEntry(2, 1), logEntry(3, 1), logEntry(4, 1)));
+        store.persistSnapshotChunk(snapshotChunk(2, 1, 0, 1));
+        store.flush();
+        store.truncateLogEntriesUntil(2);
+        store.persistSnapshotChunk(snapshotChunk(3, 1, 0, 2));
+        store.flush();
+
+        store = reopen(store, "group");
+
+        RestoredRaftState restored = store.getRestoredRaftState(false).get();
+        assertThat(restored.getSnapshotEntry().getIndex()).isEqualTo(2);
+        assertThat(restored.getLogEntries()).usingRecursiveFieldByFieldElementComparator()
+                .containsExactly(logEntry(3, 1), logEntry(4, 1));
+    }
+
+    @Test
+    public void when_incompleteSnapshotIsDeleted_then_previousSnapshotIsRestored() throws IOException {
+        WalRaftStore store = createStore("group");
+        persistInitialState(store);
+        store.persistSnapshotChunk(snapshotChunk(1, 1, 0, 1));
+        store.persistSnapshotChunk(snapshotChunk(2, 1, 0, 2));
+        store.deleteSnapshotChunks(2, 2);
+        store.persistSnapshotChunk(snapshotChunk(2, 1, 1, 2));
+        store.flush();
+
+        store = reopen(store, "group");
+
+        assertThat(store.getRestoredRaftState(false).get().getSnapshotEntry().getIndex()).isEqualTo(1);
+    }
+
+    @Test
+    public void when_multipleStoresShareLog_then_theirStatesAreIsolated() throws IOException {
+        WalRaftStore store1 = createStore("group1");
+        WalRaftStore store2 = createStore("group2");
+        persistInitialState(store1);
+        persistInitialState(store2);
+        store1.persistLogEntries(List.of(logEntry(1, 1)));
+        store2.persistLogEntries(List.of(logEntry(1, 2), logEntry(2, 2)));
+
+        CompletableFuture<Void> flush1 = CompletableFuture.runAsync(() -> flushUnchecked(store1));
+        CompletableFuture<Void> flush2 = CompletableFuture.runAsync(() -> flushUnchecked(store2));
+        flush1.join();
+        flush2.join();
+
+        store1.onRaftNodeTerminate();
+        WalRaftStore restored2 = reopen(store2, "group2");
+        WalRaftStore restored1 = createStore("group1");
+
+        assertThat(restored1.getRestoredRaftState(false).get().getLogEntries())
+                .usingRecursiveFieldByFieldElementComparator().containsExactly(logEntry(1, 1));
+        assertThat(restored2.getRestoredRaftState(false).get().getLogEntries())
+                .usingRecursiveFieldByFieldElementComparator().containsExactly(logEntry(1, 2), logEntry(2, 2));
+    }
+
+    @Test
+    public void when_logIsTruncatedAfterSnapshot_then_oldSegmentsAreDeleted() throws IOException {
+        WalRaftStore store = createStore("group");
+        persistInitialState(store);
+        for (int i = 1; i <= 200; i++) {
+            store.persistLogEntries(List.of(logEntry(i, 1)));
+        }
+        store.flush();
+        int segmentCount = wal.segmentCount();
+        assertThat(segmentCount).isGreaterThan(2);
+
+        store.persistSnapshotChunk(snapshotChunk(200, 1, 0, 1));
+        store.flush();
+        store.truncateLogEntriesUntil(200);
+        store.persistLogEntries(List.of(logEntry(201, 1)));
+        store.flush();
+
+        // obsolete segments are deleted by the sync thread
+        eventually(() -> assertThat(wal.segmentCount()).isLessThan(segmentCount));
+
+        store = reopen(store, "group");
+
+        RestoredRaftState restored = store.getRestoredRaftState(false).get();
+        assertThat(restored.getLocalEndpointPersistentState().getLocalEndpoint()).isEqualTo(ENDPOINT_A);
+        assertThat(restored.getTermPersistentState().getTerm()).isEqualTo(TERM);
+        assertThat(restored.getSnapshotEntry().getIndex()).isEqualTo(200);
+        assertThat(restored.getLogEntries()).usingRecursiveFieldByFieldElementComparator()
+                .containsExactly(logEntry(201, 1));
+    }
+
+    @Test
+    public void when_lastRecordIsTorn_then_itIsTruncatedOnOpen() throws IOException {
+        WalRaftStore store = createStore("group");
+        persistInitialState(store);
+        store.persistLogEntries(List.of(logEntry(1, 1)));
+        store.flush();
+        store.persistLogEntries(List.of(logEntry(2, 1)));
+        store.flush();
+        store.onRaftNodeTerminate();
+        wal.close();
+
+        List<Path> segments;
+        try (java.util.stream.Stream<Path> files = Files.list(dir)) {
+            segments = files.sorted().collect(Collectors.toCollection(ArrayList::new));
+        }
+        try (RandomAccessFile file = new RandomAccessFile(segments.get(segments.size() - 1).toFile(), "rw")) {
+            file.setLength(file.length() - 3);
+        }
+
+        wal = SharedWriteAheadLog.open(dir, 4096);
+        store = createStore("group");
+
+        assertThat(store.getRestoredRaftState(false).get().getLogEntries())
+                .usingRecursiveFieldByFieldElementComparator().containsExactly(logEntry(1, 1));
+    }
+
+    @Test
+    public void when_logEntryIsPersisted_then_transportReusesItsSerializedForm() throws IOException {
+        WalRaftStore store = createStore("group");
+        persistInitialState(store);
+        LogEntry logEntry = logEntry(1, 1);
+        JacksonSerializer<LogEntry> logEntrySerializer = JacksonModelSerializer.INSTANCE.logEntrySerializer();
+        int serializationCount = logEntrySerializer.serializationCount();
+
+        store.persistLogEntries(List.of(logEntry));
+        store.flush();
+        // a transport serializes the log entry with the store's serializer
+        ByteBuffer serialized = logEntry.getOrComputeSerializedForm(logEntrySerializer);
+
+        assertThat(logEntrySerializer.serializationCount()).isEqualTo(serializationCount + 1);
+        LogEntry deserialized = logEntrySerializer.deserialize(serialized);
+        assertThat(deserialized.getIndex()).isEqualTo(logEntry.getIndex());
+        assertThat(deserialized.getTerm()).isEqualTo(logEntry.getTerm());
+        assertThat(deserialized.getOperation()).isEqualTo(logEntry.getOperation());
+    }
+
+    @Test
+    public void when_logEntrySerializerWritesIntoBuffer_then_logEntriesAreRestored() throws IOException {
+        WalRaftStore store = WalRaftStore.create(wal, "group", RAFT_MODEL_FACTORY, BufferModelSerializer.INSTANCE);
+        persistInitialState(store);
+        store.persistLogEntries(List.of(logEntry(1, 1), logEntry(2, 1)));
+        store.persistLogEntries(List.of(logEntry(3, 2)));
+        store.flush();
+
+        store.onRaftNodeTerminate();
+        wal.close();
+        wal = SharedWriteAheadLog.open(dir, 4096);
+        store = WalRaftStore.create(wal, "group", RAFT_MODEL_FACTORY, BufferModelSerializer.INSTANCE);
+
+        assertThat(store.getRestoredRaftState(false).get().getLogEntries())
+                .extracting(LogEntry::getIndex, LogEntry::getTerm, LogEntry::getOperation)
+                .containsExactly(tuple(1L, 1, "1 1"), tuple(2L, 1, "2 1"), tuple(3L, 2, "3 2"));
+    }
+
+    private static void flushUnchecked(WalRaftStore store) {
+        try {
+            store.flush();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static LogEntry logEntry(long index, int term) {
+        return RAFT_MODEL_FACTORY.createLogEntryBuilder().setIndex(index).setTerm(term).setOperation(index + " " + term)
+                .build();
+    }
+
+    private static SnapshotChunk snapshotChunk(long index, int term, int chunkIndex, int numChunks) {
+        return RAFT_MODEL_FACTORY.createSnapshotChunkBuilder().setIndex(index).setTerm(term)
+                .setSnapshotChunkIndex(chunkIndex).setSnapshotChunkCount(numChunks)
+                .setGroupMembersView(INITIAL_GROUP_MEMBERS)
+                .setOperation(index + " " + term + " " + chunkIndex + " " + numChunks).build();
+    }
+
+    private static void persistInitialState(WalRaftStore store) throws IOException {
+        store.persistAndFlushLocalEndpoint(new DefaultRaftEndpointPersistentStateOrBuilder()
+                .setLocalEndpoint(ENDPOINT_A).setVoting(VOTING).build());
+        store.persistAndFlushInitialGroupMembers(INITIAL_GROUP_MEMBERS);
+        store.persistAndFlushTerm(
+                new DefaultRaftTermPersistentStateOrBuilder().setTerm(TERM).setVotedFor(ENDPOINT_B).build());
+    }
+
+    private enum JacksonModelSerializer implements RaftStoreSerializer {
+        INSTANCE;
+
+        private final JacksonSerializer<LogEntry> logEntrySerializer = new JacksonSerializer<>(
+                DefaultLogEntryOrBuilder.class);
+
+        @Override
+        public Serializer<RaftGroupMembersView> raftGroupMembersViewSerializer() {
+            return new JacksonSerializer<>(DefaultRaftGroupMembersViewOrBuilder.class);
+        }
+
+        @Override
+        public Serializer<RaftEndpoint> raftEndpointSerializer() {
+            return new JacksonSerializer<>(LocalRaftEndpoint.class);
+        }
+
+        @Override
+        public JacksonSerializer<LogEntry> logEntrySerializer() {
+            return logEntrySerializer;
+        }
+
+        @Override
+        public Serializer<SnapshotChunk> snapshotChunkSerializer() {
+            return new JacksonSerializer<>(DefaultSnapshotChunkOrBuilder.class);
+        }
+
+        @Override
+        public Serializer<RaftEndpointPersistentState> raftEndpointPersistentStateSerializer() {
+            return new JacksonSerializer<>(DefaultRaftEndpointPersistentStateOrBuilder.class);
+        }
+
+        @Override
+        public Serializer<RaftTermPersistentState> raftTermPersistentState() {
+            return new JacksonSerializer<>(DefaultRaftTermPersistentStateOrBuilder.class);
+        }
+    }
+
+    // writes the log entries with DefaultModelSerializers and the rest with
+    // JacksonModelSerializer
+    private enum BufferModelSerializer implements RaftStoreSerializer {
+        INSTANCE;
+
+        private final BufferSerializer<LogEntry> logEntrySerializer = DefaultModelSerializers
+                .logEntrySerializer(new StringSerializer(), new UnusedEndpointSerializer());
+
+        @Override
+        public Serializer<RaftGroupMembersView> raftGroupMembersViewSerializer() {
+            return JacksonModelSerializer.INSTANCE.raftGroupMembersViewSerializer();
+        }
+
+        @Override
+        public Serializer<RaftEndpoint> raftEndpointSerializer() {
+            return JacksonModelSerializer.INSTANCE.raftEndpointSerializer();
+        }
+
+        @Override
+        public BufferSerializer<LogEntry> logEntrySerializer() {
+            return logEntrySerializer;
+        }
+
+        @Override
+        public Serializer<SnapshotChunk> snapshotChunkSerializer() {
+            return JacksonModelSerializer.INSTANCE.snapshotChunkSerializer();
+        }
+
+        @Override
+        public Serializer<RaftEndpointPersistentState> raftEndpointPersistentStateSerializer() {
+            return JacksonModelSerializer.INSTANCE.raftEndpointPersistentStateSerializer();
+        }
+
+        @Override
+        public Serializer<RaftTermPersistentState> raftTermPersistentState() {
+            return JacksonModelSerializer.INSTANCE.raftTermPersistentState();
+        }
+    }
+
+    private static final class StringSerializer implements BufferSerializer<Object> {
+        @Override
+        public int serializedSize(@Nonnull Object element) {
+            return 4 + ((String) element).getBytes(UTF_8).length;
+        }
+
+        @Override
+        public void serialize(@Nonnull Object element, @Nonnull ByteBuffer target) {
+            byte[] bytes = ((String) element).getBytes(UTF_8);
+            target.putInt(bytes.length).put(bytes);
+        }
+
+        @Nonnull
+        @Override
+        public Object deserialize(@Nonnull ByteBuffer source) {
+            byte[] bytes = new byte[source.getInt()];
+            source.get(bytes);
+            return new String(bytes, UTF_8);
+        }
+    }
+
+    // the log entries of the tests do not contain Raft endpoints
+    private static final class UnusedEndpointSerializer implements BufferSerializer<RaftEndpoint> {
+        @Override
+        public int serializedSize(@Nonnull RaftEndpoint element) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void serialize(@Nonnull RaftEndpoint element, @Nonnull ByteBuffer target) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Nonnull
+        @Override
+        public RaftEndpoint deserialize(@Nonnull ByteBuffer source) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static final class JacksonSerializer<T> implements RaftStoreSerializer.Serializer<T> {
+        private static final ObjectMapper objectMapper = new ObjectMapper()
+                .addMixIn(LocalRaftEndpoint.class, RaftEndpointMixin.class)
+                .addMixIn(DefaultRaftGroupMembersViewOrBuilder.class, RaftGroupMembersViewMixin.class)
+                .addMixIn(DefaultLogEntryOrBuilder.class, LogEntryMixin.class)
+                .addMixIn(DefaultSnapshotChunkOrBuilder.class, SnapshotChunkMixin.class)
+                .addMixIn(DefaultRaftEndpointPersistentStateOrBuilder.class, RaftEndpointPersistentStateMixin.class)
+                .addMixIn(DefaultRaftTermPersistentStateOrBuilder.class, RaftTermPersistentStateMixin.class);
+
+        private final Class<? extends T> clazz;
+        private final AtomicInteger serializationCount = new AtomicInteger();
+
+        private JacksonSerializer(Class<? extends T> clazz) {
+            this.clazz = clazz;
+        }
+
+        int serializationCount() {
+            return serializationCount.get();
+        }
+
+        @Nonnull
+        @Override
+        public byte[] serialize(@Nonnull T element) {
+            serializationCount.incrementAndGet();
+            try {
+                return objectMapper.writeValueAsBytes(element);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Nonnull
+        @Override
+        public T deserialize(@Nonnull byte[] element) {
+            try {
+                return objectMapper.readValue(element, clazz);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    private static final class RaftEndpointMixin {
+        @JsonValue
+        private String id;
+
+        @JsonCreator
+        private RaftEndpointMixin(String id) {
+        }
+    }
+
+    @JsonDeserialize(builder = DefaultRaftGroupMembersViewOrBuilder.class)
+    private static final class RaftGroupMembersViewMixin {
+
+        @JsonDeserialize(contentAs = LocalRaftEndpoint.class)
+        private Collection<RaftEndpoint> members;
+
+        @JsonDeserialize(contentAs = LocalRaftEndpoint.class)
+        private Collection<RaftEndpoint> votingMembers;
+
+        @JsonDeserialize(contentAs = LocalRaftEndpoint.class)
+        private Collection<RaftEndpoint> witnessMembers;
+    }
+
+    @JsonDeserialize(builder = DefaultLogEntryOrBuilder.class)
+    private static final class LogEntryMixin {
+    }
+
+    @JsonDeserialize(builder = DefaultSnapshotChunkOrBuilder.class)
+    private static final class SnapshotChunkMixin {
+        @JsonDeserialize(as = DefaultRaftGroupMembersViewOrBuilder.class)
+        private RaftGroupMembersView groupMembersView;
+    }
+
+    @JsonDeserialize(builder = DefaultRaftEndpointPersistentStateOrBuilder.class)
+    private static final class RaftEndpointPersistentStateMixin {
+        @JsonDeserialize(as = LocalRaftEndpoint.class)
+        private RaftEndpoint localEndpoint;
+    }
+
+    @JsonDeserialize(builder = DefaultRaftTermPersistentStateOrBuilder.class)
+    private static final class RaftTermPersistentStateMixin {
+        @JsonDeserialize(as = LocalRaftEndpoint.class)
+        private RaftEndpoint votedFor;
+    }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.microraft.executor.virtual;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+
+import io.microraft.RaftNode;
+import io.microraft.executor.RaftNodeExecutor;
+import io.microraft.executor.impl.BatchingRaftNodeExecutor;
+
+/**
+ * A {@link RaftNodeExecutor} implementation which runs the task loop of a Raft
+ * node on a virtual thread.
+ * <p>
+ * Each Raft node gets its own ordered task queue, timer wheel and virtual
+ * thread, just like {@link BatchingRaftNodeExecutor}, hence the tasks of a
+ * Raft node are still executed one by one with the happens-before relationship
+ * maintained between them. However, the task loop does not occupy a platform
+ * thread while the Raft node is idle, so a single JVM can host thousands of
+ * Raft groups on a few carrier threads.
+ * <p>
+ * Please note that a task blocking the virtual thread while holding a monitor
+ * pins the carrier thread. State machines performing blocking I/O should use
+ * {@link java.util.concurrent.locks.Lock} implementations instead of
+ * {@code synchronized} blocks.
+ * <p>
+ * Requires JDK 21 or later.
+ *
+ * @see RaftNode
+ * @see RaftNodeExecutor
+ * @see BatchingRaftNodeExecutor
+ */
+public class VirtualThreadRaftNodeExecutor extends BatchingRaftNodeExecutor {
+
+    private static final AtomicInteger RAFT_THREAD_ID = new AtomicInteger(0);
+
+    public VirtualThreadRaftNodeExecutor() {
+        this(DEFAULT_BATCH_SIZE, DEFAULT_TICK_DURATION_MILLIS, TimeUnit.MILLISECONDS, DEFAULT_WHEEL_SIZE);
+    }
+
+    /**
+     * Creates a new executor with the given batch size and timer wheel
+     * parameters.
+     *
+     * @param batchSize
+     *            the maximum number of tasks the Raft thread runs before
+     *            checking the timer wheel
+     * @param tickDuration
+     *            the tick duration of the timer wheel
+     * @param tickDurationUnit
+     *            the time unit of the tick duration
+     * @param wheelSize
+     *            the number of buckets of the timer wheel. must be a power of 2
+     */
+    public VirtualThreadRaftNodeExecutor(int batchSize, long tickDuration, @Nonnull TimeUnit tickDurationUnit,
+            int wheelSize) {
+        super(batchSize, tickDuration, tickDurationUnit, wheelSize,
+                Thread.ofVirtual().name("RaftVirtual-" + RAFT_THREAD_ID.getAndIncrement()).factory());
+    }
+
+}
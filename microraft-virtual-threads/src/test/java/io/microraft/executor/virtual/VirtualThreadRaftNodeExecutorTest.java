@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.microraft.executor.virtual;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.microraft.Ordered;
+import io.microraft.RaftConfig;
+import io.microraft.RaftEndpoint;
+import io.microraft.RaftNode;
+import io.microraft.impl.local.LocalRaftEndpoint;
+import io.microraft.impl.local.LocalTransport;
+import io.microraft.impl.local.SimpleStateMachine;
+import io.microraft.test.util.BaseTest;
+
+public class VirtualThreadRaftNodeExecutorTest extends BaseTest {
+
+    private final List<RaftEndpoint> initialMembers = List.of(LocalRaftEndpoint.newEndpoint(),
+            LocalRaftEndpoint.newEndpoint(), LocalRaftEndpoint.newEndpoint());
+    private final List<LocalTransport> transports = new ArrayList<>();
+    private final List<RaftNode> raftNodes = new ArrayList<>();
+
+    private VirtualThreadRaftNodeExecutor executor;
+
+    @Before
+    public void init() {
+        executor = new VirtualThreadRaftNodeExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        executor.onRaftNodeTerminate();
+        raftNodes.forEach(RaftNode::terminate);
+    }
+
+    @Test(timeout = 10_000)
+    public void when_taskIsSubmitted_then_itRunsOnVirtualThread() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        boolean[] virtual = new boolean[1];
+
+        executor.submit(() -> {
+            virtual[0] = Thread.currentThread().isVirtual();
+            latch.countDown();
+        });
+
+        assertThat(latch.await(5, SECONDS)).isTrue();
+        assertThat(virtual[0]).isTrue();
+    }
+
+    @Test(timeout = 10_000)
+    public void when_tasksAreScheduled_then_theyRunInDeadlineOrder() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(2);
+        List<Integer> order = new ArrayList<>();
+
+        executor.schedule(() -> {
+            order.add(2);
+            latch.countDown();
+        }, 200, MILLISECONDS);
+        executor.schedule(() -> {
+            order.add(1);
+            latch.countDown();
+        }, 50, MILLISECONDS);
+
+        assertThat(latch.await(5, SECONDS)).isTrue();
+        assertThat(order).containsExactly(1, 2);
+    }
+
+    @Test(timeout = 30_000)
+    public void when_raftGroupRunsOnVirtualThreads_then_operationsAreCommitted() throws Exception {
+        RaftConfig config = RaftConfig.newBuilder().setLeaderElectionTimeoutMillis(1000)
+                .setLeaderHeartbeatPeriodSecs(1).setLeaderHeartbeatTimeoutSecs(5).build();
+        for (RaftEndpoint endpoint : initialMembers) {
+            LocalTransport transport = new LocalTransport(endpoint);
+            transports.add(transport);
+            raftNodes.add(RaftNode.newBuilder().setGroupId("default").setLocalEndpoint(endpoint)
+                    .setInitialGroupMembers(initialMembers).setConfig(config)
+                    .setExecutor(new VirtualThreadRaftNodeExecutor()).setTransport(transport)
+                    .setStateMachine(new SimpleStateMachine()).build());
+        }
+
+        for (int i = 0; i < raftNodes.size(); i++) {
+            for (int j = 0; j < raftNodes.size(); j++) {
+                if (i != j) {
+                    transports.get(i).discoverNode(raftNodes.get(j));
+                }
+            }
+        }
+
+        raftNodes.forEach(RaftNode::start);
+
+        RaftNode leader = null;
+        while (leader == null) {
+            for (RaftNode raftNode : raftNodes) {
+                if (raftNode.getLocalEndpoint().equals(raftNode.getTerm().getLeaderEndpoint())) {
+                    leader = raftNode;
+                }
+            }
+
+            Thread.sleep(100);
+        }
+
+        Ordered<Object> result = leader.replicate(SimpleStateMachine.applyValue("value")).join();
+
+        assertThat(result.getCommitIndex()).isGreaterThan(0);
+        assertThat(result.getResult()).isEqualTo("value");
+    }
+
+}
@@ -18,12 +18,18 @@ package io.microraft;
 
 import static io.microraft.YamlRaftConfigFields.APPEND_ENTRIES_REQUEST_BATCH_SIZE_FIELD_NAME;
 import static io.microraft.YamlRaftConfigFields.COMMIT_COUNT_TO_TAKE_SNAPSHOT_FIELD_NAME;
+import static io.microraft.YamlRaftConfigFields.FAST_LEADERSHIP_TRANSFER_ENABLED_FIELD_NAME;
 import static io.microraft.YamlRaftConfigFields.LEADER_ELECTION_TIMEOUT_MILLIS_FIELD_NAME;
 import static io.microraft.YamlRaftConfigFields.LEADER_HEARTBEAT_PERIOD_SECS_FIELD_NAME;
 import static io.microraft.YamlRaftConfigFields.LEADER_HEARTBEAT_TIMEOUT_SECS_FIELD_NAME;
+import static io.microraft.YamlRaftConfigFields.MAX_LEARNER_COUNT_FIELD_NAME;
+import static io.microraft.YamlRaftConfigFields.MAX_LEARNER_PROMOTION_LAG_FIELD_NAME;
 import static io.microraft.YamlRaftConfigFields.MAX_PENDING_LOG_ENTRY_COUNT_FIELD_NAME;
+import static io.microraft.YamlRaftConfigFields.QUIESCENCE_ENABLED_FIELD_NAME;
 import static io.microraft.YamlRaftConfigFields.RAFT_CONFIG_CONTAINER_NAME;
 import static io.microraft.YamlRaftConfigFields.RAFT_NODE_REPORT_PUBLISH_PERIOD_SECS_FIELD_NAME;
+import static io.microraft.YamlRaftConfigFields.REPLICATION_TICK_ENABLED_FIELD_NAME;
+import static io.microraft.YamlRaftConfigFields.REPLICATION_TICK_MICROS_FIELD_NAME;
 import static io.microraft.YamlRaftConfigFields.TRANSFER_SNAPSHOTS_FROM_FOLLOWERS_ENABLED_FIELD_NAME;
 import static java.util.Objects.requireNonNull;
 
@@ -233,6 +239,36 @@ public final class YamlRaftConfigParser {
             builder.setRaftNodeReportPublishPeriodSecs(raftNodeReportPublishPeriodSecs);
         }
 
+        Boolean replicationTickEnabled = (Boolean) params.get(REPLICATION_TICK_ENABLED_FIELD_NAME);
+        if (replicationTickEnabled != null) {
+            builder.setReplicationTickEnabled(replicationTickEnabled);
+        }
+
+        Long replicationTickMicros = getLongValue(params, REPLICATION_TICK_MICROS_FIELD_NAME);
+        if (replicationTickMicros != null) {
+            builder.setReplicationTickMicros(replicationTickMicros);
+        }
+
+        Boolean quiescenceEnabled = (Boolean) params.get(QUIESCENCE_ENABLED_FIELD_NAME);
+        if (quiescenceEnabled != null) {
+            builder.setQuiescenceEnabled(quiescenceEnabled);
+        }
+
+        Boolean fastLeadershipTransferEnabled = (Boolean) params.get(FAST_LEADERSHIP_TRANSFER_ENABLED_FIELD_NAME);
+        if (fastLeadershipTransferEnabled != null) {
+            builder.setFastLeadershipTransferEnabled(fastLeadershipTransferEnabled);
+        }
+
+        Integer maxLearnerCount = getIntValue(params, MAX_LEARNER_COUNT_FIELD_NAME);
+        if (maxLearnerCount != null) {
+            builder.setMaxLearnerCount(maxLearnerCount);
+        }
+
+        Integer maxLearnerPromotionLag = getIntValue(params, MAX_LEARNER_PROMOTION_LAG_FIELD_NAME);
+        if (maxLearnerPromotionLag != null) {
+            builder.setMaxLearnerPromotionLag(maxLearnerPromotionLag);
+        }
+
         return builder.build();
     }
 
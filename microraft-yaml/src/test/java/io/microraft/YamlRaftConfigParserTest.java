@@ -43,7 +43,10 @@ public class YamlRaftConfigParserTest extends BaseTest {
             + " leader-heartbeat-period-secs: 15\n" + " leader-heartbeat-timeout-secs: 45\n"
             + " append-entries-request-batch-size: 750\n" + " commit-count-to-take-snapshot: 7500\n"
             + " max-pending-log-entry-count: 1500\n" + " transfer-snapshots-from-followers-enabled: false\n"
-            + " raft-node-report-publish-period-secs: 20";
+            + " raft-node-report-publish-period-secs: 20\n" + " replication-tick-enabled: true\n"
+            + " replication-tick-micros: 250\n" + " quiescence-enabled: true\n"
+            + " fast-leadership-transfer-enabled: true\n" + " max-learner-count: 3\n"
+            + " max-learner-promotion-lag: 50";
 
     @Test
     public void parseString_whenValidYamlProvided_returnsConfig() {
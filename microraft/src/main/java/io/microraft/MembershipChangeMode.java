@@ -44,6 +44,38 @@ public enum MembershipChangeMode {
     /**
      * Denotes that a Raft endpoint will be removed from the Raft group.
      */
-    REMOVE_MEMBER
+    REMOVE_MEMBER,
+
+    /**
+     * Denotes that a new Raft endpoint will be added to the Raft group as a
+     * witness. A witness is a voting member that takes part in leader elections
+     * and acknowledges log entries with their terms and indices, but it does not
+     * store operation payloads, run the
+     * {@link io.microraft.statemachine.StateMachine} or become the leader. The
+     * leader replicates log entries to witnesses with their operations replaced
+     * by {@link io.microraft.model.log.WitnessPlaceholder#INSTANCE}, hence the
+     * {@link io.microraft.persistence.RaftStore} and the transport layer of the
+     * witness must be able to serialize it. The quorum size of the Raft group is
+     * re-calculated based on the new number of voting members.
+     * <p>
+     * Witnesses must be a minority of the voting members and cannot be promoted
+     * to {@link RaftRole#FOLLOWER}. They can be removed via
+     * {@link #REMOVE_MEMBER}.
+     */
+    ADD_WITNESS,
+
+    /**
+     * Denotes that the members and voting members of the Raft group are
+     * replaced with the given ones in a single membership change via
+     * {@link RaftNode#changeMembership(java.util.Collection, java.util.Collection, long)}.
+     * If the change adds or removes more than one voting member, it is
+     * committed with joint consensus, i.e., with the majorities of both the old
+     * and the new voting members, and leader elections require the majorities
+     * of both until it is committed.
+     * <p>
+     * This mode cannot be passed to
+     * {@link RaftNode#changeMembership(RaftEndpoint, MembershipChangeMode, long)}.
+     */
+    JOINT
 
 }
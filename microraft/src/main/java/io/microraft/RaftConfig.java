@@ -70,6 +70,36 @@ public final class RaftConfig implements Serializable {
      */
     public static final int DEFAULT_RAFT_NODE_REPORT_PUBLISH_PERIOD_SECS = 10;
 
+    /**
+     * The default value for {@link #replicationTickEnabled}.
+     */
+    public static final boolean DEFAULT_REPLICATION_TICK_ENABLED = false;
+
+    /**
+     * The default value for {@link #replicationTickMicros}.
+     */
+    public static final long DEFAULT_REPLICATION_TICK_MICROS = 0;
+
+    /**
+     * The default value for {@link #quiescenceEnabled}.
+     */
+    public static final boolean DEFAULT_QUIESCENCE_ENABLED = false;
+
+    /**
+     * The default value for {@link #fastLeadershipTransferEnabled}.
+     */
+    public static final boolean DEFAULT_FAST_LEADERSHIP_TRANSFER_ENABLED = false;
+
+    /**
+     * The default value for {@link #maxLearnerCount}.
+     */
+    public static final int DEFAULT_MAX_LEARNER_COUNT = 2;
+
+    /**
+     * The default value for {@link #maxLearnerPromotionLag}.
+     */
+    public static final int DEFAULT_MAX_LEARNER_PROMOTION_LAG = 1000;
+
     /**
      * The config object with default configuration.
      */
@@ -151,7 +181,94 @@ public final class RaftConfig implements Serializable {
     private final int raftNodeReportPublishPeriodSecs;
 
     /**
-     * Creates a config object
+     * By default, a Raft leader broadcasts append entries requests to its
+     * followers right after it appends a new log entry. If enabled, appending a
+     * log entry only marks the followers as having pending entries to receive and
+     * a single broadcast is done for all log entries appended in the meantime.
+     * This reduces the number of append entries requests sent under high load
+     * and makes the batches larger, at the cost of a slight increase in the
+     * replication latency. The broadcast is delayed by at most
+     * {@link #replicationTickMicros}.
+     */
+    private final boolean replicationTickEnabled;
+
+    /**
+     * Duration in microseconds for a Raft leader to coalesce appended log entries
+     * into a single broadcast of append entries requests, when
+     * {@link #replicationTickEnabled} is set. If it is 0, the broadcast is done
+     * right after the Raft node executor runs the tasks already waiting in its
+     * queue, hence all log entries appended in the same drain cycle are sent
+     * together. A positive value trades latency for throughput further by
+     * waiting for the given duration. Please note that the actual delay depends
+     * on the timer resolution of the {@link io.microraft.executor.RaftNodeExecutor}
+     * implementation.
+     */
+    private final long replicationTickMicros;
+
+    /**
+     * If enabled, a Raft leader stops sending periodic heartbeats when its Raft
+     * group is idle, i.e., all followers have caught up with the committed log
+     * entries and there is no pending query. The leader signals this with its
+     * last heartbeat. In turn, followers that have received this signal do not
+     * start a new leader election round until the next message of the leader as
+     * long as
+     * {@link io.microraft.transport.Transport#isReachable(RaftEndpoint)} reports
+     * the leader as reachable, even if they do not receive heartbeats. Any new
+     * request appended to the Raft log or a query that needs to contact the
+     * followers wakes the Raft group up.
+     * <p>
+     * This mode is useful for running a large number of mostly idle Raft groups
+     * on the same set of servers. In this case, it is expected that the
+     * {@link io.microraft.transport.Transport} implementation relies on a cheap,
+     * server-level liveness signal which is shared by all Raft groups, and
+     * reports a Raft endpoint unreachable within the leader heartbeat timeout
+     * after its server fails. It must be enabled on all Raft nodes of a Raft
+     * group.
+     */
+    private final boolean quiescenceEnabled;
+
+    /**
+     * If enabled, {@link RaftNode#transferLeadership(RaftEndpoint)} completes
+     * within a leader election timeout instead of the leader heartbeat timeout.
+     * The leader holds new operations passed to
+     * {@link RaftNode#replicate(Object)} in a queue bounded by
+     * {@link #maxPendingLogEntryCount} instead of rejecting them, pushes the
+     * remaining log entries to the target endpoint immediately, and asks it to
+     * start a leader election as soon as it has all log entries and they are
+     * committed. If the transfer succeeds, the held operations are failed with
+     * {@link io.microraft.exception.NotLeaderException} pointing to the target
+     * endpoint. If it times out, they are replicated in order. The duration in
+     * milliseconds during which new operations were held is returned as the
+     * result of the leadership transfer future.
+     * <p>
+     * This mode is useful for rolling restarts, where leaderships of many Raft
+     * groups are moved away from a server before it is shut down.
+     */
+    private final boolean fastLeadershipTransferEnabled;
+
+    /**
+     * Maximum number of learners (i.e., non-voting members) that can exist in
+     * the Raft group at a time. Learners are used for adding new members to the
+     * Raft group without hurting its availability while they catch up with the
+     * leader. Each learner adds replication load on the leader, hence they
+     * should be kept limited.
+     */
+    private final int maxLearnerCount;
+
+    /**
+     * Maximum number of log entries a learner can be behind the leader's last
+     * log index to be promoted to follower via
+     * {@link RaftNode#addOrPromoteToFollowerWhenCaughtUp(RaftEndpoint, long, java.time.Duration)}.
+     * A learner that needs a snapshot from the leader is never promoted. A learner
+     * within a single append entries request batch of the leader catches up
+     * with one round trip, hence the promoted follower does not stall commits
+     * if another voting member fails right after the promotion.
+     */
+    private final int maxLearnerPromotionLag;
+
+    /**
+     * Creates a config object with the default values of the settings that are
+     * not among the parameters.
      *
      * @param leaderElectionTimeoutMillis
      *            duration of leader election rounds in milliseconds
@@ -176,10 +293,68 @@ public final class RaftConfig implements Serializable {
      * @param raftNodeReportPublishPeriodSecs
      *            how frequently a Raft node publishes a report of its internal Raft
      *            state
+     *
+     * @deprecated use {@link #newBuilder()} instead
      */
+    @Deprecated
     public RaftConfig(long leaderElectionTimeoutMillis, long leaderHeartbeatPeriodSecs, long leaderHeartbeatTimeoutSecs,
             int appendEntriesRequestBatchSize, int commitCountToTakeSnapshot, int maxPendingLogEntryCount,
             boolean transferSnapshotsFromFollowersEnabled, int raftNodeReportPublishPeriodSecs) {
+        this(leaderElectionTimeoutMillis, leaderHeartbeatPeriodSecs, leaderHeartbeatTimeoutSecs,
+                appendEntriesRequestBatchSize, commitCountToTakeSnapshot, maxPendingLogEntryCount,
+                transferSnapshotsFromFollowersEnabled, raftNodeReportPublishPeriodSecs,
+                DEFAULT_REPLICATION_TICK_ENABLED, DEFAULT_REPLICATION_TICK_MICROS, DEFAULT_QUIESCENCE_ENABLED,
+                DEFAULT_FAST_LEADERSHIP_TRANSFER_ENABLED, DEFAULT_MAX_LEARNER_COUNT, DEFAULT_MAX_LEARNER_PROMOTION_LAG);
+    }
+
+    /**
+     * Creates a config object
+     *
+     * @param leaderElectionTimeoutMillis
+     *            duration of leader election rounds in milliseconds
+     * @param leaderHeartbeatPeriodSecs
+     *            duration in seconds for a Raft leader node to send periodic
+     *            heartbeat requests to its followers in order to denote its
+     *            liveliness
+     * @param leaderHeartbeatTimeoutSecs
+     *            duration in seconds for a follower to decide on failure of the
+     *            current leader and start a new leader election round
+     * @param appendEntriesRequestBatchSize
+     *            maximum number of Raft log entries that can be sent as a batch in
+     *            a single append entries request
+     * @param commitCountToTakeSnapshot
+     *            number of new commits to initiate a new snapshot after the last
+     *            snapshot taken
+     * @param maxPendingLogEntryCount
+     *            maximum number of pending log entries in the leader's Raft log
+     *            before temporarily rejecting new requests of clients
+     * @param transferSnapshotsFromFollowersEnabled
+     *            enable / disable parallel snapshot transfer from followers
+     * @param raftNodeReportPublishPeriodSecs
+     *            how frequently a Raft node publishes a report of its internal Raft
+     *            state
+     * @param replicationTickEnabled
+     *            enable / disable coalescing broadcasts of append entries requests
+     * @param replicationTickMicros
+     *            duration in microseconds to coalesce appended log entries into a
+     *            single broadcast
+     * @param quiescenceEnabled
+     *            enable / disable stopping heartbeats in idle Raft groups
+     * @param fastLeadershipTransferEnabled
+     *            enable / disable holding new operations and triggering the
+     *            leader election eagerly during leadership transfers
+     * @param maxLearnerCount
+     *            maximum number of learners that can exist in the Raft group at
+     *            a time
+     * @param maxLearnerPromotionLag
+     *            maximum number of log entries a learner can be behind the leader
+     *            to be promoted to follower
+     */
+    public RaftConfig(long leaderElectionTimeoutMillis, long leaderHeartbeatPeriodSecs, long leaderHeartbeatTimeoutSecs,
+            int appendEntriesRequestBatchSize, int commitCountToTakeSnapshot, int maxPendingLogEntryCount,
+            boolean transferSnapshotsFromFollowersEnabled, int raftNodeReportPublishPeriodSecs,
+            boolean replicationTickEnabled, long replicationTickMicros, boolean quiescenceEnabled,
+            boolean fastLeadershipTransferEnabled, int maxLearnerCount, int maxLearnerPromotionLag) {
         this.leaderElectionTimeoutMillis = leaderElectionTimeoutMillis;
         this.leaderHeartbeatPeriodSecs = leaderHeartbeatPeriodSecs;
         this.leaderHeartbeatTimeoutSecs = leaderHeartbeatTimeoutSecs;
@@ -188,6 +363,12 @@ public final class RaftConfig implements Serializable {
         this.maxPendingLogEntryCount = maxPendingLogEntryCount;
         this.transferSnapshotsFromFollowersEnabled = transferSnapshotsFromFollowersEnabled;
         this.raftNodeReportPublishPeriodSecs = raftNodeReportPublishPeriodSecs;
+        this.replicationTickEnabled = replicationTickEnabled;
+        this.replicationTickMicros = replicationTickMicros;
+        this.quiescenceEnabled = quiescenceEnabled;
+        this.fastLeadershipTransferEnabled = fastLeadershipTransferEnabled;
+        this.maxLearnerCount = maxLearnerCount;
+        this.maxLearnerPromotionLag = maxLearnerPromotionLag;
     }
 
     /**
@@ -205,6 +386,12 @@ public final class RaftConfig implements Serializable {
         }
     }
 
+    private static void checkNonNegative(long value, String errorMessage) {
+        if (value < 0) {
+            throw new IllegalArgumentException(errorMessage);
+        }
+    }
+
     /**
      * @return the leader election timeout in milliseconds
      *
@@ -277,6 +464,60 @@ public final class RaftConfig implements Serializable {
         return raftNodeReportPublishPeriodSecs;
     }
 
+    /**
+     * @return true if the replication tick is enabled
+     *
+     * @see #replicationTickEnabled
+     */
+    public boolean isReplicationTickEnabled() {
+        return replicationTickEnabled;
+    }
+
+    /**
+     * @return the replication tick duration in microseconds
+     *
+     * @see #replicationTickMicros
+     */
+    public long getReplicationTickMicros() {
+        return replicationTickMicros;
+    }
+
+    /**
+     * @return true if the quiescence is enabled
+     *
+     * @see #quiescenceEnabled
+     */
+    public boolean isQuiescenceEnabled() {
+        return quiescenceEnabled;
+    }
+
+    /**
+     * @return true if the fast leadership transfer is enabled
+     *
+     * @see #fastLeadershipTransferEnabled
+     */
+    public boolean isFastLeadershipTransferEnabled() {
+        return fastLeadershipTransferEnabled;
+    }
+
+    /**
+     * @return the maximum number of learners
+     *
+     * @see #maxLearnerCount
+     */
+    public int getMaxLearnerCount() {
+        return maxLearnerCount;
+    }
+
+    /**
+     * @return the maximum learner promotion lag
+     *
+     * @see #maxLearnerPromotionLag
+     */
+    public int getMaxLearnerPromotionLag() {
+        return maxLearnerPromotionLag;
+    }
+
     @Override
     public String toString() {
         return "RaftConfig{" + "leaderElectionTimeoutMillis=" + leaderElectionTimeoutMillis
@@ -285,7 +526,10 @@ public final class RaftConfig implements Serializable {
                 + ", appendEntriesRequestBatchSize=" + appendEntriesRequestBatchSize + ", commitCountToTakeSnapshot="
                 + commitCountToTakeSnapshot + ", transferSnapshotsFromFollowersEnabled="
                 + transferSnapshotsFromFollowersEnabled + ", raftNodeReportPublishPeriodSecs="
-                + raftNodeReportPublishPeriodSecs + '}';
+                + raftNodeReportPublishPeriodSecs + ", replicationTickEnabled=" + replicationTickEnabled
+                + ", replicationTickMicros=" + replicationTickMicros + ", quiescenceEnabled=" + quiescenceEnabled
+                + ", fastLeadershipTransferEnabled=" + fastLeadershipTransferEnabled + ", maxLearnerCount="
+                + maxLearnerCount + ", maxLearnerPromotionLag=" + maxLearnerPromotionLag + '}';
     }
 
     /**
@@ -301,6 +545,12 @@ public final class RaftConfig implements Serializable {
         private int maxPendingLogEntryCount = DEFAULT_MAX_PENDING_LOG_ENTRY_COUNT;
         private boolean transferSnapshotsFromFollowersEnabled = DEFAULT_TRANSFER_SNAPSHOTS_FROM_FOLLOWERS_ENABLED;
         private int raftNodeReportPublishPeriodSecs = DEFAULT_RAFT_NODE_REPORT_PUBLISH_PERIOD_SECS;
+        private boolean replicationTickEnabled = DEFAULT_REPLICATION_TICK_ENABLED;
+        private long replicationTickMicros = DEFAULT_REPLICATION_TICK_MICROS;
+        private boolean quiescenceEnabled = DEFAULT_QUIESCENCE_ENABLED;
+        private boolean fastLeadershipTransferEnabled = DEFAULT_FAST_LEADERSHIP_TRANSFER_ENABLED;
+        private int maxLearnerCount = DEFAULT_MAX_LEARNER_COUNT;
+        private int maxLearnerPromotionLag = DEFAULT_MAX_LEARNER_PROMOTION_LAG;
 
         private RaftConfigBuilder() {
         }
@@ -418,6 +668,87 @@ public final class RaftConfig implements Serializable {
             return this;
         }
 
+        /**
+         * @param replicationTickEnabled
+         *            the replication tick enabled value to set
+         *
+         * @return the builder object for fluent calls
+         *
+         * @see #replicationTickEnabled
+         */
+        public RaftConfigBuilder setReplicationTickEnabled(boolean replicationTickEnabled) {
+            this.replicationTickEnabled = replicationTickEnabled;
+            return this;
+        }
+
+        /**
+         * @param replicationTickMicros
+         *            the replication tick duration in microseconds value to set
+         *
+         * @return the builder object for fluent calls
+         *
+         * @see #replicationTickMicros
+         */
+        public RaftConfigBuilder setReplicationTickMicros(long replicationTickMicros) {
+            checkNonNegative(replicationTickMicros, "replication tick micros cannot be negative!");
+            this.replicationTickMicros = replicationTickMicros;
+            return this;
+        }
+
+        /**
+         * @param quiescenceEnabled
+         *            the quiescence enabled value to set
+         *
+         * @return the builder object for fluent calls
+         *
+         * @see #quiescenceEnabled
+         */
+        public RaftConfigBuilder setQuiescenceEnabled(boolean quiescenceEnabled) {
+            this.quiescenceEnabled = quiescenceEnabled;
+            return this;
+        }
+
+        /**
+         * @param fastLeadershipTransferEnabled
+         *            the fast leadership transfer enabled value to set
+         *
+         * @return the builder object for fluent calls
+         *
+         * @see #fastLeadershipTransferEnabled
+         */
+        public RaftConfigBuilder setFastLeadershipTransferEnabled(boolean fastLeadershipTransferEnabled) {
+            this.fastLeadershipTransferEnabled = fastLeadershipTransferEnabled;
+            return this;
+        }
+
+        /**
+         * @param maxLearnerCount
+         *            the max learner count value to set
+         *
+         * @return the builder object for fluent calls
+         *
+         * @see #maxLearnerCount
+         */
+        public RaftConfigBuilder setMaxLearnerCount(int maxLearnerCount) {
+            checkNonNegative(maxLearnerCount, "max learner count cannot be negative!");
+            this.maxLearnerCount = maxLearnerCount;
+            return this;
+        }
+
+        /**
+         * @param maxLearnerPromotionLag
+         *            the max learner promotion lag value to set
+         *
+         * @return the builder object for fluent calls
+         *
+         * @see #maxLearnerPromotionLag
+         */
+        public RaftConfigBuilder setMaxLearnerPromotionLag(int maxLearnerPromotionLag) {
+            checkNonNegative(maxLearnerPromotionLag, "max learner promotion lag cannot be negative!");
+            this.maxLearnerPromotionLag = maxLearnerPromotionLag;
+            return this;
+        }
+
         /**
          * Builds the RaftConfig object.
          *
@@ -431,7 +762,9 @@ public final class RaftConfig implements Serializable {
 
             return new RaftConfig(leaderElectionTimeoutMillis, leaderHeartbeatPeriodSecs, leaderHeartbeatTimeoutSecs,
                     appendEntriesRequestBatchSize, commitCountToTakeSnapshot, maxPendingLogEntryCount,
-                    transferSnapshotsFromFollowersEnabled, raftNodeReportPublishPeriodSecs);
+                    transferSnapshotsFromFollowersEnabled, raftNodeReportPublishPeriodSecs, replicationTickEnabled,
+                    replicationTickMicros, quiescenceEnabled, fastLeadershipTransferEnabled, maxLearnerCount,
+                    maxLearnerPromotionLag);
         }
 
         @Override
@@ -442,7 +775,10 @@ public final class RaftConfig implements Serializable {
                     + ", commitCountToTakeSnapshot=" + commitCountToTakeSnapshot + ", maxPendingLogEntryCount="
                     + maxPendingLogEntryCount + ", transferSnapshotsFromFollowersEnabled="
                     + transferSnapshotsFromFollowersEnabled + ", raftNodeReportPublishPeriodSecs="
-                    + raftNodeReportPublishPeriodSecs + '}';
+                    + raftNodeReportPublishPeriodSecs + ", replicationTickEnabled=" + replicationTickEnabled
+                    + ", replicationTickMicros=" + replicationTickMicros + ", quiescenceEnabled=" + quiescenceEnabled
+                    + ", fastLeadershipTransferEnabled=" + fastLeadershipTransferEnabled + ", maxLearnerCount="
+                    + maxLearnerCount + ", maxLearnerPromotionLag=" + maxLearnerPromotionLag + '}';
         }
     }
 
@@ -24,9 +24,12 @@ import javax.annotation.Nonnull;
  * executes the Raft consensus algorithm with a {@link RaftNode} instance.
  * <p>
  * For the Raft algorithm implementation, it is sufficient to differentiate
- * members of a Raft group with a unique id, and that is why we only have a
- * single method in this interface. It is users' responsibility to assign unique
- * ids to different Raft endpoints.
+ * members of a Raft group with a unique id. It is users' responsibility to
+ * assign unique ids to different Raft endpoints.
+ * <p>
+ * Raft endpoints can optionally carry an election priority to keep leadership
+ * on specific Raft nodes, such as the ones with faster disks. See
+ * {@link #getElectionPriority()}.
  */
 public interface RaftEndpoint {
 
@@ -38,4 +41,33 @@ public interface RaftEndpoint {
     @Nonnull
     Object getId();
 
+    /**
+     * Returns the election priority of the Raft endpoint.
+     * <p>
+     * When voting members of a Raft group have different election priorities,
+     * Raft nodes delay their candidacy by one leader election timeout for each
+     * distinct priority higher than their own. In addition, the leader
+     * transfers its leadership to a follower with a higher priority once the
+     * follower has all committed log entries and is responding to the leader.
+     * This transfer is deferred for a leader heartbeat timeout after an
+     * explicit leadership transfer, e.g., via
+     * {@link RaftNode#transferLeadership(RaftEndpoint)}, after which leadership
+     * transfers to Raft nodes with lower priorities are reverted.
+     * <p>
+     * Election priorities are only a preference. A Raft node with a lower
+     * priority still becomes leader if the Raft nodes with higher priorities
+     * are not available.
+     * <p>
+     * All Raft nodes must observe the same election priority for a given Raft
+     * endpoint, hence the election priority should be carried together with
+     * the id when Raft endpoints are serialized.
+     * <p>
+     * All Raft endpoints have the same priority by default.
+     *
+     * @return the election priority of the Raft endpoint
+     */
+    default int getElectionPriority() {
+        return 0;
+    }
+
 }
@@ -43,8 +43,10 @@ import io.microraft.persistence.NopRaftStore;
 import io.microraft.persistence.RaftStore;
 import io.microraft.persistence.RestoredRaftState;
 import io.microraft.report.RaftGroupMembers;
+import io.microraft.report.RaftLogStats;
 import io.microraft.report.RaftNodeReport;
 import io.microraft.report.RaftNodeReportListener;
+import io.microraft.report.RaftNodeStats;
 import io.microraft.report.RaftTerm;
 import io.microraft.statemachine.StateMachine;
 import io.microraft.transport.Transport;
@@ -288,7 +290,10 @@ public interface RaftNode {
      * <p>
      * The returned future can be completed with {@link NotLeaderException},
      * {@link CannotReplicateException} or {@link LaggingCommitIndexException}.
-     * Please see individual exception classes for more information.
+     * Please see individual exception classes for more information. It is
+     * completed with {@link IllegalArgumentException} if the given operation is
+     * a {@link io.microraft.statemachine.ClientOperation}, since client
+     * operations update the replicated client sessions and must be replicated.
      *
      * @param operation
      *            the query operation to be executed
@@ -388,6 +393,13 @@ public interface RaftNode {
      * last log indices of the leader and the {@link RaftRole#LEARNER} Raft
      * endpoint.
      * <p>
+     * A new Raft endpoint can also be added to the Raft group as a voting witness
+     * via {@link MembershipChangeMode#ADD_WITNESS}. Witnesses take part in leader
+     * elections and commit decisions without storing operation payloads or
+     * running the state machine. They cannot become the leader or be promoted to
+     * {@link RaftRole#FOLLOWER}, and they must be a minority of the voting
+     * members.
+     * <p>
      * If the given group members commit index is different than the current group
      * members commit index in the local Raft state, then the returned future is
      * completed with {@link MismatchingRaftGroupMembersCommitIndexException}.
@@ -398,8 +410,9 @@ public interface RaftNode {
      * <p>
      * If the given Raft endpoint is already in the committed Raft group member
      * list, or it is being added as a {@link RaftRole#LEARNER} while there are
-     * {@link RaftGroupMembers#MAX_LEARNER_COUNT} {@link RaftRole#LEARNER}s in the
-     * Raft group member list, then the returned future is completed with
+     * {@link RaftConfig#getMaxLearnerCount()} {@link RaftRole#LEARNER}s in the
+     * Raft group member list, or the membership change leaves witnesses as half
+     * or more of the voting members, then the returned future is completed with
      * {@link IllegalArgumentException}.
      * <p>
      * The returned future can be completed with {@link NotLeaderException},
@@ -429,6 +442,123 @@ public interface RaftNode {
     CompletableFuture<Ordered<RaftGroupMembers>> changeMembership(@Nonnull RaftEndpoint endpoint,
             @Nonnull MembershipChangeMode mode, long expectedGroupMembersCommitIndex);
 
+    /**
+     * Replaces the members and voting members of the Raft group with the given
+     * ones in a single membership change, e.g., to move a Raft group to a new
+     * set of servers without going through a series of single-member changes.
+     * <p>
+     * If the change adds or removes more than one voting member, it is
+     * committed with joint consensus. Until the new member list is committed,
+     * log entries are committed and leader elections are won only with the
+     * majorities of both the old and the new voting members, so the old and new
+     * voting members cannot elect separate leaders. Linearizable queries wait
+     * and leader lease queries are rejected in the meantime. Once the new member
+     * list is committed, the Raft group continues with the new voting members
+     * only. If the leader itself is removed, it terminates after the new member
+     * list is committed and the new voting members elect a new leader.
+     * <p>
+     * New members should be added as learners first and promoted to voting
+     * members after they catch up with the leader, in order to prevent
+     * availability gaps. Current voting members cannot become learners and
+     * current witnesses stay as witnesses if they are not removed.
+     * <p>
+     * If the given group members commit index is different than the current
+     * group members commit index in the local Raft state, then the returned
+     * future is completed with
+     * {@link MismatchingRaftGroupMembersCommitIndexException}.
+     * <p>
+     * If the voting members are empty or not a subset of the members, the given
+     * member lists do not change the current ones, a current voting member is
+     * turned into a {@link RaftRole#LEARNER}, there are more than
+     * {@link RaftConfig#getMaxLearnerCount()} {@link RaftRole#LEARNER}s, a new
+     * member exists in the initial member list, or witnesses become half or more
+     * of the voting members, then the returned future is completed with
+     * {@link IllegalArgumentException}.
+     * <p>
+     * The returned future can be completed with {@link NotLeaderException},
+     * {@link CannotReplicateException} or {@link IndeterminateStateException}.
+     * Please see individual exception classes for more information.
+     *
+     * @param members
+     *            the new members of the Raft group
+     * @param votingMembers
+     *            the new voting members of the Raft group
+     * @param expectedGroupMembersCommitIndex
+     *            the expected members commit index
+     *
+     * @return the future to be completed with the new member list of the Raft group
+     *         if the membership change is successful, or the exception if the
+     *         membership change failed
+     *
+     * @see MembershipChangeMode#JOINT
+     * @see MismatchingRaftGroupMembersCommitIndexException
+     * @see NotLeaderException
+     * @see CannotReplicateException
+     * @see IndeterminateStateException
+     * @see IllegalArgumentException
+     */
+    @Nonnull
+    CompletableFuture<Ordered<RaftGroupMembers>> changeMembership(@Nonnull Collection<RaftEndpoint> members,
+            @Nonnull Collection<RaftEndpoint> votingMembers, long expectedGroupMembersCommitIndex);
+
+    /**
+     * Adds the given Raft endpoint to the Raft group as a
+     * {@link RaftRole#LEARNER} if it is not a member yet, and promotes it to
+     * {@link RaftRole#FOLLOWER} once it catches up with the leader.
+     * <p>
+     * {@link MembershipChangeMode#ADD_OR_PROMOTE_TO_FOLLOWER} makes the given
+     * Raft endpoint count towards the log replication quorum immediately, even
+     * if it is still installing a large snapshot. In that window, failure of
+     * another voting member can stall commits. This method avoids it by keeping
+     * the Raft endpoint as a learner until it does not need a snapshot from the
+     * leader anymore and its last log index is at most
+     * {@link RaftConfig#getMaxLearnerPromotionLag()} entries behind the
+     * leader's. The catch-up progress can be tracked via
+     * {@link RaftLogStats#getFollowerMatchIndices()} and
+     * {@link RaftLogStats#getFollowerInstallingSnapshotIndices()} in the leader's
+     * {@link RaftNodeReport}.
+     * <p>
+     * The given group members commit index is checked against the current group
+     * members commit index only once, either before the Raft endpoint is added
+     * as a learner, or before the waiting starts if the Raft endpoint is already
+     * a learner. The returned future is completed with the member list of the
+     * promotion.
+     * <p>
+     * If the given group members commit index is different than the current
+     * group members commit index in the local Raft state, then the returned
+     * future is completed with
+     * {@link MismatchingRaftGroupMembersCommitIndexException}. If the given Raft
+     * endpoint is already a voting member, or it cannot be added as a learner,
+     * then the returned future is completed with
+     * {@link IllegalArgumentException}. If the learner is removed from the Raft
+     * group before it is promoted, then the returned future is completed with
+     * {@link IllegalStateException}. If the learner does not catch up within the
+     * given timeout, then the returned future is completed with
+     * {@link TimeoutException} and the Raft endpoint remains as a learner.
+     * <p>
+     * The returned future can be completed with {@link NotLeaderException},
+     * {@link CannotReplicateException} or {@link IndeterminateStateException}.
+     * Please see individual exception classes for more information.
+     *
+     * @param endpoint
+     *            the endpoint to add and promote to follower
+     * @param expectedGroupMembersCommitIndex
+     *            the expected members commit index
+     * @param timeout
+     *            duration to wait for the learner to catch up
+     *
+     * @return the future to be completed with the new member list of the Raft group
+     *         if the promotion is successful, or the exception if the membership
+     *         change failed
+     *
+     * @see RaftConfig#getMaxLearnerPromotionLag()
+     * @see MembershipChangeMode#ADD_LEARNER
+     * @see MembershipChangeMode#ADD_OR_PROMOTE_TO_FOLLOWER
+     */
+    @Nonnull
+    CompletableFuture<Ordered<RaftGroupMembers>> addOrPromoteToFollowerWhenCaughtUp(@Nonnull RaftEndpoint endpoint,
+            long expectedGroupMembersCommitIndex, @Nonnull Duration timeout);
+
     /**
      * Transfers the leadership role to the given endpoint, if this Raft node is the
      * current Raft group leader with the {@link RaftNodeStatus#ACTIVE} status and
@@ -446,6 +576,18 @@ public interface RaftNode {
      * transfer process is completed and new {@link #replicate(Object)} calls fail
      * with {@link CannotReplicateException}.
      * <p>
+     * If {@link RaftConfig#isFastLeadershipTransferEnabled()} is set, new
+     * {@link #replicate(Object)} calls are held until the leadership transfer
+     * process is completed, the process times out w.r.t
+     * {@link RaftConfig#getLeaderElectionTimeoutMillis()}, and the returned
+     * future's result is the duration in milliseconds during which new
+     * operations were held. In this mode, the process is completed only after
+     * this Raft node moves to the follower role and learns the new leader. If
+     * another endpoint becomes the new leader, or this Raft node starts a new
+     * leader election or terminates before learning the new leader, the returned
+     * future and the held {@link #replicate(Object)} calls are completed with
+     * {@link NotLeaderException} pointing to the new leader, if known.
+     * <p>
      * The returned future can be completed with {@link NotLeaderException} if this
      * Raft node is not leader, {@link IllegalStateException} if the Raft node
      * status is not {@link RaftNodeStatus#ACTIVE}, {@link IllegalArgumentException}
@@ -475,6 +617,19 @@ public interface RaftNode {
     @Nonnull
     CompletableFuture<Ordered<RaftNodeReport>> getReport();
 
+    /**
+     * Returns a live view of the counters and indices of this Raft node.
+     * <p>
+     * The returned object is the same for the lifetime of this Raft node and can
+     * be polled from any thread without allocating objects or scheduling tasks on
+     * the Raft node's executor. Different from {@link #getReport()}, its values
+     * are read independently and may not be consistent with each other.
+     *
+     * @return a live view of the counters and indices of this Raft node
+     */
+    @Nonnull
+    RaftNodeStats getStats();
+
     /**
      * Takes a new snapshot at the local RaftNode at the current commit index. If a
      * snapshot is already taken at the current commit index, calling this method is
@@ -0,0 +1,388 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.microraft.balancer;
+
+import static io.microraft.RaftNodeStatus.ACTIVE;
+import static io.microraft.RaftNodeStatus.isTerminal;
+import static io.microraft.RaftRole.LEADER;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+import javax.annotation.Nonnull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.microraft.RaftEndpoint;
+import io.microraft.RaftNode;
+import io.microraft.RaftNode.RaftNodeBuilder;
+import io.microraft.report.RaftNodeReport;
+import io.microraft.report.RaftNodeReportListener;
+
+/**
+ * Spreads the leaderships of many Raft groups evenly across hosts.
+ * <p>
+ * When a host runs Raft nodes of many Raft groups, nothing in
+ * {@link RaftNode} prevents all leaders from ending up on the same host, in
+ * which case that host carries all the replication and linearizable query
+ * load. A {@link LeaderBalancer} object collects the {@link RaftNodeReport}
+ * objects of the Raft nodes running on the local host. It can be registered to
+ * multiple Raft nodes via
+ * {@link RaftNodeBuilder#setRaftNodeReportListener(RaftNodeReportListener)}, or
+ * the reports can be passed to {@link #accept(RaftNodeReport)} by another
+ * listener. Raft nodes whose leaderships can be transferred by the balancer are
+ * registered via {@link #register(RaftNode)}.
+ * <p>
+ * On each {@link #rebalance()} call, the balancer computes the leader load of
+ * each host from the latest reports, where the load of a host is the sum of
+ * the weights of the Raft groups it leads. Then, it transfers the leaderships
+ * of the Raft groups led by the local host to the voting members on the least
+ * loaded hosts via {@link RaftNode#transferLeadership(RaftEndpoint)}, as long
+ * as each transfer reduces the imbalance. Since only a leader can transfer its
+ * leadership, each host runs its own balancer and moves leaderships away from
+ * itself. The balancer sees only the Raft groups of the local host, so the
+ * loads of the remote hosts are computed only for those Raft groups.
+ * <p>
+ * Leadership transfers are rate limited. At most
+ * {@link #DEFAULT_MAX_CONCURRENT_TRANSFERS} leadership transfers run
+ * concurrently and a new one is started at least
+ * {@link #DEFAULT_MIN_TRANSFER_INTERVAL_MILLIS} milliseconds after the previous
+ * one, unless configured otherwise. Users are expected to call
+ * {@link #rebalance()} periodically, e.g., every few seconds.
+ * <p>
+ * Hosts are identified via a host function that maps a Raft endpoint to its
+ * host. By default, Raft endpoints with the same id are considered to be on the
+ * same host. The weight of a Raft group is computed via a weight function on
+ * its latest report, such as its operation rate. By default, all Raft groups
+ * have the same weight.
+ * <p>
+ * This class is thread safe.
+ */
+public final class LeaderBalancer implements RaftNodeReportListener {
+
+    /**
+     * The default value for the maximum number of concurrent leadership
+     * transfers.
+     */
+    public static final int DEFAULT_MAX_CONCURRENT_TRANSFERS = 1;
+
+    /**
+     * The default value for the minimum duration between starts of two
+     * leadership transfers.
+     */
+    public static final long DEFAULT_MIN_TRANSFER_INTERVAL_MILLIS = 1000;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LeaderBalancer.class);
+
+    private final Function<RaftEndpoint, Object> hostFunction;
+    private final ToDoubleFunction<RaftNodeReport> weightFunction;
+    private final int maxConcurrentTransfers;
+    private final long minTransferIntervalMillis;
+    private final Map<Object, RaftNodeReport> reports = new ConcurrentHashMap<>();
+    private final Map<Object, RaftNode> nodes = new ConcurrentHashMap<>();
+    private final Set<Object> transferringGroupIds = ConcurrentHashMap.newKeySet();
+    private long lastTransferStartNanos;
+    private boolean transferStarted;
+
+    private LeaderBalancer(Function<RaftEndpoint, Object> hostFunction,
+            ToDoubleFunction<RaftNodeReport> weightFunction, int maxConcurrentTransfers,
+            long minTransferIntervalMillis) {
+        this.hostFunction = hostFunction;
+        this.weightFunction = weightFunction;
+        this.maxConcurrentTransfers = maxConcurrentTransfers;
+        this.minTransferIntervalMillis = minTransferIntervalMillis;
+    }
+
+    /**
+     * Creates a new leader balancer builder.
+     *
+     * @return the builder to populate the parameters for LeaderBalancer.
+     */
+    public static LeaderBalancerBuilder newBuilder() {
+        return new LeaderBalancerBuilder();
+    }
+
+    /**
+     * Registers the given Raft node so that its leadership can be transferred
+     * by this balancer.
+     *
+     * @param node
+     *            the Raft node running on the local host
+     */
+    public void register(@Nonnull RaftNode node) {
+        nodes.put(node.getGroupId(), node);
+    }
+
+    /**
+     * Deregisters the Raft node of the given Raft group and discards its last
+     * report.
+     *
+     * @param groupId
+     *            the id of the Raft group
+     */
+    public void deregister(@Nonnull Object groupId) {
+        nodes.remove(groupId);
+        reports.remove(groupId);
+    }
+
+    @Override
+    public void accept(@Nonnull RaftNodeReport report) {
+        if (isTerminal(report.getStatus())) {
+            deregister(report.getGroupId());
+        } else {
+            reports.put(report.getGroupId(), report);
+        }
+    }
+
+    /**
+     * Returns the leader load of each host computed from the latest reports.
+     *
+     * @return the leader load of each host
+     */
+    @Nonnull
+    public Map<Object, Double> getLeaderLoads() {
+        Map<Object, Double> loads = new HashMap<>();
+        for (RaftNodeReport report : reports.values()) {
+            addLoad(loads, report, weightFunction.applyAsDouble(report));
+        }
+
+        return loads;
+    }
+
+    /**
+     * Starts leadership transfers for the Raft groups led by the local host if
+     * they reduce the imbalance of leader loads across hosts, within the rate
+     * limits.
+     *
+     * @return the number of started leadership transfers
+     */
+    public synchronized int rebalance() {
+        Map<Object, Double> loads = new HashMap<>();
+        Map<Object, Double> weights = new HashMap<>();
+        List<RaftNodeReport> localLeaderReports = new ArrayList<>();
+        for (RaftNodeReport report : reports.values()) {
+            double weight = weightFunction.applyAsDouble(report);
+            weights.put(report.getGroupId(), weight);
+            if (addLoad(loads, report, weight) && report.getRole() == LEADER
+                    && nodes.containsKey(report.getGroupId())) {
+                localLeaderReports.add(report);
+            }
+        }
+
+        // move the heaviest Raft groups first
+        localLeaderReports.sort(Comparator.comparingDouble((RaftNodeReport report) -> -weights.get(report.getGroupId()))
+                .thenComparing(report -> report.getGroupId().toString()));
+
+        int started = 0;
+        long minTransferIntervalNanos = MILLISECONDS.toNanos(minTransferIntervalMillis);
+        for (RaftNodeReport report : localLeaderReports) {
+            long now = System.nanoTime();
+            if (transferringGroupIds.size() >= maxConcurrentTransfers
+                    || (transferStarted && now - lastTransferStartNanos < minTransferIntervalNanos)) {
+                break;
+            }
+
+            double weight = weights.get(report.getGroupId());
+            Object sourceHost = hostFunction.apply(report.getEndpoint());
+            RaftEndpoint target = findLeastLoadedMember(report, sourceHost, loads);
+            if (transferringGroupIds.contains(report.getGroupId()) || weight <= 0 || target == null) {
+                continue;
+            }
+
+            Object targetHost = hostFunction.apply(target);
+            if (loads.get(sourceHost) - loads.get(targetHost) <= weight) {
+                // moving this Raft group would not reduce the imbalance
+                continue;
+            }
+
+            loads.merge(sourceHost, -weight, Double::sum);
+            loads.merge(targetHost, weight, Double::sum);
+            transferLeadership(report, target);
+            lastTransferStartNanos = now;
+            transferStarted = true;
+            started++;
+        }
+
+        return started;
+    }
+
+    /**
+     * Adds the weight of the given report to the load of its leader's host.
+     * Returns false if the report does not have an active leader.
+     */
+    private boolean addLoad(Map<Object, Double> loads, RaftNodeReport report, double weight) {
+        RaftEndpoint leader = report.getTerm().getLeaderEndpoint();
+        if (leader == null || report.getStatus() != ACTIVE) {
+            return false;
+        }
+
+        for (RaftEndpoint member : getCandidates(report)) {
+            loads.putIfAbsent(hostFunction.apply(member), 0d);
+        }
+
+        loads.merge(hostFunction.apply(leader), weight, Double::sum);
+        return true;
+    }
+
+    private RaftEndpoint findLeastLoadedMember(RaftNodeReport report, Object sourceHost, Map<Object, Double> loads) {
+        RaftEndpoint target = null;
+        double targetLoad = Double.MAX_VALUE;
+        for (RaftEndpoint member : getCandidates(report)) {
+            Object host = hostFunction.apply(member);
+            double load = loads.get(host);
+            if (!host.equals(sourceHost) && load < targetLoad) {
+                target = member;
+                targetLoad = load;
+            }
+        }
+
+        return target;
+    }
+
+    private Collection<RaftEndpoint> getCandidates(RaftNodeReport report) {
+        Collection<RaftEndpoint> witnesses = report.getCommittedMembers().getWitnessMembers();
+        List<RaftEndpoint> candidates = new ArrayList<>();
+        for (RaftEndpoint member : report.getCommittedMembers().getVotingMembers()) {
+            if (!witnesses.contains(member)) {
+                candidates.add(member);
+            }
+        }
+
+        return candidates;
+    }
+
+    private void transferLeadership(RaftNodeReport report, RaftEndpoint target) {
+        Object groupId = report.getGroupId();
+        RaftNode node = nodes.get(groupId);
+        transferringGroupIds.add(groupId);
+
+        LOGGER.info("Transferring leadership of Raft group: {} from {} to {}", groupId, report.getEndpoint().getId(),
+                target.getId());
+
+        node.transferLeadership(target).whenComplete((result, throwable) -> {
+            transferringGroupIds.remove(groupId);
+            if (throwable == null) {
+                // the report is stale until the Raft node publishes a new one
+                reports.remove(groupId, report);
+            } else {
+                LOGGER.warn("Leadership transfer of Raft group: {} to {} failed: {}", groupId, target.getId(),
+                        throwable.getMessage());
+            }
+        });
+    }
+
+    @Override
+    public String toString() {
+        return "LeaderBalancer{" + "maxConcurrentTransfers=" + maxConcurrentTransfers
+                + ", minTransferIntervalMillis=" + minTransferIntervalMillis
+                + ", groupCount=" + reports.size() + ", transferringGroupIds=" + transferringGroupIds + '}';
+    }
+
+    /**
+     * Builder for leader balancer
+     */
+    public static final class LeaderBalancerBuilder {
+
+        private Function<RaftEndpoint, Object> hostFunction = RaftEndpoint::getId;
+        private ToDoubleFunction<RaftNodeReport> weightFunction = report -> 1;
+        private int maxConcurrentTransfers = DEFAULT_MAX_CONCURRENT_TRANSFERS;
+        private long minTransferIntervalMillis = DEFAULT_MIN_TRANSFER_INTERVAL_MILLIS;
+
+        private LeaderBalancerBuilder() {
+        }
+
+        /**
+         * @param hostFunction
+         *            the function that maps a Raft endpoint to the host it
+         *            runs on
+         *
+         * @return the builder object for fluent calls
+         */
+        public LeaderBalancerBuilder setHostFunction(@Nonnull Function<RaftEndpoint, Object> hostFunction) {
+            this.hostFunction = requireNonNull(hostFunction);
+            return this;
+        }
+
+        /**
+         * @param weightFunction
+         *            the function that computes the weight of a Raft group
+         *            from its latest report, such as its operation rate
+         *
+         * @return the builder object for fluent calls
+         */
+        public LeaderBalancerBuilder setWeightFunction(@Nonnull ToDoubleFunction<RaftNodeReport> weightFunction) {
+            this.weightFunction = requireNonNull(weightFunction);
+            return this;
+        }
+
+        /**
+         * @param maxConcurrentTransfers
+         *            the maximum number of concurrent leadership transfers to
+         *            set
+         *
+         * @return the builder object for fluent calls
+         */
+        public LeaderBalancerBuilder setMaxConcurrentTransfers(int maxConcurrentTransfers) {
+            if (maxConcurrentTransfers < 1) {
+                throw new IllegalArgumentException(
+                        "max concurrent transfers: " + maxConcurrentTransfers + " must be positive!");
+            }
+
+            this.maxConcurrentTransfers = maxConcurrentTransfers;
+            return this;
+        }
+
+        /**
+         * @param minTransferIntervalMillis
+         *            the minimum duration in milliseconds between starts of
+         *            two leadership transfers to set
+         *
+         * @return the builder object for fluent calls
+         */
+        public LeaderBalancerBuilder setMinTransferIntervalMillis(long minTransferIntervalMillis) {
+            if (minTransferIntervalMillis < 0) {
+                throw new IllegalArgumentException(
+                        "min transfer interval millis: " + minTransferIntervalMillis + " cannot be negative!");
+            }
+
+            this.minTransferIntervalMillis = minTransferIntervalMillis;
+            return this;
+        }
+
+        /**
+         * Builds the LeaderBalancer object.
+         *
+         * @return the LeaderBalancer object.
+         */
+        public LeaderBalancer build() {
+            return new LeaderBalancer(hostFunction, weightFunction, maxConcurrentTransfers,
+                    minTransferIntervalMillis);
+        }
+    }
+
+}
@@ -17,6 +17,7 @@
 package io.microraft.executor;
 
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.annotation.Nonnull;
 
@@ -95,4 +96,55 @@ public interface RaftNodeExecutor {
      */
     void schedule(@Nonnull Runnable task, long delay, @Nonnull TimeUnit timeUnit);
 
+    /**
+     * Schedules the task on the underlying platform to be executed after the given
+     * delay, and returns a handle to cancel it.
+     * <p>
+     * Raft nodes use this method for the tasks which are likely to be cancelled
+     * before their delays elapse, such as the timeouts of the queries waiting for
+     * a commit index. The same execution guarantees as
+     * {@link #schedule(Runnable, long, TimeUnit)} apply.
+     * <p>
+     * The default implementation delegates to
+     * {@link #schedule(Runnable, long, TimeUnit)} and only skips running the task
+     * if it is cancelled, hence the cancelled task is kept until its delay
+     * elapses. Implementations are encouraged to override this method to release
+     * the cancelled tasks eagerly.
+     *
+     * @param task
+     *            the task to be executed in future
+     * @param delay
+     *            the time from now to delay execution
+     * @param timeUnit
+     *            the time unit of the delay
+     *
+     * @return the handle to cancel the scheduled task
+     */
+    @Nonnull
+    default Cancellable scheduleCancellable(@Nonnull Runnable task, long delay, @Nonnull TimeUnit timeUnit) {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        schedule(() -> {
+            if (!cancelled.get()) {
+                task.run();
+            }
+        }, delay, timeUnit);
+
+        return () -> cancelled.set(true);
+    }
+
+    /**
+     * Handle of a task scheduled via
+     * {@link RaftNodeExecutor#scheduleCancellable(Runnable, long, TimeUnit)}.
+     */
+    @FunctionalInterface
+    interface Cancellable {
+
+        /**
+         * Cancels the scheduled task if it has not been executed yet. Cancelling a
+         * task that has already been executed or cancelled has no effect.
+         */
+        void cancel();
+
+    }
+
 }
@@ -0,0 +1,319 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.microraft.executor.impl;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.microraft.RaftNode;
+import io.microraft.executor.RaftNodeExecutor;
+import io.microraft.lifecycle.RaftNodeLifecycleAware;
+
+/**
+ * A {@link RaftNodeExecutor} implementation optimized for high throughput.
+ * <p>
+ * Tasks submitted via {@link #execute(Runnable)} and
+ * {@link #submit(Runnable)} are put into a lock-free multi-producer
+ * single-consumer queue without any wrapper object and a single Raft thread
+ * drains the queue in batches. Delayed tasks are kept in a
+ * {@link HashedWheelTimer} owned by the Raft thread, hence scheduling and
+ * cancelling a task cost O(1) and do not contend on a shared priority queue.
+ * Delayed tasks scheduled by other threads are handed over to the Raft thread
+ * via another lock-free queue.
+ * <p>
+ * The Raft thread is started when the first task is submitted or scheduled,
+ * which is the start of the Raft node. It sleeps when there is no immediate
+ * task to run until the next timer wheel bucket or a new task arrives. Delayed
+ * tasks may run up to one tick duration later than their deadlines.
+ * <p>
+ * Once the Raft node terminates, the Raft thread runs the tasks already in the
+ * queue and exits. Tasks submitted afterwards are rejected with
+ * {@link RejectedExecutionException}, similar to {@link DefaultRaftNodeExecutor}.
+ *
+ * @see RaftNode
+ * @see RaftNodeExecutor
+ * @see DefaultRaftNodeExecutor
+ */
+public class BatchingRaftNodeExecutor implements RaftNodeExecutor, RaftNodeLifecycleAware {
+
+    /**
+     * The default maximum number of tasks the Raft thread runs before checking
+     * the timer wheel.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    /**
+     * The default tick duration of the timer wheel in milliseconds.
+     */
+    public static final long DEFAULT_TICK_DURATION_MILLIS = 1;
+
+    /**
+     * The default number of buckets of the timer wheel.
+     */
+    public static final int DEFAULT_WHEEL_SIZE = 512;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchingRaftNodeExecutor.class);
+    private static final AtomicInteger RAFT_THREAD_ID = new AtomicInteger(0);
+
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final Queue<ScheduledTask> scheduledTasks = new ConcurrentLinkedQueue<>();
+    private final int batchSize;
+    private final HashedWheelTimer timer;
+    private final Thread thread;
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final Consumer<Runnable> taskRunner = this::runSafely;
+    private volatile boolean parked;
+    private volatile boolean shutdown;
+
+    public BatchingRaftNodeExecutor() {
+        this(DEFAULT_BATCH_SIZE, DEFAULT_TICK_DURATION_MILLIS, TimeUnit.MILLISECONDS, DEFAULT_WHEEL_SIZE);
+    }
+
+    /**
+     * Creates a new executor with the given batch size and timer wheel
+     * parameters.
+     *
+     * @param batchSize
+     *            the maximum number of tasks the Raft thread runs before
+     *            checking the timer wheel
+     * @param tickDuration
+     *            the tick duration of the timer wheel
+     * @param tickDurationUnit
+     *            the time unit of the tick duration
+     * @param wheelSize
+     *            the number of buckets of the timer wheel. must be a power of 2
+     */
+    public BatchingRaftNodeExecutor(int batchSize, long tickDuration, @Nonnull TimeUnit tickDurationUnit,
+            int wheelSize) {
+        this(batchSize, tickDuration, tickDurationUnit, wheelSize,
+                r -> new Thread(r, "Raft-" + RAFT_THREAD_ID.getAndIncrement()));
+    }
+
+    /**
+     * Creates a new executor with the given batch size and timer wheel
+     * parameters, which runs its task loop on a thread created by the given
+     * thread factory. The thread factory is called only once, and the thread
+     * is started when the first task is submitted or scheduled.
+     *
+     * @param batchSize
+     *            the maximum number of tasks the Raft thread runs before
+     *            checking the timer wheel
+     * @param tickDuration
+     *            the tick duration of the timer wheel
+     * @param tickDurationUnit
+     *            the time unit of the tick duration
+     * @param wheelSize
+     *            the number of buckets of the timer wheel. must be a power of 2
+     * @param threadFactory
+     *            the thread factory to create the Raft thread
+     */
+    public BatchingRaftNodeExecutor(int batchSize, long tickDuration, @Nonnull TimeUnit tickDurationUnit,
+            int wheelSize, @Nonnull ThreadFactory threadFactory) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batch size: " + batchSize + " must be positive!");
+        }
+
+        this.batchSize = batchSize;
+        this.timer = new HashedWheelTimer(tickDuration, tickDurationUnit, wheelSize);
+        this.thread = requireNonNull(threadFactory.newThread(this::runLoop));
+    }
+
+    @Override
+    public void execute(@Nonnull Runnable task) {
+        submit(task);
+    }
+
+    @Override
+    public void submit(@Nonnull Runnable task) {
+        requireNonNull(task);
+        checkNotShutdown();
+        tasks.offer(task);
+        wakeUp();
+        ensureStarted();
+    }
+
+    @Override
+    public void schedule(@Nonnull Runnable task, long delay, @Nonnull TimeUnit timeUnit) {
+        requireNonNull(task);
+        checkNotShutdown();
+        long deadlineNanos = System.nanoTime() + timeUnit.toNanos(Math.max(0, delay));
+        if (Thread.currentThread() == thread) {
+            timer.schedule(task, deadlineNanos);
+        } else {
+            scheduledTasks.offer(new ScheduledTask(task, deadlineNanos));
+            wakeUp();
+            ensureStarted();
+        }
+    }
+
+    @Nonnull
+    @Override
+    public Cancellable scheduleCancellable(@Nonnull Runnable task, long delay, @Nonnull TimeUnit timeUnit) {
+        requireNonNull(task);
+        checkNotShutdown();
+        ScheduledTask scheduledTask = new ScheduledTask(task,
+                System.nanoTime() + timeUnit.toNanos(Math.max(0, delay)));
+        if (Thread.currentThread() == thread) {
+            scheduledTask.timeout = timer.schedule(scheduledTask, scheduledTask.deadlineNanos);
+        } else {
+            scheduledTasks.offer(scheduledTask);
+            wakeUp();
+            ensureStarted();
+        }
+
+        return scheduledTask;
+    }
+
+    @Override
+    public void onRaftNodeTerminate() {
+        shutdown = true;
+        LockSupport.unpark(thread);
+    }
+
+    private void checkNotShutdown() {
+        if (shutdown) {
+            throw new RejectedExecutionException("Raft node executor is shut down!");
+        }
+    }
+
+    private void ensureStarted() {
+        if (!started.get() && started.compareAndSet(false, true)) {
+            thread.start();
+        }
+    }
+
+    private void wakeUp() {
+        if (parked) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private void runLoop() {
+        while (!shutdown) {
+            transferScheduledTasks();
+            timer.expireTimeouts(System.nanoTime(), taskRunner);
+
+            if (runTasks() > 0) {
+                continue;
+            }
+
+            parked = true;
+            // re-check after publishing the flag so that a concurrent
+            // submission either sees the flag or its task is seen here
+            if (tasks.isEmpty() && scheduledTasks.isEmpty() && !shutdown) {
+                long parkNanos = timer.nanosToNextBucket(System.nanoTime());
+                if (parkNanos < 0) {
+                    LockSupport.park(this);
+                } else if (parkNanos > 0) {
+                    LockSupport.parkNanos(this, parkNanos);
+                }
+            }
+            parked = false;
+        }
+
+        // run the tasks submitted before the shutdown
+        while (runTasks() > 0) {
+            // keep draining
+        }
+
+        timer.clear();
+        scheduledTasks.clear();
+    }
+
+    private int runTasks() {
+        int count = 0;
+        Runnable task;
+        while (count < batchSize && (task = tasks.poll()) != null) {
+            runSafely(task);
+            count++;
+        }
+
+        return count;
+    }
+
+    private void transferScheduledTasks() {
+        ScheduledTask scheduledTask;
+        while ((scheduledTask = scheduledTasks.poll()) != null) {
+            if (!scheduledTask.cancelled) {
+                scheduledTask.timeout = timer.schedule(scheduledTask, scheduledTask.deadlineNanos);
+            }
+        }
+    }
+
+    private void runSafely(Runnable task) {
+        try {
+            task.run();
+        } catch (Throwable t) {
+            LOGGER.error("Task " + task + " failed on " + thread.getName(), t);
+        }
+    }
+
+    /**
+     * A delayed task handed over to the Raft thread. Its timeout is accessed
+     * only by the Raft thread. It can be cancelled by any thread and the Raft
+     * thread drops it once it is cancelled.
+     */
+    private final class ScheduledTask implements Cancellable, Runnable {
+        final Runnable task;
+        final long deadlineNanos;
+        HashedWheelTimer.Timeout timeout;
+        volatile boolean cancelled;
+
+        ScheduledTask(Runnable task, long deadlineNanos) {
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        @Override
+        public void run() {
+            if (!cancelled) {
+                task.run();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            // other threads cannot touch the timer wheel, hence the timeout
+            // is either dropped when it expires, or never scheduled if the
+            // task is still waiting in the hand-over queue.
+            if (Thread.currentThread() == thread && timeout != null) {
+                timeout.cancel();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return task.toString();
+        }
+    }
+
+}
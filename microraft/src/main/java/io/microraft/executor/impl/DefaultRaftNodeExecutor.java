@@ -16,9 +16,9 @@
 
 package io.microraft.executor.impl;
 
-import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
-
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -32,7 +32,8 @@ import io.microraft.lifecycle.RaftNodeLifecycleAware;
  * The default implementation of {@link RaftNodeExecutor}.
  * <p>
  * Internally uses a single-threaded {@link ScheduledExecutorService} to execute
- * tasks submitted and scheduled by {@link RaftNode}.
+ * tasks submitted and scheduled by {@link RaftNode}. Cancelled tasks are removed
+ * from the work queue of the {@link ScheduledExecutorService} immediately.
  *
  * @see RaftNode
  * @see RaftNodeExecutor
@@ -42,9 +43,13 @@ public class DefaultRaftNodeExecutor implements RaftNodeExecutor, RaftNodeLifecy
     private static final AtomicInteger RAFT_THREAD_ID = new AtomicInteger(0);
 
     private final ThreadGroup threadGroup = new ThreadGroup("RaftThread");
-    private final ScheduledExecutorService executor = newSingleThreadScheduledExecutor(
+    private final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1,
             r -> new Thread(threadGroup, r, "Raft-" + RAFT_THREAD_ID.getAndIncrement()));
 
+    public DefaultRaftNodeExecutor() {
+        executor.setRemoveOnCancelPolicy(true);
+    }
+
     @Override
     public void execute(@Nonnull Runnable task) {
         submit(task);
@@ -60,6 +65,13 @@ public class DefaultRaftNodeExecutor implements RaftNodeExecutor, RaftNodeLifecy
         executor.schedule(task, delay, timeUnit);
     }
 
+    @Nonnull
+    @Override
+    public Cancellable scheduleCancellable(@Nonnull Runnable task, long delay, @Nonnull TimeUnit timeUnit) {
+        ScheduledFuture<?> future = executor.schedule(task, delay, timeUnit);
+        return () -> future.cancel(false);
+    }
+
     @Override
     public void onRaftNodeTerminate() {
         executor.shutdown();
@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.microraft.executor.impl;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnull;
+
+import io.microraft.executor.RaftNodeExecutor;
+
+/**
+ * A hashed timer wheel which can be used by {@link RaftNodeExecutor}
+ * implementations to keep the delayed tasks of Raft nodes, such as heartbeats,
+ * leader election timeouts and query timeouts.
+ * <p>
+ * The wheel consists of a power-of-two number of buckets, each of which covers
+ * a single tick. Each bucket keeps its timeouts in a doubly-linked list, hence
+ * both scheduling and cancelling a timeout cost O(1). A timeout whose deadline
+ * is more than one wheel revolution away stays in its bucket until the wheel
+ * reaches its deadline tick. Timeouts never expire before their deadlines, but
+ * may expire up to one tick later.
+ * <p>
+ * The wheel does not have a thread of its own. The owner thread advances it by
+ * calling {@link #expireTimeouts(long, Consumer)}. This class is not
+ * thread-safe and all of its methods, including {@link Timeout#cancel()}, must
+ * be called by the owner thread.
+ *
+ * @see BatchingRaftNodeExecutor
+ */
+public final class HashedWheelTimer {
+
+    private final long startNanos;
+    private final long tickNanos;
+    private final int mask;
+    private final Timeout[] buckets;
+
+    /**
+     * The next tick to be processed.
+     */
+    private long currentTick;
+    private int size;
+
+    /**
+     * Creates a new timer wheel.
+     *
+     * @param tickDuration
+     *            the duration of a single tick of the wheel
+     * @param tickDurationUnit
+     *            the time unit of the tick duration
+     * @param wheelSize
+     *            the number of buckets of the wheel. must be a power of 2
+     */
+    public HashedWheelTimer(long tickDuration, @Nonnull TimeUnit tickDurationUnit, int wheelSize) {
+        this(System.nanoTime(), tickDurationUnit.toNanos(tickDuration), wheelSize);
+    }
+
+    HashedWheelTimer(long startNanos, long tickNanos, int wheelSize) {
+        if (tickNanos < 1) {
+            throw new IllegalArgumentException("tick duration: " + tickNanos + " must be positive!");
+        } else if (wheelSize < 1 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("wheel size: " + wheelSize + " must be a power of 2!");
+        }
+
+        this.startNanos = startNanos;
+        this.tickNanos = tickNanos;
+        this.mask = wheelSize - 1;
+        this.buckets = new Timeout[wheelSize];
+    }
+
+    /**
+     * Adds the given task to the wheel to expire at the given deadline.
+     *
+     * @param task
+     *            the task to expire at the deadline
+     * @param deadlineNanos
+     *            the deadline in terms of {@link System#nanoTime()}
+     *
+     * @return the timeout object which can be used to cancel the task
+     */
+    @Nonnull
+    public Timeout schedule(@Nonnull Runnable task, long deadlineNanos) {
+        // round up so that a task does not expire before its deadline
+        long deadlineTick = Math.max(Math.floorDiv(deadlineNanos - startNanos + tickNanos - 1, tickNanos),
+                currentTick);
+        Timeout timeout = new Timeout(this, requireNonNull(task), deadlineTick);
+        int index = (int) (deadlineTick & mask);
+        Timeout head = buckets[index];
+        if (head != null) {
+            head.prev = timeout;
+            timeout.next = head;
+        }
+
+        buckets[index] = timeout;
+        size++;
+
+        return timeout;
+    }
+
+    /**
+     * Passes the tasks with elapsed deadlines to the given consumer, in the
+     * order of their deadline ticks.
+     *
+     * @param nowNanos
+     *            the current time in terms of {@link System#nanoTime()}
+     * @param consumer
+     *            the consumer to run the expired tasks
+     *
+     * @return the number of expired tasks
+     */
+    public int expireTimeouts(long nowNanos, @Nonnull Consumer<Runnable> consumer) {
+        long targetTick = Math.floorDiv(nowNanos - startNanos, tickNanos);
+        int expired = 0;
+        while (size > 0 && currentTick <= targetTick) {
+            long tick = currentTick++;
+            Timeout timeout = buckets[(int) (tick & mask)];
+            while (timeout != null) {
+                // the consumer can cancel the next timeout. an unlinked timeout
+                // keeps its next pointer, so we can continue iterating.
+                // the consumer can also schedule new timeouts, but they go to
+                // a later tick since the current tick is already advanced.
+                Timeout next = timeout.next;
+                if (timeout.state == Timeout.PENDING && timeout.deadlineTick <= tick) {
+                    unlink(timeout);
+                    timeout.state = Timeout.EXPIRED;
+                    expired++;
+                    consumer.accept(timeout.task);
+                }
+
+                timeout = next;
+            }
+        }
+
+        if (size == 0 && currentTick <= targetTick) {
+            currentTick = targetTick + 1;
+        }
+
+        return expired;
+    }
+
+    /**
+     * Returns the time until the next non-empty bucket of the wheel, which is a
+     * lower bound for the next expiration, or -1 if the wheel is empty.
+     *
+     * @param nowNanos
+     *            the current time in terms of {@link System#nanoTime()}
+     *
+     * @return the nanoseconds until the next non-empty bucket or -1 if the wheel
+     *         is empty
+     */
+    public long nanosToNextBucket(long nowNanos) {
+        if (size == 0) {
+            return -1;
+        }
+
+        long tick = currentTick;
+        for (int i = 0; i <= mask; i++, tick++) {
+            if (buckets[(int) (tick & mask)] != null) {
+                break;
+            }
+        }
+
+        return Math.max(0, startNanos + tick * tickNanos - nowNanos);
+    }
+
+    /**
+     * Returns the number of pending timeouts in the wheel.
+     *
+     * @return the number of pending timeouts in the wheel
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Cancels all pending timeouts in the wheel.
+     */
+    public void clear() {
+        for (int i = 0; i < buckets.length; i++) {
+            Timeout timeout = buckets[i];
+            while (timeout != null) {
+                timeout.state = Timeout.CANCELLED;
+                timeout = timeout.next;
+            }
+
+            buckets[i] = null;
+        }
+
+        size = 0;
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.prev == null) {
+            buckets[(int) (timeout.deadlineTick & mask)] = timeout.next;
+        } else {
+            timeout.prev.next = timeout.next;
+        }
+
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+
+        size--;
+    }
+
+    /**
+     * Represents a task scheduled in a {@link HashedWheelTimer}.
+     */
+    public static final class Timeout {
+
+        static final int PENDING = 0;
+        static final int EXPIRED = 1;
+        static final int CANCELLED = 2;
+
+        private final HashedWheelTimer timer;
+        private final Runnable task;
+        private final long deadlineTick;
+        private Timeout prev;
+        private Timeout next;
+        private int state = PENDING;
+
+        private Timeout(HashedWheelTimer timer, Runnable task, long deadlineTick) {
+            this.timer = timer;
+            this.task = task;
+            this.deadlineTick = deadlineTick;
+        }
+
+        /**
+         * Removes the task from the wheel if it has not expired yet.
+         *
+         * @return true if the task is removed from the wheel, false if it has
+         *         already expired or been cancelled
+         */
+        public boolean cancel() {
+            if (state != PENDING) {
+                return false;
+            }
+
+            timer.unlink(this);
+            state = CANCELLED;
+            return true;
+        }
+
+        /**
+         * Returns true if the task has been cancelled.
+         *
+         * @return true if the task has been cancelled
+         */
+        public boolean isCancelled() {
+            return state == CANCELLED;
+        }
+
+        /**
+         * Returns true if the task has expired.
+         *
+         * @return true if the task has expired
+         */
+        public boolean isExpired() {
+            return state == EXPIRED;
+        }
+
+    }
+
+}
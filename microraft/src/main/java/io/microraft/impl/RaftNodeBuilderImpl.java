@@ -17,7 +17,6 @@
 package io.microraft.impl;
 
 import static io.microraft.RaftConfig.DEFAULT_RAFT_CONFIG;
-import static io.microraft.report.RaftGroupMembers.MAX_LEARNER_COUNT;
 import static java.util.Objects.requireNonNull;
 
 import java.time.Clock;
@@ -193,10 +192,10 @@ public class RaftNodeBuilderImpl implements RaftNodeBuilder {
 
         if (!((localEndpoint != null && initialGroupMembers != null && !initialGroupMembers.isEmpty()
                 && !initialVotingGroupMembers.isEmpty()
-                && initialGroupMembers.size() - initialVotingGroupMembers.size() <= MAX_LEARNER_COUNT)
+                && initialGroupMembers.size() - initialVotingGroupMembers.size() <= config.getMaxLearnerCount())
                 || restoredState != null)) {
             String message = "Either local Raft endpoint and initial Raft group members, or restored state must be provided! In addition, "
-                    + "there can be at most " + MAX_LEARNER_COUNT + " " + RaftRole.LEARNER + "s";
+                    + "there can be at most " + config.getMaxLearnerCount() + " " + RaftRole.LEARNER + "s";
             throw new IllegalStateException(message);
         }
 
@@ -30,11 +30,11 @@ import static io.microraft.impl.log.RaftLog.getLogCapacity;
 import static io.microraft.impl.log.RaftLog.getMaxLogEntryCountToKeepAfterSnapshot;
 import static io.microraft.model.log.SnapshotEntry.isNonInitial;
 import static java.lang.Math.min;
-import static java.util.Arrays.sort;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.emptyMap;
 import static java.util.Collections.shuffle;
 import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.NANOSECONDS;;
 import static java.util.concurrent.TimeUnit.SECONDS;
@@ -75,21 +75,22 @@ import io.microraft.exception.LaggingCommitIndexException;
 import io.microraft.exception.NotLeaderException;
 import io.microraft.exception.RaftException;
 import io.microraft.executor.RaftNodeExecutor;
-import io.microraft.impl.handler.AppendEntriesFailureResponseHandler;
-import io.microraft.impl.handler.AppendEntriesRequestHandler;
-import io.microraft.impl.handler.AppendEntriesSuccessResponseHandler;
-import io.microraft.impl.handler.InstallSnapshotRequestHandler;
-import io.microraft.impl.handler.InstallSnapshotResponseHandler;
-import io.microraft.impl.handler.PreVoteRequestHandler;
-import io.microraft.impl.handler.PreVoteResponseHandler;
-import io.microraft.impl.handler.TriggerLeaderElectionHandler;
-import io.microraft.impl.handler.VoteRequestHandler;
-import io.microraft.impl.handler.VoteResponseHandler;
+import io.microraft.impl.handler.RaftMessageDispatcher;
+import io.microraft.impl.jfr.AppendEntriesSendEvent;
+import io.microraft.impl.jfr.ApplyEvent;
+import io.microraft.impl.jfr.CommitIndexAdvanceEvent;
+import io.microraft.impl.jfr.LeaderElectionEvent;
+import io.microraft.impl.jfr.LogAppendEvent;
+import io.microraft.impl.jfr.QueryRoundEvent;
+import io.microraft.impl.jfr.SnapshotInstallEvent;
+import io.microraft.impl.jfr.SnapshotTakeEvent;
 import io.microraft.impl.log.RaftLog;
 import io.microraft.impl.report.RaftLogStatsImpl;
 import io.microraft.impl.report.RaftNodeReportImpl;
+import io.microraft.impl.report.RaftNodeStatsImpl;
 import io.microraft.impl.state.FollowerState;
 import io.microraft.impl.state.LeaderState;
+import io.microraft.impl.state.LeadershipTransferState;
 import io.microraft.impl.state.QueryState;
 import io.microraft.impl.state.RaftGroupMembersState;
 import io.microraft.impl.state.RaftState;
@@ -100,6 +101,7 @@ import io.microraft.impl.statemachine.NoOp;
 import io.microraft.impl.task.HeartbeatTask;
 import io.microraft.impl.task.LeaderBackoffResetTask;
 import io.microraft.impl.task.LeaderElectionTimeoutTask;
+import io.microraft.impl.task.LearnerPromotionTask;
 import io.microraft.impl.task.FlushTask;
 import io.microraft.impl.task.MembershipChangeTask;
 import io.microraft.impl.task.PreVoteTask;
@@ -107,6 +109,7 @@ import io.microraft.impl.task.PreVoteTimeoutTask;
 import io.microraft.impl.task.QueryTask;
 import io.microraft.impl.task.RaftStateSummaryPublishTask;
 import io.microraft.impl.task.ReplicateTask;
+import io.microraft.impl.task.ReplicationTickTask;
 import io.microraft.impl.task.TransferLeadershipTask;
 import io.microraft.impl.util.OrderedFuture;
 import io.microraft.lifecycle.RaftNodeLifecycleAware;
@@ -118,18 +121,11 @@ import io.microraft.model.log.LogEntry;
 import io.microraft.model.log.RaftGroupMembersView;
 import io.microraft.model.log.SnapshotChunk;
 import io.microraft.model.log.SnapshotEntry;
-import io.microraft.model.message.AppendEntriesFailureResponse;
-import io.microraft.model.message.AppendEntriesRequest;
+import io.microraft.model.log.WitnessPlaceholder;
 import io.microraft.model.message.AppendEntriesRequest.AppendEntriesRequestBuilder;
 import io.microraft.model.message.AppendEntriesSuccessResponse;
 import io.microraft.model.message.InstallSnapshotRequest;
-import io.microraft.model.message.InstallSnapshotResponse;
-import io.microraft.model.message.PreVoteRequest;
-import io.microraft.model.message.PreVoteResponse;
 import io.microraft.model.message.RaftMessage;
-import io.microraft.model.message.TriggerLeaderElectionRequest;
-import io.microraft.model.message.VoteRequest;
-import io.microraft.model.message.VoteResponse;
 import io.microraft.persistence.NopRaftStore;
 import io.microraft.persistence.RaftStore;
 import io.microraft.persistence.RestoredRaftState;
@@ -166,6 +162,7 @@ public final class RaftNodeImpl implements RaftNode {
     private final RaftStore store;
     private final RaftNodeReportListener raftNodeReportListener;
     private final String localEndpointStr;
+    private final RaftMessageDispatcher dispatcher;
 
     private final Random random;
     private final Clock clock;
@@ -178,16 +175,21 @@ public final class RaftNodeImpl implements RaftNode {
     private final int maxBackoffRounds;
 
     private Runnable leaderBackoffResetTask;
-    private Runnable leaderFlushTask;
+    private Runnable flushTask;
+    private Runnable replicationTickTask;
+    private boolean followerFlushTaskSubmitted;
+    private RaftEndpoint deferredAppendEntriesResponseTarget;
+    private AppendEntriesSuccessResponse deferredAppendEntriesResponse;
 
     private final List<RaftNodeLifecycleAware> lifecycleAwareComponents = new ArrayList<>();
     private final List<RaftNodeLifecycleAware> startedLifecycleAwareComponents = new ArrayList<>();
 
     private long lastLeaderHeartbeatTimestamp;
+    private boolean leaderQuiescent;
+    private long priorityLeadershipTransferDeferredUntil;
     private volatile RaftNodeStatus status = INITIAL;
 
-    private int takeSnapshotCount;
-    private int installSnapshotCount;
+    private final RaftNodeStatsImpl stats = new RaftNodeStatsImpl(this);
 
     @SuppressWarnings("checkstyle:executablestatementcount")
     RaftNodeImpl(Object groupId, RaftEndpoint localEndpoint, RaftGroupMembersView initialGroupMembers,
@@ -214,6 +216,7 @@ public final class RaftNodeImpl implements RaftNode {
         this.maxBackoffRounds = getMaxBackoffRounds(config);
         this.random = requireNonNull(random);
         this.clock = requireNonNull(clock);
+        this.dispatcher = new RaftMessageDispatcher(this, executor);
         populateLifecycleAwareComponents();
     }
 
@@ -242,6 +245,7 @@ public final class RaftNodeImpl implements RaftNode {
         this.maxBackoffRounds = getMaxBackoffRounds(config);
         this.random = requireNonNull(random);
         this.clock = requireNonNull(clock);
+        this.dispatcher = new RaftMessageDispatcher(this, executor);
         populateLifecycleAwareComponents();
     }
 
@@ -383,10 +387,14 @@ public final class RaftNodeImpl implements RaftNode {
         if (snapshotEntry.getIndex() == snapshotIndex) {
             List<SnapshotChunk> snapshotChunks = (List<SnapshotChunk>) snapshotEntry.getOperation();
             snapshotChunk = snapshotChunks.get(requestedSnapshotChunkIndex);
+            if (state.isWitnessMember(follower)) {
+                snapshotChunk = toWitnessSnapshotChunk(snapshotChunk);
+            }
+
             if (leaderState != null && snapshotEntry.getTerm() < state.term()) {
                 // I am the new leader but there is no new snapshot yet.
                 // So I'll send my own snapshotted members list.
-                snapshottedMembers = getSnapshottedMembers(leaderState, snapshotEntry);
+                snapshottedMembers = getSnapshottedMembers(leaderState, snapshotEntry, follower);
             } else {
                 snapshottedMembers = Collections.emptyList();
             }
@@ -399,7 +407,7 @@ public final class RaftNodeImpl implements RaftNode {
             }
 
             // there is a new snapshot. I'll send a new snapshotted members list.
-            snapshottedMembers = getSnapshottedMembers(leaderState, snapshotEntry);
+            snapshottedMembers = getSnapshottedMembers(leaderState, snapshotEntry, follower);
 
             LOGGER.info(
                     "{} sending empty snapshot chunk list to {} because requested snapshot index: "
@@ -482,6 +490,12 @@ public final class RaftNodeImpl implements RaftNode {
             LOGGER.warn("{} Status is set to {}", localEndpointStr, newStatus);
         }
 
+        if (isTerminal(newStatus)) {
+            // the transfer futures would not be completed otherwise since this
+            // Raft node will not learn the new leader anymore
+            state.failLeadershipTransfersOnTermination();
+        }
+
         publishRaftNodeReport(RaftNodeReportReason.STATUS_CHANGE);
     }
 
@@ -527,6 +541,7 @@ public final class RaftNodeImpl implements RaftNode {
                 initTasks();
                 startComponents();
                 initRestoredState();
+                stats.updateLog(state.log());
                 state.persistInitialState(modelFactory.createRaftGroupMembersViewBuilder());
 
                 // the status could be UPDATING_GROUP_MEMBER_LIST after
@@ -576,7 +591,10 @@ public final class RaftNodeImpl implements RaftNode {
 
     private void initTasks() {
         if (!(store instanceof NopRaftStore)) {
-            leaderFlushTask = new FlushTask(this);
+            flushTask = new FlushTask(this);
+        }
+        if (config.isReplicationTickEnabled()) {
+            replicationTickTask = new ReplicationTickTask(this);
         }
         leaderBackoffResetTask = new LeaderBackoffResetTask(this);
         executor.schedule(new HeartbeatTask(this), config.getLeaderHeartbeatPeriodSecs(), SECONDS);
@@ -646,7 +664,6 @@ public final class RaftNodeImpl implements RaftNode {
     }
 
     @Override
-    @SuppressWarnings("checkstyle:cyclomaticcomplexity")
     public void handle(@Nonnull RaftMessage message) {
         if (isTerminal(status)) {
             if (LOGGER.isDebugEnabled()) {
@@ -659,38 +676,7 @@ public final class RaftNodeImpl implements RaftNode {
             return;
         }
 
-        Runnable handler;
-        if (message instanceof AppendEntriesRequest) {
-            handler = new AppendEntriesRequestHandler(this, (AppendEntriesRequest) message);
-        } else if (message instanceof AppendEntriesSuccessResponse) {
-            handler = new AppendEntriesSuccessResponseHandler(this, (AppendEntriesSuccessResponse) message);
-        } else if (message instanceof AppendEntriesFailureResponse) {
-            handler = new AppendEntriesFailureResponseHandler(this, (AppendEntriesFailureResponse) message);
-        } else if (message instanceof InstallSnapshotRequest) {
-            handler = new InstallSnapshotRequestHandler(this, (InstallSnapshotRequest) message);
-        } else if (message instanceof InstallSnapshotResponse) {
-            handler = new InstallSnapshotResponseHandler(this, (InstallSnapshotResponse) message);
-        } else if (message instanceof VoteRequest) {
-            handler = new VoteRequestHandler(this, (VoteRequest) message);
-        } else if (message instanceof VoteResponse) {
-            handler = new VoteResponseHandler(this, (VoteResponse) message);
-        } else if (message instanceof PreVoteRequest) {
-            handler = new PreVoteRequestHandler(this, (PreVoteRequest) message);
-        } else if (message instanceof PreVoteResponse) {
-            handler = new PreVoteResponseHandler(this, (PreVoteResponse) message);
-        } else if (message instanceof TriggerLeaderElectionRequest) {
-            handler = new TriggerLeaderElectionHandler(this, (TriggerLeaderElectionRequest) message);
-        } else {
-            throw new IllegalArgumentException("Invalid Raft msg: " + message);
-        }
-
-        try {
-            executor.execute(handler);
-        } catch (Throwable t) {
-            if (LOGGER.isDebugEnabled()) {
-                LOGGER.error(localEndpointStr + " could not handle " + message, t);
-            }
-        }
+        dispatcher.dispatch(message);
     }
 
     @Nonnull
@@ -727,15 +713,47 @@ public final class RaftNodeImpl implements RaftNode {
         return executeIfRunning(task, future);
     }
 
+    @Nonnull
+    @Override
+    public CompletableFuture<Ordered<RaftGroupMembers>> changeMembership(@Nonnull Collection<RaftEndpoint> members,
+            @Nonnull Collection<RaftEndpoint> votingMembers, long expectedGroupMembersCommitIndex) {
+        OrderedFuture<RaftGroupMembers> future = new OrderedFuture<>();
+        Runnable task = new MembershipChangeTask(this, future, requireNonNull(members), requireNonNull(votingMembers),
+                expectedGroupMembersCommitIndex);
+        return executeIfRunning(task, future);
+    }
+
+    @Nonnull
+    @Override
+    public CompletableFuture<Ordered<RaftGroupMembers>> addOrPromoteToFollowerWhenCaughtUp(
+            @Nonnull RaftEndpoint endpoint, long expectedGroupMembersCommitIndex, @Nonnull Duration timeout) {
+        OrderedFuture<RaftGroupMembers> future = new OrderedFuture<>();
+        Runnable task = new LearnerPromotionTask(this, future, requireNonNull(endpoint),
+                expectedGroupMembersCommitIndex, requireNonNull(timeout).toMillis());
+        return executeIfRunning(task, future);
+    }
+
     @Nonnull
     @Override
     public CompletableFuture<Ordered<Object>> transferLeadership(@Nonnull RaftEndpoint endpoint) {
         requireNonNull(endpoint);
         OrderedFuture<Object> future = new OrderedFuture<>();
-        Runnable task = new TransferLeadershipTask(this, endpoint, future);
+        TransferLeadershipTask transferTask = new TransferLeadershipTask(this, endpoint, future);
+        Runnable task = () -> {
+            // the target should keep the leadership even if its election
+            // priority is lower than the priority of another member.
+            deferPriorityLeadershipTransfer();
+            transferTask.run();
+        };
         return executeIfRunning(task, future);
     }
 
+    @Nonnull
+    @Override
+    public RaftNodeStatsImpl getStats() {
+        return stats;
+    }
+
     @Nonnull
     @Override
     public CompletableFuture<Ordered<RaftNodeReport>> getReport() {
@@ -803,15 +821,21 @@ public final class RaftNodeImpl implements RaftNode {
     private RaftLogStatsImpl newLogReport() {
         LeaderState leaderState = state.leaderState();
         Map<RaftEndpoint, Long> followerMatchIndices;
+        Map<RaftEndpoint, Long> followerInstallingSnapshotIndices;
         if (leaderState != null) {
             followerMatchIndices = leaderState.getFollowerStates().entrySet().stream()
                     .collect(toMap(Entry::getKey, e -> e.getValue().matchIndex()));
+            followerInstallingSnapshotIndices = leaderState.getFollowerStates().entrySet().stream()
+                    .filter(e -> e.getValue().installingSnapshotIndex() > 0)
+                    .collect(toMap(Entry::getKey, e -> e.getValue().installingSnapshotIndex()));
         } else {
             followerMatchIndices = emptyMap();
+            followerInstallingSnapshotIndices = emptyMap();
         }
 
         return new RaftLogStatsImpl(state.commitIndex(), state.log().lastLogOrSnapshotEntry(),
-                state.log().snapshotEntry(), takeSnapshotCount, installSnapshotCount, followerMatchIndices);
+                state.log().snapshotEntry(), stats.getTakeSnapshotCount(), stats.getInstallSnapshotCount(),
+                followerMatchIndices, followerInstallingSnapshotIndices);
     }
 
     private <T> OrderedFuture<T> executeIfRunning(Runnable task, OrderedFuture<T> future) {
@@ -887,6 +911,9 @@ public final class RaftNodeImpl implements RaftNode {
 
         // Apply all committed but not-yet-applied log entries
         RaftLog log = state.log();
+        long fromIndex = state.lastApplied() + 1;
+        ApplyEvent event = new ApplyEvent();
+        event.begin();
 
         while (state.lastApplied() < state.commitIndex()) {
             for (long logIndex = state.lastApplied() + 1,
@@ -906,9 +933,16 @@ public final class RaftNodeImpl implements RaftNode {
             if (state.lastApplied() % commitCountToTakeSnapshot == 0 && !isTerminal(status)) {
                 // If the status is terminal, then there will be no new append or commit.
                 takeSnapshot(log, state.lastApplied());
+                stats.updateLog(log);
             }
         }
 
+        stats.updateLog(log);
+        stats.updateCommitIndex(state.commitIndex(), state.lastApplied());
+        if (state.lastApplied() >= fromIndex) {
+            event.commit(localEndpointStr, fromIndex, state.lastApplied());
+        }
+
         assert (status != TERMINATED || state.commitIndex() == log.lastLogOrSnapshotIndex())
                 : localEndpointStr + " commit index: " + state.commitIndex() + " must be equal to "
                         + log.lastLogOrSnapshotIndex() + " on termination.";
@@ -930,7 +964,8 @@ public final class RaftNodeImpl implements RaftNode {
                 UpdateRaftGroupMembersOp groupOp = (UpdateRaftGroupMembersOp) operation;
                 if (state.effectiveGroupMembers().getLogIndex() < logIndex) {
                     setStatus(UPDATING_RAFT_GROUP_MEMBER_LIST);
-                    updateGroupMembers(logIndex, groupOp.getMembers(), groupOp.getVotingMembers());
+                    updateGroupMembers(logIndex, groupOp.getMembers(), groupOp.getVotingMembers(),
+                            groupOp.getWitnessMembers());
                 }
 
                 assert status == UPDATING_RAFT_GROUP_MEMBER_LIST : localEndpointStr + " STATUS: " + status;
@@ -938,10 +973,10 @@ public final class RaftNodeImpl implements RaftNode {
                         : localEndpointStr + " effective group members log index: "
                                 + state.effectiveGroupMembers().getLogIndex() + " applied log index: " + logIndex;
 
+                boolean wasMember = state.committedGroupMembers().isKnownMember(getLocalEndpoint());
                 state.commitGroupMembers();
 
-                if (groupOp.getEndpoint().equals(getLocalEndpoint())
-                        && groupOp.getMode() == MembershipChangeMode.REMOVE_MEMBER) {
+                if (wasMember && !state.committedGroupMembers().isKnownMember(getLocalEndpoint())) {
                     setStatus(TERMINATED);
                 } else {
                     setStatus(ACTIVE);
@@ -955,6 +990,10 @@ public final class RaftNodeImpl implements RaftNode {
             } else {
                 response = new IllegalArgumentException("Invalid Raft group operation: " + operation);
             }
+        } else if (operation instanceof WitnessPlaceholder) {
+            // the leader strips operations of the log entries it sends to
+            // witnesses, so there is nothing to run on the state machine.
+            response = null;
         } else {
             try {
                 response = stateMachine.runOperation(logIndex, operation);
@@ -967,6 +1006,8 @@ public final class RaftNodeImpl implements RaftNode {
         }
 
         state.lastApplied(logIndex);
+        // publish the applied index before the caller observes the response
+        stats.updateCommitIndex(state.commitIndex(), logIndex);
         state.completeFuture(logIndex, response);
     }
 
@@ -974,7 +1015,19 @@ public final class RaftNodeImpl implements RaftNode {
      * Updates the last leader heartbeat timestamp to now
      */
     public void leaderHeartbeatReceived() {
+        leaderHeartbeatReceived(false);
+    }
+
+    /**
+     * Updates the last leader heartbeat timestamp to now and records whether
+     * the leader has stopped sending heartbeats after this one.
+     *
+     * @param quiescent
+     *            true if the leader has signalled that it is quiescent
+     */
+    public void leaderHeartbeatReceived(boolean quiescent) {
         lastLeaderHeartbeatTimestamp = Math.max(lastLeaderHeartbeatTimestamp, clock.millis());
+        leaderQuiescent = quiescent;
     }
 
     /**
@@ -994,15 +1047,24 @@ public final class RaftNodeImpl implements RaftNode {
         }
 
         LOGGER.debug("{} is taking snapshot at index: {}", localEndpointStr, snapshotIndex);
+        SnapshotTakeEvent event = new SnapshotTakeEvent();
+        event.begin();
         List<Object> chunkObjects = new ArrayList<>();
-        try {
-            stateMachine.takeSnapshot(snapshotIndex, chunkObjects::add);
-        } catch (Throwable t) {
-            throw new RaftException(localEndpointStr + " Could not take snapshot at applied index: " + snapshotIndex,
-                    state.leader(), t);
+        if (state.isLocalWitness()) {
+            // witnesses do not run the state machine, so their snapshots
+            // only track the snapshot term and index.
+            chunkObjects.add(WitnessPlaceholder.INSTANCE);
+        } else {
+            try {
+                stateMachine.takeSnapshot(snapshotIndex, chunkObjects::add);
+            } catch (Throwable t) {
+                throw new RaftException(
+                        localEndpointStr + " Could not take snapshot at applied index: " + snapshotIndex,
+                        state.leader(), t);
+            }
         }
 
-        ++takeSnapshotCount;
+        stats.snapshotTaken();
 
         int snapshotTerm = log.getLogEntry(snapshotIndex).getTerm();
         RaftGroupMembersView groupMembersView = state.committedGroupMembers()
@@ -1052,6 +1114,7 @@ public final class RaftNodeImpl implements RaftNode {
                     snapshotEntry.getTerm(), snapshotEntry.getIndex(), truncatedEntryCount);
         }
 
+        event.commit(localEndpointStr, snapshotIndex, snapshotChunks.size());
         publishRaftNodeReport(RaftNodeReportReason.TAKE_SNAPSHOT);
 
         // this will flush the truncation of the stale log entries
@@ -1105,6 +1168,8 @@ public final class RaftNodeImpl implements RaftNode {
                     + " because the current commit index is: " + commitIndex);
         }
 
+        SnapshotInstallEvent event = new SnapshotInstallEvent();
+        event.begin();
         RaftLog log = state.log();
         int truncated = log.setSnapshot(snapshotEntry);
 
@@ -1120,9 +1185,17 @@ public final class RaftNodeImpl implements RaftNode {
 
         List<Object> chunkOperations = ((List<SnapshotChunk>) snapshotEntry.getOperation()).stream()
                 .map(SnapshotChunk::getOperation).collect(toList());
-        stateMachine.installSnapshot(snapshotEntry.getIndex(), chunkOperations);
+        if (chunkOperations.stream().anyMatch(operation -> operation instanceof WitnessPlaceholder)) {
+            // the snapshot is either taken by this node as a witness or
+            // stripped by the leader because this node is a witness.
+            LOGGER.debug("{} skipping state machine installation of witness snapshot at index: {}",
+                    localEndpointStr, snapshotEntry.getIndex());
+        } else {
+            stateMachine.installSnapshot(snapshotEntry.getIndex(), chunkOperations);
+        }
 
-        ++installSnapshotCount;
+        stats.snapshotInstalled();
+        event.commit(localEndpointStr, snapshotEntry.getIndex(), chunkOperations.size());
         publishRaftNodeReport(RaftNodeReportReason.INSTALL_SNAPSHOT);
 
         // If I am installing a snapshot, it means I am still present
@@ -1137,6 +1210,8 @@ public final class RaftNodeImpl implements RaftNode {
         }
 
         state.lastApplied(snapshotEntry.getIndex());
+        stats.updateLog(log);
+        stats.updateCommitIndex(state.commitIndex(), state.lastApplied());
         LOGGER.info("{} snapshot is installed at commit index: {}", localEndpointStr, snapshotEntry.getIndex());
 
         state.invalidateFuturesUntil(snapshotEntry.getIndex(), new IndeterminateStateException(state.leader()));
@@ -1158,12 +1233,16 @@ public final class RaftNodeImpl implements RaftNode {
      * @param votingMembers
      *            the list of voting Raft endpoints in the Raft group (must be a
      *            subset of the "members" parameter)
+     * @param witnessMembers
+     *            the list of witness Raft endpoints in the Raft group (must be a
+     *            subset of the "votingMembers" parameter)
      *
-     * @see RaftState#updateGroupMembers(long, Collection, Collection, long)
+     * @see RaftState#updateGroupMembers(long, Collection, Collection, Collection,
+     *      long)
      */
     public void updateGroupMembers(long logIndex, Collection<RaftEndpoint> members,
-            Collection<RaftEndpoint> votingMembers) {
-        state.updateGroupMembers(logIndex, members, votingMembers, clock.millis());
+            Collection<RaftEndpoint> votingMembers, Collection<RaftEndpoint> witnessMembers) {
+        state.updateGroupMembers(logIndex, members, votingMembers, witnessMembers, clock.millis());
         publishRaftNodeReport(RaftNodeReportReason.GROUP_MEMBERS_CHANGE);
     }
 
@@ -1226,6 +1305,7 @@ public final class RaftNodeImpl implements RaftNode {
      */
     public void leader(RaftEndpoint member) {
         state.leader(member);
+        leaderQuiescent = false;
         publishRaftNodeReport(RaftNodeReportReason.ROLE_CHANGE);
     }
 
@@ -1240,11 +1320,105 @@ public final class RaftNodeImpl implements RaftNode {
      */
     public void toLeader() {
         state.toLeader(clock.millis());
+        new LeaderElectionEvent().commit(localEndpointStr, LeaderElectionEvent.LEADER, state.term(),
+                state.log().lastLogOrSnapshotIndex());
         appendNewTermEntry();
         broadcastAppendEntriesRequest();
         publishRaftNodeReport(RaftNodeReportReason.ROLE_CHANGE);
     }
 
+    /**
+     * Broadcasts append entries requests to the followers for a log entry just
+     * appended by the leader. If the replication tick is enabled, the broadcast
+     * is deferred to the replication tick task, which is scheduled once for all
+     * log entries appended until it runs.
+     *
+     * @param leaderState
+     *            the leader state to set the replication tick scheduling state
+     */
+    public void broadcastAppendedEntries(LeaderState leaderState) {
+        if (replicationTickTask == null) {
+            broadcastAppendEntriesRequest();
+            return;
+        }
+
+        if (leaderState.isReplicationTickScheduled()) {
+            return;
+        }
+
+        long replicationTickMicros = config.getReplicationTickMicros();
+        if (replicationTickMicros > 0) {
+            executor.schedule(replicationTickTask, replicationTickMicros, MICROSECONDS);
+        } else {
+            executor.submit(replicationTickTask);
+        }
+        leaderState.replicationTickScheduled(true);
+    }
+
+    /**
+     * Holds the given replicate task until the ongoing leadership transfer
+     * completes, if the fast leadership transfer is enabled. At most
+     * {@link RaftConfig#getMaxPendingLogEntryCount()} tasks are held. Returns
+     * false if the task is not held.
+     *
+     * @param task
+     *            the replicate task to hold
+     * @param future
+     *            the future of the replicate task
+     *
+     * @return true if the task is held, false otherwise
+     *
+     * @see RaftConfig#isFastLeadershipTransferEnabled()
+     */
+    public boolean holdDuringLeadershipTransfer(Runnable task, OrderedFuture<?> future) {
+        LeadershipTransferState leadershipTransferState = state.leadershipTransferState();
+        return leadershipTransferState != null && leadershipTransferState.isFast()
+                && leadershipTransferState.hold(task, future, maxPendingLogEntryCount);
+    }
+
+    /**
+     * Asks the target endpoint of the ongoing fast leadership transfer to start
+     * a new leader election as soon as all log entries are committed and the
+     * target endpoint has them. Called when the commit index or the match index
+     * of the target endpoint advances.
+     *
+     * @see RaftConfig#isFastLeadershipTransferEnabled()
+     */
+    public void tryTriggerLeadershipTransfer() {
+        LeadershipTransferState leadershipTransferState = state.leadershipTransferState();
+        LeaderState leaderState = state.leaderState();
+        if (leadershipTransferState == null || !leadershipTransferState.isFast() || leaderState == null) {
+            return;
+        }
+
+        RaftEndpoint target = leadershipTransferState.endpoint();
+        FollowerState followerState = leaderState.getFollowerStateOrNull(target);
+        long lastLogIndex = state.log().lastLogOrSnapshotIndex();
+        if (followerState == null || state.commitIndex() < lastLogIndex || followerState.matchIndex() < lastLogIndex
+                || !leadershipTransferState.tryMarkLeaderElectionTriggered()) {
+            return;
+        }
+
+        LOGGER.info("{} {} has all log entries. Asking it to start a leader election.", localEndpointStr,
+                target.getId());
+        sendTriggerLeaderElectionRequest(target);
+    }
+
+    /**
+     * Sends a {@link io.microraft.model.message.TriggerLeaderElectionRequest}
+     * containing the last log entry to the given endpoint.
+     *
+     * @param target
+     *            the endpoint to ask to start a new leader election
+     */
+    public void sendTriggerLeaderElectionRequest(RaftEndpoint target) {
+        BaseLogEntry entry = state.log().lastLogOrSnapshotEntry();
+        RaftMessage request = modelFactory.createTriggerLeaderElectionRequestBuilder().setGroupId(groupId)
+                .setSender(getLocalEndpoint()).setTerm(state.term()).setLastLogTerm(entry.getTerm())
+                .setLastLogIndex(entry.getIndex()).build();
+        send(target, request);
+    }
+
     /**
      * Broadcasts append entries requests to all group members according to their
      * nextIndex parameters.
@@ -1273,8 +1447,12 @@ public final class RaftNodeImpl implements RaftNode {
      * @param target
      *            the Raft endpoint to send the request
      */
-    @SuppressWarnings({"checkstyle:npathcomplexity", "checkstyle:cyclomaticcomplexity", "checkstyle:methodlength",})
     public void sendAppendEntriesRequest(RaftEndpoint target) {
+        sendAppendEntriesRequest(target, false);
+    }
+
+    @SuppressWarnings({"checkstyle:npathcomplexity", "checkstyle:cyclomaticcomplexity", "checkstyle:methodlength",})
+    private void sendAppendEntriesRequest(RaftEndpoint target, boolean quiescent) {
         RaftLog log = state.log();
         LeaderState leaderState = state.leaderState();
         FollowerState followerState = leaderState.getFollowerStateOrNull(target);
@@ -1290,6 +1468,11 @@ public final class RaftNodeImpl implements RaftNode {
             return;
         }
 
+        if (leaderState.isQuiescent() && !quiescent) {
+            LOGGER.debug("{} Waking up from quiescence.", localEndpointStr);
+            leaderState.wakeUp(clock.millis());
+        }
+
         long nextIndex = followerState.nextIndex();
         // we never send query sequencer number to learners
         // since they are excluded from the replication quorum.
@@ -1304,7 +1487,7 @@ public final class RaftNodeImpl implements RaftNode {
             // We send an empty request to notify the target so that it could
             // trigger the actual snapshot installation process...
             SnapshotEntry snapshotEntry = log.snapshotEntry();
-            List<RaftEndpoint> snapshottedMembers = getSnapshottedMembers(leaderState, snapshotEntry);
+            List<RaftEndpoint> snapshottedMembers = getSnapshottedMembers(leaderState, snapshotEntry, target);
             RaftMessage request = modelFactory.createInstallSnapshotRequestBuilder().setGroupId(getGroupId())
                     .setSender(getLocalEndpoint()).setTerm(state.term()).setSenderLeader(true)
                     .setSnapshotTerm(snapshotEntry.getTerm()).setSnapshotIndex(snapshotEntry.getIndex())
@@ -1319,6 +1502,7 @@ public final class RaftNodeImpl implements RaftNode {
             }
 
             send(target, request);
+            followerState.snapshotTransferStarted(snapshotEntry.getIndex());
             scheduleLeaderRequestBackoffResetTask(leaderState);
 
             return;
@@ -1326,7 +1510,8 @@ public final class RaftNodeImpl implements RaftNode {
 
         AppendEntriesRequestBuilder requestBuilder = modelFactory.createAppendEntriesRequestBuilder()
                 .setGroupId(getGroupId()).setSender(getLocalEndpoint()).setTerm(state.term())
-                .setCommitIndex(state.commitIndex()).setQuerySequenceNumber(querySequenceNumber);
+                .setCommitIndex(state.commitIndex()).setQuerySequenceNumber(querySequenceNumber)
+                .setQuiescent(quiescent);
         List<LogEntry> entries;
         boolean backoff = true;
         long lastLogIndex = log.lastLogOrSnapshotIndex();
@@ -1376,6 +1561,10 @@ public final class RaftNodeImpl implements RaftNode {
             requestBuilder.setFlowControlSequenceNumber(enableBackoff(followerState));
         }
 
+        if (!entries.isEmpty() && state.isWitnessMember(target)) {
+            entries = toWitnessLogEntries(entries);
+        }
+
         RaftMessage request = requestBuilder.setLogEntries(entries).build();
 
         if (LOGGER.isDebugEnabled()) {
@@ -1384,6 +1573,8 @@ public final class RaftNodeImpl implements RaftNode {
         }
 
         send(target, request);
+        new AppendEntriesSendEvent().commit(localEndpointStr, target, nextIndex - 1, entries.size(),
+                state.commitIndex());
 
         if (backoff) {
             scheduleLeaderRequestBackoffResetTask(leaderState);
@@ -1401,8 +1592,37 @@ public final class RaftNodeImpl implements RaftNode {
         }
     }
 
-    private List<RaftEndpoint> getSnapshottedMembers(LeaderState leaderState, SnapshotEntry snapshotEntry) {
-        if (!config.isTransferSnapshotsFromFollowersEnabled()) {
+    /**
+     * Returns copies of the given log entries with their operations replaced
+     * with {@link WitnessPlaceholder#INSTANCE}. Raft group operations are kept
+     * as they are since witnesses need them to track the group members.
+     */
+    private List<LogEntry> toWitnessLogEntries(List<LogEntry> entries) {
+        List<LogEntry> witnessEntries = new ArrayList<>(entries.size());
+        for (LogEntry entry : entries) {
+            if (entry.getOperation() instanceof RaftGroupOp) {
+                witnessEntries.add(entry);
+            } else {
+                witnessEntries.add(modelFactory.createLogEntryBuilder().setIndex(entry.getIndex())
+                        .setTerm(entry.getTerm()).setOperation(WitnessPlaceholder.INSTANCE).build());
+            }
+        }
+
+        return witnessEntries;
+    }
+
+    private SnapshotChunk toWitnessSnapshotChunk(SnapshotChunk snapshotChunk) {
+        return modelFactory.createSnapshotChunkBuilder().setTerm(snapshotChunk.getTerm())
+                .setIndex(snapshotChunk.getIndex()).setOperation(WitnessPlaceholder.INSTANCE)
+                .setSnapshotChunkIndex(snapshotChunk.getSnapshotChunkIndex())
+                .setSnapshotChunkCount(snapshotChunk.getSnapshotChunkCount())
+                .setGroupMembersView(snapshotChunk.getGroupMembersView()).build();
+    }
+
+    private List<RaftEndpoint> getSnapshottedMembers(LeaderState leaderState, SnapshotEntry snapshotEntry,
+            RaftEndpoint target) {
+        if (!config.isTransferSnapshotsFromFollowersEnabled() || state.isWitnessMember(target)) {
+            // witnesses receive stripped snapshot chunks only from the leader.
             return List.of(state.localEndpoint());
         }
 
@@ -1412,7 +1632,8 @@ public final class RaftNodeImpl implements RaftNode {
         for (Entry<RaftEndpoint, FollowerState> e : leaderState.getFollowerStates().entrySet()) {
             RaftEndpoint follower = e.getKey();
             FollowerState followerState = e.getValue();
-            if (followerState.matchIndex() > snapshotEntry.getIndex() && transport.isReachable(follower)
+            if (followerState.matchIndex() > snapshotEntry.getIndex() && !state.isWitnessMember(follower)
+                    && transport.isReachable(follower)
                     && !isLeaderHeartbeatTimeoutElapsed(followerState.responseTimestamp(), now)) {
                 snapshottedMembers.add(follower);
             }
@@ -1457,18 +1678,74 @@ public final class RaftNodeImpl implements RaftNode {
      *         or a previous call of this method
      */
     public boolean submitLeaderFlushTask(LeaderState leaderState) {
-        if (leaderFlushTask == null) {
+        if (flushTask == null) {
             return false;
         }
 
         if (!leaderState.isFlushTaskSubmitted()) {
-            executor.submit(leaderFlushTask);
+            executor.submit(flushTask);
             leaderState.flushTaskSubmitted(true);
         }
 
         return true;
     }
 
+    /**
+     * Defers the given append entries success response until the log entries
+     * it acknowledges are flushed to the persistent storage, and submits the
+     * flush task if it is not submitted yet. A deferred response replaces the
+     * previously deferred one, since it acknowledges a higher log index.
+     * Returns false if the response is not deferred, because this Raft node is
+     * created with {@link NopRaftStore}.
+     *
+     * @param target
+     *            the leader to send the response after the flush
+     * @param response
+     *            the response to send after the flush
+     *
+     * @return true if the response is deferred until the next flush
+     */
+    public boolean deferAppendEntriesSuccessResponse(RaftEndpoint target, AppendEntriesSuccessResponse response) {
+        if (flushTask == null) {
+            return false;
+        }
+
+        deferredAppendEntriesResponseTarget = target;
+        deferredAppendEntriesResponse = response;
+
+        if (!followerFlushTaskSubmitted) {
+            executor.submit(flushTask);
+            followerFlushTaskSubmitted = true;
+        }
+
+        return true;
+    }
+
+    /**
+     * Sends the deferred append entries success response if the log entries it
+     * acknowledges are flushed and the leader has not changed since the
+     * response is deferred. Called after the Raft log is flushed.
+     */
+    public void sendDeferredAppendEntriesSuccessResponse() {
+        followerFlushTaskSubmitted = false;
+
+        AppendEntriesSuccessResponse response = deferredAppendEntriesResponse;
+        RaftEndpoint target = deferredAppendEntriesResponseTarget;
+        if (response == null) {
+            return;
+        }
+
+        deferredAppendEntriesResponse = null;
+        deferredAppendEntriesResponseTarget = null;
+
+        // the log can be truncated by a new leader after the response is
+        // deferred. we drop the response in this case.
+        if (response.getTerm() == state.term() && target.equals(state.leader())
+                && response.getLastLogIndex() <= state.log().flushedLogIndex()) {
+            send(target, response);
+        }
+    }
+
     private void appendNewTermEntry() {
         Object operation = stateMachine.getNewTermOperation();
         if (operation != null) {
@@ -1476,7 +1753,11 @@ public final class RaftNodeImpl implements RaftNode {
             RaftLog log = state.log();
             LogEntry entry = modelFactory.createLogEntryBuilder().setTerm(state.term())
                     .setIndex(log.lastLogOrSnapshotIndex() + 1).setOperation(operation).build();
+            LogAppendEvent event = new LogAppendEvent();
+            event.begin();
             log.appendEntry(entry);
+            event.commit(localEndpointStr, entry.getTerm(), entry.getIndex(), entry.getIndex());
+            stats.updateLog(log);
         }
     }
 
@@ -1497,6 +1778,8 @@ public final class RaftNodeImpl implements RaftNode {
 
         LOGGER.info("{} Leader election started for term: {}, last log index: {}, last log term: {}", localEndpointStr,
                 state.term(), lastLogEntry.getIndex(), lastLogEntry.getTerm());
+        new LeaderElectionEvent().commit(localEndpointStr, LeaderElectionEvent.VOTE, state.term(),
+                lastLogEntry.getIndex());
 
         publishRaftNodeReport(RaftNodeReportReason.ROLE_CHANGE);
 
@@ -1538,47 +1821,147 @@ public final class RaftNodeImpl implements RaftNode {
 
         LOGGER.info("{} Pre-vote started for next term: {}, last log index: {}, last log term: {}", localEndpointStr,
                 nextTerm, entry.getIndex(), entry.getTerm());
+        new LeaderElectionEvent().commit(localEndpointStr, LeaderElectionEvent.PRE_VOTE, nextTerm, entry.getIndex());
 
         for (RaftEndpoint member : state.remoteVotingMembers()) {
             send(member, request);
         }
 
+        // the election priority delay is already applied before the pre-voting
+        // step in runPreVote()
         executor.schedule(new PreVoteTimeoutTask(this, state.term()), getLeaderElectionTimeoutMs(), MILLISECONDS);
     }
 
+    /**
+     * Returns the delay to be applied before the pre-voting step so that Raft
+     * nodes with higher election priorities become candidates first. The delay
+     * is one leader election timeout for each distinct election priority of
+     * the voting members that is higher than the local election priority.
+     *
+     * @return the delay to be applied before the pre-voting step
+     *
+     * @see RaftEndpoint#getElectionPriority()
+     */
+    long getElectionPriorityDelayMs() {
+        int localPriority = getLocalEndpoint().getElectionPriority();
+        long higherPriorityCount = state.remoteVotingMembers().stream().filter(m -> !state.isWitnessMember(m))
+                .mapToInt(RaftEndpoint::getElectionPriority).filter(priority -> priority > localPriority).distinct()
+                .count();
+
+        return higherPriorityCount * config.getLeaderElectionTimeoutMillis();
+    }
+
+    /**
+     * Defers the leadership transfers to the followers with higher election
+     * priorities for a leader heartbeat timeout. It is called when a leadership
+     * transfer is requested explicitly, e.g., by the user or
+     * {@link io.microraft.balancer.LeaderBalancer}, and when this Raft node is
+     * asked to take over the leadership, so that the transferred leadership is
+     * not moved back right away.
+     *
+     * @see #tryTransferLeadershipToHigherPriorityFollower()
+     */
+    public void deferPriorityLeadershipTransfer() {
+        priorityLeadershipTransferDeferredUntil = clock.millis()
+                + SECONDS.toMillis(config.getLeaderHeartbeatTimeoutSecs());
+    }
+
+    /**
+     * Starts a leadership transfer to the voting follower with the highest
+     * election priority if its election priority is higher than the local
+     * election priority, it has all log entries of the leader, and it has
+     * responded to the leader within the last leader heartbeat period. Nothing
+     * is done if the leader has uncommitted log entries, there is an ongoing
+     * leadership transfer or membership change, or the priority transfers are
+     * deferred after an explicit leadership transfer.
+     *
+     * @return true if a leadership transfer is started
+     *
+     * @see RaftEndpoint#getElectionPriority()
+     */
+    public boolean tryTransferLeadershipToHigherPriorityFollower() {
+        LeaderState leaderState = state.leaderState();
+        long lastLogIndex = state.log().lastLogOrSnapshotIndex();
+        long now = clock.millis();
+        if (leaderState == null || status != ACTIVE || state.leadershipTransferState() != null
+                || state.commitIndex() < lastLogIndex || now < priorityLeadershipTransferDeferredUntil) {
+            return false;
+        }
+
+        long heartbeatPeriodMillis = SECONDS.toMillis(config.getLeaderHeartbeatPeriodSecs());
+        RaftEndpoint target = null;
+        int targetPriority = getLocalEndpoint().getElectionPriority();
+        for (RaftEndpoint follower : state.remoteVotingMembers()) {
+            FollowerState followerState = leaderState.getFollowerState(follower);
+            if (follower.getElectionPriority() > targetPriority && !state.isWitnessMember(follower)
+                    && followerState.matchIndex() >= lastLogIndex
+                    && now - followerState.responseTimestamp() < heartbeatPeriodMillis) {
+                target = follower;
+                targetPriority = follower.getElectionPriority();
+            }
+        }
+
+        if (target == null) {
+            return false;
+        }
+
+        LOGGER.info("{} Transferring leadership to {} with higher election priority: {}", localEndpointStr,
+                target.getId(), targetPriority);
+        new TransferLeadershipTask(this, target, new OrderedFuture<>()).run();
+        return true;
+    }
+
     public RaftException newCannotReplicateException() {
         return new CannotReplicateException(isTerminal(status) ? null : getLeaderEndpoint());
     }
 
     private long findQuorumMatchIndex() {
         LeaderState leaderState = state.leaderState();
-        long[] indices = leaderState.matchIndices(state.remoteVotingMembers());
 
         // if the leader is leaving, it should not count its vote for quorum...
-        if (state.isKnownMember(getLocalEndpoint())) {
+        long leaderLogIndex = -1;
+        RaftGroupMembersState effectiveMembers = state.effectiveGroupMembers();
+        RaftGroupMembersState jointMembers = state.jointGroupMembers();
+        if (effectiveMembers.isKnownMember(getLocalEndpoint())
+                || (jointMembers != null && jointMembers.isVotingMember(getLocalEndpoint()))) {
             // Raft dissertation Section 10.2.1:
             // The leader may even commit an entry before it has been written to its own
             // disk,
             // if a majority of followers have written it to their disks; this is still
             // safe.
-            long leaderLogIndex = leaderFlushTask == null
+            leaderLogIndex = flushTask == null
                     ? state.log().lastLogOrSnapshotIndex()
                     : leaderState.flushedLogIndex();
-            indices[indices.length - 1] = leaderLogIndex;
-        } else {
-            // Remove the last empty slot reserved for leader index
-            indices = Arrays.copyOf(indices, indices.length - 1);
         }
 
-        sort(indices);
-
-        // 4 nodes: [0, 1, 2, 3] => Qlr = 2, quorum index = 2
-        // 5 nodes: [0, 1, 2, 3, 4] => Qlr = 3, quorum index = 2
+        long quorumMatchIndex;
+        long effectiveLeaderLogIndex = effectiveMembers.isKnownMember(getLocalEndpoint()) ? leaderLogIndex : -1;
+        if (jointMembers == null) {
+            quorumMatchIndex = leaderState.quorumMatchIndex(effectiveMembers, state.logReplicationQuorumSize(),
+                    leaderLogIndex);
+        } else {
+            // joint consensus: log entries must be replicated to the majorities
+            // of both the committed and the effective voting members.
+            long jointLeaderLogIndex = jointMembers.isVotingMember(getLocalEndpoint()) ? leaderLogIndex : -1;
+            quorumMatchIndex = Math.min(
+                    leaderState.quorumMatchIndex(effectiveMembers, effectiveMembers.getMajorityQuorumSize(),
+                            effectiveLeaderLogIndex),
+                    leaderState.majorityMatchIndex(jointMembers, jointLeaderLogIndex));
+            if (!jointMembers.getWitnessMembers().isEmpty()) {
+                quorumMatchIndex = Math.min(quorumMatchIndex,
+                        leaderState.dataMajorityMatchIndex(jointMembers, jointLeaderLogIndex));
+            }
+        }
 
-        long quorumMatchIndex = indices[state.votingMemberCount() - state.logReplicationQuorumSize()];
+        if (!effectiveMembers.getWitnessMembers().isEmpty()) {
+            // witnesses do not store operations, so a log entry is committed
+            // only after the majority of the other voting members store it.
+            quorumMatchIndex = Math.min(quorumMatchIndex,
+                    leaderState.dataMajorityMatchIndex(effectiveMembers, effectiveLeaderLogIndex));
+        }
         if (LOGGER.isDebugEnabled()) {
-            LOGGER.debug(localEndpointStr + " Quorum match index: " + quorumMatchIndex + ", indices: "
-                    + Arrays.toString(indices));
+            LOGGER.debug(localEndpointStr + " Quorum match index: " + quorumMatchIndex + ", leader log index: "
+                    + leaderLogIndex);
         }
 
         return quorumMatchIndex;
@@ -1615,17 +1998,19 @@ public final class RaftNodeImpl implements RaftNode {
             LOGGER.debug(localEndpointStr + " Setting commit index: " + commitIndex);
         }
 
+        new CommitIndexAdvanceEvent().commit(localEndpointStr, state.commitIndex(), commitIndex);
         state.commitIndex(commitIndex);
         applyLogEntries();
-        // the leader might have left the Raft group, but still we can send
-        // an append request at this point
-        broadcastAppendEntriesRequest();
         if (status != TERMINATED) {
             // the leader is still part of the Raft group
+            broadcastAppendedEntries(state.leaderState());
             tryRunQueries();
             tryRunScheduledQueries();
+            tryTriggerLeadershipTransfer();
         } else {
-            // the leader has left the Raft group
+            // the leader has left the Raft group, but still we can send
+            // an append request at this point
+            broadcastAppendEntriesRequest();
             state.invalidateScheduledQueries();
             toFollower(state.term());
             terminateComponents();
@@ -1668,7 +2053,11 @@ public final class RaftNodeImpl implements RaftNode {
 
         QueryState queryState = leaderState.queryState();
         long commitIndex = state.commitIndex();
-        if (!queryState.isQuorumAckReceived(commitIndex, state.logReplicationQuorumSize())) {
+        // acks are counted without checking the majorities of the old and new
+        // voting members separately, so queries wait until a joint consensus
+        // membership change is committed.
+        if (state.jointGroupMembers() != null
+                || !queryState.isQuorumAckReceived(commitIndex, state.logReplicationQuorumSize())) {
             return;
         }
 
@@ -1679,10 +2068,13 @@ public final class RaftNodeImpl implements RaftNode {
                     + ", query sequence number: " + queryState.querySequenceNumber());
         }
 
+        QueryRoundEvent event = new QueryRoundEvent();
+        event.begin();
         for (QueryContainer query : operations) {
             query.run(commitIndex, stateMachine);
         }
 
+        event.commit(localEndpointStr, queryState.querySequenceNumber(), commitIndex, operations.size());
         queryState.reset();
     }
 
@@ -1728,7 +2120,7 @@ public final class RaftNodeImpl implements RaftNode {
                     query.fail(newLaggingCommitIndexException(minCommitIndex));
                 } else {
                     state.addScheduledQuery(minCommitIndex, query);
-                    executor.schedule(() -> {
+                    query.setTimeout(executor.scheduleCancellable(() -> {
                         try {
                             if (state.removeScheduledQuery(minCommitIndex, query)) {
                                 if (LOGGER.isDebugEnabled()) {
@@ -1743,7 +2135,7 @@ public final class RaftNodeImpl implements RaftNode {
                                     + minCommitIndex + " failed.", t);
                             query.fail(t);
                         }
-                    }, timeoutNanos, NANOSECONDS);
+                    }, timeoutNanos, NANOSECONDS));
                 }
             } else {
                 query.fail(newLaggingCommitIndexException(minCommitIndex));
@@ -1754,8 +2146,25 @@ public final class RaftNodeImpl implements RaftNode {
         }
     }
 
+    /**
+     * Returns true if the leader heartbeat timeout has elapsed since the last
+     * heartbeat received from the current leader. If quiescence is enabled, the
+     * leader does not send heartbeats while the Raft group is idle. Once the
+     * leader signals that it is quiescent with its last heartbeat, the timeout
+     * is not considered as elapsed until the next message from the leader, as
+     * long as this Raft node has caught up with the commit index and the leader
+     * is reachable.
+     *
+     * @return true if the leader heartbeat timeout has elapsed
+     */
     public boolean isLeaderHeartbeatTimeoutElapsed() {
-        return isLeaderHeartbeatTimeoutElapsed(lastLeaderHeartbeatTimestamp, clock.millis());
+        if (!isLeaderHeartbeatTimeoutElapsed(lastLeaderHeartbeatTimestamp, clock.millis())) {
+            return false;
+        }
+
+        RaftEndpoint leader = state.leader();
+        return !(config.isQuiescenceEnabled() && leaderQuiescent && leader != null
+                && state.commitIndex() == state.log().lastLogOrSnapshotIndex() && transport.isReachable(leader));
     }
 
     private boolean isLeaderHeartbeatTimeoutElapsed(long timestamp) {
@@ -1816,7 +2225,8 @@ public final class RaftNodeImpl implements RaftNode {
             if (lastAppliedEntry.getOperation() instanceof UpdateRaftGroupMembersOp) {
                 setStatus(UPDATING_RAFT_GROUP_MEMBER_LIST);
                 UpdateRaftGroupMembersOp groupOp = (UpdateRaftGroupMembersOp) lastAppliedEntry.getOperation();
-                updateGroupMembers(lastAppliedEntry.getIndex(), groupOp.getMembers(), groupOp.getVotingMembers());
+                updateGroupMembers(lastAppliedEntry.getIndex(), groupOp.getMembers(), groupOp.getVotingMembers(),
+                        groupOp.getWitnessMembers());
             } else {
                 throw new IllegalStateException("Invalid Raft group op restored: " + lastAppliedEntry);
             }
@@ -1833,7 +2243,20 @@ public final class RaftNodeImpl implements RaftNode {
             return true;
         }
 
-        boolean demoteToFollower = isLeaderHeartbeatTimeoutElapsed(quorumTimestamp.get());
+        LeaderState leaderState = state.leaderState();
+        if (leaderState.isQuiescent()) {
+            if (isQuorumReachable()) {
+                return false;
+            }
+
+            LOGGER.warn("{} Waking up from quiescence since the majority is not reachable.", localEndpointStr);
+            leaderState.wakeUp(clock.millis());
+        }
+
+        // followers do not send responses while the leader is quiescent,
+        // so we start counting the timeout from the last wake-up.
+        boolean demoteToFollower = isLeaderHeartbeatTimeoutElapsed(
+                Math.max(quorumTimestamp.get(), leaderState.wakeUpTimestamp()));
         if (demoteToFollower) {
             LOGGER.warn(
                     "{} Demoting to {} since not received append entries responses from majority recently. Latest quorum timestamp: {}",
@@ -1844,6 +2267,76 @@ public final class RaftNodeImpl implements RaftNode {
         return demoteToFollower;
     }
 
+    /**
+     * Checks if the Raft group is idle so that the leader can stop sending
+     * heartbeats. The leader becomes quiescent if the Raft group has been idle
+     * since the previous heartbeat round and all followers have responded to the
+     * heartbeats of that round, hence learnt the current commit index. Once
+     * quiescent, the leader sends a last heartbeat with the quiescent flag so
+     * that the followers stop expecting heartbeats until its next message.
+     *
+     * @return true if the leader is quiescent
+     */
+    public boolean tryQuiesce() {
+        LeaderState leaderState = state.leaderState();
+        if (leaderState.isQuiescent()) {
+            return true;
+        }
+
+        long commitIndex = state.commitIndex();
+        if (!config.isQuiescenceEnabled() || status != ACTIVE || state.leadershipTransferState() != null
+                || commitIndex != state.log().lastLogOrSnapshotIndex() || !leaderState.isIdle(commitIndex, 0L)) {
+            leaderState.quiescenceCheck(0L, 0L);
+            return false;
+        }
+
+        long checkTimestamp = leaderState.quiescenceCheckTimestamp();
+        if (checkTimestamp > 0 && leaderState.quiescenceCheckCommitIndex() == commitIndex
+                && leaderState.isIdle(commitIndex, checkTimestamp)) {
+            LOGGER.debug("{} Quiescing at commit index: {}", localEndpointStr, commitIndex);
+            leaderState.quiesce();
+            for (RaftEndpoint follower : state.remoteMembers()) {
+                sendAppendEntriesRequest(follower, true);
+            }
+            return true;
+        }
+
+        leaderState.quiescenceCheck(clock.millis(), commitIndex);
+        return false;
+    }
+
+    /**
+     * Returns true if the leader cannot serve queries with its leader lease,
+     * because it is quiescent or has not received append entries responses from
+     * the majority since it woke up from quiescence, or there is an ongoing joint
+     * consensus membership change. Followers do not send responses to a
+     * quiescent leader, hence the majority response timestamp cannot be used for
+     * the lease.
+     *
+     * @return true if the leader lease cannot be used for queries
+     */
+    public boolean isLeaderLeaseSuspended() {
+        LeaderState leaderState = state.leaderState();
+        if (leaderState == null) {
+            return false;
+        }
+
+        long quorumTimestamp = leaderState.quorumResponseTimestamp(state.logReplicationQuorumSize(), clock.millis());
+        return leaderState.isQuiescent() || quorumTimestamp < leaderState.wakeUpTimestamp()
+                || state.jointGroupMembers() != null;
+    }
+
+    private boolean isQuorumReachable() {
+        int reachable = state.isVotingMember(state.localEndpoint()) ? 1 : 0;
+        for (RaftEndpoint member : state.remoteVotingMembers()) {
+            if (transport.isReachable(member)) {
+                reachable++;
+            }
+        }
+
+        return reachable >= state.logReplicationQuorumSize();
+    }
+
     private Optional<Long> getQuorumHeartbeatTimestamp() {
         LeaderState leaderState = state.leaderState();
         if (leaderState == null) {
@@ -1865,11 +2358,21 @@ public final class RaftNodeImpl implements RaftNode {
      */
     public void toFollower(int term) {
         state.toFollower(term);
+        leaderQuiescent = false;
         publishRaftNodeReport(RaftNodeReportReason.ROLE_CHANGE);
     }
 
     public void runPreVote() {
-        new PreVoteTask(this, state.term()).run();
+        PreVoteTask task = new PreVoteTask(this, state.term());
+        long delayMillis = getElectionPriorityDelayMs();
+        if (delayMillis > 0) {
+            LOGGER.debug("{} Delaying pre-vote by {} ms for higher election priorities.", localEndpointStr,
+                    delayMillis);
+            executor.schedule(task, delayMillis, MILLISECONDS);
+            return;
+        }
+
+        task.run();
     }
 
     /**
@@ -1890,8 +2393,8 @@ public final class RaftNodeImpl implements RaftNode {
 
         LOGGER.info("{} We are the LEADER!", localEndpointStr());
 
-        if (leaderFlushTask != null) {
-            leaderFlushTask.run();
+        if (flushTask != null) {
+            flushTask.run();
         } else {
             tryAdvanceCommitIndex();
         }
@@ -24,14 +24,36 @@ import io.microraft.model.message.RaftMessage;
 
 /**
  * Base class for {@link RaftMessage} handlers.
+ * <p>
+ * A single handler object is created for each message type by a Raft node and
+ * it is reused for all received messages of that type. Messages are handled
+ * only on the Raft node executor thread, and the message being handled is kept
+ * in the handler only during the {@link #accept(RaftMessage)} call.
+ *
+ * @see RaftMessageDispatcher
  */
 public abstract class AbstractMessageHandler<T extends RaftMessage> extends RaftNodeStatusAwareTask {
 
-    protected final T message;
+    private T message;
 
-    AbstractMessageHandler(RaftNodeImpl raftNode, T message) {
+    AbstractMessageHandler(RaftNodeImpl raftNode) {
         super(raftNode);
+    }
+
+    /**
+     * Handles the given message if the local Raft node is running.
+     *
+     * @param message
+     *            the Raft message to handle
+     */
+    public final void accept(@Nonnull T message) {
+        T previous = this.message;
         this.message = message;
+        try {
+            run();
+        } finally {
+            this.message = previous;
+        }
     }
 
     @Override
@@ -35,8 +35,8 @@ import io.microraft.model.message.RaftMessage;
  */
 public abstract class AbstractResponseHandler<T extends RaftMessage> extends AbstractMessageHandler<T> {
 
-    AbstractResponseHandler(RaftNodeImpl raftNode, T response) {
-        super(raftNode, response);
+    AbstractResponseHandler(RaftNodeImpl raftNode) {
+        super(raftNode);
     }
 
     @Override
@@ -49,8 +49,8 @@ public class AppendEntriesFailureResponseHandler extends AbstractResponseHandler
 
     private static final Logger LOGGER = LoggerFactory.getLogger(AppendEntriesFailureResponseHandler.class);
 
-    public AppendEntriesFailureResponseHandler(RaftNodeImpl raftNode, AppendEntriesFailureResponse response) {
-        super(raftNode, response);
+    public AppendEntriesFailureResponseHandler(RaftNodeImpl raftNode) {
+        super(raftNode);
     }
 
     @Override
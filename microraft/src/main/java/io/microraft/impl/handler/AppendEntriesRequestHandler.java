@@ -36,6 +36,9 @@ import org.slf4j.LoggerFactory;
 
 import io.microraft.RaftEndpoint;
 import io.microraft.impl.RaftNodeImpl;
+import io.microraft.impl.jfr.AppendEntriesReceiveEvent;
+import io.microraft.impl.jfr.CommitIndexAdvanceEvent;
+import io.microraft.impl.jfr.LogAppendEvent;
 import io.microraft.impl.log.RaftLog;
 import io.microraft.model.groupop.RaftGroupOp;
 import io.microraft.model.groupop.UpdateRaftGroupMembersOp;
@@ -62,16 +65,24 @@ public class AppendEntriesRequestHandler extends AbstractMessageHandler<AppendEn
 
     private static final Logger LOGGER = LoggerFactory.getLogger(AppendEntriesRequestHandler.class);
 
-    public AppendEntriesRequestHandler(RaftNodeImpl raftNode, AppendEntriesRequest request) {
-        super(raftNode, request);
+    public AppendEntriesRequestHandler(RaftNodeImpl raftNode) {
+        super(raftNode);
     }
 
     @Override
+    protected void handle(@Nonnull AppendEntriesRequest request) {
+        AppendEntriesReceiveEvent event = new AppendEntriesReceiveEvent();
+        event.begin();
+        handleRequest(request);
+        event.commit(localEndpointStr(), request.getSender(), request.getPreviousLogIndex(),
+                request.getLogEntries().size(), state.commitIndex());
+    }
+
     @SuppressWarnings({"checkstyle:npathcomplexity", "checkstyle:cyclomaticcomplexity", "checkstyle:methodlength",
             "checkstyle:nestedifdepth"})
     // Justification: It is easier to follow the AppendEntriesRPC logic in a single
     // method
-    protected void handle(@Nonnull AppendEntriesRequest request) {
+    private void handleRequest(AppendEntriesRequest request) {
         requireNonNull(request);
 
         LOGGER.debug("{} received {}.", localEndpointStr(), request);
@@ -83,7 +94,7 @@ public class AppendEntriesRequestHandler extends AbstractMessageHandler<AppendEn
                 LOGGER.warn(localEndpointStr() + " Stale " + request + " received in current term: " + state.term());
             }
 
-            node.send(leader, createAppendEntriesFailureResponse(state.term(), 0, 0));
+            node.send(leader, createAppendEntriesFailureResponse(request, state.term(), 0, 0));
             return;
         }
 
@@ -104,10 +115,10 @@ public class AppendEntriesRequestHandler extends AbstractMessageHandler<AppendEn
             node.leader(leader);
         }
 
-        node.leaderHeartbeatReceived();
+        node.leaderHeartbeatReceived(request.isQuiescent());
 
         if (!verifyLastLogEntry(request, log)) {
-            RaftMessage response = createAppendEntriesFailureResponse(request.getTerm(),
+            RaftMessage response = createAppendEntriesFailureResponse(request, request.getTerm(),
                     request.getQuerySequenceNumber(), request.getFlowControlSequenceNumber());
             node.send(leader, response);
             return;
@@ -125,15 +136,12 @@ public class AppendEntriesRequestHandler extends AbstractMessageHandler<AppendEn
             long newCommitIndex = min(request.getCommitIndex(), lastLogIndex);
             LOGGER.debug("{} Setting commit index: {}.", localEndpointStr(), newCommitIndex);
 
+            new CommitIndexAdvanceEvent().commit(localEndpointStr(), oldCommitIndex, newCommitIndex);
             state.commitIndex(newCommitIndex);
         }
 
         try {
-            RaftMessage response = modelFactory.createAppendEntriesSuccessResponseBuilder()
-                    .setGroupId(node.getGroupId()).setSender(localEndpoint()).setTerm(state.term())
-                    .setLastLogIndex(lastLogIndex).setQuerySequenceNumber(request.getQuerySequenceNumber())
-                    .setFlowControlSequenceNumber(request.getFlowControlSequenceNumber()).build();
-            node.send(leader, response);
+            sendAppendEntriesSuccessResponse(request, lastLogIndex, log);
         } finally {
             boolean commitIndexAdvanced = (state.commitIndex() > oldCommitIndex);
             if (commitIndexAdvanced) {
@@ -150,6 +158,36 @@ public class AppendEntriesRequestHandler extends AbstractMessageHandler<AppendEn
         }
     }
 
+    private void sendAppendEntriesSuccessResponse(AppendEntriesRequest request, long lastLogIndex, RaftLog log) {
+        RaftEndpoint leader = request.getSender();
+        long flushedLogIndex = log.flushedLogIndex();
+        if (lastLogIndex > flushedLogIndex && request.getLogEntries().size() > 0) {
+            // The acknowledged entries are not flushed yet. Instead of flushing
+            // them here and blocking the Raft thread, the response is sent by
+            // the flush task after the flush, so that the entries of multiple
+            // append requests are flushed together.
+            AppendEntriesSuccessResponse response = createAppendEntriesSuccessResponse(request, lastLogIndex);
+            if (node.deferAppendEntriesSuccessResponse(leader, response)) {
+                return;
+            }
+
+            flushedLogIndex = lastLogIndex;
+        }
+
+        // A heartbeat is not deferred, because the leader needs its response
+        // for linearizable queries and flow control. It cannot acknowledge the
+        // entries which are not flushed yet.
+        node.send(leader, createAppendEntriesSuccessResponse(request, min(lastLogIndex, flushedLogIndex)));
+    }
+
+    private AppendEntriesSuccessResponse createAppendEntriesSuccessResponse(AppendEntriesRequest request,
+            long lastLogIndex) {
+        return modelFactory.createAppendEntriesSuccessResponseBuilder().setGroupId(node.getGroupId())
+                .setSender(localEndpoint()).setTerm(state.term()).setLastLogIndex(lastLogIndex)
+                .setQuerySequenceNumber(request.getQuerySequenceNumber())
+                .setFlowControlSequenceNumber(request.getFlowControlSequenceNumber()).build();
+    }
+
     private boolean verifyLastLogEntry(AppendEntriesRequest request, RaftLog log) {
         if (request.getPreviousLogIndex() > 0) {
             long lastLogIndex = log.lastLogOrSnapshotIndex();
@@ -247,9 +285,16 @@ public class AppendEntriesRequestHandler extends AbstractMessageHandler<AppendEn
                             localEndpointStr() + " Appending " + newLogEntries.size() + " entries: " + newLogEntries);
                 }
 
+                // the entries are flushed by the flush task before the
+                // success response is sent
+                LogAppendEvent event = new LogAppendEvent();
+                event.begin();
                 log.appendEntries(newLogEntries);
-                log.flush();
+                event.commit(localEndpointStr(), request.getTerm(), newLogEntries.get(0).getIndex(),
+                        newLogEntries.get(newLogEntries.size() - 1).getIndex());
             }
+
+            node.getStats().updateLog(log);
         }
 
         // I cannot use log.lastLogOrSnapshotIndex() for lastLogIndex because my log may
@@ -273,7 +318,8 @@ public class AppendEntriesRequestHandler extends AbstractMessageHandler<AppendEn
                             : "Invalid Raft group operation: " + operation + " in " + node.getGroupId();
                     node.setStatus(UPDATING_RAFT_GROUP_MEMBER_LIST);
                     UpdateRaftGroupMembersOp groupOp = (UpdateRaftGroupMembersOp) operation;
-                    node.updateGroupMembers(logEntry.getIndex(), groupOp.getMembers(), groupOp.getVotingMembers());
+                    node.updateGroupMembers(logEntry.getIndex(), groupOp.getMembers(), groupOp.getVotingMembers(),
+                            groupOp.getWitnessMembers());
                 });
     }
 
@@ -290,9 +336,10 @@ public class AppendEntriesRequestHandler extends AbstractMessageHandler<AppendEn
                 });
     }
 
-    private RaftMessage createAppendEntriesFailureResponse(int term, long queryRound, long sequenceNumber) {
+    private RaftMessage createAppendEntriesFailureResponse(AppendEntriesRequest request, int term, long queryRound,
+            long sequenceNumber) {
         return modelFactory.createAppendEntriesFailureResponseBuilder().setGroupId(node.getGroupId())
-                .setSender(localEndpoint()).setTerm(term).setExpectedNextIndex(message.getPreviousLogIndex() + 1)
+                .setSender(localEndpoint()).setTerm(term).setExpectedNextIndex(request.getPreviousLogIndex() + 1)
                 .setQuerySequenceNumber(queryRound).setFlowControlSequenceNumber(sequenceNumber).build();
     }
 
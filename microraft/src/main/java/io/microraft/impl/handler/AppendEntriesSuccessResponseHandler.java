@@ -52,8 +52,8 @@ public class AppendEntriesSuccessResponseHandler extends AbstractResponseHandler
 
     private static final Logger LOGGER = LoggerFactory.getLogger(AppendEntriesSuccessResponseHandler.class);
 
-    public AppendEntriesSuccessResponseHandler(RaftNodeImpl raftNode, AppendEntriesSuccessResponse response) {
-        super(raftNode, response);
+    public AppendEntriesSuccessResponseHandler(RaftNodeImpl raftNode) {
+        super(raftNode);
     }
 
     @Override
@@ -72,6 +72,7 @@ public class AppendEntriesSuccessResponseHandler extends AbstractResponseHandler
         if (updateFollowerIndices(response)) {
             if (!node.tryAdvanceCommitIndex()) {
                 trySendAppendRequest(response);
+                node.tryTriggerLeadershipTransfer();
             }
         } else {
             node.tryRunQueries();
@@ -107,7 +108,7 @@ public class AppendEntriesSuccessResponseHandler extends AbstractResponseHandler
 
         if (followerLastLogIndex > matchIndex) {
             long newNextIndex = followerLastLogIndex + 1;
-            followerState.matchIndex(followerLastLogIndex);
+            leaderState.matchIndex(follower, followerLastLogIndex);
             followerState.nextIndex(newNextIndex);
 
             if (LOGGER.isDebugEnabled()) {
@@ -84,8 +84,8 @@ public class InstallSnapshotRequestHandler extends AbstractMessageHandler<Instal
 
     private static final Logger LOGGER = LoggerFactory.getLogger(InstallSnapshotRequestHandler.class);
 
-    public InstallSnapshotRequestHandler(RaftNodeImpl raftNode, InstallSnapshotRequest request) {
-        super(raftNode, request);
+    public InstallSnapshotRequestHandler(RaftNodeImpl raftNode) {
+        super(raftNode);
     }
 
     @Override
@@ -61,8 +61,8 @@ public class InstallSnapshotResponseHandler extends AbstractResponseHandler<Inst
 
     private static final Logger LOGGER = LoggerFactory.getLogger(InstallSnapshotResponseHandler.class);
 
-    public InstallSnapshotResponseHandler(RaftNodeImpl raftNode, InstallSnapshotResponse response) {
-        super(raftNode, response);
+    public InstallSnapshotResponseHandler(RaftNodeImpl raftNode) {
+        super(raftNode);
     }
 
     @Override
@@ -53,8 +53,8 @@ public class PreVoteRequestHandler extends AbstractMessageHandler<PreVoteRequest
 
     private static final Logger LOGGER = LoggerFactory.getLogger(PreVoteRequestHandler.class);
 
-    public PreVoteRequestHandler(RaftNodeImpl raftNode, PreVoteRequest request) {
-        super(raftNode, request);
+    public PreVoteRequestHandler(RaftNodeImpl raftNode) {
+        super(raftNode);
     }
 
     @Override
@@ -84,6 +84,11 @@ public class PreVoteRequestHandler extends AbstractMessageHandler<PreVoteRequest
         if (state.leaderState() != null || !node.isLeaderHeartbeatTimeoutElapsed()) {
             LOGGER.info("{} Rejecting {} since the leader is still alive...", localEndpointStr(), request);
             node.send(candidate, responseBuilder.setTerm(state.term()).setGranted(false).build());
+            if (state.leaderState() != null && state.leaderState().isQuiescent()) {
+                // the candidate has not heard from us since we are quiescent
+                node.sendAppendEntriesRequest(candidate);
+            }
+
             return;
         }
 
@@ -45,8 +45,8 @@ public class PreVoteResponseHandler extends AbstractResponseHandler<PreVoteRespo
 
     private static final Logger LOGGER = LoggerFactory.getLogger(PreVoteResponseHandler.class);
 
-    public PreVoteResponseHandler(RaftNodeImpl raftNode, PreVoteResponse response) {
-        super(raftNode, response);
+    public PreVoteResponseHandler(RaftNodeImpl raftNode) {
+        super(raftNode);
     }
 
     @Override
@@ -0,0 +1,340 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.microraft.impl.handler;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.Nonnull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.microraft.executor.RaftNodeExecutor;
+import io.microraft.impl.RaftNodeImpl;
+import io.microraft.impl.util.MpscArrayQueue;
+import io.microraft.model.message.AppendEntriesFailureResponse;
+import io.microraft.model.message.AppendEntriesRequest;
+import io.microraft.model.message.AppendEntriesSuccessResponse;
+import io.microraft.model.message.InstallSnapshotRequest;
+import io.microraft.model.message.InstallSnapshotResponse;
+import io.microraft.model.message.PreVoteRequest;
+import io.microraft.model.message.PreVoteResponse;
+import io.microraft.model.message.RaftMessage;
+import io.microraft.model.message.TriggerLeaderElectionRequest;
+import io.microraft.model.message.VoteRequest;
+import io.microraft.model.message.VoteResponse;
+
+/**
+ * Dispatches the {@link RaftMessage} objects received by a Raft node to their
+ * handlers.
+ * <p>
+ * Received messages are put into an array-backed multi-producer
+ * single-consumer inbox and a single task object per Raft node drains the
+ * inbox on the {@link RaftNodeExecutor} in batches. The drain task is
+ * submitted to the executor only when the inbox transitions from empty to
+ * non-empty, hence a burst of messages costs a single task submission.
+ * <p>
+ * The message type is resolved once per concrete message class and cached, so
+ * dispatching a message to its handler does not walk an {@code instanceof}
+ * chain or allocate a handler object per message. Dispatching does not
+ * allocate as long as the inbox has space. If the inbox is full, the message
+ * is submitted to the executor with a separate task, which allocates and can
+ * handle the message out of order. This is safe because Raft does not rely on
+ * the order of the received messages.
+ */
+public final class RaftMessageDispatcher implements Runnable {
+
+    /**
+     * Maximum number of messages handled in a single run of the drain task
+     * before the task yields the Raft node executor to the other tasks.
+     */
+    static final int MAX_DRAIN_BATCH_SIZE = 256;
+
+    /**
+     * Maximum number of messages waiting in the inbox.
+     */
+    static final int INBOX_CAPACITY = 4096;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RaftMessageDispatcher.class);
+
+    private static final ClassValue<MessageType> MESSAGE_TYPES = new ClassValue<MessageType>() {
+        @Override
+        protected MessageType computeValue(Class<?> type) {
+            for (MessageType messageType : MessageType.values()) {
+                if (messageType.type.isAssignableFrom(type)) {
+                    return messageType;
+                }
+            }
+
+            return null;
+        }
+    };
+
+    private final RaftNodeImpl node;
+    private final RaftNodeExecutor executor;
+    private final AbstractMessageHandler<RaftMessage>[] handlers;
+    private final MpscArrayQueue<RaftMessage> inbox = new MpscArrayQueue<>(INBOX_CAPACITY);
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    // generic arrays cannot be created, and each handler is registered for the
+    // ordinal of the message type it accepts.
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public RaftMessageDispatcher(RaftNodeImpl node, RaftNodeExecutor executor) {
+        this.node = requireNonNull(node);
+        this.executor = requireNonNull(executor);
+        MessageType[] types = MessageType.values();
+        this.handlers = new AbstractMessageHandler[types.length];
+        for (MessageType type : types) {
+            handlers[type.ordinal()] = (AbstractMessageHandler<RaftMessage>) type.newHandler(node);
+        }
+    }
+
+    /**
+     * Returns the message type of the given Raft message.
+     *
+     * @param message
+     *            the Raft message to resolve the type
+     *
+     * @return the message type of the given Raft message
+     *
+     * @throws IllegalArgumentException
+     *             if the given object is not a known Raft message
+     */
+    public static MessageType getMessageType(@Nonnull RaftMessage message) {
+        MessageType type = MESSAGE_TYPES.get(message.getClass());
+        if (type == null) {
+            throw new IllegalArgumentException("Invalid Raft msg: " + message);
+        }
+
+        return type;
+    }
+
+    /**
+     * Puts the given message into the inbox and makes sure that the drain task
+     * is submitted to the Raft node executor.
+     *
+     * @param message
+     *            the Raft message to dispatch
+     *
+     * @throws IllegalArgumentException
+     *             if the given object is not a known Raft message
+     */
+    public void dispatch(@Nonnull RaftMessage message) {
+        MessageType type = getMessageType(message);
+        if (!inbox.offer(message)) {
+            dispatchOverflow(type, message);
+            return;
+        }
+
+        if (scheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(this);
+            } catch (Throwable t) {
+                // the message stays in the inbox and the next dispatch call
+                // retries submitting the drain task
+                scheduled.set(false);
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.error(node.localEndpointStr() + " could not handle " + message, t);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        boolean drained = false;
+        try {
+            for (int i = 0; i < MAX_DRAIN_BATCH_SIZE; i++) {
+                RaftMessage message = inbox.poll();
+                if (message == null) {
+                    break;
+                }
+
+                handlers[MESSAGE_TYPES.get(message.getClass()).ordinal()].accept(message);
+            }
+
+            drained = inbox.isEmpty();
+        } finally {
+            if (!drained) {
+                // there are more messages than a single batch, or a handler
+                // failed. we let the other tasks of the Raft node run before
+                // handling the rest.
+                resubmit();
+            } else {
+                scheduled.set(false);
+                // a message could be put into the inbox after the poll() call
+                // above returned null and before the flag is reset
+                if (!inbox.isEmpty() && scheduled.compareAndSet(false, true)) {
+                    resubmit();
+                }
+            }
+        }
+    }
+
+    private void dispatchOverflow(MessageType type, RaftMessage message) {
+        AbstractMessageHandler<RaftMessage> handler = handlers[type.ordinal()];
+        try {
+            executor.execute(() -> handler.accept(message));
+        } catch (Throwable t) {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.error(node.localEndpointStr() + " could not handle " + message, t);
+            }
+        }
+    }
+
+    private void resubmit() {
+        try {
+            executor.submit(this);
+        } catch (Throwable t) {
+            // the messages stay in the inbox and the next dispatch call
+            // retries submitting the drain task
+            scheduled.set(false);
+            LOGGER.error(node.localEndpointStr() + " could not resubmit the message drain task", t);
+        }
+    }
+
+    /**
+     * Returns the number of messages waiting in the inbox.
+     *
+     * @return the number of messages waiting in the inbox
+     */
+    public int pendingMessageCount() {
+        return inbox.size();
+    }
+
+    @Override
+    public String toString() {
+        return "RaftMessageDispatcher{" + "node=" + node.localEndpointStr() + '}';
+    }
+
+    /**
+     * Types of the Raft messages along with their handlers.
+     */
+    public enum MessageType {
+
+        /**
+         * {@link AppendEntriesRequest}
+         */
+        APPEND_ENTRIES_REQUEST(AppendEntriesRequest.class) {
+            @Override
+            AbstractMessageHandler<?> newHandler(RaftNodeImpl node) {
+                return new AppendEntriesRequestHandler(node);
+            }
+        },
+
+        /**
+         * {@link AppendEntriesSuccessResponse}
+         */
+        APPEND_ENTRIES_SUCCESS_RESPONSE(AppendEntriesSuccessResponse.class) {
+            @Override
+            AbstractMessageHandler<?> newHandler(RaftNodeImpl node) {
+                return new AppendEntriesSuccessResponseHandler(node);
+            }
+        },
+
+        /**
+         * {@link AppendEntriesFailureResponse}
+         */
+        APPEND_ENTRIES_FAILURE_RESPONSE(AppendEntriesFailureResponse.class) {
+            @Override
+            AbstractMessageHandler<?> newHandler(RaftNodeImpl node) {
+                return new AppendEntriesFailureResponseHandler(node);
+            }
+        },
+
+        /**
+         * {@link InstallSnapshotRequest}
+         */
+        INSTALL_SNAPSHOT_REQUEST(InstallSnapshotRequest.class) {
+            @Override
+            AbstractMessageHandler<?> newHandler(RaftNodeImpl node) {
+                return new InstallSnapshotRequestHandler(node);
+            }
+        },
+
+        /**
+         * {@link InstallSnapshotResponse}
+         */
+        INSTALL_SNAPSHOT_RESPONSE(InstallSnapshotResponse.class) {
+            @Override
+            AbstractMessageHandler<?> newHandler(RaftNodeImpl node) {
+                return new InstallSnapshotResponseHandler(node);
+            }
+        },
+
+        /**
+         * {@link VoteRequest}
+         */
+        VOTE_REQUEST(VoteRequest.class) {
+            @Override
+            AbstractMessageHandler<?> newHandler(RaftNodeImpl node) {
+                return new VoteRequestHandler(node);
+            }
+        },
+
+        /**
+         * {@link VoteResponse}
+         */
+        VOTE_RESPONSE(VoteResponse.class) {
+            @Override
+            AbstractMessageHandler<?> newHandler(RaftNodeImpl node) {
+                return new VoteResponseHandler(node);
+            }
+        },
+
+        /**
+         * {@link PreVoteRequest}
+         */
+        PRE_VOTE_REQUEST(PreVoteRequest.class) {
+            @Override
+            AbstractMessageHandler<?> newHandler(RaftNodeImpl node) {
+                return new PreVoteRequestHandler(node);
+            }
+        },
+
+        /**
+         * {@link PreVoteResponse}
+         */
+        PRE_VOTE_RESPONSE(PreVoteResponse.class) {
+            @Override
+            AbstractMessageHandler<?> newHandler(RaftNodeImpl node) {
+                return new PreVoteResponseHandler(node);
+            }
+        },
+
+        /**
+         * {@link TriggerLeaderElectionRequest}
+         */
+        TRIGGER_LEADER_ELECTION_REQUEST(TriggerLeaderElectionRequest.class) {
+            @Override
+            AbstractMessageHandler<?> newHandler(RaftNodeImpl node) {
+                return new TriggerLeaderElectionHandler(node);
+            }
+        };
+
+        final Class<? extends RaftMessage> type;
+
+        MessageType(Class<? extends RaftMessage> type) {
+            this.type = type;
+        }
+
+        abstract AbstractMessageHandler<?> newHandler(RaftNodeImpl node);
+    }
+
+}
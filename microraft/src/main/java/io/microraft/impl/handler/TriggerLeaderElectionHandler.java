@@ -41,8 +41,8 @@ public class TriggerLeaderElectionHandler extends AbstractMessageHandler<Trigger
 
     private static final Logger LOGGER = LoggerFactory.getLogger(TriggerLeaderElectionHandler.class);
 
-    public TriggerLeaderElectionHandler(RaftNodeImpl raftNode, TriggerLeaderElectionRequest request) {
-        super(raftNode, request);
+    public TriggerLeaderElectionHandler(RaftNodeImpl raftNode) {
+        super(raftNode);
     }
 
     @Override
@@ -81,12 +81,19 @@ public class TriggerLeaderElectionHandler extends AbstractMessageHandler<Trigger
             LOGGER.error("{} Could start leader election because the role is: {}. You should not see this log!",
                     localEndpointStr(), LEARNER);
             return;
+        } else if (state.isLocalWitness()) {
+            // this should not happen either since the leader does not
+            // transfer leadership to witnesses.
+            LOGGER.error("{} Could not start leader election because it is a witness. You should not see this log!",
+                    localEndpointStr());
+            return;
         }
 
         // I will send a non-sticky VoteRequest to bypass leader stickiness
         LOGGER.info("{} Starting a new leader election since the current leader: {} in term: {} asked for a "
                 + "leadership transfer!", localEndpointStr(), request.getSender().getId(), request.getTerm());
         node.leader(null);
+        node.deferPriorityLeadershipTransfer();
         new LeaderElectionTask(node, false).run();
     }
 
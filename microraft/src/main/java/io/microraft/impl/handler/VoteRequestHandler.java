@@ -51,8 +51,8 @@ public class VoteRequestHandler extends AbstractMessageHandler<VoteRequest> {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(VoteRequestHandler.class);
 
-    public VoteRequestHandler(RaftNodeImpl raftNode, VoteRequest request) {
-        super(raftNode, request);
+    public VoteRequestHandler(RaftNodeImpl raftNode) {
+        super(raftNode);
     }
 
     @Override
@@ -54,8 +54,8 @@ public class VoteResponseHandler extends AbstractResponseHandler<VoteResponse> {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(VoteResponseHandler.class);
 
-    public VoteResponseHandler(RaftNodeImpl raftNode, VoteResponse response) {
-        super(raftNode, response);
+    public VoteResponseHandler(RaftNodeImpl raftNode) {
+        super(raftNode);
     }
 
     @Override
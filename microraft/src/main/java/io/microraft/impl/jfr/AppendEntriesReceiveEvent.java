@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microraft.impl.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import io.microraft.RaftEndpoint;
+
+/**
+ * Emitted when a follower handles an append entries request sent by the
+ * leader.
+ */
+@Enabled(false)
+@Name("io.microraft.AppendEntriesReceive")
+@Label("Raft Append Entries Receive")
+@Description("Append entries request handled by a follower")
+public final class AppendEntriesReceiveEvent extends RaftEvent {
+
+    @Label("Sender")
+    String sender;
+
+    @Label("Previous Log Index")
+    long previousLogIndex;
+
+    @Label("Entry Count")
+    int entryCount;
+
+    @Label("Commit Index")
+    long commitIndex;
+
+    /**
+     * Populates the fields and commits the event if it is enabled and passes the
+     * threshold of the ongoing recording.
+     */
+    public void commit(String raftNode, RaftEndpoint sender, long previousLogIndex, int entryCount, long commitIndex) {
+        if (shouldCommit()) {
+            this.raftNode = raftNode;
+            this.sender = String.valueOf(sender.getId());
+            this.previousLogIndex = previousLogIndex;
+            this.entryCount = entryCount;
+            this.commitIndex = commitIndex;
+            commit();
+        }
+    }
+
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microraft.impl.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import io.microraft.RaftEndpoint;
+
+/**
+ * Emitted when the leader sends an append entries request to a follower.
+ */
+@Enabled(false)
+@Name("io.microraft.AppendEntriesSend")
+@Label("Raft Append Entries Send")
+@Description("Append entries request sent to a follower")
+public final class AppendEntriesSendEvent extends RaftEvent {
+
+    @Label("Target")
+    String target;
+
+    @Label("Previous Log Index")
+    long previousLogIndex;
+
+    @Label("Entry Count")
+    int entryCount;
+
+    @Label("Commit Index")
+    long commitIndex;
+
+    /**
+     * Populates the fields and commits the event if it is enabled and passes the
+     * threshold of the ongoing recording.
+     */
+    public void commit(String raftNode, RaftEndpoint target, long previousLogIndex, int entryCount, long commitIndex) {
+        if (shouldCommit()) {
+            this.raftNode = raftNode;
+            this.target = String.valueOf(target.getId());
+            this.previousLogIndex = previousLogIndex;
+            this.entryCount = entryCount;
+            this.commitIndex = commitIndex;
+            commit();
+        }
+    }
+
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microraft.impl.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Emitted when committed log entries are applied to the state machine. Its
+ * duration includes the snapshots taken while applying the log entries.
+ */
+@Name("io.microraft.Apply")
+@Label("Raft Apply")
+@Description("Committed log entries applied to the state machine")
+public final class ApplyEvent extends RaftEvent {
+
+    @Label("From Index")
+    long fromIndex;
+
+    @Label("To Index")
+    long toIndex;
+
+    /**
+     * Populates the fields and commits the event if it is enabled and passes the
+     * threshold of the ongoing recording.
+     */
+    public void commit(String raftNode, long fromIndex, long toIndex) {
+        if (shouldCommit()) {
+            this.raftNode = raftNode;
+            this.fromIndex = fromIndex;
+            this.toIndex = toIndex;
+            commit();
+        }
+    }
+
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microraft.impl.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Emitted when a Raft node moves to a new phase of leader election, i.e.,
+ * starts pre-voting, starts voting as a candidate, or becomes the leader.
+ */
+@Name("io.microraft.LeaderElection")
+@Label("Raft Leader Election")
+@Description("Leader election phase of the Raft node")
+public final class LeaderElectionEvent extends RaftEvent {
+
+    public static final String PRE_VOTE = "PRE_VOTE";
+    public static final String VOTE = "VOTE";
+    public static final String LEADER = "LEADER";
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Term")
+    int term;
+
+    @Label("Last Log Index")
+    long lastLogIndex;
+
+    /**
+     * Populates the fields and commits the event if it is enabled and passes the
+     * threshold of the ongoing recording.
+     */
+    public void commit(String raftNode, String phase, int term, long lastLogIndex) {
+        if (shouldCommit()) {
+            this.raftNode = raftNode;
+            this.phase = phase;
+            this.term = term;
+            this.lastLogIndex = lastLogIndex;
+            commit();
+        }
+    }
+
+}
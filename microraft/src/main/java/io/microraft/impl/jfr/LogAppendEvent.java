@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microraft.impl.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Emitted when log entries are appended to the Raft log, either by the leader
+ * for new operations or by a follower for the entries sent by the leader.
+ */
+@Enabled(false)
+@Name("io.microraft.LogAppend")
+@Label("Raft Log Append")
+@Description("Log entries appended to the Raft log")
+public final class LogAppendEvent extends RaftEvent {
+
+    @Label("Term")
+    int term;
+
+    @Label("From Index")
+    long fromIndex;
+
+    @Label("To Index")
+    long toIndex;
+
+    /**
+     * Populates the fields and commits the event if it is enabled and passes the
+     * threshold of the ongoing recording.
+     */
+    public void commit(String raftNode, int term, long fromIndex, long toIndex) {
+        if (shouldCommit()) {
+            this.raftNode = raftNode;
+            this.term = term;
+            this.fromIndex = fromIndex;
+            this.toIndex = toIndex;
+            commit();
+        }
+    }
+
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microraft.impl.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Emitted when the leader runs the linearizable queries of a query round after
+ * the majority acknowledges its leadership.
+ */
+@Name("io.microraft.QueryRound")
+@Label("Raft Query Round")
+@Description("Linearizable queries run by the leader")
+public final class QueryRoundEvent extends RaftEvent {
+
+    @Label("Query Sequence Number")
+    long querySequenceNumber;
+
+    @Label("Commit Index")
+    long commitIndex;
+
+    @Label("Query Count")
+    int queryCount;
+
+    /**
+     * Populates the fields and commits the event if it is enabled and passes the
+     * threshold of the ongoing recording.
+     */
+    public void commit(String raftNode, long querySequenceNumber, long commitIndex, int queryCount) {
+        if (shouldCommit()) {
+            this.raftNode = raftNode;
+            this.querySequenceNumber = querySequenceNumber;
+            this.commitIndex = commitIndex;
+            this.queryCount = queryCount;
+            commit();
+        }
+    }
+
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microraft.impl.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/**
+ * Base class of the JDK Flight Recorder events emitted by Raft nodes.
+ * <p>
+ * Events are created on the Raft node's executor thread around the hot-path
+ * steps of the Raft consensus algorithm. Their fields are populated only if
+ * the event is going to be committed, i.e., a recording with the event enabled
+ * is in progress. Otherwise, the JIT compiler eliminates the event objects, so
+ * the events cost almost nothing when there is no recording.
+ * <p>
+ * The events are grouped under the "MicroRaft" category. Events emitted for
+ * each log entry or Raft message, i.e., {@link LogAppendEvent},
+ * {@link AppendEntriesSendEvent} and {@link AppendEntriesReceiveEvent}, are
+ * disabled by default and must be enabled explicitly in the JFR settings of
+ * the recording. The other events are recorded by any recording.
+ */
+@Category("MicroRaft")
+@StackTrace(false)
+abstract class RaftEvent extends Event {
+
+    @Label("Raft Node")
+    @Description("Id of the Raft node with the Raft group id")
+    String raftNode;
+
+}
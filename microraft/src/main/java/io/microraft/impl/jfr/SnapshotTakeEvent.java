@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microraft.impl.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Emitted when a Raft node takes a snapshot of its state machine.
+ */
+@Name("io.microraft.SnapshotTake")
+@Label("Raft Snapshot Take")
+@Description("Snapshot taken from the state machine")
+public final class SnapshotTakeEvent extends RaftEvent {
+
+    @Label("Snapshot Index")
+    long snapshotIndex;
+
+    @Label("Chunk Count")
+    int chunkCount;
+
+    /**
+     * Populates the fields and commits the event if it is enabled and passes the
+     * threshold of the ongoing recording.
+     */
+    public void commit(String raftNode, long snapshotIndex, int chunkCount) {
+        if (shouldCommit()) {
+            this.raftNode = raftNode;
+            this.snapshotIndex = snapshotIndex;
+            this.chunkCount = chunkCount;
+            commit();
+        }
+    }
+
+}
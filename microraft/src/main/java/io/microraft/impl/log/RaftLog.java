@@ -76,6 +76,11 @@ public final class RaftLog {
      * Indicates if there is a change after the last {@link #flush()} call.
      */
     private boolean dirty;
+    /**
+     * Index of the last log entry or snapshot known to be flushed to the
+     * persistent storage.
+     */
+    private long flushedLogIndex;
 
     private RaftLog(int capacity, RaftStore store) {
         this.log = new ArrayRingbuffer<>(capacity);
@@ -102,6 +107,7 @@ public final class RaftLog {
         }
 
         this.store = store;
+        this.flushedLogIndex = lastLogOrSnapshotIndex();
     }
 
     public static RaftLog create(int capacity) {
@@ -178,9 +184,12 @@ public final class RaftLog {
 
         List<LogEntry> truncated = new ArrayList<>();
         for (long ix = startSequence; ix <= log.tailSequence(); ix++) {
-            truncated.add(log.read(ix));
+            LogEntry entry = log.read(ix);
+            entry.releaseSerializedForm();
+            truncated.add(entry);
         }
         log.setTailSequence(startSequence - 1);
+        flushedLogIndex = Math.min(flushedLogIndex, entryIndex - 1);
 
         if (truncated.size() > 0) {
             dirty = true;
@@ -412,6 +421,7 @@ public final class RaftLog {
 
         int truncatedEntryCount = truncateLogEntriesUntil(truncateUpToIndex);
         this.snapshot = snapshot;
+        flushedLogIndex = Math.max(flushedLogIndex, snapshot.getIndex());
 
         // snapshot chunks are already persisted and flushed before this
         // method is called. however, we also truncated log entries,
@@ -426,9 +436,13 @@ public final class RaftLog {
         long newTailSeq = Math.max(log.tailSequence(), newHeadSeq - 1);
 
         long prevSize = log.size();
-        // Set truncated slots to null to reduce memory usage.
-        // Otherwise this has no effect on correctness.
+        // Set truncated slots to null and release cached serialized forms
+        // to reduce memory usage. Otherwise this has no effect on correctness.
         for (long seq = log.headSequence(); seq < newHeadSeq; seq++) {
+            LogEntry entry = seq <= log.tailSequence() ? log.read(seq) : null;
+            if (entry != null) {
+                entry.releaseSerializedForm();
+            }
             log.set(seq, null);
         }
 
@@ -450,6 +464,17 @@ public final class RaftLog {
                 throw new RaftException("Failed to flush", null, e);
             }
         }
+
+        flushedLogIndex = lastLogOrSnapshotIndex();
+    }
+
+    /**
+     * Returns the index of the last log entry or snapshot known to be flushed to
+     * the persistent storage. All log entries are considered to be flushed if
+     * there is no persistent storage.
+     */
+    public long flushedLogIndex() {
+        return store instanceof NopRaftStore ? lastLogOrSnapshotIndex() : flushedLogIndex;
     }
 
     /**
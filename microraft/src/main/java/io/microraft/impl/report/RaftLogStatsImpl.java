@@ -38,9 +38,11 @@ public final class RaftLogStatsImpl implements RaftLogStats {
     private final int takeSnapshotCount;
     private final int installSnapshotCount;
     private final Map<RaftEndpoint, Long> followerMatchIndices;
+    private final Map<RaftEndpoint, Long> followerInstallingSnapshotIndices;
 
     public RaftLogStatsImpl(long commitIndex, BaseLogEntry lastLogOrSnapshotEntry, SnapshotEntry snapshotEntry,
-            int takeSnapshotCount, int installSnapshotCount, Map<RaftEndpoint, Long> followerMatchIndices) {
+            int takeSnapshotCount, int installSnapshotCount, Map<RaftEndpoint, Long> followerMatchIndices,
+            Map<RaftEndpoint, Long> followerInstallingSnapshotIndices) {
         requireNonNull(lastLogOrSnapshotEntry);
         requireNonNull(snapshotEntry);
         this.commitIndex = commitIndex;
@@ -51,6 +53,7 @@ public final class RaftLogStatsImpl implements RaftLogStats {
         this.takeSnapshotCount = takeSnapshotCount;
         this.installSnapshotCount = installSnapshotCount;
         this.followerMatchIndices = requireNonNull(followerMatchIndices);
+        this.followerInstallingSnapshotIndices = requireNonNull(followerInstallingSnapshotIndices);
     }
 
     @Override
@@ -93,13 +96,18 @@ public final class RaftLogStatsImpl implements RaftLogStats {
         return followerMatchIndices;
     }
 
+    @Override
+    public Map<RaftEndpoint, Long> getFollowerInstallingSnapshotIndices() {
+        return followerInstallingSnapshotIndices;
+    }
+
     @Override
     public String toString() {
         return "RaftLogReport{" + "commitIndex=" + commitIndex + ", lastLogOrSnapshotTerm=" + lastLogOrSnapshotTerm
                 + ", lastLogOrSnapshotIndex=" + lastLogOrSnapshotIndex + ", snapshotTerm=" + snapshotTerm
                 + ", snapshotIndex=" + snapshotIndex + ", takeSnapshotCount=" + takeSnapshotCount
                 + ", installSnapshotCount=" + installSnapshotCount + ", followerMatchIndices=" + followerMatchIndices
-                + '}';
+                + ", followerInstallingSnapshotIndices=" + followerInstallingSnapshotIndices + '}';
     }
 
 }
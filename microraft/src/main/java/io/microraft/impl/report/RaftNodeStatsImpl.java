@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.microraft.impl.report;
+
+import static java.util.Objects.requireNonNull;
+
+import javax.annotation.Nonnull;
+
+import io.microraft.RaftEndpoint;
+import io.microraft.RaftNodeStatus;
+import io.microraft.RaftRole;
+import io.microraft.impl.RaftNodeImpl;
+import io.microraft.impl.log.RaftLog;
+import io.microraft.model.log.BaseLogEntry;
+import io.microraft.model.log.SnapshotEntry;
+import io.microraft.report.RaftNodeStats;
+
+/**
+ * Publishes the counters and indices of a Raft node to other threads.
+ * <p>
+ * Role, status, term and group members are read from the volatile fields of
+ * the Raft node. The Raft log indices and snapshot counters are copied to the
+ * volatile fields of this object by the Raft node's executor thread, which is
+ * the only writer, when they change. Hence, the increments below do not need
+ * atomic operations.
+ */
+public final class RaftNodeStatsImpl implements RaftNodeStats {
+
+    private final RaftNodeImpl raftNode;
+    private volatile long commitIndex;
+    private volatile long lastApplied;
+    private volatile int lastLogOrSnapshotTerm;
+    private volatile long lastLogOrSnapshotIndex;
+    private volatile int snapshotTerm;
+    private volatile long snapshotIndex;
+    private volatile int takeSnapshotCount;
+    private volatile int installSnapshotCount;
+
+    public RaftNodeStatsImpl(RaftNodeImpl raftNode) {
+        this.raftNode = requireNonNull(raftNode);
+    }
+
+    /**
+     * Publishes the last log entry and snapshot of the given Raft log. Called
+     * after entries are appended to or truncated from the Raft log, or a
+     * snapshot is taken or installed.
+     *
+     * @param log
+     *            the Raft log of the Raft node
+     */
+    public void updateLog(RaftLog log) {
+        BaseLogEntry lastLogOrSnapshotEntry = log.lastLogOrSnapshotEntry();
+        SnapshotEntry snapshotEntry = log.snapshotEntry();
+        this.lastLogOrSnapshotTerm = lastLogOrSnapshotEntry.getTerm();
+        this.lastLogOrSnapshotIndex = lastLogOrSnapshotEntry.getIndex();
+        if (snapshotEntry.getIndex() != snapshotIndex) {
+            this.snapshotTerm = snapshotEntry.getTerm();
+            this.snapshotIndex = snapshotEntry.getIndex();
+        }
+    }
+
+    /**
+     * Publishes the given commit index and last applied log index.
+     *
+     * @param commitIndex
+     *            the commit index of the Raft node
+     * @param lastApplied
+     *            the last applied log index of the Raft node
+     */
+    public void updateCommitIndex(long commitIndex, long lastApplied) {
+        this.commitIndex = commitIndex;
+        this.lastApplied = lastApplied;
+    }
+
+    public void snapshotTaken() {
+        takeSnapshotCount++;
+    }
+
+    public void snapshotInstalled() {
+        installSnapshotCount++;
+    }
+
+    @Nonnull
+    @Override
+    public RaftRole getRole() {
+        return raftNode.state().role();
+    }
+
+    @Nonnull
+    @Override
+    public RaftNodeStatus getStatus() {
+        return raftNode.getStatus();
+    }
+
+    @Override
+    public int getTerm() {
+        return raftNode.state().term();
+    }
+
+    @Override
+    public RaftEndpoint getLeaderEndpoint() {
+        return raftNode.state().leader();
+    }
+
+    @Override
+    public long getCommittedMembersLogIndex() {
+        return raftNode.state().committedGroupMembers().getLogIndex();
+    }
+
+    @Override
+    public long getEffectiveMembersLogIndex() {
+        return raftNode.state().effectiveGroupMembers().getLogIndex();
+    }
+
+    @Override
+    public long getCommitIndex() {
+        return commitIndex;
+    }
+
+    @Override
+    public long getLastApplied() {
+        return lastApplied;
+    }
+
+    @Override
+    public int getLastLogOrSnapshotTerm() {
+        return lastLogOrSnapshotTerm;
+    }
+
+    @Override
+    public long getLastLogOrSnapshotIndex() {
+        return lastLogOrSnapshotIndex;
+    }
+
+    @Override
+    public int getLastSnapshotTerm() {
+        return snapshotTerm;
+    }
+
+    @Override
+    public long getLastSnapshotIndex() {
+        return snapshotIndex;
+    }
+
+    @Override
+    public int getTakeSnapshotCount() {
+        return takeSnapshotCount;
+    }
+
+    @Override
+    public int getInstallSnapshotCount() {
+        return installSnapshotCount;
+    }
+
+    @Override
+    public String toString() {
+        return "RaftNodeStats{" + "role=" + getRole() + ", status=" + getStatus() + ", term=" + getTerm()
+                + ", leader=" + getLeaderEndpoint() + ", commitIndex=" + commitIndex + ", lastApplied="
+                + lastApplied + ", lastLogOrSnapshotTerm=" + lastLogOrSnapshotTerm + ", lastLogOrSnapshotIndex="
+                + lastLogOrSnapshotIndex + ", snapshotTerm=" + snapshotTerm + ", snapshotIndex=" + snapshotIndex
+                + ", takeSnapshotCount=" + takeSnapshotCount + ", installSnapshotCount=" + installSnapshotCount
+                + '}';
+    }
+
+}
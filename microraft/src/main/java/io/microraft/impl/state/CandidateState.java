@@ -20,16 +20,32 @@ package io.microraft.impl.state;
 import java.util.HashSet;
 import java.util.Set;
 
+import io.microraft.RaftEndpoint;
+
 /**
  * State maintained by each candidate during the pre-voting and voting phases.
  */
 public final class CandidateState {
 
     private final int majority;
+    private final RaftGroupMembersState groupMembers;
+    private final RaftGroupMembersState jointGroupMembers;
     private final Set<Object> voters = new HashSet<>();
 
     CandidateState(int majority) {
+        this(majority, null, null);
+    }
+
+    /**
+     * Creates a candidate state which also checks the majorities of the given
+     * group members if the joint group members are not null.
+     *
+     * @see RaftState#jointGroupMembers()
+     */
+    CandidateState(int majority, RaftGroupMembersState groupMembers, RaftGroupMembersState jointGroupMembers) {
         this.majority = majority;
+        this.groupMembers = groupMembers;
+        this.jointGroupMembers = jointGroupMembers;
     }
 
     /**
@@ -46,7 +62,25 @@ public final class CandidateState {
      * Returns true if the majority votes are granted, false otherwise.
      */
     public boolean isMajorityGranted() {
-        return voteCount() >= majority();
+        if (jointGroupMembers == null) {
+            return voteCount() >= majority();
+        }
+
+        // during a joint consensus membership change, the majorities of both
+        // the old and new voting members must grant their votes.
+        return voteCount(groupMembers) >= groupMembers.getMajorityQuorumSize()
+                && voteCount(jointGroupMembers) >= jointGroupMembers.getMajorityQuorumSize();
+    }
+
+    private int voteCount(RaftGroupMembersState members) {
+        int count = 0;
+        for (RaftEndpoint member : members.getVotingMembers()) {
+            if (voters.contains(member)) {
+                count++;
+            }
+        }
+
+        return count;
     }
 
     /**
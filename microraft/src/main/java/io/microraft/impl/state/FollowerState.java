@@ -58,6 +58,12 @@ public final class FollowerState {
      */
     private long flowControlSequenceNumber;
 
+    /**
+     * the log index of the last snapshot the leader started to transfer to the
+     * follower
+     */
+    private long snapshotTransferIndex;
+
     FollowerState(long matchIndex, long nextIndex, long responseTimestamp) {
         this.matchIndex = matchIndex;
         this.nextIndex = nextIndex;
@@ -78,6 +84,21 @@ public final class FollowerState {
         this.matchIndex = matchIndex;
     }
 
+    /**
+     * Returns the log index of the snapshot the follower is installing, or 0 if
+     * the follower is not installing a snapshot.
+     */
+    public long installingSnapshotIndex() {
+        return snapshotTransferIndex > matchIndex ? snapshotTransferIndex : 0;
+    }
+
+    /**
+     * Sets the log index of the snapshot transferred to the follower.
+     */
+    public void snapshotTransferStarted(long snapshotIndex) {
+        this.snapshotTransferIndex = snapshotIndex;
+    }
+
     /**
      * Returns the next index for follower.
      */
@@ -167,7 +188,8 @@ public final class FollowerState {
     public String toString() {
         return "FollowerState{" + "matchIndex=" + matchIndex + ", nextIndex=" + nextIndex + ", backoffRound="
                 + backoffRound + ", nextBackoffPower=" + nextBackoffPower + ", responseTimestamp=" + responseTimestamp
-                + ", flowControlSequenceNumber=" + flowControlSequenceNumber + '}';
+                + ", flowControlSequenceNumber=" + flowControlSequenceNumber + ", snapshotTransferIndex="
+                + snapshotTransferIndex + '}';
     }
 
 }
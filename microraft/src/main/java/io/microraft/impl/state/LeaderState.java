@@ -47,8 +47,43 @@ public final class LeaderState {
 
     private boolean flushTaskSubmitted;
 
+    private boolean replicationTickScheduled;
+
     private long flushedLogIndex;
 
+    /**
+     * Denotes that the leader has stopped sending heartbeats since the Raft group
+     * is idle.
+     */
+    private boolean quiescent;
+
+    /**
+     * Timestamp and commit index of the last heartbeat round in which the Raft
+     * group is found idle. The leader becomes quiescent in the next heartbeat
+     * round if the Raft group is still idle and all followers have responded
+     * since then.
+     */
+    private long quiescenceCheckTimestamp;
+
+    private long quiescenceCheckCommitIndex;
+
+    /**
+     * Timestamp of the last time the leader woke up from quiescence.
+     */
+    private long wakeUpTimestamp;
+
+    /**
+     * The group members for which {@link #sortedMatchIndices} is maintained.
+     */
+    private RaftGroupMembersState quorumGroupMembers;
+
+    /**
+     * Match indices of the remote voting members in ascending order. It is
+     * updated incrementally when a match index changes, and re-built only when
+     * the group members change.
+     */
+    private long[] sortedMatchIndices;
+
     LeaderState(Collection<RaftEndpoint> remoteMembers, long lastLogIndex, long currentTimeMillis) {
         remoteMembers.forEach(
                 follower -> followerStates.put(follower, new FollowerState(0L, lastLogIndex + 1, currentTimeMillis)));
@@ -70,6 +105,7 @@ public final class LeaderState {
      */
     public void remove(RaftEndpoint follower) {
         FollowerState removed = followerStates.remove(follower);
+        quorumGroupMembers = null;
         queryState.removeAck(follower);
         assert removed != null : "Unknown follower " + follower;
     }
@@ -90,6 +126,153 @@ public final class LeaderState {
         return indices;
     }
 
+    /**
+     * Sets the match index of the given follower and updates the sorted match
+     * indices of the voting members.
+     */
+    public void matchIndex(RaftEndpoint follower, long matchIndex) {
+        FollowerState followerState = getFollowerState(follower);
+        long previousMatchIndex = followerState.matchIndex();
+        followerState.matchIndex(matchIndex);
+
+        if (quorumGroupMembers != null && quorumGroupMembers.isVotingMember(follower)) {
+            replaceSortedMatchIndex(previousMatchIndex, matchIndex);
+        }
+    }
+
+    /**
+     * Returns the highest log index known to be replicated on the log
+     * replication quorum of the given group members.
+     *
+     * @param groupMembers
+     *            the effective group members
+     * @param quorumSize
+     *            the log replication quorum size
+     * @param leaderLogIndex
+     *            the leader's own log index to count in the quorum, or a
+     *            negative value if the leader is not a member of the group
+     *            anymore
+     */
+    public long quorumMatchIndex(RaftGroupMembersState groupMembers, int quorumSize, long leaderLogIndex) {
+        if (groupMembers != quorumGroupMembers) {
+            initSortedMatchIndices(groupMembers);
+        }
+
+        return quorumMatchIndex(sortedMatchIndices, quorumSize, leaderLogIndex);
+    }
+
+    /**
+     * Returns the highest log index known to be replicated on the majority of
+     * the given group members. Unlike
+     * {@link #quorumMatchIndex(RaftGroupMembersState, int, long)}, the match
+     * indices are not cached, since it is used only for the committed group
+     * members during a joint consensus membership change.
+     *
+     * @param groupMembers
+     *            the committed group members
+     * @param leaderLogIndex
+     *            the leader's own log index to count in the quorum, or a
+     *            negative value if the leader is not a voting member of the
+     *            given group members
+     *
+     * @see RaftState#jointGroupMembers()
+     */
+    public long majorityMatchIndex(RaftGroupMembersState groupMembers, long leaderLogIndex) {
+        long[] indices = new long[groupMembers.remoteVotingMembers().size()];
+        int i = 0;
+        for (RaftEndpoint member : groupMembers.remoteVotingMembers()) {
+            indices[i++] = followerStates.get(member).matchIndex();
+        }
+
+        Arrays.sort(indices);
+
+        return quorumMatchIndex(indices, groupMembers.getMajorityQuorumSize(), leaderLogIndex);
+    }
+
+    /**
+     * Returns the highest log index known to be replicated on the majority of
+     * the voting members of the given group members which are not witnesses,
+     * i.e., which store the operations of the log entries. Since witnesses
+     * acknowledge log entries without storing their operations, a log entry
+     * must be replicated on this majority in addition to the log replication
+     * quorum before it is committed. Otherwise, a committed operation could
+     * survive only on the leader.
+     *
+     * @param groupMembers
+     *            the group members with witnesses
+     * @param leaderLogIndex
+     *            the leader's own log index to count in the majority, or a
+     *            negative value if the leader is not a voting member of the
+     *            given group members
+     */
+    public long dataMajorityMatchIndex(RaftGroupMembersState groupMembers, long leaderLogIndex) {
+        Collection<RaftEndpoint> remoteVotingMembers = groupMembers.remoteVotingMembers();
+        long[] indices = new long[remoteVotingMembers.size() - groupMembers.getWitnessMembers().size()];
+        int i = 0;
+        for (RaftEndpoint member : remoteVotingMembers) {
+            if (!groupMembers.isWitnessMember(member)) {
+                indices[i++] = followerStates.get(member).matchIndex();
+            }
+        }
+
+        Arrays.sort(indices);
+
+        int dataMemberCount = indices.length + (leaderLogIndex < 0 ? 0 : 1);
+
+        return quorumMatchIndex(indices, dataMemberCount / 2 + 1, leaderLogIndex);
+    }
+
+    private static long quorumMatchIndex(long[] indices, int quorumSize, long leaderLogIndex) {
+        if (leaderLogIndex < 0) {
+            return indices[indices.length - quorumSize];
+        }
+
+        // the quorum index in the sorted array of the follower match indices
+        // together with the leader's log index:
+        // 4 nodes: [0, 1, 2, 3] => Qlr = 2, quorum index = 2
+        // 5 nodes: [0, 1, 2, 3, 4] => Qlr = 3, quorum index = 2
+        int quorumIndex = indices.length + 1 - quorumSize;
+        long lower = quorumIndex > 0 ? indices[quorumIndex - 1] : Long.MIN_VALUE;
+        long upper = quorumIndex < indices.length ? indices[quorumIndex] : Long.MAX_VALUE;
+
+        return Math.max(lower, Math.min(leaderLogIndex, upper));
+    }
+
+    private void initSortedMatchIndices(RaftGroupMembersState groupMembers) {
+        long[] indices = new long[groupMembers.remoteVotingMembers().size()];
+        int i = 0;
+        for (RaftEndpoint member : groupMembers.remoteVotingMembers()) {
+            indices[i++] = followerStates.get(member).matchIndex();
+        }
+
+        Arrays.sort(indices);
+        sortedMatchIndices = indices;
+        quorumGroupMembers = groupMembers;
+    }
+
+    private void replaceSortedMatchIndex(long previous, long current) {
+        long[] indices = sortedMatchIndices;
+        int i = Arrays.binarySearch(indices, previous);
+        assert i >= 0 : "Match index: " + previous + " not found in " + Arrays.toString(indices);
+
+        // shift the neighbours until the new value fits into its slot.
+        // match indices mostly increase by a small amount, so it moves
+        // only a few slots, if any.
+        if (current > previous) {
+            while (i + 1 < indices.length && indices[i + 1] < current) {
+                indices[i] = indices[i + 1];
+                i++;
+            }
+        } else {
+            while (i > 0 && indices[i - 1] > current) {
+                indices[i] = indices[i - 1];
+                i--;
+            }
+        }
+
+        indices[i] = current;
+    }
+
     /**
      * Returns a non-null follower state object for the given follower.
      */
@@ -142,6 +325,65 @@ public final class LeaderState {
         this.flushTaskSubmitted = flushTaskSubmitted;
     }
 
+    public boolean isReplicationTickScheduled() {
+        return replicationTickScheduled;
+    }
+
+    public void replicationTickScheduled(boolean replicationTickScheduled) {
+        this.replicationTickScheduled = replicationTickScheduled;
+    }
+
+    public boolean isQuiescent() {
+        return quiescent;
+    }
+
+    public void quiesce() {
+        quiescent = true;
+        quiescenceCheckTimestamp = 0;
+    }
+
+    public void wakeUp(long currentTimeMillis) {
+        quiescent = false;
+        wakeUpTimestamp = currentTimeMillis;
+    }
+
+    public long wakeUpTimestamp() {
+        return wakeUpTimestamp;
+    }
+
+    public void quiescenceCheck(long timestamp, long commitIndex) {
+        quiescenceCheckTimestamp = timestamp;
+        quiescenceCheckCommitIndex = commitIndex;
+    }
+
+    public long quiescenceCheckTimestamp() {
+        return quiescenceCheckTimestamp;
+    }
+
+    public long quiescenceCheckCommitIndex() {
+        return quiescenceCheckCommitIndex;
+    }
+
+    /**
+     * Returns true if there is no inflight query, and all followers have caught
+     * up with the given log index and sent a response at or after the given
+     * timestamp.
+     */
+    public boolean isIdle(long lastLogIndex, long timestamp) {
+        if (queryState.queryCount() > 0) {
+            return false;
+        }
+
+        for (FollowerState followerState : followerStates.values()) {
+            if (followerState.matchIndex() != lastLogIndex || followerState.isRequestBackoffSet()
+                    || followerState.responseTimestamp() < timestamp) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
     public void flushedLogIndex(long flushedLogIndex) {
         assert flushedLogIndex >= this.flushedLogIndex
                 : "new flushed log index: " + flushedLogIndex + " existing flushed log index: " + this.flushedLogIndex;
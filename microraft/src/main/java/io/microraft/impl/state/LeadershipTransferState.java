@@ -17,23 +17,43 @@
 
 package io.microraft.impl.state;
 
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+
 import io.microraft.RaftEndpoint;
+import io.microraft.exception.NotLeaderException;
 import io.microraft.impl.util.OrderedFuture;
 
 /**
  * State maintained by the Raft group leader during leadership transfer.
+ * <p>
+ * When the fast leadership transfer is enabled, the replicate tasks submitted
+ * during the leadership transfer are held here until it completes.
+ *
+ * @see io.microraft.RaftConfig#isFastLeadershipTransferEnabled()
  */
 public final class LeadershipTransferState {
 
+    private final Clock clock;
+    private final long startMillis;
+    private final List<Runnable> heldTasks = new ArrayList<>();
+    private final List<OrderedFuture<?>> heldFutures = new ArrayList<>();
     private int term;
     private RaftEndpoint endpoint;
     private OrderedFuture<Object> future;
+    private boolean fast;
     private int tryCount;
+    private boolean leaderElectionTriggered;
 
-    LeadershipTransferState(int term, RaftEndpoint endpoint, OrderedFuture<Object> future) {
+    LeadershipTransferState(int term, RaftEndpoint endpoint, OrderedFuture<Object> future, boolean fast,
+            Clock clock) {
+        this.clock = clock;
+        this.startMillis = clock.millis();
         this.term = term;
         this.endpoint = endpoint;
         this.future = future;
+        this.fast = fast;
     }
 
     /**
@@ -58,16 +78,107 @@ public final class LeadershipTransferState {
     }
 
     /**
-     * Completes the current leadership transfer process with the given result.
+     * Returns true if the fast leadership transfer is enabled for this process.
      */
-    void complete(long commitIndex, Object result) {
-        if (result instanceof Throwable) {
-            future.fail((Throwable) result);
-            return;
+    public boolean isFast() {
+        return fast;
+    }
+
+    /**
+     * Marks that the target endpoint is asked to start a leader election.
+     * Returns false if it is already marked.
+     */
+    public boolean tryMarkLeaderElectionTriggered() {
+        if (leaderElectionTriggered) {
+            return false;
+        }
+
+        leaderElectionTriggered = true;
+        return true;
+    }
+
+    /**
+     * Clears the mark so that the target endpoint can be asked to start a
+     * leader election again.
+     */
+    public void resetLeaderElectionTriggered() {
+        leaderElectionTriggered = false;
+    }
+
+    /**
+     * Holds the given replicate task until this leadership transfer process
+     * completes. Returns false if the given number of tasks are already held.
+     */
+    public boolean hold(Runnable task, OrderedFuture<?> taskFuture, int maxHeldTaskCount) {
+        if (heldTasks.size() >= maxHeldTaskCount) {
+            return false;
         }
 
+        heldTasks.add(task);
+        heldFutures.add(taskFuture);
+        return true;
+    }
+
+    /**
+     * Returns the number of replicate tasks held during this leadership
+     * transfer process.
+     */
+    public int heldTaskCount() {
+        return heldTasks.size();
+    }
+
+    /**
+     * Returns the milliseconds passed since this leadership transfer process
+     * has started.
+     */
+    public long elapsedMillis() {
+        return clock.millis() - startMillis;
+    }
+
+    /**
+     * Fails the current leadership transfer process while the local Raft node
+     * is still the leader. The held replicate tasks are run again.
+     */
+    void fail(Throwable t) {
+        future.fail(t);
+        heldTasks.forEach(Runnable::run);
+    }
+
+    /**
+     * Completes the current leadership transfer process when the local Raft
+     * node steps down, without waiting for the new leader. It is used when the
+     * fast leadership transfer is disabled, hence there is no held replicate
+     * task.
+     */
+    void complete(long commitIndex) {
+        assert !fast && heldFutures.isEmpty();
         if (!future.isDone()) {
-            future.complete(commitIndex, result);
+            future.complete(commitIndex, null);
+        }
+    }
+
+    /**
+     * Completes the current leadership transfer process after the local Raft
+     * node has stepped down in the fast mode, with the new leader known by the local Raft node,
+     * or null if it is not known. The process succeeds only if the target
+     * endpoint has become the leader. Otherwise, it fails with
+     * {@link NotLeaderException} pointing to the new leader. The held replicate
+     * tasks are failed with {@link NotLeaderException} pointing to the new
+     * leader before the process is completed.
+     */
+    void complete(long commitIndex, RaftEndpoint localEndpoint, RaftEndpoint newLeader) {
+        for (OrderedFuture<?> heldFuture : heldFutures) {
+            heldFuture.fail(new NotLeaderException(localEndpoint, newLeader));
+        }
+
+        if (future.isDone()) {
+            return;
+        }
+
+        if (endpoint.equals(newLeader)) {
+            future.complete(commitIndex, fast ? elapsedMillis() : null);
+        } else {
+            future.fail(new NotLeaderException(localEndpoint, newLeader));
         }
     }
 
@@ -76,7 +187,7 @@ public final class LeadershipTransferState {
      * if it aims the same target endpoint. Otherwise, the given future object is
      * notified with {@link IllegalStateException}.
      */
-    void andThen(RaftEndpoint targetEndpoint, OrderedFuture otherFuture) {
+    void andThen(RaftEndpoint targetEndpoint, OrderedFuture<Object> otherFuture) {
         if (this.endpoint.equals(targetEndpoint)) {
             future.thenApply(ordered -> {
                 if (!otherFuture.isDone()) {
@@ -24,6 +24,7 @@ import java.util.List;
 import java.util.Set;
 
 import io.microraft.RaftEndpoint;
+import io.microraft.executor.RaftNodeExecutor.Cancellable;
 import io.microraft.impl.statemachine.NoOp;
 import io.microraft.impl.util.OrderedFuture;
 import io.microraft.statemachine.StateMachine;
@@ -198,11 +199,21 @@ public final class QueryState {
         final Object operation;
         final OrderedFuture future;
 
+        Cancellable timeout;
+
         public QueryContainer(Object operation, OrderedFuture future) {
             this.operation = operation;
             this.future = future;
         }
 
+        /**
+         * Sets the handle of the task that fails this query if it is not executed
+         * in time. The task is cancelled once the query is completed.
+         */
+        public void setTimeout(Cancellable timeout) {
+            this.timeout = timeout;
+        }
+
         public void run(long commitIndex, StateMachine stateMachine) {
             try {
                 Object result = null;
@@ -210,6 +221,7 @@ public final class QueryState {
                     result = stateMachine.runOperation(commitIndex, operation);
                 }
                 future.complete(commitIndex, result);
+                cancelTimeout();
             } catch (Throwable t) {
                 fail(t);
             }
@@ -217,6 +229,14 @@ public final class QueryState {
 
         public void fail(Throwable t) {
             future.fail(t);
+            cancelTimeout();
+        }
+
+        private void cancelTimeout() {
+            if (timeout != null) {
+                timeout.cancel();
+                timeout = null;
+            }
         }
     }
 
@@ -22,6 +22,7 @@ import static java.util.Objects.requireNonNull;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.Set;
 
@@ -40,12 +41,18 @@ public final class RaftGroupMembersState implements RaftGroupMembers {
     private final long index;
     private final Collection<RaftEndpoint> members;
     private final Collection<RaftEndpoint> votingMembers;
+    private final Collection<RaftEndpoint> witnessMembers;
     private final Collection<RaftEndpoint> remoteMembers;
     private final Collection<RaftEndpoint> remoteVotingMembers;
     private final int majority;
 
     public RaftGroupMembersState(long index, Collection<RaftEndpoint> members, Collection<RaftEndpoint> votingMembers,
             RaftEndpoint localMember) {
+        this(index, members, votingMembers, Collections.emptySet(), localMember);
+    }
+
+    public RaftGroupMembersState(long index, Collection<RaftEndpoint> members, Collection<RaftEndpoint> votingMembers,
+            Collection<RaftEndpoint> witnessMembers, RaftEndpoint localMember) {
         if (index < 0) {
             throw new IllegalArgumentException("Invalid Raft group members log index: " + index);
         }
@@ -58,6 +65,12 @@ public final class RaftGroupMembersState implements RaftGroupMembers {
             throw new IllegalArgumentException("Cannot have empty voting members!");
         }
         this.votingMembers = unmodifiableSet(voting);
+        Set<RaftEndpoint> witnesses = new LinkedHashSet<>(voting);
+        witnesses.retainAll(requireNonNull(witnessMembers));
+        if (witnesses.size() == voting.size()) {
+            throw new IllegalArgumentException("Cannot have only witness voting members!");
+        }
+        this.witnessMembers = unmodifiableSet(witnesses);
         this.majority = votingMembers.size() / 2 + 1;
         Set<RaftEndpoint> remoteMembers = new LinkedHashSet<>(members);
         remoteMembers.remove(localMember);
@@ -101,6 +114,12 @@ public final class RaftGroupMembersState implements RaftGroupMembers {
         return new ArrayList<>(votingMembers);
     }
 
+    @Nonnull
+    @Override
+    public Collection<RaftEndpoint> getWitnessMembers() {
+        return witnessMembers;
+    }
+
     /**
      * Returns the number of members in the Raft group.
      */
@@ -154,13 +173,27 @@ public final class RaftGroupMembersState implements RaftGroupMembers {
         return votingMembers.contains(endpoint);
     }
 
+    /**
+     * Returns true if the given endpoint is a witness member of the Raft group,
+     * false otherwise.
+     */
+    public boolean isWitnessMember(RaftEndpoint endpoint) {
+        return witnessMembers.contains(endpoint);
+    }
+
     public RaftGroupMembersView populate(RaftGroupMembersViewBuilder builder) {
-        return builder.setLogIndex(index).setMembers(members).setVotingMembers(votingMembers).build();
+        builder.setLogIndex(index).setMembers(members).setVotingMembers(votingMembers);
+        if (!witnessMembers.isEmpty()) {
+            builder.setWitnessMembers(witnessMembers);
+        }
+
+        return builder.build();
     }
 
     @Override
     public String toString() {
-        return "RaftGroupMembers{" + "index=" + index + ", members=" + members + '}';
+        return "RaftGroupMembers{" + "index=" + index + ", members=" + members
+                + (witnessMembers.isEmpty() ? "" : ", witnessMembers=" + witnessMembers) + '}';
     }
 
 }
@@ -25,6 +25,7 @@ import static io.microraft.model.log.SnapshotEntry.isNonInitial;
 import static java.util.Objects.requireNonNull;
 
 import java.io.IOException;
+import java.time.Clock;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -123,6 +124,28 @@ public final class RaftState {
      */
     private volatile RaftGroupMembersState effectiveGroupMembers;
 
+    /**
+     * The committed group members while the effective group members are
+     * applied with a joint consensus membership change that is not committed
+     * yet, null otherwise. A membership change is a joint consensus change if
+     * it adds or removes more than one voting member. Until it is committed,
+     * log entries are committed and leaders are elected with the majorities of
+     * both the committed and the effective voting members.
+     */
+    private volatile RaftGroupMembersState jointGroupMembers;
+
+    /**
+     * Union of the remote members of {@link #committedGroupMembers} and
+     * {@link #effectiveGroupMembers} while {@link #jointGroupMembers} is set.
+     */
+    private Collection<RaftEndpoint> jointRemoteMembers;
+
+    /**
+     * Union of the remote voting members of {@link #committedGroupMembers} and
+     * {@link #effectiveGroupMembers} while {@link #jointGroupMembers} is set.
+     */
+    private Collection<RaftEndpoint> jointRemoteVotingMembers;
+
     /**
      * Role of this Raft node.
      */
@@ -180,6 +203,12 @@ public final class RaftState {
      */
     private LeadershipTransferState leadershipTransferState;
 
+    /**
+     * Leadership transfer process of this Raft node which has stepped down
+     * and is waiting to learn the new leader to report the outcome.
+     */
+    private LeadershipTransferState steppedDownLeadershipTransferState;
+
     /**
      * State maintained by followers to keep received snapshot chunks during
      * snapshot installation.
@@ -291,17 +320,21 @@ public final class RaftState {
     }
 
     /**
-     * Returns remote members in the effective group members.
+     * Returns remote members in the effective group members. During a joint
+     * consensus membership change, remote members of the committed group
+     * members are also included.
      */
     public Collection<RaftEndpoint> remoteMembers() {
-        return effectiveGroupMembers.remoteMembers();
+        return jointGroupMembers != null ? jointRemoteMembers : effectiveGroupMembers.remoteMembers();
     }
 
     /**
-     * Returns remote voting members in the effective group members.
+     * Returns remote voting members in the effective group members. During a
+     * joint consensus membership change, remote voting members of the committed
+     * group members are also included.
      */
     public Collection<RaftEndpoint> remoteVotingMembers() {
-        return effectiveGroupMembers.remoteVotingMembers();
+        return jointGroupMembers != null ? jointRemoteVotingMembers : effectiveGroupMembers.remoteVotingMembers();
     }
 
     /**
@@ -332,6 +365,15 @@ public final class RaftState {
         return effectiveGroupMembers;
     }
 
+    /**
+     * Returns the committed group members if the effective group members are
+     * applied with a joint consensus membership change that is not committed
+     * yet, null otherwise.
+     */
+    public RaftGroupMembersState jointGroupMembers() {
+        return jointGroupMembers;
+    }
+
     /**
      * Returns role of this Raft node.
      */
@@ -441,7 +483,15 @@ public final class RaftState {
         LeaderState currentLeaderState = leaderState;
         leaderState = null;
         candidateState = null;
-        completeLeadershipTransfer(null);
+        if (leadershipTransferState != null) {
+            if (leadershipTransferState.isFast()) {
+                // the outcome is known once the new leader is known
+                steppedDownLeadershipTransferState = leadershipTransferState;
+            } else {
+                leadershipTransferState.complete(commitIndex);
+            }
+            leadershipTransferState = null;
+        }
         termState = newTermState;
         if (currentLeaderState != null) {
             // this is done here to read the updated leader field
@@ -474,16 +524,54 @@ public final class RaftState {
     }
 
     /**
-     * Completes the current leadership transfer process with the given result and
-     * resets it.
+     * Fails the current leadership transfer process with the given error and
+     * resets it while this Raft node is still the leader.
      */
-    public void completeLeadershipTransfer(Object result) {
+    public void failLeadershipTransfer(Throwable t) {
         if (leadershipTransferState == null) {
             return;
         }
 
-        leadershipTransferState.complete(commitIndex, result);
+        // reset first so that the held replicate tasks can run
+        LeadershipTransferState failed = leadershipTransferState;
         leadershipTransferState = null;
+        if (failed.isFast()) {
+            LOGGER.info("{} Leadership transfer to {} failed in {} ms with {} held operations. Error: {}",
+                    localEndpoint, failed.endpoint().getId(), failed.elapsedMillis(), failed.heldTaskCount(), t);
+        }
+
+        failed.fail(t);
+    }
+
+    /**
+     * Fails the leadership transfer processes of this Raft node with
+     * {@link NotLeaderException} since it will not learn the new leader after
+     * moving to a terminal status.
+     */
+    public void failLeadershipTransfersOnTermination() {
+        failLeadershipTransfer(new NotLeaderException(localEndpoint, null));
+        completeSteppedDownLeadershipTransfer(null);
+    }
+
+    /**
+     * Completes the leadership transfer process of this Raft node which has
+     * stepped down with the given new leader, or null if the new leader is not
+     * known, and resets it.
+     */
+    private void completeSteppedDownLeadershipTransfer(RaftEndpoint newLeader) {
+        if (steppedDownLeadershipTransferState == null) {
+            return;
+        }
+
+        LeadershipTransferState completed = steppedDownLeadershipTransferState;
+        steppedDownLeadershipTransferState = null;
+        if (completed.isFast()) {
+            LOGGER.info("{} Leadership transfer to {} completed in {} ms with {} held operations. New leader: {}",
+                    localEndpoint, completed.endpoint().getId(), completed.elapsedMillis(),
+                    completed.heldTaskCount(), newLeader != null ? newLeader.getId() : null);
+        }
+
+        completed.complete(commitIndex, localEndpoint, newLeader);
     }
 
     /**
@@ -497,6 +585,7 @@ public final class RaftState {
         }
 
         preCandidateState = null;
+        completeSteppedDownLeadershipTransfer(null);
         int newTerm = term() + 1;
         RaftTermState newTermState = termState.switchTo(newTerm);
         persistTerm(newTermState);
@@ -504,7 +593,7 @@ public final class RaftState {
         leaderState = null;
         grantVote(newTerm, localEndpoint);
         role = CANDIDATE;
-        candidateState = new CandidateState(leaderElectionQuorumSize());
+        candidateState = new CandidateState(leaderElectionQuorumSize(), effectiveGroupMembers, jointGroupMembers);
         candidateState.grantVote(localEndpoint);
     }
 
@@ -529,14 +618,21 @@ public final class RaftState {
     }
 
     /**
-     * Returns the quorum size for a candidate to win leader election.
+     * Returns the quorum size for a candidate to win leader election. During a
+     * joint consensus membership change, the bigger one of the majorities of the
+     * committed and effective voting members is returned, and a candidate must
+     * collect the votes of both majorities.
      */
     public int leaderElectionQuorumSize() {
-        return effectiveGroupMembers.getMajorityQuorumSize();
+        int quorumSize = effectiveGroupMembers.getMajorityQuorumSize();
+        return jointGroupMembers != null ? Math.max(quorumSize, jointGroupMembers.getMajorityQuorumSize()) : quorumSize;
     }
 
     /**
-     * Returns the quorum size for committing a log entry.
+     * Returns the quorum size for committing a log entry. During a joint
+     * consensus membership change, the bigger one of the majorities of the
+     * committed and effective voting members is returned, and a log entry must
+     * be replicated to both majorities.
      */
     public int logReplicationQuorumSize() {
         /*
@@ -576,8 +672,7 @@ public final class RaftState {
         leader(localEndpoint);
         preCandidateState = null;
         candidateState = null;
-        leaderState = new LeaderState(effectiveGroupMembers.remoteMembers(), log.lastLogOrSnapshotIndex(),
-                currentTimeMillis);
+        leaderState = new LeaderState(remoteMembers(), log.lastLogOrSnapshotIndex(), currentTimeMillis);
     }
 
     /**
@@ -585,22 +680,47 @@ public final class RaftState {
      */
     public void leader(RaftEndpoint endpoint) {
         termState = termState.withLeader(endpoint);
+        if (endpoint != null) {
+            completeSteppedDownLeadershipTransfer(endpoint);
+        }
     }
 
     /**
-     * Returns true if the given endpoint is in the effective group members, false
-     * otherwise.
+     * Returns true if the given endpoint is in the effective group members, or
+     * in the committed group members during a joint consensus membership
+     * change, false otherwise.
      */
     public boolean isKnownMember(RaftEndpoint endpoint) {
-        return effectiveGroupMembers.isKnownMember(endpoint);
+        return effectiveGroupMembers.isKnownMember(endpoint)
+                || (jointGroupMembers != null && jointGroupMembers.isKnownMember(endpoint));
     }
 
     /**
      * Returns true if the given endpoint is a voting member in the effective group
-     * members, false otherwise.
+     * members, or in the committed group members during a joint consensus
+     * membership change, false otherwise.
      */
     public boolean isVotingMember(RaftEndpoint endpoint) {
-        return effectiveGroupMembers.isVotingMember(endpoint);
+        return effectiveGroupMembers.isVotingMember(endpoint)
+                || (jointGroupMembers != null && jointGroupMembers.isVotingMember(endpoint));
+    }
+
+    /**
+     * Returns true if the given endpoint is a witness member in the effective
+     * group members, or in the committed group members during a joint
+     * consensus membership change, false otherwise.
+     */
+    public boolean isWitnessMember(RaftEndpoint endpoint) {
+        return effectiveGroupMembers.isWitnessMember(endpoint)
+                || (jointGroupMembers != null && jointGroupMembers.isWitnessMember(endpoint));
+    }
+
+    /**
+     * Returns true if the local endpoint is a witness member in the effective
+     * group members, false otherwise.
+     */
+    public boolean isLocalWitness() {
+        return effectiveGroupMembers.isWitnessMember(localEndpoint);
     }
 
     /**
@@ -608,7 +728,10 @@ public final class RaftState {
      * local endpoint.
      */
     public void initPreCandidateState() {
-        preCandidateState = new CandidateState(leaderElectionQuorumSize());
+        // this Raft node no longer waits for a new leader
+        completeSteppedDownLeadershipTransfer(null);
+        preCandidateState = new CandidateState(leaderElectionQuorumSize(), effectiveGroupMembers,
+                jointGroupMembers);
         preCandidateState.grantVote(localEndpoint);
     }
 
@@ -640,6 +763,28 @@ public final class RaftState {
      */
     public void updateGroupMembers(long logIndex, Collection<RaftEndpoint> members,
             Collection<RaftEndpoint> votingMembers, long currentTimeMillis) {
+        updateGroupMembers(logIndex, members, votingMembers, Collections.emptySet(), currentTimeMillis);
+    }
+
+    /**
+     * Initializes the effective members with the given members, witness members
+     * and the log index.
+     *
+     * @param logIndex
+     *            log index of membership change
+     * @param members
+     *            latest applied members
+     * @param votingMembers
+     *            latest applied voting members
+     * @param witnessMembers
+     *            latest applied witness members
+     * @param currentTimeMillis
+     *            the current time since epoch
+     * @see #updateGroupMembers(long, Collection, Collection, long)
+     */
+    public void updateGroupMembers(long logIndex, Collection<RaftEndpoint> members,
+            Collection<RaftEndpoint> votingMembers, Collection<RaftEndpoint> witnessMembers,
+            long currentTimeMillis) {
         assert committedGroupMembers == effectiveGroupMembers : "Cannot update group members to: " + members
                 + " at log index: " + logIndex + " because effective group members: " + effectiveGroupMembers
                 + " is different than committed group members: " + committedGroupMembers;
@@ -648,16 +793,20 @@ public final class RaftState {
                         + " because effective group members: " + effectiveGroupMembers + " has a bigger log index.";
 
         RaftGroupMembersState newGroupMembers = new RaftGroupMembersState(logIndex, members, votingMembers,
-                localEndpoint);
+                witnessMembers, localEndpoint);
         committedGroupMembers = effectiveGroupMembers;
         effectiveGroupMembers = newGroupMembers;
+        initJointGroupMembers();
 
         if (leaderState != null) {
             members.stream().filter(member -> !committedGroupMembers.isKnownMember(member))
                     .forEach(member -> leaderState.add(member, log.lastLogOrSnapshotIndex(), currentTimeMillis));
 
-            committedGroupMembers.remoteMembers().stream().filter(member -> !members.contains(member))
-                    .forEach(member -> leaderState.remove(member));
+            // the removed members still count for the quorums until a joint
+            // consensus membership change is committed.
+            if (jointGroupMembers == null) {
+                removeLeftMembersFromLeaderState();
+            }
         }
 
         if (role == LEARNER && effectiveGroupMembers.getVotingMembers().contains(this.localEndpoint)) {
@@ -678,7 +827,45 @@ public final class RaftState {
         assert committedGroupMembers != effectiveGroupMembers : "Cannot commit effective group members: "
                 + effectiveGroupMembers + " because it is same with committed " + "group " + "members";
 
+        if (jointGroupMembers != null && leaderState != null) {
+            removeLeftMembersFromLeaderState();
+        }
+
         committedGroupMembers = effectiveGroupMembers;
+        clearJointGroupMembers();
+    }
+
+    private void initJointGroupMembers() {
+        Collection<RaftEndpoint> added = new LinkedHashSet<>(effectiveGroupMembers.getVotingMembers());
+        added.removeAll(committedGroupMembers.getVotingMembers());
+        Collection<RaftEndpoint> removed = new LinkedHashSet<>(committedGroupMembers.getVotingMembers());
+        removed.removeAll(effectiveGroupMembers.getVotingMembers());
+        if (added.size() + removed.size() <= 1) {
+            // a single voting member change is safe without joint consensus
+            // since majorities of the old and new voting members overlap.
+            clearJointGroupMembers();
+            return;
+        }
+
+        Collection<RaftEndpoint> remoteMembers = new LinkedHashSet<>(committedGroupMembers.remoteMembers());
+        remoteMembers.addAll(effectiveGroupMembers.remoteMembers());
+        Collection<RaftEndpoint> remoteVotingMembers = new LinkedHashSet<>(
+                committedGroupMembers.remoteVotingMembers());
+        remoteVotingMembers.addAll(effectiveGroupMembers.remoteVotingMembers());
+        jointRemoteMembers = Collections.unmodifiableCollection(remoteMembers);
+        jointRemoteVotingMembers = Collections.unmodifiableCollection(remoteVotingMembers);
+        jointGroupMembers = committedGroupMembers;
+    }
+
+    private void clearJointGroupMembers() {
+        jointGroupMembers = null;
+        jointRemoteMembers = null;
+        jointRemoteVotingMembers = null;
+    }
+
+    private void removeLeftMembersFromLeaderState() {
+        committedGroupMembers.remoteMembers().stream().filter(member -> !effectiveGroupMembers.isKnownMember(member))
+                .forEach(member -> leaderState.remove(member));
     }
 
     /**
@@ -698,6 +885,7 @@ public final class RaftState {
             }
         }
         this.effectiveGroupMembers = this.committedGroupMembers;
+        clearJointGroupMembers();
         // there is no leader state to clean up
     }
 
@@ -716,7 +904,8 @@ public final class RaftState {
         boolean changed = effectiveGroupMembers.getLogIndex() < groupMembersView.getLogIndex();
         RaftGroupMembersState previousGroupMembers = this.effectiveGroupMembers;
         RaftGroupMembersState groupMembers = new RaftGroupMembersState(groupMembersView.getLogIndex(),
-                groupMembersView.getMembers(), groupMembersView.getVotingMembers(), localEndpoint);
+                groupMembersView.getMembers(), groupMembersView.getVotingMembers(),
+                groupMembersView.getWitnessMembers(), localEndpoint);
 
         if (changed) {
             try {
@@ -738,6 +927,7 @@ public final class RaftState {
 
         this.committedGroupMembers = groupMembers;
         this.effectiveGroupMembers = groupMembers;
+        clearJointGroupMembers();
 
         return changed;
     }
@@ -749,11 +939,13 @@ public final class RaftState {
      * process. If there is already an ongoing leadership transfer process, the
      * given future object is also attached to it.
      */
-    public boolean initLeadershipTransfer(RaftEndpoint targetEndpoint, OrderedFuture<Object> resultFuture) {
+    public boolean initLeadershipTransfer(RaftEndpoint targetEndpoint, OrderedFuture<Object> resultFuture,
+            boolean fast, Clock clock) {
         assert effectiveGroupMembers.getMembers().contains(targetEndpoint);
 
         if (leadershipTransferState == null) {
-            leadershipTransferState = new LeadershipTransferState(termState.getTerm(), targetEndpoint, resultFuture);
+            leadershipTransferState = new LeadershipTransferState(termState.getTerm(), targetEndpoint, resultFuture,
+                    fast, clock);
             return true;
         }
 
@@ -970,6 +1162,9 @@ public final class RaftState {
 
         List<QueryContainer> queries = new ArrayList<>();
         queriesToExecute.values().forEach(queries::addAll);
+        // the returned queries are executed by the caller, so they must not be
+        // executed again when the commit index advances further.
+        queriesToExecute.clear();
 
         return queries;
     }
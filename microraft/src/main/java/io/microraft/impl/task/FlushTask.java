@@ -18,12 +18,21 @@
 package io.microraft.impl.task;
 
 import io.microraft.impl.RaftNodeImpl;
+import io.microraft.impl.jfr.LogFlushEvent;
 import io.microraft.impl.log.RaftLog;
 import io.microraft.impl.state.LeaderState;
 
 /**
  * Flushes the Raft node's local Raft log to the persistent storage and tries to
- * advance the commit index if the Raft node is the leader.
+ * advance the commit index if the Raft node is the leader. If the Raft node is
+ * a follower, sends the append entries success response deferred until the
+ * flush.
+ * <p>
+ * The flush runs on the Raft node's thread, since
+ * {@link io.microraft.persistence.RaftStore#flush()} is synchronous and the
+ * Raft store is accessed only by that thread. Deferring this task lets the
+ * Raft node append the entries of the append entries requests already queued
+ * before the flush, so that a single flush covers all of them.
  */
 public class FlushTask extends RaftNodeStatusAwareTask {
 
@@ -34,7 +43,12 @@ public class FlushTask extends RaftNodeStatusAwareTask {
     @Override
     protected void doRun() {
         RaftLog log = state.log();
+        LogFlushEvent event = new LogFlushEvent();
+        event.begin();
+        long fromIndex = log.flushedLogIndex() + 1;
         log.flush();
+        event.commit(node.localEndpointStr(), fromIndex, log.flushedLogIndex());
+        node.sendDeferredAppendEntriesSuccessResponse();
 
         LeaderState leaderState = state.leaderState();
         if (leaderState == null) {
@@ -30,6 +30,8 @@ import io.microraft.impl.RaftNodeImpl;
 /**
  * Checks whether currently there is a known leader endpoint and triggers the
  * pre-voting mechanism there is no known leader or the leader has timed out.
+ * On the leader, it also moves the leadership to a follower with a higher
+ * election priority if there is one that is up-to-date.
  */
 public class HeartbeatTask extends RaftNodeStatusAwareTask {
 
@@ -43,8 +45,9 @@ public class HeartbeatTask extends RaftNodeStatusAwareTask {
     protected void doRun() {
         try {
             if (state.leaderState() != null) {
-                if (!node.demoteToFollowerIfQuorumHeartbeatTimeoutElapsed()) {
+                if (!node.demoteToFollowerIfQuorumHeartbeatTimeoutElapsed() && !node.tryQuiesce()) {
                     node.broadcastAppendEntriesRequest();
+                    node.tryTransferLeadershipToHigherPriorityFollower();
                     // TODO(basri) append no-op if snapshotIndex > 0 && snapshotIndex ==
                     // lastLogIndex
                 }
@@ -62,7 +65,8 @@ public class HeartbeatTask extends RaftNodeStatusAwareTask {
             } else if (node.isLeaderHeartbeatTimeoutElapsed() && state.preCandidateState() == null) {
                 LOGGER.warn("{} Current leader {}'s heartbeats are timed-out.", localEndpointStr(), leader.getId());
                 resetLeaderAndTryTriggerPreVote(true);
-            } else if (!state.committedGroupMembers().isKnownMember(leader) && state.preCandidateState() == null) {
+            } else if (!state.committedGroupMembers().isKnownMember(leader)
+                    && !state.effectiveGroupMembers().isKnownMember(leader) && state.preCandidateState() == null) {
                 LOGGER.warn("{} Current leader {} is not member anymore.", localEndpointStr(), leader.getId());
                 resetLeaderAndTryTriggerPreVote(true);
             }
@@ -79,6 +83,9 @@ public class HeartbeatTask extends RaftNodeStatusAwareTask {
         if (state.role() == LEARNER) {
             LOGGER.debug("{} is not starting pre-vote since it is {}", localEndpointStr(), LEARNER);
             return;
+        } else if (state.isLocalWitness()) {
+            LOGGER.debug("{} is not starting pre-vote since it is a witness.", localEndpointStr());
+            return;
         }
 
         if (state.leaderElectionQuorumSize() > 1) {
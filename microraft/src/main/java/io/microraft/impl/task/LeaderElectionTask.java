@@ -52,6 +52,9 @@ public final class LeaderElectionTask extends RaftNodeStatusAwareTask implements
             LOGGER.warn("{} No new election round, we already have a LEADER: {}", localEndpointStr(),
                     state.leader().getId());
             return;
+        } else if (state.isLocalWitness()) {
+            LOGGER.debug("{} is not starting leader election since it is a witness.", localEndpointStr());
+            return;
         }
 
         node.toCandidate(sticky);
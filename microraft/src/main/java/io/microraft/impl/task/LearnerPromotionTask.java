@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.microraft.impl.task;
+
+import static io.microraft.MembershipChangeMode.ADD_LEARNER;
+import static io.microraft.MembershipChangeMode.ADD_OR_PROMOTE_TO_FOLLOWER;
+import static io.microraft.RaftNodeStatus.isTerminal;
+import static io.microraft.RaftRole.LEADER;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.microraft.RaftEndpoint;
+import io.microraft.exception.RaftException;
+import io.microraft.impl.RaftNodeImpl;
+import io.microraft.impl.state.FollowerState;
+import io.microraft.impl.state.RaftGroupMembersState;
+import io.microraft.impl.state.RaftState;
+import io.microraft.impl.util.OrderedFuture;
+import io.microraft.report.RaftGroupMembers;
+
+/**
+ * Adds the given Raft endpoint to the Raft group as a learner if it is not a
+ * member yet, waits until it catches up with the leader, and then promotes it
+ * to follower via {@link MembershipChangeTask}.
+ * <p>
+ * The learner is considered caught up if its match index is not behind the
+ * snapshot index of the leader, i.e., it does not need to install a snapshot,
+ * and it is at most {@link io.microraft.RaftConfig#getMaxLearnerPromotionLag()}
+ * log entries behind the leader's last log index. The progress is checked
+ * every {@value #CHECK_PERIOD_MILLIS} milliseconds. Until the promotion is
+ * committed, the learner does not count towards the log replication quorum,
+ * so a slow catch-up, e.g., installation of a large snapshot, does not stall
+ * commits.
+ * <p>
+ * The future is notified with {@link io.microraft.exception.NotLeaderException}
+ * if the local Raft node is not the leader anymore, with
+ * {@link IllegalStateException} if the learner is removed from the Raft group
+ * in the meantime, and with {@link TimeoutException} if the learner does not
+ * catch up before the given deadline. In the last case, the endpoint remains
+ * in the Raft group as a learner.
+ */
+public final class LearnerPromotionTask implements Runnable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LearnerPromotionTask.class);
+    private static final long CHECK_PERIOD_MILLIS = 100;
+
+    private final RaftNodeImpl raftNode;
+    private final RaftState state;
+    private final RaftEndpoint endpoint;
+    private final OrderedFuture<RaftGroupMembers> future;
+    private final long deadline;
+    private long groupMembersCommitIndex;
+    private boolean learner;
+
+    public LearnerPromotionTask(RaftNodeImpl raftNode, OrderedFuture<RaftGroupMembers> future, RaftEndpoint endpoint,
+            long groupMembersCommitIndex, long timeoutMillis) {
+        this.raftNode = raftNode;
+        this.state = raftNode.state();
+        this.future = future;
+        this.endpoint = endpoint;
+        this.groupMembersCommitIndex = groupMembersCommitIndex;
+        this.deadline = raftNode.getClock().millis() + timeoutMillis;
+    }
+
+    @Override
+    public void run() {
+        if (future.isDone()) {
+            return;
+        }
+
+        try {
+            if (isTerminal(raftNode.getStatus()) || state.role() != LEADER) {
+                future.fail(raftNode.newNotLeaderException());
+                return;
+            }
+
+            RaftGroupMembersState committedMembers = state.committedGroupMembers();
+            RaftGroupMembersState effectiveMembers = state.effectiveGroupMembers();
+
+            if (!learner) {
+                if (!effectiveMembers.isKnownMember(endpoint)) {
+                    addLearner();
+                    return;
+                } else if (effectiveMembers.isVotingMember(endpoint)
+                        || committedMembers.getLogIndex() != groupMembersCommitIndex) {
+                    // let the membership change task report the failure
+                    new MembershipChangeTask(raftNode, future, endpoint, ADD_OR_PROMOTE_TO_FOLLOWER,
+                            groupMembersCommitIndex).run();
+                    return;
+                }
+
+                learner = true;
+            }
+
+            if (!effectiveMembers.isKnownMember(endpoint) || effectiveMembers.isVotingMember(endpoint)) {
+                future.fail(new IllegalStateException(
+                        endpoint + " is not a learner in group " + raftNode.getGroupId() + " anymore"));
+                return;
+            }
+
+            if (effectiveMembers.getLogIndex() == committedMembers.getLogIndex() && isCaughtUp()) {
+                LOGGER.info("{} Promoting {} to follower since it has caught up.", raftNode.localEndpointStr(),
+                        endpoint.getId());
+                new MembershipChangeTask(raftNode, future, endpoint, ADD_OR_PROMOTE_TO_FOLLOWER,
+                        committedMembers.getLogIndex()).run();
+                return;
+            } else if (raftNode.getClock().millis() >= deadline) {
+                future.fail(new TimeoutException(
+                        endpoint + " has not caught up with the leader of group " + raftNode.getGroupId()));
+                return;
+            }
+
+            raftNode.getExecutor().schedule(this, CHECK_PERIOD_MILLIS, MILLISECONDS);
+        } catch (Throwable t) {
+            LOGGER.error(raftNode.localEndpointStr() + " " + this + " failed.", t);
+            future.fail(new RaftException("Internal failure", raftNode.getLeaderEndpoint(), t));
+        }
+    }
+
+    private void addLearner() {
+        OrderedFuture<RaftGroupMembers> addLearnerFuture = new OrderedFuture<>();
+        new MembershipChangeTask(raftNode, addLearnerFuture, endpoint, ADD_LEARNER, groupMembersCommitIndex).run();
+        addLearnerFuture.whenComplete((result, t) -> {
+            if (t != null) {
+                future.fail(t);
+                return;
+            }
+
+            learner = true;
+            groupMembersCommitIndex = result.getCommitIndex();
+            // the learner is added while the log entry is being applied,
+            // so we check its progress in a separate task.
+            raftNode.getExecutor().execute(this);
+        });
+    }
+
+    private boolean isCaughtUp() {
+        FollowerState followerState = state.leaderState().getFollowerStateOrNull(endpoint);
+        if (followerState == null || followerState.matchIndex() < state.log().snapshotIndex()) {
+            return false;
+        }
+
+        long lag = state.log().lastLogOrSnapshotIndex() - followerState.matchIndex();
+        return lag <= raftNode.getConfig().getMaxLearnerPromotionLag();
+    }
+
+    @Override
+    public String toString() {
+        return "LearnerPromotionTask{" + "endpoint=" + endpoint + ", groupMembersCommitIndex="
+                + groupMembersCommitIndex + ", learner=" + learner + '}';
+    }
+
+}
@@ -21,7 +21,6 @@ import static io.microraft.RaftNodeStatus.INITIAL;
 import static io.microraft.RaftNodeStatus.isTerminal;
 import static io.microraft.RaftRole.LEADER;
 import static io.microraft.RaftRole.LEARNER;
-import static io.microraft.report.RaftGroupMembers.MAX_LEARNER_COUNT;
 import static java.util.stream.Collectors.toList;
 
 import java.util.Collection;
@@ -41,6 +40,7 @@ import io.microraft.impl.state.RaftState;
 import io.microraft.impl.util.OrderedFuture;
 import io.microraft.model.groupop.RaftGroupOp;
 import io.microraft.model.groupop.UpdateRaftGroupMembersOp;
+import io.microraft.model.groupop.UpdateRaftGroupMembersOp.UpdateRaftGroupMembersOpBuilder;
 
 /**
  * Executed to add or remove a member to the Raft group.
@@ -49,12 +49,28 @@ import io.microraft.model.groupop.UpdateRaftGroupMembersOp;
  * the given member already exists in the Raft group, or the membership change
  * mode is {@link MembershipChangeMode#ADD_OR_PROMOTE_TO_FOLLOWER} but the given
  * member already exists in the Raft group as a voting member, then the future
- * is notified with {@link IllegalArgumentException}.
+ * is notified with {@link IllegalArgumentException}. The same applies when the
+ * membership change mode is {@link MembershipChangeMode#ADD_WITNESS} but the
+ * given member already exists in the Raft group, or when the requested change
+ * leaves the Raft group with witnesses making up half or more of its voting
+ * members.
  * <p>
  * If the membership change mode is {@link MembershipChangeMode#REMOVE_MEMBER}
  * but the member does not exist in the Raft group, then the future is notified
  * with {@link IllegalStateException}.
  * <p>
+ * If the membership change mode is {@link MembershipChangeMode#JOINT}, the
+ * members and voting members of the Raft group are replaced with the given
+ * ones. The future is notified with {@link IllegalArgumentException} if the
+ * given members are the same with the current members, the voting members are
+ * not a subset of the members, a current voting member is turned into a
+ * learner, or a new member exists in the initial member list. Current
+ * witnesses stay as witnesses if they are not removed.
+ * <p>
+ * The number of learners cannot exceed
+ * {@link io.microraft.RaftConfig#getMaxLearnerCount()} after the membership
+ * change.
+ * <p>
  * This task creates an instance of {@link UpdateRaftGroupMembersOp} that
  * includes the requested membership change and the new member list of the Raft
  * group, and replicates this operation to the Raft group via passing it to
@@ -71,16 +87,33 @@ public final class MembershipChangeTask implements Runnable {
     private final long groupMembersCommitIndex;
     private final RaftEndpoint endpoint;
     private final MembershipChangeMode membershipChangeMode;
+    private final Collection<RaftEndpoint> targetMembers;
+    private final Collection<RaftEndpoint> targetVotingMembers;
     private final OrderedFuture future;
 
     public MembershipChangeTask(RaftNodeImpl raftNode, OrderedFuture future, RaftEndpoint endpoint,
             MembershipChangeMode membershipChangeMode, long groupMembersCommitIndex) {
+        this(raftNode, future, endpoint, membershipChangeMode, null, null, groupMembersCommitIndex);
+    }
+
+    public MembershipChangeTask(RaftNodeImpl raftNode, OrderedFuture future, Collection<RaftEndpoint> targetMembers,
+            Collection<RaftEndpoint> targetVotingMembers, long groupMembersCommitIndex) {
+        this(raftNode, future, raftNode.getLocalEndpoint(), MembershipChangeMode.JOINT,
+                new LinkedHashSet<>(targetMembers), new LinkedHashSet<>(targetVotingMembers),
+                groupMembersCommitIndex);
+    }
+
+    private MembershipChangeTask(RaftNodeImpl raftNode, OrderedFuture future, RaftEndpoint endpoint,
+            MembershipChangeMode membershipChangeMode, Collection<RaftEndpoint> targetMembers,
+            Collection<RaftEndpoint> targetVotingMembers, long groupMembersCommitIndex) {
         this.raftNode = raftNode;
         this.state = raftNode.state();
         this.future = future;
         this.endpoint = endpoint;
         this.groupMembersCommitIndex = groupMembersCommitIndex;
         this.membershipChangeMode = membershipChangeMode;
+        this.targetMembers = targetMembers;
+        this.targetVotingMembers = targetVotingMembers;
     }
 
     @Override
@@ -101,6 +134,8 @@ public final class MembershipChangeTask implements Runnable {
             RaftGroupMembersState effectiveMembers = state.effectiveGroupMembers();
             Collection<RaftEndpoint> members = new LinkedHashSet<>(effectiveMembers.getMembers());
             Collection<RaftEndpoint> votingMembers = new LinkedHashSet<>(effectiveMembers.getVotingMembers());
+            Collection<RaftEndpoint> witnessMembers = new LinkedHashSet<>(effectiveMembers.getWitnessMembers());
+            int maxLearnerCount = raftNode.getConfig().getMaxLearnerCount();
 
             switch (membershipChangeMode) {
                 case ADD_LEARNER :
@@ -108,9 +143,9 @@ public final class MembershipChangeTask implements Runnable {
                         String msg = endpoint + " already exists in " + members + " of group " + raftNode.getGroupId();
                         future.fail(new IllegalArgumentException(msg));
                         return;
-                    } else if (members.size() - votingMembers.size() == MAX_LEARNER_COUNT) {
-                        String msg = "Cannot add " + endpoint + " to group " + raftNode.getGroupId() + " as 3rd "
-                                + LEARNER;
+                    } else if (members.size() - votingMembers.size() >= maxLearnerCount) {
+                        String msg = "Cannot add " + endpoint + " to group " + raftNode.getGroupId() + " since there "
+                                + "can be at most " + maxLearnerCount + " " + LEARNER + "s";
                         future.fail(new IllegalArgumentException(msg));
                         return;
                     } else if (state.initialMembers().isKnownMember(endpoint)) {
@@ -146,6 +181,34 @@ public final class MembershipChangeTask implements Runnable {
 
                     members.remove(endpoint);
                     votingMembers.remove(endpoint);
+                    witnessMembers.remove(endpoint);
+                    break;
+                case ADD_WITNESS :
+                    if (members.contains(endpoint)) {
+                        String msg = endpoint + " already exists in " + members + " of group " + raftNode.getGroupId();
+                        future.fail(new IllegalArgumentException(msg));
+                        return;
+                    } else if (state.initialMembers().isKnownMember(endpoint)) {
+                        String msg = endpoint + " already exists in the initial member list: " + members + " of group "
+                                + raftNode.getGroupId();
+                        future.fail(new IllegalArgumentException(msg));
+                        return;
+                    }
+
+                    members.add(endpoint);
+                    votingMembers.add(endpoint);
+                    witnessMembers.add(endpoint);
+                    break;
+                case JOINT :
+                    String error = validateJointChange(members, votingMembers, maxLearnerCount);
+                    if (error != null) {
+                        future.fail(new IllegalArgumentException(error));
+                        return;
+                    }
+
+                    members = targetMembers;
+                    votingMembers = targetVotingMembers;
+                    witnessMembers.retainAll(targetMembers);
                     break;
                 default :
                     future.fail(
@@ -153,13 +216,28 @@ public final class MembershipChangeTask implements Runnable {
                     return;
             }
 
-            LOGGER.info("{} New group members after {} of {}: {}, voting members: {}", raftNode.localEndpointStr(),
-                    membershipChangeMode, endpoint.getId(), members.stream().map(RaftEndpoint::getId).collect(toList()),
-                    votingMembers.stream().map(RaftEndpoint::getId).collect(toList()));
+            if (!witnessMembers.isEmpty() && witnessMembers.size() * 2 >= votingMembers.size()) {
+                String msg = "Cannot " + membershipChangeMode + " " + endpoint + " in group " + raftNode.getGroupId()
+                        + " since witnesses: " + witnessMembers + " would not be a minority of voting members: "
+                        + votingMembers;
+                future.fail(new IllegalArgumentException(msg));
+                return;
+            }
+
+            LOGGER.info("{} New group members after {} of {}: {}, voting members: {}, witness members: {}",
+                    raftNode.localEndpointStr(), membershipChangeMode, endpoint.getId(),
+                    members.stream().map(RaftEndpoint::getId).collect(toList()),
+                    votingMembers.stream().map(RaftEndpoint::getId).collect(toList()),
+                    witnessMembers.stream().map(RaftEndpoint::getId).collect(toList()));
 
-            RaftGroupOp operation = raftNode.getModelFactory().createUpdateRaftGroupMembersOpBuilder()
-                    .setMembers(members).setVotingMembers(votingMembers).setEndpoint(endpoint)
-                    .setMode(membershipChangeMode).build();
+            UpdateRaftGroupMembersOpBuilder builder = raftNode.getModelFactory()
+                    .createUpdateRaftGroupMembersOpBuilder().setMembers(members).setVotingMembers(votingMembers)
+                    .setEndpoint(endpoint).setMode(membershipChangeMode);
+            if (!witnessMembers.isEmpty()) {
+                builder.setWitnessMembers(witnessMembers);
+            }
+
+            RaftGroupOp operation = builder.build();
             new ReplicateTask(raftNode, operation, future).run();
         } catch (Throwable t) {
             LOGGER.error(raftNode.localEndpointStr() + " " + this + " failed.", t);
@@ -167,6 +245,35 @@ public final class MembershipChangeTask implements Runnable {
         }
     }
 
+    private String validateJointChange(Collection<RaftEndpoint> members, Collection<RaftEndpoint> votingMembers,
+            int maxLearnerCount) {
+        if (targetMembers == null) {
+            return membershipChangeMode + " requires the new members and voting members of group "
+                    + raftNode.getGroupId();
+        } else if (targetVotingMembers.isEmpty() || !targetMembers.containsAll(targetVotingMembers)) {
+            return "New voting members: " + targetVotingMembers + " must be a non-empty subset of new members: "
+                    + targetMembers + " of group " + raftNode.getGroupId();
+        } else if (members.equals(targetMembers) && votingMembers.equals(targetVotingMembers)) {
+            return "Group " + raftNode.getGroupId() + " already has members: " + members + " and voting members: "
+                    + votingMembers;
+        } else if (targetMembers.size() - targetVotingMembers.size() > maxLearnerCount) {
+            return "Cannot change members of group " + raftNode.getGroupId() + " to " + targetMembers
+                    + " since there can be at most " + maxLearnerCount + " " + LEARNER + "s";
+        }
+
+        for (RaftEndpoint member : targetMembers) {
+            if (votingMembers.contains(member) && !targetVotingMembers.contains(member)) {
+                return "Voting member " + member + " of group " + raftNode.getGroupId() + " cannot become "
+                        + LEARNER;
+            } else if (!members.contains(member) && state.initialMembers().isKnownMember(member)) {
+                return member + " already exists in the initial member list: "
+                        + state.initialMembers().getMembers() + " of group " + raftNode.getGroupId();
+            }
+        }
+
+        return null;
+    }
+
     private boolean verifyRaftNodeStatus() {
         RaftNodeStatus status = raftNode.getStatus();
         if (status == INITIAL) {
@@ -205,7 +312,11 @@ public final class MembershipChangeTask implements Runnable {
     @Override
     public String toString() {
         return "MembershipChangeTask{" + "groupMembersCommitIndex=" + groupMembersCommitIndex + ", member=" + endpoint
-                + ", membershipChangeMode=" + membershipChangeMode + '}';
+                + ", membershipChangeMode=" + membershipChangeMode
+                + (targetMembers != null
+                        ? ", targetMembers=" + targetMembers + ", targetVotingMembers=" + targetVotingMembers
+                        : "")
+                + '}';
     }
 
 }
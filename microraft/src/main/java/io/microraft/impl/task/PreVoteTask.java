@@ -57,6 +57,11 @@ public final class PreVoteTask extends RaftNodeStatusAwareTask implements Runnab
             return;
         }
 
+        if (state.isLocalWitness()) {
+            LOGGER.debug("{} is not starting pre-vote since it is a witness.", localEndpointStr());
+            return;
+        }
+
         if (state.remoteVotingMembers().isEmpty()) {
             // TODO(basri): why do we have this check?
             LOGGER.warn("{} Remote voting members is empty. No need for pre-voting.", localEndpointStr());
@@ -36,6 +36,7 @@ import io.microraft.impl.state.RaftState;
 import io.microraft.impl.state.QueryState.QueryContainer;
 import io.microraft.impl.util.OrderedFuture;
 import io.microraft.model.groupop.RaftGroupOp;
+import io.microraft.statemachine.ClientOperation;
 import io.microraft.statemachine.StateMachine;
 
 /**
@@ -94,7 +95,11 @@ public final class QueryTask implements Runnable {
     }
 
     private void queryWithLeaderLease() {
-        if (raftNode.demoteToFollowerIfQuorumHeartbeatTimeoutElapsed()) {
+        if (raftNode.isLeaderLeaseSuspended()) {
+            // the leader has been quiescent, so it renews its lease by
+            // contacting the followers for the query.
+            queryWithLinearizability();
+        } else if (raftNode.demoteToFollowerIfQuorumHeartbeatTimeoutElapsed()) {
             future.fail(raftNode.newNotLeaderException());
         } else {
             long commitIndex = state.commitIndex();
@@ -108,6 +113,12 @@ public final class QueryTask implements Runnable {
     }
 
     private void queryWithEventualConsistency() {
+        if (state.isLocalWitness()) {
+            // witnesses do not run the state machine.
+            future.fail(raftNode.newNotLeaderException());
+            return;
+        }
+
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug(raftNode.localEndpointStr() + " Querying: " + operation + " with policy: " + queryPolicy
                     + " in term: " + state.term());
@@ -148,7 +159,9 @@ public final class QueryTask implements Runnable {
     }
 
     private boolean verifyOperation() {
-        if (operation instanceof RaftGroupOp) {
+        // client operations update the replicated client sessions, hence they
+        // can run only via replication.
+        if (operation instanceof RaftGroupOp || operation instanceof ClientOperation) {
             future.fail(new IllegalArgumentException("cannot run query: " + operation));
             return false;
         }
@@ -37,6 +37,15 @@ import io.microraft.model.RaftModelFactory;
  */
 public abstract class RaftNodeStatusAwareTask implements Runnable {
 
+    // looking up a logger on each skipped run is costly for the message
+    // handlers which are reused for all received messages
+    private static final ClassValue<Logger> LOGGERS = new ClassValue<Logger>() {
+        @Override
+        protected Logger computeValue(Class<?> type) {
+            return LoggerFactory.getLogger(type);
+        }
+    };
+
     protected final RaftNodeImpl node;
     protected final RaftState state;
     protected final RaftModelFactory modelFactory;
@@ -65,7 +74,7 @@ public abstract class RaftNodeStatusAwareTask implements Runnable {
     protected abstract void doRun();
 
     private Logger getLogger() {
-        return LoggerFactory.getLogger(getClass());
+        return LOGGERS.get(getClass());
     }
 
     protected final RaftEndpoint localEndpoint() {
@@ -31,6 +31,7 @@ import io.microraft.exception.CannotReplicateException;
 import io.microraft.exception.NotLeaderException;
 import io.microraft.exception.RaftException;
 import io.microraft.impl.RaftNodeImpl;
+import io.microraft.impl.jfr.LogAppendEvent;
 import io.microraft.impl.log.RaftLog;
 import io.microraft.impl.state.RaftState;
 import io.microraft.impl.util.OrderedFuture;
@@ -49,7 +50,9 @@ import io.microraft.model.log.LogEntry;
  * <p>
  * If the given operation could not be appended to the Raft log at the moment,
  * (see {@link RaftNodeImpl#canReplicateNewOperation(Object)}), the future is
- * notified with {@link CannotReplicateException}.
+ * notified with {@link CannotReplicateException}, unless the task is held
+ * until an ongoing fast leadership transfer completes (see
+ * {@link RaftNodeImpl#holdDuringLeadershipTransfer(Runnable, OrderedFuture)}).
  */
 public final class ReplicateTask implements Runnable {
 
@@ -76,7 +79,9 @@ public final class ReplicateTask implements Runnable {
                 future.fail(raftNode.newNotLeaderException());
                 return;
             } else if (!raftNode.canReplicateNewOperation(operation)) {
-                future.fail(raftNode.newCannotReplicateException());
+                if (!raftNode.holdDuringLeadershipTransfer(this, future)) {
+                    future.fail(raftNode.newCannotReplicateException());
+                }
                 return;
             }
 
@@ -95,11 +100,15 @@ public final class ReplicateTask implements Runnable {
             state.registerFuture(newEntryLogIndex, future);
             LogEntry entry = raftNode.getModelFactory().createLogEntryBuilder().setTerm(state.term())
                     .setIndex(newEntryLogIndex).setOperation(operation).build();
+            LogAppendEvent event = new LogAppendEvent();
+            event.begin();
             log.appendEntry(entry);
+            event.commit(raftNode.localEndpointStr(), entry.getTerm(), newEntryLogIndex, newEntryLogIndex);
+            raftNode.getStats().updateLog(log);
 
             prepareGroupOp(newEntryLogIndex, operation);
 
-            raftNode.broadcastAppendEntriesRequest();
+            raftNode.broadcastAppendedEntries(state.leaderState());
 
             if (state.logReplicationQuorumSize() == 1 && !raftNode.submitLeaderFlushTask(state.leaderState())) {
                 // If this is a singleton Raft group and persistence is enabled,
@@ -133,7 +142,8 @@ public final class ReplicateTask implements Runnable {
         if (operation instanceof UpdateRaftGroupMembersOp) {
             raftNode.setStatus(UPDATING_RAFT_GROUP_MEMBER_LIST);
             UpdateRaftGroupMembersOp groupOp = (UpdateRaftGroupMembersOp) operation;
-            raftNode.updateGroupMembers(logIndex, groupOp.getMembers(), groupOp.getVotingMembers());
+            raftNode.updateGroupMembers(logIndex, groupOp.getMembers(), groupOp.getVotingMembers(),
+                    groupOp.getWitnessMembers());
         }
     }
 
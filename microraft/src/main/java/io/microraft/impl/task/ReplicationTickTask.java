@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microraft.impl.task;
+
+import io.microraft.impl.RaftNodeImpl;
+import io.microraft.impl.state.LeaderState;
+
+/**
+ * Broadcasts append entries requests to the followers for the log entries
+ * appended since the last broadcast. It is used only when the replication tick
+ * is enabled via {@link io.microraft.RaftConfig#isReplicationTickEnabled()}.
+ */
+public class ReplicationTickTask extends RaftNodeStatusAwareTask {
+
+    public ReplicationTickTask(RaftNodeImpl node) {
+        super(node);
+    }
+
+    @Override
+    protected void doRun() {
+        LeaderState leaderState = state.leaderState();
+        if (leaderState == null) {
+            return;
+        }
+
+        leaderState.replicationTickScheduled(false);
+        node.broadcastAppendEntriesRequest();
+    }
+
+}
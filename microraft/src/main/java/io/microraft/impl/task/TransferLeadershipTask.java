@@ -19,6 +19,7 @@ package io.microraft.impl.task;
 
 import static io.microraft.RaftNodeStatus.ACTIVE;
 import static io.microraft.RaftNodeStatus.isTerminal;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
 import java.util.concurrent.TimeoutException;
@@ -34,8 +35,6 @@ import io.microraft.impl.state.LeaderState;
 import io.microraft.impl.state.LeadershipTransferState;
 import io.microraft.impl.state.RaftState;
 import io.microraft.impl.util.OrderedFuture;
-import io.microraft.model.log.BaseLogEntry;
-import io.microraft.model.message.RaftMessage;
 
 /**
  * Triggers the leadership transfer process for the given Raft endpoint. If the
@@ -45,10 +44,19 @@ import io.microraft.model.message.RaftMessage;
  * <p>
  * New appends are temporarily rejected until the leadership transfer process
  * completes.
+ * <p>
+ * If {@link RaftConfig#isFastLeadershipTransferEnabled()} is set, new appends
+ * are held instead of being rejected, the remaining log entries are pushed to
+ * the target endpoint immediately, and the target endpoint is asked to start a
+ * new leader election as soon as it has all log entries and they are
+ * committed (see {@link RaftNodeImpl#tryTriggerLeadershipTransfer()}). The
+ * process is retried {@value #FAST_TRANSFER_TRY_COUNT} times within a leader
+ * election timeout before it times out.
  */
 public class TransferLeadershipTask implements Runnable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(TransferLeadershipTask.class);
+    private static final int FAST_TRANSFER_TRY_COUNT = 5;
 
     private final RaftNodeImpl node;
     private final RaftEndpoint targetEndpoint;
@@ -75,7 +83,8 @@ public class TransferLeadershipTask implements Runnable {
             return;
         }
 
-        if (state.initLeadershipTransfer(targetEndpoint, future)) {
+        if (state.initLeadershipTransfer(targetEndpoint, future, node.getConfig().isFastLeadershipTransferEnabled(),
+                node.getClock())) {
             transferLeadership(state);
         }
     }
@@ -91,6 +100,10 @@ public class TransferLeadershipTask implements Runnable {
             future.fail(new IllegalArgumentException("Cannot transfer leadership to " + targetEndpoint
                     + " because it is not in the committed voting group members!"));
             return true;
+        } else if (state.isWitnessMember(targetEndpoint)) {
+            future.fail(new IllegalArgumentException(
+                    "Cannot transfer leadership to " + targetEndpoint + " because it is a witness!"));
+            return true;
         }
 
         if (status != ACTIVE) {
@@ -111,10 +124,9 @@ public class TransferLeadershipTask implements Runnable {
         LeaderState leaderState = state.leaderState();
         if (leaderState == null) {
             LOGGER.debug("{} not retrying leadership transfer since not leader...", node.localEndpointStr());
-            // no need to notify the future here because it is already
-            // completed when the leader steps down to the follower role for
-            // any reason.
-            assert future.isDone();
+            // no need to notify the future here because it is completed
+            // when the leader steps down to the follower role for any reason,
+            // or once the new leader is known in the fast mode.
             return;
         }
 
@@ -128,10 +140,26 @@ public class TransferLeadershipTask implements Runnable {
         int tryCount = leadershipTransferState.incrementTryCount();
         RaftConfig config = node.getConfig();
 
-        if (config.getLeaderHeartbeatTimeoutSecs() <= tryCount * config.getLeaderHeartbeatPeriodSecs()) {
+        if (leadershipTransferState.isFast()
+                ? tryCount > FAST_TRANSFER_TRY_COUNT
+                : config.getLeaderHeartbeatTimeoutSecs() <= tryCount * config.getLeaderHeartbeatPeriodSecs()) {
             String msg = node.localEndpointStr() + " leadership transfer to " + targetEndpoint.getId() + " timed out!";
             LOGGER.warn(msg);
-            state.completeLeadershipTransfer(new TimeoutException(msg));
+            state.failLeadershipTransfer(new TimeoutException(msg));
+            return;
+        }
+
+        if (leadershipTransferState.isFast()) {
+            if (tryCount == 1) {
+                LOGGER.info("{} transferring leadership to {}", node.localEndpointStr(), targetEndpoint.getId());
+            }
+
+            leaderState.getFollowerState(targetEndpoint).resetRequestBackoff();
+            node.sendAppendEntriesRequest(targetEndpoint);
+            // the trigger request may have been lost, so it can be sent again
+            leadershipTransferState.resetLeaderElectionTriggered();
+            node.tryTriggerLeadershipTransfer();
+            scheduleRetry(state);
             return;
         }
 
@@ -150,19 +178,21 @@ public class TransferLeadershipTask implements Runnable {
 
         leaderState.getFollowerState(targetEndpoint).resetRequestBackoff();
         node.sendAppendEntriesRequest(targetEndpoint);
-
-        BaseLogEntry entry = state.log().lastLogOrSnapshotEntry();
-        RaftMessage request = node.getModelFactory().createTriggerLeaderElectionRequestBuilder()
-                .setGroupId(node.getGroupId()).setSender(node.getLocalEndpoint()).setTerm(state.term())
-                .setLastLogTerm(entry.getTerm()).setLastLogIndex(entry.getIndex()).build();
-        node.send(targetEndpoint, request);
+        node.sendTriggerLeaderElectionRequest(targetEndpoint);
         scheduleRetry(state);
     }
 
     private void scheduleRetry(RaftState state) {
+        RaftConfig config = node.getConfig();
         try {
-            node.getExecutor().schedule(() -> transferLeadership(state),
-                    node.getConfig().getLeaderHeartbeatPeriodSecs(), SECONDS);
+            if (config.isFastLeadershipTransferEnabled()) {
+                long retryMillis = Math.max(1, config.getLeaderElectionTimeoutMillis() / FAST_TRANSFER_TRY_COUNT);
+                node.getExecutor().schedule(() -> transferLeadership(state), retryMillis, MILLISECONDS);
+                return;
+            }
+
+            node.getExecutor().schedule(() -> transferLeadership(state), config.getLeaderHeartbeatPeriodSecs(),
+                    SECONDS);
         } catch (Throwable t) {
             LOGGER.error(node.localEndpointStr() + " failed to schedule retry of leadership transfer to "
                     + targetEndpoint.getId(), t);
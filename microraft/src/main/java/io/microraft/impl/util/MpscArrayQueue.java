@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.microraft.impl.util;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * A bounded multi-producer single-consumer queue backed by an array.
+ * <p>
+ * Producers claim a slot by incrementing the producer index and then publish
+ * the element into the slot, hence offering an element does not allocate. Only
+ * a single thread at a time can call {@link #poll()}.
+ *
+ * @param <E>
+ *            the type of the elements
+ */
+public final class MpscArrayQueue<E> {
+
+    private final AtomicReferenceArray<E> buffer;
+    private final int capacity;
+    private final int mask;
+    private final AtomicLong producerIndex = new AtomicLong();
+    // written only by the consumer thread
+    private volatile long consumerIndex;
+
+    /**
+     * Creates a queue with the given capacity.
+     *
+     * @param capacity
+     *            the maximum number of elements in the queue, must be a power
+     *            of 2
+     *
+     * @throws IllegalArgumentException
+     *             if the capacity is not a positive power of 2
+     */
+    public MpscArrayQueue(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity: " + capacity + " must be a positive power of 2!");
+        }
+
+        this.buffer = new AtomicReferenceArray<>(capacity);
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Adds the given element to the tail of the queue if the queue is not
+     * full. Can be called by multiple threads concurrently.
+     *
+     * @param element
+     *            the element to add
+     *
+     * @return true if the element is added, false if the queue is full
+     */
+    public boolean offer(@Nonnull E element) {
+        requireNonNull(element);
+
+        long index;
+        do {
+            index = producerIndex.get();
+            if (index - consumerIndex >= capacity) {
+                return false;
+            }
+        } while (!producerIndex.compareAndSet(index, index + 1));
+
+        buffer.lazySet((int) index & mask, element);
+        return true;
+    }
+
+    /**
+     * Removes and returns the head of the queue. Must be called only by the
+     * consumer thread.
+     *
+     * @return the head of the queue, or null if the queue is empty
+     */
+    @Nullable
+    public E poll() {
+        long index = consumerIndex;
+        int offset = (int) index & mask;
+        E element = buffer.get(offset);
+        if (element == null) {
+            if (index == producerIndex.get()) {
+                return null;
+            }
+
+            // a producer claimed the slot but has not published its element
+            // yet
+            do {
+                Thread.onSpinWait();
+                element = buffer.get(offset);
+            } while (element == null);
+        }
+
+        buffer.lazySet(offset, null);
+        consumerIndex = index + 1;
+        return element;
+    }
+
+    /**
+     * Returns true if there is no element in the queue.
+     *
+     * @return true if there is no element in the queue
+     */
+    public boolean isEmpty() {
+        return consumerIndex == producerIndex.get();
+    }
+
+    /**
+     * Returns the number of elements in the queue.
+     *
+     * @return the number of elements in the queue
+     */
+    public int size() {
+        long consumed = consumerIndex;
+        return (int) (producerIndex.get() - consumed);
+    }
+
+    /**
+     * Returns the maximum number of elements in the queue.
+     *
+     * @return the maximum number of elements in the queue
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+}
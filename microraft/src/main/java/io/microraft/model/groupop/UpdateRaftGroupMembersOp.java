@@ -17,6 +17,7 @@
 package io.microraft.model.groupop;
 
 import java.util.Collection;
+import java.util.Collections;
 
 import javax.annotation.Nonnull;
 
@@ -39,6 +40,21 @@ public interface UpdateRaftGroupMembersOp extends RaftGroupOp {
     @Nonnull
     Collection<RaftEndpoint> getVotingMembers();
 
+    /**
+     * Returns the voting members that are witnesses, i.e., voting members that
+     * do not store operation payloads or run the state machine. The returned
+     * collection is a subset of {@link #getVotingMembers()}.
+     * <p>
+     * Witness members are optional. The default implementation returns an empty
+     * collection.
+     *
+     * @return the witness members
+     */
+    @Nonnull
+    default Collection<RaftEndpoint> getWitnessMembers() {
+        return Collections.emptySet();
+    }
+
     @Nonnull
     RaftEndpoint getEndpoint();
 
@@ -56,6 +72,23 @@ public interface UpdateRaftGroupMembersOp extends RaftGroupOp {
         @Nonnull
         UpdateRaftGroupMembersOpBuilder setVotingMembers(@Nonnull Collection<RaftEndpoint> votingMembers);
 
+        /**
+         * Sets the witness members. Implementations that do not support witness
+         * members can rely on the default implementation, which accepts only an
+         * empty collection.
+         *
+         * @param witnessMembers
+         *            the witness members
+         * @return the builder object for fluent calls
+         */
+        @Nonnull
+        default UpdateRaftGroupMembersOpBuilder setWitnessMembers(@Nonnull Collection<RaftEndpoint> witnessMembers) {
+            if (!witnessMembers.isEmpty()) {
+                throw new UnsupportedOperationException("Witness members are not supported by " + getClass().getName());
+            }
+            return this;
+        }
+
         @Nonnull
         UpdateRaftGroupMembersOpBuilder setEndpoint(@Nonnull RaftEndpoint endpoint);
 
@@ -0,0 +1,402 @@
+/*
+ * Copyright (c) 2023, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.microraft.model.impl;
+
+import static java.util.Objects.requireNonNull;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+
+import javax.annotation.Nonnull;
+
+import io.microraft.MembershipChangeMode;
+import io.microraft.RaftEndpoint;
+import io.microraft.model.groupop.UpdateRaftGroupMembersOp;
+import io.microraft.model.impl.groupop.DefaultUpdateRaftGroupMembersOpOrBuilder;
+import io.microraft.model.impl.log.DefaultLogEntryOrBuilder;
+import io.microraft.model.impl.log.DefaultRaftGroupMembersViewOrBuilder;
+import io.microraft.model.impl.log.DefaultSnapshotChunkOrBuilder;
+import io.microraft.model.log.LogEntry;
+import io.microraft.model.log.RaftGroupMembersView;
+import io.microraft.model.log.SnapshotChunk;
+import io.microraft.model.log.WitnessPlaceholder;
+import io.microraft.persistence.RaftStoreSerializer.BufferSerializer;
+
+/**
+ * Compact binary {@link BufferSerializer} implementations for the default
+ * model objects, i.e., {@link DefaultLogEntryOrBuilder},
+ * {@link DefaultSnapshotChunkOrBuilder}, and
+ * {@link DefaultRaftGroupMembersViewOrBuilder}.
+ * <p>
+ * These serializers encode the Raft metadata themselves and delegate only the
+ * user operations and Raft endpoints to the given serializers. The operations
+ * MicroRaft creates internally, i.e., {@link UpdateRaftGroupMembersOp} and
+ * {@link WitnessPlaceholder}, are encoded by these serializers as well, so the
+ * operation serializer only needs to handle the operation types of the user's
+ * state machine. The given serializers must read exactly the bytes they write
+ * for an element, since the elements are written back to back.
+ * <p>
+ * A serialized group members view writes each member once along with a flag
+ * that denotes whether it is a voting or witness member, and deserializes the
+ * collections in the iteration order of the members collection.
+ */
+public final class DefaultModelSerializers {
+
+    private static final byte USER_OPERATION = 0;
+    private static final byte UPDATE_RAFT_GROUP_MEMBERS_OP = 1;
+    private static final byte WITNESS_PLACEHOLDER = 2;
+
+    private static final byte VOTING_MEMBER_FLAG = 1;
+    private static final byte WITNESS_MEMBER_FLAG = 2;
+
+    // stable codes of the membership change modes, independent of the
+    // declaration order of the enum constants
+    private static final byte ADD_LEARNER_MODE = 0;
+    private static final byte ADD_OR_PROMOTE_TO_FOLLOWER_MODE = 1;
+    private static final byte REMOVE_MEMBER_MODE = 2;
+    private static final byte ADD_WITNESS_MODE = 3;
+    private static final byte JOINT_MODE = 4;
+
+    private DefaultModelSerializers() {
+    }
+
+    private static byte toCode(MembershipChangeMode mode) {
+        switch (mode) {
+            case ADD_LEARNER :
+                return ADD_LEARNER_MODE;
+            case ADD_OR_PROMOTE_TO_FOLLOWER :
+                return ADD_OR_PROMOTE_TO_FOLLOWER_MODE;
+            case REMOVE_MEMBER :
+                return REMOVE_MEMBER_MODE;
+            case ADD_WITNESS :
+                return ADD_WITNESS_MODE;
+            case JOINT :
+                return JOINT_MODE;
+            default :
+                throw new IllegalArgumentException("Invalid membership change mode: " + mode);
+        }
+    }
+
+    private static MembershipChangeMode toMembershipChangeMode(byte code) {
+        switch (code) {
+            case ADD_LEARNER_MODE :
+                return MembershipChangeMode.ADD_LEARNER;
+            case ADD_OR_PROMOTE_TO_FOLLOWER_MODE :
+                return MembershipChangeMode.ADD_OR_PROMOTE_TO_FOLLOWER;
+            case REMOVE_MEMBER_MODE :
+                return MembershipChangeMode.REMOVE_MEMBER;
+            case ADD_WITNESS_MODE :
+                return MembershipChangeMode.ADD_WITNESS;
+            case JOINT_MODE :
+                return MembershipChangeMode.JOINT;
+            default :
+                throw new IllegalArgumentException("Invalid membership change mode code: " + code);
+        }
+    }
+
+    /**
+     * Returns a serializer for log entries.
+     *
+     * @param operationSerializer
+     *            the serializer of the user operations
+     * @param endpointSerializer
+     *            the serializer of the Raft endpoints
+     * @return a serializer for log entries
+     */
+    @Nonnull
+    public static BufferSerializer<LogEntry> logEntrySerializer(@Nonnull BufferSerializer<Object> operationSerializer,
+            @Nonnull BufferSerializer<RaftEndpoint> endpointSerializer) {
+        return new LogEntrySerializer(new OperationSerializer(operationSerializer, endpointSerializer));
+    }
+
+    /**
+     * Returns a serializer for snapshot chunks.
+     *
+     * @param operationSerializer
+     *            the serializer of the snapshot chunk operations
+     * @param endpointSerializer
+     *            the serializer of the Raft endpoints
+     * @return a serializer for snapshot chunks
+     */
+    @Nonnull
+    public static BufferSerializer<SnapshotChunk> snapshotChunkSerializer(
+            @Nonnull BufferSerializer<Object> operationSerializer,
+            @Nonnull BufferSerializer<RaftEndpoint> endpointSerializer) {
+        return new SnapshotChunkSerializer(new OperationSerializer(operationSerializer, endpointSerializer),
+                new RaftGroupMembersViewSerializer(new MembersSerializer(endpointSerializer)));
+    }
+
+    /**
+     * Returns a serializer for Raft group members views.
+     *
+     * @param endpointSerializer
+     *            the serializer of the Raft endpoints
+     * @return a serializer for Raft group members views
+     */
+    @Nonnull
+    public static BufferSerializer<RaftGroupMembersView> raftGroupMembersViewSerializer(
+            @Nonnull BufferSerializer<RaftEndpoint> endpointSerializer) {
+        return new RaftGroupMembersViewSerializer(new MembersSerializer(endpointSerializer));
+    }
+
+    /**
+     * Members collections of a group members view or an update group members
+     * operation.
+     */
+    private static final class Members {
+        final Collection<RaftEndpoint> members;
+        final Collection<RaftEndpoint> votingMembers;
+        final Collection<RaftEndpoint> witnessMembers;
+
+        Members(Collection<RaftEndpoint> members, Collection<RaftEndpoint> votingMembers,
+                Collection<RaftEndpoint> witnessMembers) {
+            this.members = members;
+            this.votingMembers = votingMembers;
+            this.witnessMembers = witnessMembers;
+        }
+    }
+
+    private static final class MembersSerializer {
+        private final BufferSerializer<RaftEndpoint> endpointSerializer;
+
+        MembersSerializer(BufferSerializer<RaftEndpoint> endpointSerializer) {
+            this.endpointSerializer = requireNonNull(endpointSerializer);
+        }
+
+        int serializedSize(Collection<RaftEndpoint> members) {
+            int size = 4;
+            for (RaftEndpoint member : members) {
+                size += 1 + endpointSerializer.serializedSize(member);
+            }
+
+            return size;
+        }
+
+        void serialize(Members members, ByteBuffer target) {
+            if (!members.members.containsAll(members.votingMembers)
+                    || !members.votingMembers.containsAll(members.witnessMembers)) {
+                throw new IllegalArgumentException("Voting members: " + members.votingMembers
+                        + " and witness members: " + members.witnessMembers + " must be a subset of members: "
+                        + members.members);
+            }
+
+            target.putInt(members.members.size());
+            for (RaftEndpoint member : members.members) {
+                byte flags = 0;
+                if (members.votingMembers.contains(member)) {
+                    flags |= VOTING_MEMBER_FLAG;
+                }
+                if (members.witnessMembers.contains(member)) {
+                    flags |= WITNESS_MEMBER_FLAG;
+                }
+                target.put(flags);
+                endpointSerializer.serialize(member, target);
+            }
+        }
+
+        Members deserialize(ByteBuffer source) {
+            int count = source.getInt();
+            Collection<RaftEndpoint> members = new LinkedHashSet<>(count);
+            Collection<RaftEndpoint> votingMembers = new LinkedHashSet<>(count);
+            Collection<RaftEndpoint> witnessMembers = null;
+            for (int i = 0; i < count; i++) {
+                byte flags = source.get();
+                RaftEndpoint member = endpointSerializer.deserialize(source);
+                members.add(member);
+                if ((flags & VOTING_MEMBER_FLAG) != 0) {
+                    votingMembers.add(member);
+                }
+                if ((flags & WITNESS_MEMBER_FLAG) != 0) {
+                    if (witnessMembers == null) {
+                        witnessMembers = new LinkedHashSet<>();
+                    }
+                    witnessMembers.add(member);
+                }
+            }
+
+            return new Members(members, votingMembers,
+                    witnessMembers != null ? witnessMembers : Collections.emptySet());
+        }
+    }
+
+    private static final class OperationSerializer implements BufferSerializer<Object> {
+        private final BufferSerializer<Object> operationSerializer;
+        private final BufferSerializer<RaftEndpoint> endpointSerializer;
+        private final MembersSerializer membersSerializer;
+
+        OperationSerializer(BufferSerializer<Object> operationSerializer,
+                BufferSerializer<RaftEndpoint> endpointSerializer) {
+            this.operationSerializer = requireNonNull(operationSerializer);
+            this.endpointSerializer = requireNonNull(endpointSerializer);
+            this.membersSerializer = new MembersSerializer(endpointSerializer);
+        }
+
+        @Override
+        public int serializedSize(@Nonnull Object operation) {
+            if (operation instanceof UpdateRaftGroupMembersOp) {
+                UpdateRaftGroupMembersOp op = (UpdateRaftGroupMembersOp) operation;
+                return 1 + membersSerializer.serializedSize(op.getMembers())
+                        + endpointSerializer.serializedSize(op.getEndpoint()) + 1;
+            } else if (operation instanceof WitnessPlaceholder) {
+                return 1;
+            }
+
+            return 1 + operationSerializer.serializedSize(operation);
+        }
+
+        @Override
+        public void serialize(@Nonnull Object operation, @Nonnull ByteBuffer target) {
+            if (operation instanceof UpdateRaftGroupMembersOp) {
+                UpdateRaftGroupMembersOp op = (UpdateRaftGroupMembersOp) operation;
+                target.put(UPDATE_RAFT_GROUP_MEMBERS_OP);
+                membersSerializer.serialize(new Members(op.getMembers(), op.getVotingMembers(), op.getWitnessMembers()),
+                        target);
+                endpointSerializer.serialize(op.getEndpoint(), target);
+                target.put(toCode(op.getMode()));
+            } else if (operation instanceof WitnessPlaceholder) {
+                target.put(WITNESS_PLACEHOLDER);
+            } else {
+                target.put(USER_OPERATION);
+                operationSerializer.serialize(operation, target);
+            }
+        }
+
+        @Nonnull
+        @Override
+        public Object deserialize(@Nonnull ByteBuffer source) {
+            byte type = source.get();
+            switch (type) {
+                case USER_OPERATION :
+                    return operationSerializer.deserialize(source);
+                case UPDATE_RAFT_GROUP_MEMBERS_OP :
+                    Members members = membersSerializer.deserialize(source);
+                    RaftEndpoint endpoint = endpointSerializer.deserialize(source);
+                    MembershipChangeMode mode = toMembershipChangeMode(source.get());
+                    DefaultUpdateRaftGroupMembersOpOrBuilder builder = new DefaultUpdateRaftGroupMembersOpOrBuilder();
+                    builder.setMembers(members.members).setVotingMembers(members.votingMembers).setEndpoint(endpoint)
+                            .setMode(mode);
+                    if (!members.witnessMembers.isEmpty()) {
+                        builder.setWitnessMembers(members.witnessMembers);
+                    }
+                    return builder.build();
+                case WITNESS_PLACEHOLDER :
+                    return WitnessPlaceholder.INSTANCE;
+                default :
+                    throw new IllegalArgumentException("Invalid operation type: " + type);
+            }
+        }
+    }
+
+    private static final class LogEntrySerializer implements BufferSerializer<LogEntry> {
+        private final OperationSerializer operationSerializer;
+
+        LogEntrySerializer(OperationSerializer operationSerializer) {
+            this.operationSerializer = operationSerializer;
+        }
+
+        @Override
+        public int serializedSize(@Nonnull LogEntry logEntry) {
+            return 8 + 4 + operationSerializer.serializedSize(logEntry.getOperation());
+        }
+
+        @Override
+        public void serialize(@Nonnull LogEntry logEntry, @Nonnull ByteBuffer target) {
+            target.putLong(logEntry.getIndex()).putInt(logEntry.getTerm());
+            operationSerializer.serialize(logEntry.getOperation(), target);
+        }
+
+        @Nonnull
+        @Override
+        public LogEntry deserialize(@Nonnull ByteBuffer source) {
+            long index = source.getLong();
+            int term = source.getInt();
+            Object operation = operationSerializer.deserialize(source);
+            return new DefaultLogEntryOrBuilder().setIndex(index).setTerm(term).setOperation(operation).build();
+        }
+    }
+
+    private static final class RaftGroupMembersViewSerializer implements BufferSerializer<RaftGroupMembersView> {
+        private final MembersSerializer membersSerializer;
+
+        RaftGroupMembersViewSerializer(MembersSerializer membersSerializer) {
+            this.membersSerializer = membersSerializer;
+        }
+
+        @Override
+        public int serializedSize(@Nonnull RaftGroupMembersView view) {
+            return 8 + membersSerializer.serializedSize(view.getMembers());
+        }
+
+        @Override
+        public void serialize(@Nonnull RaftGroupMembersView view, @Nonnull ByteBuffer target) {
+            target.putLong(view.getLogIndex());
+            membersSerializer.serialize(
+                    new Members(view.getMembers(), view.getVotingMembers(), view.getWitnessMembers()), target);
+        }
+
+        @Nonnull
+        @Override
+        public RaftGroupMembersView deserialize(@Nonnull ByteBuffer source) {
+            long logIndex = source.getLong();
+            Members members = membersSerializer.deserialize(source);
+            return new DefaultRaftGroupMembersViewOrBuilder().setLogIndex(logIndex).setMembers(members.members)
+                    .setVotingMembers(members.votingMembers).setWitnessMembers(members.witnessMembers).build();
+        }
+    }
+
+    private static final class SnapshotChunkSerializer implements BufferSerializer<SnapshotChunk> {
+        private final OperationSerializer operationSerializer;
+        private final RaftGroupMembersViewSerializer groupMembersViewSerializer;
+
+        SnapshotChunkSerializer(OperationSerializer operationSerializer,
+                RaftGroupMembersViewSerializer groupMembersViewSerializer) {
+            this.operationSerializer = operationSerializer;
+            this.groupMembersViewSerializer = groupMembersViewSerializer;
+        }
+
+        @Override
+        public int serializedSize(@Nonnull SnapshotChunk chunk) {
+            return 8 + 4 + 4 + 4 + groupMembersViewSerializer.serializedSize(chunk.getGroupMembersView())
+                    + operationSerializer.serializedSize(chunk.getOperation());
+        }
+
+        @Override
+        public void serialize(@Nonnull SnapshotChunk chunk, @Nonnull ByteBuffer target) {
+            target.putLong(chunk.getIndex()).putInt(chunk.getTerm()).putInt(chunk.getSnapshotChunkIndex())
+                    .putInt(chunk.getSnapshotChunkCount());
+            groupMembersViewSerializer.serialize(chunk.getGroupMembersView(), target);
+            operationSerializer.serialize(chunk.getOperation(), target);
+        }
+
+        @Nonnull
+        @Override
+        public SnapshotChunk deserialize(@Nonnull ByteBuffer source) {
+            long index = source.getLong();
+            int term = source.getInt();
+            int chunkIndex = source.getInt();
+            int chunkCount = source.getInt();
+            RaftGroupMembersView groupMembersView = groupMembersViewSerializer.deserialize(source);
+            Object operation = operationSerializer.deserialize(source);
+            return new DefaultSnapshotChunkOrBuilder().setIndex(index).setTerm(term).setSnapshotChunkIndex(chunkIndex)
+                    .setSnapshotChunkCount(chunkCount).setGroupMembersView(groupMembersView).setOperation(operation)
+                    .build();
+        }
+    }
+
+}
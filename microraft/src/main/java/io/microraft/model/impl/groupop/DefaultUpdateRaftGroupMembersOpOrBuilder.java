@@ -19,6 +19,7 @@ package io.microraft.model.impl.groupop;
 import static java.util.Objects.requireNonNull;
 
 import java.util.Collection;
+import java.util.Collections;
 
 import javax.annotation.Nonnull;
 
@@ -44,6 +45,7 @@ public class DefaultUpdateRaftGroupMembersOpOrBuilder
 
     private Collection<RaftEndpoint> members;
     private Collection<RaftEndpoint> votingMembers;
+    private Collection<RaftEndpoint> witnessMembers = Collections.emptySet();
     private RaftEndpoint endpoint;
     private MembershipChangeMode mode;
     private DefaultUpdateRaftGroupMembersOpOrBuilder builder = this;
@@ -60,6 +62,12 @@ public class DefaultUpdateRaftGroupMembersOpOrBuilder
         return votingMembers;
     }
 
+    @Nonnull
+    @Override
+    public Collection<RaftEndpoint> getWitnessMembers() {
+        return witnessMembers;
+    }
+
     @Nonnull
     @Override
     public RaftEndpoint getEndpoint() {
@@ -86,6 +94,13 @@ public class DefaultUpdateRaftGroupMembersOpOrBuilder
         return this;
     }
 
+    @Nonnull
+    @Override
+    public UpdateRaftGroupMembersOpBuilder setWitnessMembers(@Nonnull Collection<RaftEndpoint> witnessMembers) {
+        builder.witnessMembers = witnessMembers;
+        return this;
+    }
+
     @Nonnull
     @Override
     public UpdateRaftGroupMembersOpBuilder setEndpoint(@Nonnull RaftEndpoint endpoint) {
@@ -111,8 +126,8 @@ public class DefaultUpdateRaftGroupMembersOpOrBuilder
     @Override
     public String toString() {
         String header = builder != null ? "UpdateRaftGroupMembersOpBuilder" : "UpdateRaftGroupMembersOp";
-        return header + "{" + "members=" + members + ", votingMembers=" + votingMembers + ", endpoint=" + endpoint
-                + ", mode=" + mode + '}';
+        return header + "{" + "members=" + members + ", votingMembers=" + votingMembers + ", witnessMembers="
+                + witnessMembers + ", endpoint=" + endpoint + ", mode=" + mode + '}';
     }
 
 }
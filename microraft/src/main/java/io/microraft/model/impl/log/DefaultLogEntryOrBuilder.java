@@ -18,11 +18,14 @@ package io.microraft.model.impl.log;
 
 import static java.util.Objects.requireNonNull;
 
+import java.nio.ByteBuffer;
+
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 
 import io.microraft.model.log.LogEntry;
 import io.microraft.model.log.LogEntry.LogEntryBuilder;
+import io.microraft.persistence.RaftStoreSerializer.Serializer;
 
 /**
  * The default impl of the {@link LogEntry} and {@link LogEntryBuilder}
@@ -32,10 +35,16 @@ import io.microraft.model.log.LogEntry.LogEntryBuilder;
  * <p>
  * Please note that {@link #build()} does not verify if all fields are set or
  * not. It is up to the user to populate the DTO state via the builder.
+ * <p>
+ * The serialized form of the log entry is cached once it is computed via
+ * {@link #getOrComputeSerializedForm(Serializer)}, together with the serializer
+ * which computed it. Concurrent callers may compute it more than once, in
+ * which case one of the results is kept.
  */
 public class DefaultLogEntryOrBuilder extends DefaultAbstractLogEntry implements LogEntry, LogEntryBuilder {
 
     private DefaultLogEntryOrBuilder builder = this;
+    private volatile SerializedForm serializedForm;
 
     @Nonnull
     @Override
@@ -66,10 +75,37 @@ public class DefaultLogEntryOrBuilder extends DefaultAbstractLogEntry implements
         return this;
     }
 
+    @Nonnull
+    @Override
+    public ByteBuffer getOrComputeSerializedForm(@Nonnull Serializer<LogEntry> serializer) {
+        SerializedForm cached = serializedForm;
+        if (cached == null || cached.serializer != serializer) {
+            cached = new SerializedForm(serializer, ByteBuffer.wrap(serializer.serialize(this)));
+            serializedForm = cached;
+        }
+
+        return cached.buffer.duplicate();
+    }
+
+    @Override
+    public void releaseSerializedForm() {
+        serializedForm = null;
+    }
+
     @Override
     public String toString() {
         String header = builder != null ? "LogEntryBuilder" : "LogEntry";
         return header + "{" + "term=" + term + ", index=" + index + ", operation=" + operation + '}';
     }
 
+    private static final class SerializedForm {
+        final Serializer<LogEntry> serializer;
+        final ByteBuffer buffer;
+
+        SerializedForm(Serializer<LogEntry> serializer, ByteBuffer buffer) {
+            this.serializer = serializer;
+            this.buffer = buffer;
+        }
+    }
+
 }
@@ -19,6 +19,7 @@ package io.microraft.model.impl.log;
 import static java.util.Objects.requireNonNull;
 
 import java.util.Collection;
+import java.util.Collections;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
@@ -32,6 +33,7 @@ public class DefaultRaftGroupMembersViewOrBuilder implements RaftGroupMembersVie
     private long logIndex;
     private Collection<RaftEndpoint> members;
     private Collection<RaftEndpoint> votingMembers;
+    private Collection<RaftEndpoint> witnessMembers = Collections.emptySet();
     private DefaultRaftGroupMembersViewOrBuilder builder = this;
 
     @Nonnegative
@@ -52,6 +54,12 @@ public class DefaultRaftGroupMembersViewOrBuilder implements RaftGroupMembersVie
         return votingMembers;
     }
 
+    @Nonnull
+    @Override
+    public Collection<RaftEndpoint> getWitnessMembers() {
+        return witnessMembers;
+    }
+
     @Nonnull
     @Override
     public RaftGroupMembersViewBuilder setLogIndex(@Nonnegative long logIndex) {
@@ -73,6 +81,13 @@ public class DefaultRaftGroupMembersViewOrBuilder implements RaftGroupMembersVie
         return this;
     }
 
+    @Nonnull
+    @Override
+    public RaftGroupMembersViewBuilder setWitnessMembers(@Nonnull Collection<RaftEndpoint> witnessMembers) {
+        builder.witnessMembers = witnessMembers;
+        return this;
+    }
+
     @Nonnull
     @Override
     public RaftGroupMembersView build() {
@@ -85,7 +100,7 @@ public class DefaultRaftGroupMembersViewOrBuilder implements RaftGroupMembersVie
     public String toString() {
         String header = builder != null ? "RaftGroupMembersViewBuilder" : "RaftGroupMembersView";
         return header + "{" + "logIndex=" + logIndex + ", members=" + members + ", votingMembers=" + votingMembers
-                + '}';
+                + ", witnessMembers=" + witnessMembers + '}';
     }
 
 }
@@ -49,6 +49,7 @@ public class DefaultAppendEntriesRequestOrBuilder implements AppendEntriesReques
     private List<LogEntry> logEntries;
     private long querySequenceNumber;
     private long flowControlSequenceNumber;
+    private boolean quiescent;
     private DefaultAppendEntriesRequestOrBuilder builder = this;
 
     public DefaultAppendEntriesRequestOrBuilder() {
@@ -107,6 +108,11 @@ public class DefaultAppendEntriesRequestOrBuilder implements AppendEntriesReques
         return flowControlSequenceNumber;
     }
 
+    @Override
+    public boolean isQuiescent() {
+        return quiescent;
+    }
+
     @Nonnull
     @Override
     public AppendEntriesRequestBuilder setGroupId(@Nonnull Object groupId) {
@@ -170,6 +176,13 @@ public class DefaultAppendEntriesRequestOrBuilder implements AppendEntriesReques
         return this;
     }
 
+    @Nonnull
+    @Override
+    public AppendEntriesRequestBuilder setQuiescent(boolean quiescent) {
+        builder.quiescent = quiescent;
+        return this;
+    }
+
     @Nonnull
     @Override
     public AppendEntriesRequest build() {
@@ -184,7 +197,7 @@ public class DefaultAppendEntriesRequestOrBuilder implements AppendEntriesReques
         return header + "{" + "groupId=" + groupId + ", sender=" + sender + ", term=" + term + ", prevLogTerm="
                 + previousLogTerm + ", prevLogIndex=" + previousLogIndex + ", leaderCommitIndex=" + commitIndex
                 + ", logEntries=" + logEntries + ", querySequenceNumber=" + querySequenceNumber
-                + ", flowControlSequenceNumber=" + flowControlSequenceNumber + '}';
+                + ", flowControlSequenceNumber=" + flowControlSequenceNumber + ", quiescent=" + quiescent + '}';
     }
 
 }
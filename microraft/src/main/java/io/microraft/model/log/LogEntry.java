@@ -16,13 +16,60 @@
 
 package io.microraft.model.log;
 
+import java.nio.ByteBuffer;
+
 import javax.annotation.Nonnull;
 
+import io.microraft.persistence.RaftStoreSerializer;
+import io.microraft.persistence.RaftStoreSerializer.Serializer;
+
 /**
  * Represents an entry in the Raft log.
+ * <p>
+ * The Raft leader sends the same log entry object to all followers and its
+ * {@link io.microraft.persistence.RaftStore}. Implementations can cache the
+ * serialized form of a log entry via
+ * {@link #getOrComputeSerializedForm(Serializer)} so that the entry is encoded
+ * once and the bytes are reused by the transport and the store, including the
+ * later transfers to lagging followers. The cache is released when the entry
+ * is truncated from the Raft log, either by a conflicting entry or by a
+ * snapshot.
  */
 public interface LogEntry extends BaseLogEntry {
 
+    /**
+     * Returns the serialized form of this log entry. If the serialized form is
+     * not cached yet, it is computed with the given serializer, and
+     * implementations that support caching keep it for subsequent calls. The
+     * default implementation does not cache and calls the given serializer on
+     * each invocation.
+     * <p>
+     * The cached serialized form is bound to the serializer which computed it.
+     * If it is requested with a different serializer object, it is computed
+     * again with the given serializer and replaces the cached one. Hence, the
+     * store and the transport share the serialized form only if both pass the
+     * object returned by {@link RaftStoreSerializer#logEntrySerializer()}.
+     * The returned buffer is positioned at the beginning of
+     * the serialized form and it is independent of the buffers returned to
+     * other callers. Callers must not modify its content.
+     *
+     * @param serializer
+     *            the serializer to serialize this log entry if its serialized
+     *            form is not cached yet
+     * @return the serialized form of this log entry
+     */
+    @Nonnull
+    default ByteBuffer getOrComputeSerializedForm(@Nonnull Serializer<LogEntry> serializer) {
+        return ByteBuffer.wrap(serializer.serialize(this));
+    }
+
+    /**
+     * Releases the cached serialized form of this log entry, if any. It is
+     * called by the Raft log when the entry is truncated.
+     */
+    default void releaseSerializedForm() {
+    }
+
     /**
      * The builder interface for {@link LogEntry}.
      */
@@ -17,6 +17,7 @@
 package io.microraft.model.log;
 
 import java.util.Collection;
+import java.util.Collections;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
@@ -54,6 +55,18 @@ public interface RaftGroupMembersView extends RaftModel {
     @Nonnull
     Collection<RaftEndpoint> getVotingMembers();
 
+    /**
+     * Returns the witness members in the Raft group member list. Witness members
+     * are voting members that do not store operation payloads or run the state
+     * machine. The default implementation returns an empty collection.
+     *
+     * @return witness members in the Raft group member list
+     */
+    @Nonnull
+    default Collection<RaftEndpoint> getWitnessMembers() {
+        return Collections.emptySet();
+    }
+
     interface RaftGroupMembersViewBuilder {
 
         @Nonnull
@@ -65,6 +78,23 @@ public interface RaftGroupMembersView extends RaftModel {
         @Nonnull
         RaftGroupMembersViewBuilder setVotingMembers(@Nonnull Collection<RaftEndpoint> votingMembers);
 
+        /**
+         * Sets the witness members. Implementations that do not support witness
+         * members can rely on the default implementation, which accepts only an
+         * empty collection.
+         *
+         * @param witnessMembers
+         *            the witness members
+         * @return the builder object for fluent calls
+         */
+        @Nonnull
+        default RaftGroupMembersViewBuilder setWitnessMembers(@Nonnull Collection<RaftEndpoint> witnessMembers) {
+            if (!witnessMembers.isEmpty()) {
+                throw new UnsupportedOperationException("Witness members are not supported by " + getClass().getName());
+            }
+            return this;
+        }
+
         @Nonnull
         RaftGroupMembersView build();
 
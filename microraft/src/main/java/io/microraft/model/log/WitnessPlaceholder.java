@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.microraft.model.log;
+
+import io.microraft.MembershipChangeMode;
+
+/**
+ * Replaces the operations of log entries and the objects of snapshot chunks
+ * that are sent to and stored by witness members.
+ * <p>
+ * A witness member only tracks terms and indices of log entries to take part in
+ * leader elections and commit decisions, so the Raft leader does not replicate
+ * operation payloads to witnesses. Transport and
+ * {@link io.microraft.persistence.RaftStore} implementations of Raft groups
+ * that contain witness members must be able to serialize and deserialize this
+ * object.
+ *
+ * @see MembershipChangeMode#ADD_WITNESS
+ */
+public enum WitnessPlaceholder {
+
+    /**
+     * The singleton placeholder instance.
+     */
+    INSTANCE
+
+}
@@ -57,6 +57,22 @@ public interface AppendEntriesRequest extends RaftMessage {
     @Nonnegative
     long getFlowControlSequenceNumber();
 
+    /**
+     * Returns true if the leader has stopped sending heartbeats after this
+     * request because its Raft group is idle. The receiving follower does not
+     * consider the leader heartbeat timeout as elapsed until it receives the
+     * next message from the leader, as long as the leader is reachable.
+     * <p>
+     * The quiescent flag is required only when
+     * {@link io.microraft.RaftConfig#isQuiescenceEnabled()} is set. The default
+     * implementation returns false.
+     *
+     * @return true if the leader has stopped sending heartbeats
+     */
+    default boolean isQuiescent() {
+        return false;
+    }
+
     /**
      * The builder interface for {@link AppendEntriesRequest}.
      */
@@ -89,6 +105,23 @@ public interface AppendEntriesRequest extends RaftMessage {
         @Nonnull
         AppendEntriesRequestBuilder setFlowControlSequenceNumber(@Nonnegative long flowControlSequenceNumber);
 
+        /**
+         * Sets the quiescent flag. Implementations that do not support
+         * quiescence can rely on the default implementation, which accepts only
+         * false.
+         *
+         * @param quiescent
+         *            the quiescent flag
+         * @return the builder object for fluent calls
+         */
+        @Nonnull
+        default AppendEntriesRequestBuilder setQuiescent(boolean quiescent) {
+            if (quiescent) {
+                throw new UnsupportedOperationException("Quiescence is not supported by " + getClass().getName());
+            }
+            return this;
+        }
+
     }
 
 }
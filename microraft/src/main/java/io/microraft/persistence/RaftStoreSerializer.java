@@ -16,6 +16,9 @@
 
 package io.microraft.persistence;
 
+import java.nio.ByteBuffer;
+
+import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 
 import io.microraft.RaftEndpoint;
@@ -34,6 +37,11 @@ import io.microraft.model.persistence.RaftTermPersistentState;
  * that serialization performed here may need to be deserialized for an
  * indefinite period and so evolution of any relevant types should be considered
  * by the implementer.
+ * <p>
+ * Serializers can also implement {@link BufferSerializer} to write into and
+ * read from caller-provided buffers, such as pooled or direct ones, without
+ * intermediate byte arrays. Compact implementations for the default model are
+ * available in {@link io.microraft.model.impl.DefaultModelSerializers}.
  */
 public interface RaftStoreSerializer {
 
@@ -41,6 +49,15 @@ public interface RaftStoreSerializer {
 
     Serializer<RaftEndpoint> raftEndpointSerializer();
 
+    /**
+     * Returns the serializer of log entries. It is also the serializer which
+     * stores and transports pass to
+     * {@link LogEntry#getOrComputeSerializedForm(Serializer)} to share the
+     * serialized form of a log entry, hence implementations should return the
+     * same object on each call.
+     *
+     * @return the serializer of log entries
+     */
     Serializer<LogEntry> logEntrySerializer();
 
     Serializer<SnapshotChunk> snapshotChunkSerializer();
@@ -55,5 +72,85 @@ public interface RaftStoreSerializer {
 
         @Nonnull
         T deserialize(@Nonnull byte[] element);
+
+        /**
+         * Deserializes an element from the remaining bytes of the given buffer.
+         * <p>
+         * The default implementation copies the remaining bytes into an array
+         * and calls {@link #deserialize(byte[])}.
+         *
+         * @param source
+         *            the buffer to read the element from
+         * @return the deserialized element
+         */
+        @Nonnull
+        default T deserialize(@Nonnull ByteBuffer source) {
+            byte[] bytes = new byte[source.remaining()];
+            source.get(bytes);
+            return deserialize(bytes);
+        }
+    }
+
+    /**
+     * A {@link Serializer} that writes elements directly into a given buffer
+     * and reads them back from a buffer without copying.
+     * <p>
+     * An element is written starting at the buffer's position and the position
+     * is advanced by {@link #serializedSize(Object)} bytes. Reads consume
+     * exactly the bytes written for the element, hence buffer serializers can
+     * be composed to write several elements back to back into the same
+     * buffer.
+     */
+    interface BufferSerializer<T> extends Serializer<T> {
+
+        /**
+         * Returns the number of bytes the given element occupies once
+         * serialized.
+         *
+         * @param element
+         *            the element to compute the serialized size
+         * @return the number of bytes the given element occupies once
+         *         serialized
+         */
+        @Nonnegative
+        int serializedSize(@Nonnull T element);
+
+        /**
+         * Writes the given element into the target buffer.
+         *
+         * @param element
+         *            the element to serialize
+         * @param target
+         *            the buffer to write the element into
+         * @throws java.nio.BufferOverflowException
+         *             if the target buffer does not have enough space for the
+         *             element
+         */
+        void serialize(@Nonnull T element, @Nonnull ByteBuffer target);
+
+        /**
+         * Reads an element from the given buffer starting at its position.
+         *
+         * @param source
+         *            the buffer to read the element from
+         * @return the deserialized element
+         */
+        @Nonnull
+        @Override
+        T deserialize(@Nonnull ByteBuffer source);
+
+        @Nonnull
+        @Override
+        default byte[] serialize(@Nonnull T element) {
+            ByteBuffer buffer = ByteBuffer.allocate(serializedSize(element));
+            serialize(element, buffer);
+            return buffer.array();
+        }
+
+        @Nonnull
+        @Override
+        default T deserialize(@Nonnull byte[] element) {
+            return deserialize(ByteBuffer.wrap(element));
+        }
     }
 }
@@ -17,9 +17,11 @@
 package io.microraft.report;
 
 import java.util.Collection;
+import java.util.Collections;
 
 import javax.annotation.Nonnull;
 
+import io.microraft.MembershipChangeMode;
 import io.microraft.RaftEndpoint;
 import io.microraft.RaftRole;
 
@@ -32,8 +34,10 @@ import io.microraft.RaftRole;
 public interface RaftGroupMembers {
 
     /**
-     * The maximum number of {@link RaftRole#LEARNER} members allowed in the Raft
-     * group member list.
+     * The default maximum number of {@link RaftRole#LEARNER} members allowed in
+     * the Raft group member list.
+     *
+     * @see io.microraft.RaftConfig#getMaxLearnerCount()
      */
     int MAX_LEARNER_COUNT = 2;
 
@@ -60,6 +64,19 @@ public interface RaftGroupMembers {
     @Nonnull
     Collection<RaftEndpoint> getVotingMembers();
 
+    /**
+     * Returns the witness members in the Raft group member list. Witness members
+     * are voting members that take part in leader elections and acknowledge log
+     * entries, but do not store operation payloads or run the state machine.
+     *
+     * @return witness members in the Raft group member list
+     * @see MembershipChangeMode#ADD_WITNESS
+     */
+    @Nonnull
+    default Collection<RaftEndpoint> getWitnessMembers() {
+        return Collections.emptySet();
+    }
+
     /**
      * Returns the majority quorum size of the Raft group member list.
      *
@@ -87,4 +87,17 @@ public interface RaftLogStats {
      */
     Map<RaftEndpoint, Long> getFollowerMatchIndices();
 
+    /**
+     * Returns the log indices of the snapshots being installed to the
+     * followers. Followers that are not installing a snapshot are not present in
+     * the map. This map is non-empty only for the leader Raft node.
+     * <p>
+     * A follower or learner present in this map is not promoted via
+     * {@link io.microraft.RaftNode#addOrPromoteToFollowerWhenCaughtUp(RaftEndpoint, long, java.time.Duration)}
+     * until it completes the snapshot installation.
+     *
+     * @return the log indices of the snapshots being installed to the followers
+     */
+    Map<RaftEndpoint, Long> getFollowerInstallingSnapshotIndices();
+
 }
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.microraft.report;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import io.microraft.RaftEndpoint;
+import io.microraft.RaftNode;
+import io.microraft.RaftNodeStatus;
+import io.microraft.RaftRole;
+
+/**
+ * A live view of the counters and indices of a Raft node, which can be polled
+ * from any thread.
+ * <p>
+ * Unlike {@link RaftNodeReport} objects, which are snapshots created on the
+ * Raft node's executor thread, a {@link RaftNodeStats} object is created once
+ * per Raft node and reflects the latest values published by the Raft node's
+ * executor thread. Reading it does not allocate any object and does not
+ * schedule any task on the Raft node's executor. Hence, it is suitable for
+ * metric systems that poll many Raft nodes frequently.
+ * <p>
+ * Each method returns the latest published value independently, so values
+ * returned by consecutive method calls may belong to different points in time.
+ * For instance, {@link #getCommitIndex()} can be greater than a previously read
+ * {@link #getLastLogOrSnapshotIndex()} value. Please use
+ * {@link RaftNode#getReport()} to get a consistent view of the Raft node's
+ * state.
+ *
+ * @see RaftNode#getStats()
+ * @see RaftNodeReport
+ */
+public interface RaftNodeStats {
+
+    /**
+     * Returns the role of the Raft node.
+     *
+     * @return the role of the Raft node
+     */
+    @Nonnull
+    RaftRole getRole();
+
+    /**
+     * Returns the status of the Raft node.
+     *
+     * @return the status of the Raft node
+     */
+    @Nonnull
+    RaftNodeStatus getStatus();
+
+    /**
+     * Returns the locally known term of the Raft node.
+     *
+     * @return the locally known term of the Raft node
+     */
+    int getTerm();
+
+    /**
+     * Returns the locally known leader of the Raft group, or null if the leader
+     * is not known.
+     *
+     * @return the locally known leader of the Raft group, or null if the leader
+     *         is not known
+     */
+    @Nullable
+    RaftEndpoint getLeaderEndpoint();
+
+    /**
+     * Returns the Raft log index of the last committed Raft group members.
+     *
+     * @return the Raft log index of the last committed Raft group members
+     */
+    long getCommittedMembersLogIndex();
+
+    /**
+     * Returns the Raft log index of the currently effective (maybe not-yet
+     * committed) Raft group members.
+     *
+     * @return the Raft log index of the currently effective Raft group members
+     */
+    long getEffectiveMembersLogIndex();
+
+    /**
+     * Returns index of the highest log entry known to be committed.
+     *
+     * @return index of the highest log entry known to be committed
+     */
+    long getCommitIndex();
+
+    /**
+     * Returns index of the highest log entry applied to the state machine.
+     * It is published before the future of the applied log entry is
+     * completed, hence it is at least the commit index of an operation whose
+     * future is observed to be completed on the same Raft node.
+     *
+     * @return index of the highest log entry applied to the state machine
+     */
+    long getLastApplied();
+
+    /**
+     * Returns the last term in the Raft log, either from the last log entry or from
+     * the last locally taken or installed snapshot.
+     *
+     * @return the last term in the Raft log
+     */
+    int getLastLogOrSnapshotTerm();
+
+    /**
+     * Returns the last log entry index in the Raft log, either from the last log
+     * entry or from the last locally taken or installed snapshot.
+     *
+     * @return the last log entry index in the Raft log
+     */
+    long getLastLogOrSnapshotIndex();
+
+    /**
+     * Returns the term of the last locally taken or installed snapshot.
+     *
+     * @return the term of the last locally taken or installed snapshot
+     */
+    int getLastSnapshotTerm();
+
+    /**
+     * Returns the log index of the last locally taken or installed snapshot.
+     *
+     * @return the log index of the last locally taken or installed snapshot
+     */
+    long getLastSnapshotIndex();
+
+    /**
+     * Returns the number of snapshots taken by the Raft node.
+     *
+     * @return the number of snapshots taken by the Raft node
+     */
+    int getTakeSnapshotCount();
+
+    /**
+     * Returns the number of snapshots installed by the Raft node.
+     *
+     * @return the number of snapshots installed by the Raft node
+     */
+    int getInstallSnapshotCount();
+
+}
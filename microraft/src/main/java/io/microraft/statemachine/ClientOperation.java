@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microraft.statemachine;
+
+import static java.util.Objects.requireNonNull;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Wraps a user operation with the id of the client submitting it and a
+ * sequence number unique to that client, so that
+ * {@link ClientSessionStateMachine} can detect retries of the same operation.
+ * <p>
+ * A client must use the same client id and sequence number when it retries an
+ * operation, e.g., after {@link io.microraft.exception.IndeterminateStateException}
+ * or {@link io.microraft.exception.NotLeaderException}, and a new sequence number
+ * for each new operation. Client ids must have proper
+ * {@link Object#equals(Object)} and {@link Object#hashCode()} implementations.
+ * <p>
+ * Client operations must be passed to {@link io.microraft.RaftNode#replicate(Object)}.
+ * Since queries are run only on the queried Raft node, they cannot update the
+ * client sessions, and {@link io.microraft.RaftNode#query(Object,
+ * io.microraft.QueryPolicy, java.util.Optional, java.util.Optional)} fails
+ * with {@link IllegalArgumentException} for client operations.
+ *
+ * @see ClientSessionStateMachine
+ */
+public final class ClientOperation {
+
+    private final Object clientId;
+    private final long sequenceNumber;
+    private final Object operation;
+
+    public ClientOperation(@Nonnull Object clientId, long sequenceNumber, @Nonnull Object operation) {
+        this.clientId = requireNonNull(clientId);
+        this.sequenceNumber = sequenceNumber;
+        this.operation = requireNonNull(operation);
+    }
+
+    @Nonnull
+    public Object getClientId() {
+        return clientId;
+    }
+
+    public long getSequenceNumber() {
+        return sequenceNumber;
+    }
+
+    @Nonnull
+    public Object getOperation() {
+        return operation;
+    }
+
+    @Override
+    public String toString() {
+        return "ClientOperation{" + "clientId=" + clientId + ", sequenceNumber=" + sequenceNumber + ", operation="
+                + operation + '}';
+    }
+
+}
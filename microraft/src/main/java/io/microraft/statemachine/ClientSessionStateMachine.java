@@ -0,0 +1,404 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microraft.statemachine;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnull;
+
+import io.microraft.Ordered;
+import io.microraft.RaftNode;
+import io.microraft.lifecycle.RaftNodeLifecycleAware;
+
+/**
+ * A {@link StateMachine} decorator which tracks client sessions in the
+ * replicated state to run each {@link ClientOperation} at most once.
+ * <p>
+ * When {@link RaftNode#replicate(Object)} fails with
+ * {@link io.microraft.exception.IndeterminateStateException} or
+ * {@link io.microraft.exception.NotLeaderException}, the operation may or may
+ * not be committed, and a plain retry may run it twice. Clients can wrap their
+ * operations into {@link ClientOperation} objects and retry them with the same
+ * client id and sequence number. For each client, this state machine keeps the
+ * responses of the last {@link #getMaxCachedResponseCount()} operations. If a
+ * committed operation is already run, the decorated state machine is not
+ * called and the cached response is returned instead. If the response of a
+ * retried operation is already evicted from the cache, the operation is not
+ * run and fails with {@link IllegalStateException}. Operations that are not
+ * wrapped into {@link ClientOperation} objects are passed to the decorated
+ * state machine as is. Client operations can be only replicated, since a query
+ * would update the sessions only on the queried Raft node. Hence,
+ * {@link RaftNode#query(Object, io.microraft.QueryPolicy, Optional, Optional)}
+ * rejects them.
+ * <p>
+ * Sessions are kept for the last {@link #getMaxSessionCount()} active clients.
+ * When the limit is exceeded, the session of the client that has not committed
+ * an operation for the longest time is removed, after which its retries are run
+ * as new operations. Since sessions are updated only while committed operations
+ * are run, all Raft nodes keep the same sessions. Sessions are put into the
+ * first chunk of the snapshots and the snapshot chunks of the decorated state
+ * machine follow it. Hence, if snapshot chunks are persisted or sent over the
+ * network, {@link SessionsSnapshotChunk} and the responses of the operations
+ * must be serializable.
+ * <p>
+ * Operations that fail with an exception in the decorated state machine are
+ * not recorded, so their retries run again.
+ * <p>
+ * Even when a retried operation is committed again, it still costs a
+ * replication round. Before retrying, clients can check if the operation is
+ * already committed via {@link #getCachedResponse(Object, long)}, which can be
+ * called from any thread.
+ *
+ * @see ClientOperation
+ */
+public final class ClientSessionStateMachine implements StateMachine, RaftNodeLifecycleAware {
+
+    /**
+     * The default maximum number of client sessions.
+     */
+    public static final int DEFAULT_MAX_SESSION_COUNT = 10_000;
+
+    /**
+     * The default maximum number of cached responses per client session.
+     */
+    public static final int DEFAULT_MAX_CACHED_RESPONSE_COUNT = 64;
+
+    private final StateMachine stateMachine;
+    private final int maxSessionCount;
+    private final int maxCachedResponseCount;
+    // in the order of the last commit of each client. guarded by itself since
+    // the cached responses can be read from any thread.
+    private final LinkedHashMap<Object, Session> sessions = new LinkedHashMap<>();
+
+    public ClientSessionStateMachine(@Nonnull StateMachine stateMachine) {
+        this(stateMachine, DEFAULT_MAX_SESSION_COUNT, DEFAULT_MAX_CACHED_RESPONSE_COUNT);
+    }
+
+    public ClientSessionStateMachine(@Nonnull StateMachine stateMachine, int maxSessionCount,
+            int maxCachedResponseCount) {
+        if (maxSessionCount < 1) {
+            throw new IllegalArgumentException("max session count: " + maxSessionCount + " must be positive!");
+        } else if (maxCachedResponseCount < 1) {
+            throw new IllegalArgumentException(
+                    "max cached response count: " + maxCachedResponseCount + " must be positive!");
+        }
+
+        this.stateMachine = requireNonNull(stateMachine);
+        this.maxSessionCount = maxSessionCount;
+        this.maxCachedResponseCount = maxCachedResponseCount;
+    }
+
+    /**
+     * Returns the decorated state machine.
+     *
+     * @return the decorated state machine
+     */
+    public StateMachine getStateMachine() {
+        return stateMachine;
+    }
+
+    public int getMaxSessionCount() {
+        return maxSessionCount;
+    }
+
+    public int getMaxCachedResponseCount() {
+        return maxCachedResponseCount;
+    }
+
+    /**
+     * Returns the number of client sessions.
+     *
+     * @return the number of client sessions
+     */
+    public int getSessionCount() {
+        synchronized (sessions) {
+            return sessions.size();
+        }
+    }
+
+    /**
+     * Returns the cached response of the operation with the given client id and
+     * sequence number, along with the commit index the operation is run at, if
+     * the operation is committed and its response is still cached on the local
+     * Raft node. An empty result does not mean the operation is not committed,
+     * since the local Raft node may not have applied it yet.
+     *
+     * @param clientId
+     *            the id of the client
+     * @param sequenceNumber
+     *            the sequence number of the operation
+     *
+     * @return the cached response of the operation if present
+     */
+    public Optional<Ordered<Object>> getCachedResponse(@Nonnull Object clientId, long sequenceNumber) {
+        requireNonNull(clientId);
+        synchronized (sessions) {
+            Session session = sessions.get(clientId);
+            return session != null ? Optional.ofNullable(session.responses.get(sequenceNumber)) : Optional.empty();
+        }
+    }
+
+    @Override
+    public Object runOperation(long commitIndex, @Nonnull Object operation) {
+        if (!(operation instanceof ClientOperation)) {
+            return stateMachine.runOperation(commitIndex, operation);
+        }
+
+        ClientOperation clientOperation = (ClientOperation) operation;
+        Object clientId = clientOperation.getClientId();
+        long sequenceNumber = clientOperation.getSequenceNumber();
+
+        synchronized (sessions) {
+            Session session = sessions.get(clientId);
+            if (session != null) {
+                CachedResponse cachedResponse = session.responses.get(sequenceNumber);
+                if (cachedResponse != null) {
+                    return cachedResponse.result;
+                } else if (sequenceNumber <= session.evictedSequenceNumber) {
+                    return new IllegalStateException("Response of operation with sequence number: " + sequenceNumber
+                            + " of client: " + clientId + " is evicted.");
+                }
+            }
+        }
+
+        Object result = stateMachine.runOperation(commitIndex, clientOperation.getOperation());
+
+        synchronized (sessions) {
+            Session session = sessions.remove(clientId);
+            if (session == null) {
+                session = new Session();
+            }
+
+            session.cache(sequenceNumber, new CachedResponse(commitIndex, result), maxCachedResponseCount);
+            // re-inserted to move the client to the end of the eviction order
+            sessions.put(clientId, session);
+            if (sessions.size() > maxSessionCount) {
+                Iterator<Session> it = sessions.values().iterator();
+                it.next();
+                it.remove();
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public void takeSnapshot(long commitIndex, Consumer<Object> snapshotChunkConsumer) {
+        List<SessionSnapshot> sessionSnapshots = new ArrayList<>();
+        synchronized (sessions) {
+            for (Entry<Object, Session> e : sessions.entrySet()) {
+                sessionSnapshots.add(e.getValue().toSnapshot(e.getKey()));
+            }
+        }
+
+        snapshotChunkConsumer.accept(new SessionsSnapshotChunk(sessionSnapshots));
+        stateMachine.takeSnapshot(commitIndex, snapshotChunkConsumer);
+    }
+
+    @Override
+    public void installSnapshot(long commitIndex, @Nonnull List<Object> snapshotChunks) {
+        if (snapshotChunks.isEmpty() || !(snapshotChunks.get(0) instanceof SessionsSnapshotChunk)) {
+            throw new IllegalArgumentException("First snapshot chunk at commit index: " + commitIndex
+                    + " does not contain client sessions!");
+        }
+
+        synchronized (sessions) {
+            sessions.clear();
+            for (SessionSnapshot sessionSnapshot : ((SessionsSnapshotChunk) snapshotChunks.get(0)).getSessions()) {
+                sessions.put(sessionSnapshot.getClientId(), Session.fromSnapshot(sessionSnapshot));
+            }
+        }
+
+        stateMachine.installSnapshot(commitIndex, snapshotChunks.subList(1, snapshotChunks.size()));
+    }
+
+    @Nonnull
+    @Override
+    public Object getNewTermOperation() {
+        return stateMachine.getNewTermOperation();
+    }
+
+    @Override
+    public void onRaftNodeStart() {
+        if (stateMachine instanceof RaftNodeLifecycleAware) {
+            ((RaftNodeLifecycleAware) stateMachine).onRaftNodeStart();
+        }
+    }
+
+    @Override
+    public void onRaftNodeTerminate() {
+        if (stateMachine instanceof RaftNodeLifecycleAware) {
+            ((RaftNodeLifecycleAware) stateMachine).onRaftNodeTerminate();
+        }
+    }
+
+    /**
+     * The snapshot chunk which contains the client sessions, in the order of
+     * the last commits of the clients.
+     */
+    public static final class SessionsSnapshotChunk {
+
+        private final List<SessionSnapshot> sessions;
+
+        public SessionsSnapshotChunk(@Nonnull List<SessionSnapshot> sessions) {
+            this.sessions = Collections.unmodifiableList(new ArrayList<>(sessions));
+        }
+
+        @Nonnull
+        public List<SessionSnapshot> getSessions() {
+            return sessions;
+        }
+
+        @Override
+        public String toString() {
+            return "SessionsSnapshotChunk{" + "sessions=" + sessions + '}';
+        }
+
+    }
+
+    /**
+     * The snapshot of a single client session. The sequence numbers, commit
+     * indices and results of the cached responses are in the ascending order
+     * of the sequence numbers.
+     */
+    public static final class SessionSnapshot {
+
+        private final Object clientId;
+        private final long evictedSequenceNumber;
+        private final long[] sequenceNumbers;
+        private final long[] commitIndices;
+        private final List<Object> results;
+
+        public SessionSnapshot(@Nonnull Object clientId, long evictedSequenceNumber, @Nonnull long[] sequenceNumbers,
+                @Nonnull long[] commitIndices, @Nonnull List<Object> results) {
+            if (sequenceNumbers.length != commitIndices.length || sequenceNumbers.length != results.size()) {
+                throw new IllegalArgumentException("Cached responses of client: " + clientId + " are inconsistent!");
+            }
+
+            this.clientId = requireNonNull(clientId);
+            this.evictedSequenceNumber = evictedSequenceNumber;
+            this.sequenceNumbers = sequenceNumbers.clone();
+            this.commitIndices = commitIndices.clone();
+            this.results = Collections.unmodifiableList(new ArrayList<>(results));
+        }
+
+        @Nonnull
+        public Object getClientId() {
+            return clientId;
+        }
+
+        /**
+         * Returns the greatest sequence number whose response is evicted from
+         * the cache, or {@link Long#MIN_VALUE} if no response is evicted yet.
+         *
+         * @return the greatest sequence number whose response is evicted
+         */
+        public long getEvictedSequenceNumber() {
+            return evictedSequenceNumber;
+        }
+
+        @Nonnull
+        public long[] getSequenceNumbers() {
+            return sequenceNumbers.clone();
+        }
+
+        @Nonnull
+        public long[] getCommitIndices() {
+            return commitIndices.clone();
+        }
+
+        @Nonnull
+        public List<Object> getResults() {
+            return results;
+        }
+
+        @Override
+        public String toString() {
+            return "SessionSnapshot{" + "clientId=" + clientId + ", evictedSequenceNumber=" + evictedSequenceNumber
+                    + ", cachedResponseCount=" + sequenceNumbers.length + '}';
+        }
+
+    }
+
+    private static final class Session {
+        final TreeMap<Long, CachedResponse> responses = new TreeMap<>();
+        long evictedSequenceNumber = Long.MIN_VALUE;
+
+        void cache(long sequenceNumber, CachedResponse response, int maxCachedResponseCount) {
+            responses.put(sequenceNumber, response);
+            while (responses.size() > maxCachedResponseCount) {
+                evictedSequenceNumber = Math.max(evictedSequenceNumber, responses.pollFirstEntry().getKey());
+            }
+        }
+
+        SessionSnapshot toSnapshot(Object clientId) {
+            long[] sequenceNumbers = new long[responses.size()];
+            long[] commitIndices = new long[responses.size()];
+            List<Object> results = new ArrayList<>(responses.size());
+            int i = 0;
+            for (Entry<Long, CachedResponse> e : responses.entrySet()) {
+                sequenceNumbers[i] = e.getKey();
+                commitIndices[i] = e.getValue().commitIndex;
+                results.add(e.getValue().result);
+                i++;
+            }
+
+            return new SessionSnapshot(clientId, evictedSequenceNumber, sequenceNumbers, commitIndices, results);
+        }
+
+        static Session fromSnapshot(SessionSnapshot snapshot) {
+            Session session = new Session();
+            session.evictedSequenceNumber = snapshot.evictedSequenceNumber;
+            for (int i = 0; i < snapshot.sequenceNumbers.length; i++) {
+                session.responses.put(snapshot.sequenceNumbers[i],
+                        new CachedResponse(snapshot.commitIndices[i], snapshot.results.get(i)));
+            }
+
+            return session;
+        }
+    }
+
+    private static final class CachedResponse implements Ordered<Object> {
+        final long commitIndex;
+        final Object result;
+
+        CachedResponse(long commitIndex, Object result) {
+            this.commitIndex = commitIndex;
+            this.result = result;
+        }
+
+        @Override
+        public long getCommitIndex() {
+            return commitIndex;
+        }
+
+        @Override
+        public Object getResult() {
+            return result;
+        }
+    }
+
+}
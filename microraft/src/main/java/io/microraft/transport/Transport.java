@@ -34,7 +34,12 @@ import io.microraft.model.message.RaftMessage;
  * is required because Raft nodes run concurrently with the Actor model.
  * <p>
  * Transport implementations must be able to serialize {@link RaftMessage}
- * objects created by {@link RaftModelFactory}.
+ * objects created by {@link RaftModelFactory}. The Raft leader sends the same
+ * log entry objects to all followers and to its
+ * {@link io.microraft.persistence.RaftStore}, so transports can serialize them
+ * via {@link io.microraft.model.log.LogEntry#getOrComputeSerializedForm} with
+ * the {@link io.microraft.persistence.RaftStoreSerializer#logEntrySerializer()}
+ * object given to the store to encode each log entry only once.
  * <p>
  * A {@link Transport} implementation can implement
  * {@link RaftNodeLifecycleAware} to perform initialization and clean up work
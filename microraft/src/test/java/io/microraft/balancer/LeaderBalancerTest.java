@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.microraft.balancer;
+
+import static io.microraft.test.util.AssertionUtils.eventually;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Test;
+
+import io.microraft.RaftEndpoint;
+import io.microraft.impl.RaftNodeImpl;
+import io.microraft.impl.local.LocalRaftGroup;
+import io.microraft.report.RaftNodeReport;
+import io.microraft.test.util.BaseTest;
+
+public class LeaderBalancerTest extends BaseTest {
+
+    private static final int GROUP_COUNT = 3;
+    private static final int HOST_COUNT = 3;
+
+    private final List<LocalRaftGroup> groups = new ArrayList<>();
+    private final Map<RaftEndpoint, String> hosts = new HashMap<>();
+
+    @After
+    public void destroy() {
+        groups.forEach(LocalRaftGroup::destroy);
+    }
+
+    @Test(timeout = 300_000)
+    public void when_allLeadersAreOnSameHost_then_leadershipsAreSpread() {
+        startGroupsWithLeadersOnFirstHost();
+        LeaderBalancer balancer = LeaderBalancer.newBuilder().setHostFunction(hosts::get)
+                .setMaxConcurrentTransfers(GROUP_COUNT).setMinTransferIntervalMillis(0).build();
+        registerFirstHost(balancer);
+
+        assertThat(balancer.getLeaderLoads().get(host(0))).isEqualTo(3d);
+        assertThat(balancer.rebalance()).isEqualTo(2);
+
+        eventually(() -> {
+            for (int i = 0; i < HOST_COUNT; i++) {
+                assertThat(countLeadersOn(host(i))).isEqualTo(1);
+            }
+        });
+
+        registerFirstHost(balancer);
+
+        assertThat(balancer.rebalance()).isEqualTo(0);
+    }
+
+    @Test(timeout = 300_000)
+    public void when_minTransferIntervalHasNotPassed_then_noNewLeadershipTransferIsStarted() {
+        startGroupsWithLeadersOnFirstHost();
+        LeaderBalancer balancer = LeaderBalancer.newBuilder().setHostFunction(hosts::get)
+                .setMaxConcurrentTransfers(GROUP_COUNT).setMinTransferIntervalMillis(60_000).build();
+        registerFirstHost(balancer);
+
+        assertThat(balancer.rebalance()).isEqualTo(1);
+        assertThat(balancer.rebalance()).isEqualTo(0);
+    }
+
+    @Test(timeout = 300_000)
+    public void when_groupsHaveDifferentWeights_then_heaviestGroupIsMovedFirst() {
+        startGroupsWithLeadersOnFirstHost();
+        Object heavyGroupId = groups.get(0).getNodes().get(0).getGroupId();
+        LeaderBalancer balancer = LeaderBalancer.newBuilder().setHostFunction(hosts::get)
+                .setWeightFunction(report -> report.getGroupId().equals(heavyGroupId) ? 10 : 1)
+                .setMaxConcurrentTransfers(1).setMinTransferIntervalMillis(0).build();
+        registerFirstHost(balancer);
+
+        assertThat(balancer.rebalance()).isEqualTo(1);
+
+        eventually(() -> assertThat(hosts.get(groups.get(0).getLeaderEndpoint())).isNotEqualTo(host(0)));
+    }
+
+    private void startGroupsWithLeadersOnFirstHost() {
+        for (int i = 0; i < GROUP_COUNT; i++) {
+            LocalRaftGroup group = LocalRaftGroup.newBuilder(HOST_COUNT).setGroupId("group-" + i).start();
+            groups.add(group);
+            List<RaftNodeImpl> nodes = group.getNodes();
+            for (int j = 0; j < HOST_COUNT; j++) {
+                hosts.put(nodes.get(j).getLocalEndpoint(), host(j));
+            }
+
+            RaftNodeImpl leader = group.waitUntilLeaderElected();
+            if (leader != nodes.get(0)) {
+                leader.transferLeadership(nodes.get(0).getLocalEndpoint()).join();
+                eventually(() -> assertThat(group.getLeaderEndpoint()).isEqualTo(nodes.get(0).getLocalEndpoint()));
+            }
+        }
+    }
+
+    private void registerFirstHost(LeaderBalancer balancer) {
+        for (LocalRaftGroup group : groups) {
+            RaftNodeImpl node = group.getNodes().get(0);
+            balancer.register(node);
+            eventually(() -> {
+                RaftNodeReport report = node.getReport().join().getResult();
+                assertThat(report.getTerm().getLeaderEndpoint()).isNotNull();
+                balancer.accept(report);
+            });
+        }
+    }
+
+    private long countLeadersOn(String host) {
+        return groups.stream().filter(group -> host.equals(hosts.get(group.getLeaderEndpoint()))).count();
+    }
+
+    private static String host(int i) {
+        return "host-" + i;
+    }
+
+}
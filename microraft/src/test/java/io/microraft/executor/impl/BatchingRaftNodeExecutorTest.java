@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.microraft.executor.impl;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Test;
+
+import io.microraft.executor.RaftNodeExecutor.Cancellable;
+import io.microraft.test.util.BaseTest;
+
+public class BatchingRaftNodeExecutorTest extends BaseTest {
+
+    private final AtomicReference<Thread> raftThread = new AtomicReference<>();
+    private final BatchingRaftNodeExecutor executor = new BatchingRaftNodeExecutor(4, 1, MILLISECONDS, 8, r -> {
+        Thread thread = new Thread(r, "BatchingRaftNodeExecutorTest");
+        raftThread.set(thread);
+        return thread;
+    });
+
+    @After
+    public void destroy() {
+        executor.onRaftNodeTerminate();
+    }
+
+    @Test(timeout = 300_000)
+    public void when_executorIsCreated_then_threadStartsWithFirstTask() throws InterruptedException {
+        assertThat(raftThread.get().getState()).isEqualTo(Thread.State.NEW);
+
+        CountDownLatch latch = new CountDownLatch(1);
+        executor.submit(latch::countDown);
+
+        latch.await();
+        assertThat(raftThread.get().getState()).isNotEqualTo(Thread.State.NEW);
+    }
+
+    @Test(timeout = 300_000)
+    public void when_tasksAreSubmitted_then_theyRunInOrderOnRaftThread() throws InterruptedException {
+        List<Integer> values = new CopyOnWriteArrayList<>();
+        List<Thread> threads = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(1);
+        int count = 100;
+        for (int i = 0; i < count; i++) {
+            int value = i;
+            executor.submit(() -> {
+                values.add(value);
+                threads.add(Thread.currentThread());
+            });
+        }
+        executor.submit(latch::countDown);
+
+        latch.await();
+        assertThat(values).hasSize(count).isSorted();
+        assertThat(threads).containsOnly(raftThread.get());
+    }
+
+    @Test(timeout = 300_000)
+    public void when_taskIsScheduledByRaftThread_then_itRunsAfterDelay() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        long start = System.nanoTime();
+        executor.submit(() -> executor.schedule(latch::countDown, 50, MILLISECONDS));
+
+        latch.await();
+        assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(MILLISECONDS.toNanos(50));
+    }
+
+    @Test(timeout = 300_000)
+    public void when_taskIsCancelledByOtherThread_then_itDoesNotRun() throws InterruptedException {
+        CountDownLatch ran = new CountDownLatch(1);
+        Cancellable cancellable = executor.scheduleCancellable(ran::countDown, 100, MILLISECONDS);
+        cancellable.cancel();
+
+        CountDownLatch latch = new CountDownLatch(1);
+        executor.schedule(latch::countDown, 200, MILLISECONDS);
+
+        latch.await();
+        assertThat(ran.getCount()).isEqualTo(1);
+    }
+
+    @Test(timeout = 300_000)
+    public void when_taskIsCancelledAfterTermination_then_cancelDoesNotFail() throws InterruptedException {
+        Cancellable cancellable = executor.scheduleCancellable(() -> {
+        }, 1, MILLISECONDS);
+        executor.onRaftNodeTerminate();
+        raftThread.get().join();
+
+        cancellable.cancel();
+    }
+
+    @Test(timeout = 300_000)
+    public void when_taskIsSubmittedAfterTermination_then_itIsRejected() {
+        executor.onRaftNodeTerminate();
+
+        assertThatThrownBy(() -> executor.submit(() -> {
+        })).isInstanceOf(RejectedExecutionException.class);
+        assertThatThrownBy(() -> executor.schedule(() -> {
+        }, 1, MILLISECONDS)).isInstanceOf(RejectedExecutionException.class);
+    }
+
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.microraft.executor.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import io.microraft.executor.impl.HashedWheelTimer.Timeout;
+import io.microraft.test.util.BaseTest;
+
+public class HashedWheelTimerTest extends BaseTest {
+
+    private static final long TICK_NANOS = 10;
+
+    private final HashedWheelTimer timer = new HashedWheelTimer(0, TICK_NANOS, 8);
+    private final List<Runnable> expired = new ArrayList<>();
+
+    @Test
+    public void when_wheelSizeIsNotPowerOfTwo_then_creationFails() {
+        assertThatThrownBy(() -> new HashedWheelTimer(0, TICK_NANOS, 6)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void when_deadlineIsNotReached_then_taskDoesNotExpire() {
+        Runnable task = () -> {
+        };
+        timer.schedule(task, 25);
+
+        assertThat(timer.expireTimeouts(29, expired::add)).isZero();
+        assertThat(expired).isEmpty();
+        assertThat(timer.size()).isEqualTo(1);
+
+        assertThat(timer.expireTimeouts(30, expired::add)).isEqualTo(1);
+        assertThat(expired).containsExactly(task);
+        assertThat(timer.size()).isZero();
+    }
+
+    @Test
+    public void when_deadlineIsBeyondOneRevolution_then_taskExpiresAtDeadline() {
+        Runnable task1 = () -> {
+        };
+        Runnable task2 = () -> {
+        };
+        // both tasks map to the same bucket
+        timer.schedule(task1, 20);
+        timer.schedule(task2, 100);
+
+        timer.expireTimeouts(20, expired::add);
+        assertThat(expired).containsExactly(task1);
+
+        timer.expireTimeouts(99, expired::add);
+        assertThat(expired).containsExactly(task1);
+
+        timer.expireTimeouts(100, expired::add);
+        assertThat(expired).containsExactly(task1, task2);
+    }
+
+    @Test
+    public void when_expiredTaskAddsNewTask_then_newTaskExpiresOnLaterTick() {
+        Runnable task2 = () -> {
+        };
+        Runnable task1 = () -> timer.schedule(task2, 0);
+        timer.schedule(task1, 10);
+
+        timer.expireTimeouts(10, task -> {
+            expired.add(task);
+            task.run();
+        });
+
+        assertThat(expired).containsExactly(task1);
+        assertThat(timer.size()).isEqualTo(1);
+
+        timer.expireTimeouts(20, expired::add);
+        assertThat(expired).containsExactly(task1, task2);
+    }
+
+    @Test
+    public void when_wheelIsEmpty_then_noNextBucket() {
+        assertThat(timer.nanosToNextBucket(0)).isEqualTo(-1);
+
+        timer.schedule(() -> {
+        }, 35);
+
+        assertThat(timer.nanosToNextBucket(0)).isEqualTo(40);
+    }
+
+    @Test
+    public void when_timeoutIsCancelled_then_taskDoesNotExpire() {
+        Runnable task1 = () -> {
+        };
+        Runnable task2 = () -> {
+        };
+        Timeout timeout1 = timer.schedule(task1, 20);
+        Timeout timeout2 = timer.schedule(task2, 20);
+
+        assertThat(timeout1.cancel()).isTrue();
+        assertThat(timeout1.isCancelled()).isTrue();
+        assertThat(timer.size()).isEqualTo(1);
+
+        timer.expireTimeouts(20, expired::add);
+
+        assertThat(expired).containsExactly(task2);
+        assertThat(timeout2.isExpired()).isTrue();
+        assertThat(timeout2.cancel()).isFalse();
+    }
+
+    @Test
+    public void when_expiredTaskCancelsAnotherTimeoutInSameBucket_then_cancelledTaskDoesNotExpire() {
+        Runnable task2 = () -> {
+        };
+        Timeout timeout2 = timer.schedule(task2, 20);
+        Runnable task1 = timeout2::cancel;
+        // task1 is the head of the bucket, so it expires before task2
+        timer.schedule(task1, 20);
+
+        timer.expireTimeouts(20, task -> {
+            expired.add(task);
+            task.run();
+        });
+
+        assertThat(expired).containsExactly(task1);
+        assertThat(timeout2.isCancelled()).isTrue();
+        assertThat(timer.size()).isZero();
+    }
+
+}
@@ -21,8 +21,11 @@ import static io.microraft.MembershipChangeMode.ADD_LEARNER;
 import static io.microraft.MembershipChangeMode.REMOVE_MEMBER;
 import static io.microraft.RaftRole.FOLLOWER;
 import static io.microraft.impl.local.SimpleStateMachine.applyValue;
+import static io.microraft.test.util.AssertionUtils.allTheTime;
+import static io.microraft.test.util.AssertionUtils.eventually;
 import static io.microraft.test.util.RaftTestUtils.getRole;
 import static io.microraft.test.util.RaftTestUtils.getTerm;
+import static io.microraft.test.util.RaftTestUtils.readRaftState;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.fail;
 
@@ -43,6 +46,7 @@ import io.microraft.exception.RaftException;
 import io.microraft.impl.local.LocalRaftEndpoint;
 import io.microraft.impl.local.LocalRaftGroup;
 import io.microraft.model.message.AppendEntriesRequest;
+import io.microraft.model.message.VoteRequest;
 import io.microraft.test.util.BaseTest;
 
 public class LeadershipTransferTest extends BaseTest {
@@ -316,4 +320,194 @@ public class LeadershipTransferTest extends BaseTest {
         f1.join();
     }
 
+    @Test(timeout = 300_000)
+    public void when_fastLeadershipTransferCompleted_then_heldOperationFailsWithNewLeader() {
+        RaftConfig config = RaftConfig.newBuilder().setFastLeadershipTransferEnabled(true).build();
+        group = LocalRaftGroup.start(3, config);
+        RaftNodeImpl leader = group.waitUntilLeaderElected();
+        RaftNodeImpl follower = group.getAnyNodeExcept(leader.getLocalEndpoint());
+        group.dropMessagesTo(leader.getLocalEndpoint(), follower.getLocalEndpoint(), AppendEntriesRequest.class);
+
+        leader.replicate(applyValue("val1")).join();
+
+        CompletableFuture<Ordered<Object>> f1 = leader.transferLeadership(follower.getLocalEndpoint());
+        CompletableFuture<Ordered<Object>> f2 = leader.replicate(applyValue("val2"));
+
+        group.allowAllMessagesTo(leader.getLocalEndpoint(), follower.getLocalEndpoint());
+
+        assertThat(f1.join().getResult()).isInstanceOf(Long.class);
+        // the held operation is failed before the leadership transfer completes
+        assertThat(f2).isCompletedExceptionally();
+
+        try {
+            f2.join();
+            fail();
+        } catch (CompletionException e) {
+            assertThat(e).hasCauseInstanceOf(NotLeaderException.class);
+            assertThat(((NotLeaderException) e.getCause()).getLeader()).isEqualTo(follower.getLocalEndpoint());
+        }
+
+        RaftNodeImpl newLeader = group.waitUntilLeaderElected();
+        assertThat(newLeader).isSameAs(follower);
+    }
+
+    @Test(timeout = 300_000)
+    public void when_anotherNodeBecomesLeaderDuringFastLeadershipTransfer_then_transferFails() {
+        RaftConfig config = RaftConfig.newBuilder().setFastLeadershipTransferEnabled(true).build();
+        group = LocalRaftGroup.start(3, config);
+        RaftNodeImpl leader = group.waitUntilLeaderElected();
+        leader.replicate(applyValue("val1")).join();
+
+        // the target starts a leader election but cannot collect votes
+        RaftNodeImpl target = group.getAnyNodeExcept(leader.getLocalEndpoint());
+        for (RaftNodeImpl node : group.<RaftNodeImpl>getNodesExcept(target.getLocalEndpoint())) {
+            group.dropMessagesTo(target.getLocalEndpoint(), node.getLocalEndpoint(), VoteRequest.class);
+        }
+
+        CompletableFuture<Ordered<Object>> f1 = leader.transferLeadership(target.getLocalEndpoint());
+        CompletableFuture<Ordered<Object>> f2 = leader.replicate(applyValue("val2"));
+
+        try {
+            f1.join();
+            fail();
+        } catch (CompletionException e) {
+            assertThat(e).hasCauseInstanceOf(NotLeaderException.class);
+            assertThat(((NotLeaderException) e.getCause()).getLeader()).isNotEqualTo(target.getLocalEndpoint());
+        }
+
+        try {
+            f2.join();
+            fail();
+        } catch (CompletionException e) {
+            assertThat(e).hasCauseInstanceOf(NotLeaderException.class);
+            assertThat(((NotLeaderException) e.getCause()).getLeader()).isNotEqualTo(target.getLocalEndpoint());
+        }
+    }
+
+    @Test(timeout = 300_000)
+    public void when_leaderTerminatesBeforeLearningNewLeaderDuringFastLeadershipTransfer_then_transferFails() {
+        RaftConfig config = RaftConfig.newBuilder().setFastLeadershipTransferEnabled(true).build();
+        group = LocalRaftGroup.start(3, config);
+        RaftNodeImpl leader = group.waitUntilLeaderElected();
+        leader.replicate(applyValue("val1")).join();
+
+        // the old leader steps down but does not learn the new leader
+        RaftNodeImpl target = group.getAnyNodeExcept(leader.getLocalEndpoint());
+        group.dropMessagesTo(target.getLocalEndpoint(), leader.getLocalEndpoint(), AppendEntriesRequest.class);
+
+        CompletableFuture<Ordered<Object>> f1 = leader.transferLeadership(target.getLocalEndpoint());
+        CompletableFuture<Ordered<Object>> f2 = leader.replicate(applyValue("val2"));
+
+        eventually(() -> assertThat(getRole(leader)).isEqualTo(FOLLOWER));
+        assertThat(f1).isNotDone();
+
+        leader.terminate().join();
+
+        for (CompletableFuture<Ordered<Object>> f : List.of(f1, f2)) {
+            try {
+                f.join();
+                fail();
+            } catch (CompletionException e) {
+                assertThat(e).hasCauseInstanceOf(NotLeaderException.class);
+            }
+        }
+    }
+
+    @Test(timeout = 300_000)
+    public void when_fastLeadershipTransferTimesOut_then_heldOperationIsReplicated() {
+        RaftConfig config = RaftConfig.newBuilder().setFastLeadershipTransferEnabled(true).build();
+        group = LocalRaftGroup.start(3, config);
+        RaftNodeImpl leader = group.waitUntilLeaderElected();
+        RaftNodeImpl follower = group.getAnyNodeExcept(leader.getLocalEndpoint());
+        group.dropMessagesTo(leader.getLocalEndpoint(), follower.getLocalEndpoint(), AppendEntriesRequest.class);
+
+        leader.replicate(applyValue("val1")).join();
+
+        CompletableFuture<Ordered<Object>> f1 = leader.transferLeadership(follower.getLocalEndpoint());
+        CompletableFuture<Ordered<Object>> f2 = leader.replicate(applyValue("val2"));
+
+        try {
+            f1.join();
+            fail();
+        } catch (CompletionException e) {
+            assertThat(e).hasCauseInstanceOf(TimeoutException.class);
+        }
+
+        f2.join();
+        RaftNodeImpl currentLeader = group.waitUntilLeaderElected();
+        assertThat(currentLeader).isSameAs(leader);
+    }
+
+    @Test(timeout = 300_000)
+    public void when_followerHasHigherElectionPriority_then_leadershipIsTransferredToFollower() {
+        RaftConfig config = RaftConfig.newBuilder().setLeaderHeartbeatPeriodSecs(1).build();
+        group = LocalRaftGroup.newBuilder(3).setElectionPriorities(0, 0, 1).setConfig(config).start();
+        RaftEndpoint preferred = getHighestPriorityEndpoint();
+
+        eventually(() -> assertThat(group.getLeaderEndpoint()).isEqualTo(preferred));
+    }
+
+    @Test(timeout = 300_000)
+    public void when_leadershipIsTransferredToLowerElectionPriority_then_leadershipMovesBackAfterCooldown() {
+        RaftConfig config = RaftConfig.newBuilder().setLeaderHeartbeatPeriodSecs(1).setLeaderHeartbeatTimeoutSecs(5)
+                .build();
+        group = LocalRaftGroup.newBuilder(3).setElectionPriorities(0, 0, 1).setConfig(config).start();
+        RaftEndpoint preferred = getHighestPriorityEndpoint();
+        eventually(() -> assertThat(group.getLeaderEndpoint()).isEqualTo(preferred));
+        RaftNodeImpl leader = group.getNode(preferred);
+        RaftNodeImpl follower = group.getAnyNodeExcept(preferred);
+
+        leader.replicate(applyValue("val")).join();
+        leader.transferLeadership(follower.getLocalEndpoint()).join();
+        eventually(() -> assertThat(group.getLeaderEndpoint()).isEqualTo(follower.getLocalEndpoint()));
+
+        allTheTime(() -> assertThat(group.getLeaderEndpoint()).isEqualTo(follower.getLocalEndpoint()), 3);
+
+        eventually(() -> assertThat(group.getLeaderEndpoint()).isEqualTo(preferred));
+    }
+
+    @Test(timeout = 300_000)
+    public void when_leadershipIsTransferredAwayFromHigherElectionPriority_then_priorityTransferIsDeferred() {
+        RaftConfig config = RaftConfig.newBuilder().setLeaderHeartbeatPeriodSecs(1).setLeaderHeartbeatTimeoutSecs(5)
+                .build();
+        group = LocalRaftGroup.newBuilder(3).setElectionPriorities(0, 0, 1).setConfig(config).start();
+        RaftEndpoint preferred = getHighestPriorityEndpoint();
+        eventually(() -> assertThat(group.getLeaderEndpoint()).isEqualTo(preferred));
+        RaftNodeImpl leader = group.getNode(preferred);
+        RaftNodeImpl follower = group.getAnyNodeExcept(preferred);
+
+        leader.replicate(applyValue("val")).join();
+        leader.transferLeadership(follower.getLocalEndpoint()).join();
+        eventually(() -> assertThat(group.getLeaderEndpoint()).isEqualTo(follower.getLocalEndpoint()));
+
+        boolean started = readRaftState(follower, follower::tryTransferLeadershipToHigherPriorityFollower);
+
+        assertThat(started).isFalse();
+        assertThat(readRaftState(follower, () -> follower.state().leadershipTransferState())).isNull();
+    }
+
+    @Test(timeout = 300_000)
+    public void when_highestElectionPriorityNodeCrashes_then_lowerElectionPriorityNodeBecomesLeader() {
+        RaftConfig config = RaftConfig.newBuilder().setLeaderHeartbeatPeriodSecs(1).build();
+        group = LocalRaftGroup.newBuilder(3).setElectionPriorities(0, 0, 1).setConfig(config).start();
+        RaftEndpoint preferred = getHighestPriorityEndpoint();
+        eventually(() -> assertThat(group.getLeaderEndpoint()).isEqualTo(preferred));
+
+        List<RaftNodeImpl> nodes = group.getNodesExcept(preferred);
+
+        group.terminateNode(preferred);
+
+        eventually(() -> {
+            for (RaftNodeImpl node : nodes) {
+                RaftEndpoint leader = node.getLeaderEndpoint();
+                assertThat(leader).isNotNull().isNotEqualTo(preferred);
+            }
+        });
+    }
+
+    private RaftEndpoint getHighestPriorityEndpoint() {
+        return group.getNodes().stream().map(RaftNodeImpl::getLocalEndpoint)
+                .filter(endpoint -> endpoint.getElectionPriority() > 0).findFirst().orElseThrow();
+    }
+
 }
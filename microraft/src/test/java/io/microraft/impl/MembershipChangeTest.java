@@ -19,10 +19,12 @@ package io.microraft.impl;
 
 import static io.microraft.MembershipChangeMode.ADD_LEARNER;
 import static io.microraft.MembershipChangeMode.ADD_OR_PROMOTE_TO_FOLLOWER;
+import static io.microraft.MembershipChangeMode.JOINT;
 import static io.microraft.MembershipChangeMode.REMOVE_MEMBER;
 import static io.microraft.RaftNodeStatus.ACTIVE;
 import static io.microraft.RaftNodeStatus.TERMINATED;
 import static io.microraft.RaftRole.FOLLOWER;
+import static io.microraft.RaftRole.LEADER;
 import static io.microraft.RaftRole.LEARNER;
 import static io.microraft.impl.local.SimpleStateMachine.applyValue;
 import static io.microraft.test.util.AssertionUtils.allTheTime;
@@ -37,13 +39,17 @@ import static io.microraft.test.util.RaftTestUtils.getSnapshotEntry;
 import static io.microraft.test.util.RaftTestUtils.getStatus;
 import static io.microraft.test.util.RaftTestUtils.majority;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.fail;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
 
 import org.junit.After;
 import org.junit.Test;
@@ -61,6 +67,7 @@ import io.microraft.impl.state.RaftGroupMembersState;
 import io.microraft.model.message.AppendEntriesFailureResponse;
 import io.microraft.model.message.AppendEntriesRequest;
 import io.microraft.model.message.AppendEntriesSuccessResponse;
+import io.microraft.model.message.InstallSnapshotResponse;
 import io.microraft.model.message.PreVoteRequest;
 import io.microraft.model.message.VoteRequest;
 import io.microraft.report.RaftGroupMembers;
@@ -451,6 +458,133 @@ public class MembershipChangeTest extends BaseTest {
         }
     }
 
+    @Test(timeout = 300_000)
+    public void when_maxLearnerCountIsConfigured_then_learnersAreAddedUpToLimit() {
+        RaftConfig config = RaftConfig.newBuilder().setMaxLearnerCount(1).build();
+        group = LocalRaftGroup.start(3, config);
+
+        RaftNodeImpl leader = group.waitUntilLeaderElected();
+        leader.replicate(applyValue("val")).join();
+
+        RaftNodeImpl newNode1 = group.createNewNode();
+
+        Ordered<RaftGroupMembers> result = leader.changeMembership(newNode1.getLocalEndpoint(), ADD_LEARNER, 0)
+                .join();
+
+        RaftNodeImpl newNode2 = group.createNewNode();
+
+        try {
+            leader.changeMembership(newNode2.getLocalEndpoint(), ADD_LEARNER, result.getCommitIndex()).join();
+            fail();
+        } catch (CompletionException e) {
+            assertThat(e).hasCauseInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Test(timeout = 300_000)
+    public void when_newNodeIsAddedWhenCaughtUp_then_itIsPromotedToFollower() {
+        int initialMemberCount = 3;
+        group = LocalRaftGroup.start(initialMemberCount);
+
+        RaftNodeImpl leader = group.waitUntilLeaderElected();
+        for (int i = 0; i < 10; i++) {
+            leader.replicate(applyValue("val" + i)).join();
+        }
+
+        RaftNodeImpl newNode = group.createNewNode();
+
+        Ordered<RaftGroupMembers> result = leader
+                .addOrPromoteToFollowerWhenCaughtUp(newNode.getLocalEndpoint(), 0, Duration.ofSeconds(60)).join();
+
+        assertThat(result.getResult().getVotingMembers()).contains(newNode.getLocalEndpoint());
+        assertThat(result.getResult().getMajorityQuorumSize()).isEqualTo(1 + majority(initialMemberCount));
+
+        eventually(() -> {
+            assertThat(getRole(newNode)).isEqualTo(FOLLOWER);
+            assertThat(getCommittedGroupMembers(newNode).getLogIndex()).isEqualTo(result.getCommitIndex());
+        });
+
+        eventually(() -> assertThat(group.getStateMachine(newNode.getLocalEndpoint()).size()).isEqualTo(10));
+    }
+
+    @Test(timeout = 300_000)
+    public void when_learnerDoesNotCatchUp_then_promotionTimesOut() {
+        RaftConfig config = RaftConfig.newBuilder().setMaxLearnerPromotionLag(0).build();
+        group = LocalRaftGroup.start(3, config);
+
+        RaftNodeImpl leader = group.waitUntilLeaderElected();
+        leader.replicate(applyValue("val")).join();
+
+        RaftNodeImpl newNode = group.createNewNode();
+        group.dropMessagesTo(leader.getLocalEndpoint(), newNode.getLocalEndpoint(), AppendEntriesRequest.class);
+
+        try {
+            leader.addOrPromoteToFollowerWhenCaughtUp(newNode.getLocalEndpoint(), 0, Duration.ofSeconds(3)).join();
+            fail();
+        } catch (CompletionException e) {
+            assertThat(e).hasCauseInstanceOf(TimeoutException.class);
+        }
+
+        RaftGroupMembers committedMembers = leader.getCommittedMembers();
+        assertThat(committedMembers.getMembers()).contains(newNode.getLocalEndpoint());
+        assertThat(committedMembers.getVotingMembers()).doesNotContain(newNode.getLocalEndpoint());
+    }
+
+    @Test(timeout = 300_000)
+    public void when_learnerIsInstallingSnapshot_then_itIsNotPromoted() {
+        int commitCountToTakeSnapshot = 50;
+        RaftConfig config = RaftConfig.newBuilder().setCommitCountToTakeSnapshot(commitCountToTakeSnapshot)
+                .setTransferSnapshotsFromFollowersEnabled(false).build();
+        group = LocalRaftGroup.start(3, config);
+
+        RaftNodeImpl leader = group.waitUntilLeaderElected();
+        for (int i = 0; i < commitCountToTakeSnapshot; i++) {
+            leader.replicate(applyValue("val" + i)).join();
+        }
+
+        eventually(() -> assertThat(getSnapshotEntry(leader).getIndex()).isGreaterThan(0));
+
+        RaftNodeImpl newNode = group.createNewNode();
+        RaftEndpoint newEndpoint = newNode.getLocalEndpoint();
+        group.dropMessagesTo(newEndpoint, leader.getLocalEndpoint(), InstallSnapshotResponse.class);
+
+        CompletableFuture<Ordered<RaftGroupMembers>> future = leader.addOrPromoteToFollowerWhenCaughtUp(newEndpoint,
+                0, Duration.ofSeconds(60));
+
+        long snapshotIndex = getSnapshotEntry(leader).getIndex();
+        eventually(() -> assertThat(
+                leader.getReport().join().getResult().getLog().getFollowerInstallingSnapshotIndices().get(newEndpoint))
+                        .isEqualTo(snapshotIndex));
+
+        allTheTime(() -> assertFalse(future.isDone()), 3);
+
+        group.allowMessagesTo(newEndpoint, leader.getLocalEndpoint(), InstallSnapshotResponse.class);
+
+        Ordered<RaftGroupMembers> result = future.join();
+
+        assertThat(result.getResult().getVotingMembers()).contains(newEndpoint);
+        assertThat(leader.getReport().join().getResult().getLog().getFollowerInstallingSnapshotIndices())
+                .doesNotContainKey(newEndpoint);
+        eventually(() -> assertThat(group.getStateMachine(newEndpoint).size()).isEqualTo(commitCountToTakeSnapshot));
+    }
+
+    @Test(timeout = 300_000)
+    public void when_followerIsAddedWhenCaughtUp_then_itFails() {
+        group = LocalRaftGroup.start(3);
+
+        RaftNodeImpl leader = group.waitUntilLeaderElected();
+        leader.replicate(applyValue("val")).join();
+
+        RaftNodeImpl follower = group.getAnyNodeExcept(leader.getLocalEndpoint());
+
+        try {
+            leader.addOrPromoteToFollowerWhenCaughtUp(follower.getLocalEndpoint(), 0, Duration.ofSeconds(60)).join();
+            fail();
+        } catch (CompletionException e) {
+            assertThat(e).hasCauseInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
     @Test(timeout = 300_000)
     public void when_learnerIsPromoted_then_majorityIsUpdated() {
         int initialMemberCount = 3;
@@ -1242,4 +1376,302 @@ public class MembershipChangeTest extends BaseTest {
         assertThat(getCommittedGroupMembers(follower).getMembers()).doesNotContain(leader.getLocalEndpoint());
     }
 
+    @Test(timeout = 300_000)
+    public void when_allVotingMembersAreReplacedAtOnce_then_newMembersContinueWithLog() {
+        group = LocalRaftGroup.start(3);
+
+        RaftNodeImpl leader = group.waitUntilLeaderElected();
+        leader.replicate(applyValue("val1")).join();
+
+        List<RaftEndpoint> newEndpoints = new ArrayList<>();
+        List<RaftNodeImpl> newNodes = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            RaftNodeImpl newNode = group.createNewNode();
+            newNodes.add(newNode);
+            newEndpoints.add(newNode.getLocalEndpoint());
+        }
+
+        Ordered<RaftGroupMembers> result = leader.changeMembership(newEndpoints, newEndpoints, 0).join();
+
+        assertThat(result.getResult().getMembers()).containsExactlyInAnyOrderElementsOf(newEndpoints);
+        assertThat(result.getResult().getVotingMembers()).containsExactlyInAnyOrderElementsOf(newEndpoints);
+
+        eventually(() -> assertThat(leader.getStatus()).isEqualTo(TERMINATED));
+
+        eventually(() -> {
+            RaftEndpoint newLeaderEndpoint = newNodes.get(0).getLeaderEndpoint();
+            assertThat(newEndpoints).contains(newLeaderEndpoint);
+            for (RaftNodeImpl node : newNodes) {
+                assertThat(node.getLeaderEndpoint()).isEqualTo(newLeaderEndpoint);
+                assertThat(getCommittedGroupMembers(node).getMembers())
+                        .containsExactlyInAnyOrderElementsOf(newEndpoints);
+            }
+        });
+
+        RaftNodeImpl newLeader = group.getNode(newNodes.get(0).getLeaderEndpoint());
+        newLeader.replicate(applyValue("val2")).join();
+
+        eventually(() -> {
+            for (RaftNodeImpl node : newNodes) {
+                assertThat(group.getStateMachine(node.getLocalEndpoint()).valueSet()).contains("val1", "val2");
+            }
+        });
+    }
+
+    @Test(timeout = 300_000)
+    public void when_jointMembershipChangeIsAppended_then_itIsNotCommittedWithoutOldMajority() {
+        group = LocalRaftGroup.start(3);
+
+        RaftNodeImpl leader = group.waitUntilLeaderElected();
+        leader.replicate(applyValue("val")).join();
+
+        List<RaftNodeImpl> followers = group.getNodesExcept(leader.getLocalEndpoint());
+        RaftNodeImpl newNode1 = group.createNewNode();
+        RaftNodeImpl newNode2 = group.createNewNode();
+        List<RaftEndpoint> newEndpoints = List.of(leader.getLocalEndpoint(), newNode1.getLocalEndpoint(),
+                newNode2.getLocalEndpoint());
+
+        for (RaftNodeImpl follower : followers) {
+            group.dropMessagesTo(leader.getLocalEndpoint(), follower.getLocalEndpoint(), AppendEntriesRequest.class);
+        }
+
+        CompletableFuture<Ordered<RaftGroupMembers>> future = leader.changeMembership(newEndpoints, newEndpoints,
+                0);
+
+        eventually(() -> assertThat(getCommitIndex(newNode1)).isEqualTo(getCommitIndex(leader)));
+        eventually(() -> assertThat(getLastLogOrSnapshotEntry(newNode1).getIndex())
+                .isEqualTo(getLastLogOrSnapshotEntry(leader).getIndex()));
+
+        allTheTime(() -> assertFalse(future.isDone()), 3);
+
+        for (RaftNodeImpl follower : followers) {
+            group.allowMessagesTo(leader.getLocalEndpoint(), follower.getLocalEndpoint(), AppendEntriesRequest.class);
+        }
+
+        Ordered<RaftGroupMembers> result = future.join();
+
+        assertThat(result.getResult().getVotingMembers()).containsExactlyInAnyOrderElementsOf(newEndpoints);
+
+        leader.replicate(applyValue("val2")).join();
+    }
+
+    @Test(timeout = 300_000)
+    public void when_leaderCrashesDuringJointMembershipChange_then_newLeaderNeedsOldAndNewMajorities() {
+        // the new leader commits the joint membership change with the entry
+        // of its own term.
+        group = LocalRaftGroup.newBuilder(3).enableNewTermOperation().setConfig(TEST_RAFT_CONFIG).start();
+
+        RaftNodeImpl leader = group.waitUntilLeaderElected();
+        leader.replicate(applyValue("val1")).join();
+
+        List<RaftNodeImpl> followers = group.getNodesExcept(leader.getLocalEndpoint());
+        List<RaftNodeImpl> newNodes = new ArrayList<>();
+        List<RaftEndpoint> newEndpoints = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            RaftNodeImpl newNode = group.createNewNode();
+            newNodes.add(newNode);
+            newEndpoints.add(newNode.getLocalEndpoint());
+        }
+
+        // the old voting members append the joint membership change but the
+        // leader cannot learn it, so it is not committed.
+        for (RaftNodeImpl follower : followers) {
+            group.dropMessagesTo(follower.getLocalEndpoint(), leader.getLocalEndpoint(),
+                    AppendEntriesSuccessResponse.class);
+        }
+
+        CompletableFuture<Ordered<RaftGroupMembers>> future = leader.changeMembership(newEndpoints, newEndpoints,
+                0);
+
+        long jointLogIndex = getLastLogOrSnapshotEntry(leader).getIndex();
+        List<RaftNodeImpl> otherNodes = group.getNodesExcept(leader.getLocalEndpoint());
+        eventually(() -> {
+            for (RaftNodeImpl node : otherNodes) {
+                assertThat(getLastLogOrSnapshotEntry(node).getIndex()).isEqualTo(jointLogIndex);
+            }
+        });
+
+        assertFalse(future.isDone());
+        assertThat(getCommitIndex(leader)).isLessThan(jointLogIndex);
+
+        // only one of the old voting members is left, hence there is no
+        // majority of the old voting members even though the new voting
+        // members and the remaining old member make a majority of all members.
+        RaftNodeImpl isolatedFollower = followers.get(0);
+        List<RaftNodeImpl> nodesExceptIsolatedFollower = group.getNodesExcept(isolatedFollower.getLocalEndpoint());
+        for (RaftNodeImpl node : nodesExceptIsolatedFollower) {
+            group.dropAllMessagesTo(node.getLocalEndpoint(), isolatedFollower.getLocalEndpoint());
+            group.dropAllMessagesTo(isolatedFollower.getLocalEndpoint(), node.getLocalEndpoint());
+        }
+
+        group.terminateNode(leader.getLocalEndpoint());
+
+        List<RaftNodeImpl> connectedNodes = new ArrayList<>(newNodes);
+        connectedNodes.add(followers.get(1));
+
+        allTheTime(() -> {
+            for (RaftNodeImpl node : connectedNodes) {
+                assertThat(getRole(node)).isNotEqualTo(LEADER);
+                assertThat(getCommitIndex(node)).isLessThan(jointLogIndex);
+            }
+        }, 15);
+
+        for (RaftNodeImpl node : connectedNodes) {
+            group.allowAllMessagesTo(node.getLocalEndpoint(), isolatedFollower.getLocalEndpoint());
+            group.allowAllMessagesTo(isolatedFollower.getLocalEndpoint(), node.getLocalEndpoint());
+        }
+
+        eventually(() -> {
+            RaftEndpoint newLeaderEndpoint = newNodes.get(0).getLeaderEndpoint();
+            assertThat(newEndpoints).contains(newLeaderEndpoint);
+            for (RaftNodeImpl node : newNodes) {
+                assertThat(node.getLeaderEndpoint()).isEqualTo(newLeaderEndpoint);
+                assertThat(getCommittedGroupMembers(node).getLogIndex()).isEqualTo(jointLogIndex);
+                assertThat(getCommittedGroupMembers(node).getVotingMembers())
+                        .containsExactlyInAnyOrderElementsOf(newEndpoints);
+            }
+        });
+
+        RaftNodeImpl newLeader = group.getNode(newNodes.get(0).getLeaderEndpoint());
+        newLeader.replicate(applyValue("val2")).join();
+
+        eventually(() -> {
+            for (RaftNodeImpl node : newNodes) {
+                assertThat(group.getStateMachine(node.getLocalEndpoint()).valueList()).containsExactly("val1",
+                        "val2");
+            }
+        });
+    }
+
+    @Test(timeout = 300_000)
+    public void when_leaderCrashesBeforeReplicatingJointMembershipChange_then_oldMembersAbortIt() {
+        group = LocalRaftGroup.start(3, TEST_RAFT_CONFIG);
+
+        RaftNodeImpl leader = group.waitUntilLeaderElected();
+        leader.replicate(applyValue("val1")).join();
+
+        List<RaftEndpoint> oldEndpoints = new ArrayList<>(leader.getCommittedMembers().getMembers());
+        List<RaftNodeImpl> followers = group.getNodesExcept(leader.getLocalEndpoint());
+        List<RaftNodeImpl> newNodes = new ArrayList<>();
+        List<RaftEndpoint> newEndpoints = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            RaftNodeImpl newNode = group.createNewNode();
+            newNodes.add(newNode);
+            newEndpoints.add(newNode.getLocalEndpoint());
+        }
+
+        List<RaftNodeImpl> otherNodes = group.getNodesExcept(leader.getLocalEndpoint());
+        for (RaftNodeImpl node : otherNodes) {
+            group.dropMessagesTo(leader.getLocalEndpoint(), node.getLocalEndpoint(), AppendEntriesRequest.class);
+        }
+
+        leader.changeMembership(newEndpoints, newEndpoints, 0);
+
+        eventually(() -> assertThat(getEffectiveGroupMembers(leader).getVotingMembers())
+                .containsExactlyInAnyOrderElementsOf(newEndpoints));
+
+        group.terminateNode(leader.getLocalEndpoint());
+
+        eventually(() -> {
+            RaftEndpoint newLeaderEndpoint = followers.get(0).getLeaderEndpoint();
+            assertThat(newLeaderEndpoint).isNotNull().isNotEqualTo(leader.getLocalEndpoint());
+            for (RaftNodeImpl follower : followers) {
+                assertThat(follower.getLeaderEndpoint()).isEqualTo(newLeaderEndpoint);
+            }
+        });
+
+        RaftNodeImpl newLeader = group.getNode(followers.get(0).getLeaderEndpoint());
+        newLeader.replicate(applyValue("val2")).join();
+
+        for (RaftNodeImpl follower : followers) {
+            RaftGroupMembersState committedMembers = getCommittedGroupMembers(follower);
+            assertThat(committedMembers.getVotingMembers()).containsExactlyInAnyOrderElementsOf(oldEndpoints);
+            assertThat(getEffectiveGroupMembers(follower).getLogIndex()).isEqualTo(committedMembers.getLogIndex());
+        }
+
+        for (RaftNodeImpl newNode : newNodes) {
+            assertThat(getCommitIndex(newNode)).isEqualTo(0);
+        }
+    }
+
+    @Test(timeout = 300_000)
+    public void when_learnersArePromotedAtOnce_then_majorityIsUpdated() {
+        RaftConfig config = RaftConfig.newBuilder().setMaxLearnerCount(3).build();
+        group = LocalRaftGroup.start(3, config);
+
+        RaftNodeImpl leader = group.waitUntilLeaderElected();
+        leader.replicate(applyValue("val")).join();
+
+        List<RaftEndpoint> oldEndpoints = new ArrayList<>(leader.getCommittedMembers().getMembers());
+        List<RaftEndpoint> allEndpoints = new ArrayList<>(oldEndpoints);
+        for (int i = 0; i < 3; i++) {
+            allEndpoints.add(group.createNewNode().getLocalEndpoint());
+        }
+
+        Ordered<RaftGroupMembers> result1 = leader.changeMembership(allEndpoints, oldEndpoints, 0).join();
+
+        assertThat(result1.getResult().getMembers()).hasSize(6);
+        assertThat(result1.getResult().getVotingMembers()).hasSize(3);
+        assertThat(result1.getResult().getMajorityQuorumSize()).isEqualTo(2);
+
+        Ordered<RaftGroupMembers> result2 = leader
+                .changeMembership(allEndpoints, allEndpoints, result1.getCommitIndex()).join();
+
+        assertThat(result2.getResult().getVotingMembers()).hasSize(6);
+        assertThat(result2.getResult().getMajorityQuorumSize()).isEqualTo(4);
+
+        leader.replicate(applyValue("val2")).join();
+
+        eventually(() -> {
+            for (RaftNodeImpl node : group.getNodes()) {
+                assertThat(getRole(node)).isNotEqualTo(LEARNER);
+                assertThat(getCommittedGroupMembers(node).getLogIndex()).isEqualTo(result2.getCommitIndex());
+            }
+        });
+    }
+
+    @Test(timeout = 300_000)
+    public void when_jointMembershipChangeIsInvalid_then_itFails() {
+        group = LocalRaftGroup.start(3);
+
+        RaftNodeImpl leader = group.waitUntilLeaderElected();
+
+        List<RaftEndpoint> members = new ArrayList<>(leader.getCommittedMembers().getMembers());
+        RaftEndpoint follower = group.getAnyNodeExcept(leader.getLocalEndpoint()).getLocalEndpoint();
+        List<RaftEndpoint> newEndpoints = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            newEndpoints.add(group.createNewNode().getLocalEndpoint());
+        }
+
+        List<RaftEndpoint> membersWithNewEndpoints = new ArrayList<>(members);
+        membersWithNewEndpoints.addAll(newEndpoints);
+        List<RaftEndpoint> votingMembersWithoutFollower = new ArrayList<>(members);
+        votingMembersWithoutFollower.remove(follower);
+
+        assertJointMembershipChangeFails(leader, members, newEndpoints);
+        assertJointMembershipChangeFails(leader, members, List.of());
+        assertJointMembershipChangeFails(leader, members, members);
+        assertJointMembershipChangeFails(leader, members, votingMembersWithoutFollower);
+        assertJointMembershipChangeFails(leader, membersWithNewEndpoints, members);
+
+        try {
+            leader.changeMembership(follower, JOINT, 0).join();
+            fail();
+        } catch (CompletionException e) {
+            assertThat(e).hasCauseInstanceOf(IllegalArgumentException.class);
+        }
+
+        assertThat(leader.getCommittedMembers().getMembers()).containsExactlyInAnyOrderElementsOf(members);
+    }
+
+    private void assertJointMembershipChangeFails(RaftNodeImpl leader, List<RaftEndpoint> members,
+            List<RaftEndpoint> votingMembers) {
+        try {
+            leader.changeMembership(members, votingMembers, 0).join();
+            fail();
+        } catch (CompletionException e) {
+            assertThat(e).hasCauseInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
 }
@@ -40,11 +40,15 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 import io.microraft.MembershipChangeMode;
 import io.microraft.Ordered;
@@ -61,6 +65,7 @@ import io.microraft.impl.local.SimpleStateMachine;
 import io.microraft.model.log.LogEntry;
 import io.microraft.model.log.SnapshotEntry;
 import io.microraft.model.message.AppendEntriesRequest;
+import io.microraft.model.message.AppendEntriesSuccessResponse;
 import io.microraft.model.message.PreVoteRequest;
 import io.microraft.persistence.RestoredRaftState;
 import io.microraft.report.RaftGroupMembers;
@@ -123,6 +128,41 @@ public class PersistenceTest extends BaseTest {
         });
     }
 
+    @Test(timeout = 300_000)
+    public void when_followerAppendsEntries_then_itAcknowledgesThemAfterFlush() {
+        group = LocalRaftGroup.newBuilder(3).setConfig(TEST_RAFT_CONFIG)
+                .setRaftStoreFactory(IN_MEMORY_RAFT_STATE_STORE_FACTORY).start();
+
+        RaftNodeImpl leader = group.waitUntilLeaderElected();
+        AtomicLong maxAcknowledgedLogIndex = new AtomicLong();
+        List<Long> unflushedAcknowledgements = new CopyOnWriteArrayList<>();
+        List<RaftNodeImpl> followers = group.getNodesExcept(leader.getLocalEndpoint());
+        for (RaftNodeImpl follower : followers) {
+            InMemoryRaftStore store = getRaftStore(follower);
+            group.alterMessagesTo(follower.getLocalEndpoint(), leader.getLocalEndpoint(), message -> {
+                if (message instanceof AppendEntriesSuccessResponse) {
+                    long lastLogIndex = ((AppendEntriesSuccessResponse) message).getLastLogIndex();
+                    maxAcknowledgedLogIndex.accumulateAndGet(lastLogIndex, Math::max);
+                    if (lastLogIndex > store.getFlushedLogIndex()) {
+                        unflushedAcknowledgements.add(lastLogIndex);
+                    }
+                }
+
+                return message;
+            });
+        }
+
+        int count = 100;
+        List<CompletableFuture<Ordered<Object>>> futures = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            futures.add(leader.replicate(applyValue("val" + i)));
+        }
+        futures.forEach(CompletableFuture::join);
+
+        eventually(() -> assertThat(maxAcknowledgedLogIndex.get()).isEqualTo(count));
+        assertThat(unflushedAcknowledgements).isEmpty();
+    }
+
     @Test(timeout = 300_000)
     public void testCommittedEntriesArePersisted() {
         group = LocalRaftGroup.newBuilder(3).setRaftStoreFactory(IN_MEMORY_RAFT_STATE_STORE_FACTORY).start();
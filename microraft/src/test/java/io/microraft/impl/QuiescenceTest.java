@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.microraft.impl;
+
+import static io.microraft.QueryPolicy.LEADER_LEASE;
+import static io.microraft.impl.local.SimpleStateMachine.applyValue;
+import static io.microraft.impl.local.SimpleStateMachine.queryLastValue;
+import static io.microraft.test.util.AssertionUtils.allTheTime;
+import static io.microraft.test.util.AssertionUtils.eventually;
+import static io.microraft.test.util.RaftTestUtils.getCommitIndex;
+import static io.microraft.test.util.RaftTestUtils.getTerm;
+import static io.microraft.test.util.RaftTestUtils.isQuiescent;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Optional;
+
+import org.junit.After;
+import org.junit.Test;
+
+import io.microraft.Ordered;
+import io.microraft.RaftConfig;
+import io.microraft.RaftEndpoint;
+import io.microraft.impl.local.LocalRaftGroup;
+import io.microraft.model.message.AppendEntriesRequest;
+import io.microraft.test.util.BaseTest;
+
+public class QuiescenceTest extends BaseTest {
+
+    private final RaftConfig config = RaftConfig.newBuilder().setLeaderHeartbeatPeriodSecs(1)
+            .setLeaderHeartbeatTimeoutSecs(3).setQuiescenceEnabled(true).build();
+
+    private LocalRaftGroup group;
+
+    @After
+    public void destroy() {
+        if (group != null) {
+            group.destroy();
+        }
+    }
+
+    @Test(timeout = 300_000)
+    public void when_raftGroupIsIdle_then_leaderQuiescesAndFollowersDoNotTriggerLeaderElection() {
+        group = LocalRaftGroup.start(3, config);
+        RaftNodeImpl leader = group.waitUntilLeaderElected();
+        leader.replicate(applyValue("val")).join();
+
+        eventually(() -> assertThat(isQuiescent(leader)).isTrue());
+
+        int term = getTerm(leader);
+        allTheTime(() -> {
+            assertThat(isQuiescent(leader)).isTrue();
+            for (RaftNodeImpl node : group.getNodes()) {
+                assertThat(getTerm(node)).isEqualTo(term);
+                assertThat(node.getLeaderEndpoint()).isEqualTo(leader.getLocalEndpoint());
+            }
+        }, 5);
+    }
+
+    @Test(timeout = 300_000)
+    public void when_leaderIsQuiescent_then_replicateWakesUpRaftGroup() {
+        group = LocalRaftGroup.start(3, config);
+        RaftNodeImpl leader = group.waitUntilLeaderElected();
+        leader.replicate(applyValue("val1")).join();
+
+        eventually(() -> assertThat(isQuiescent(leader)).isTrue());
+
+        long commitIndex = leader.replicate(applyValue("val2")).join().getCommitIndex();
+
+        eventually(() -> {
+            for (RaftNodeImpl node : group.getNodes()) {
+                assertThat(getCommitIndex(node)).isEqualTo(commitIndex);
+            }
+        });
+
+        eventually(() -> assertThat(isQuiescent(leader)).isTrue());
+    }
+
+    @Test(timeout = 300_000)
+    public void when_leaderIsQuiescent_then_leaderLeaseQuerySucceeds() {
+        group = LocalRaftGroup.start(3, config);
+        RaftNodeImpl leader = group.waitUntilLeaderElected();
+        leader.replicate(applyValue("val")).join();
+
+        eventually(() -> assertThat(isQuiescent(leader)).isTrue());
+
+        Ordered<Object> result = leader.query(queryLastValue(), LEADER_LEASE, Optional.empty(), Optional.empty())
+                .join();
+
+        assertThat(result.getResult()).isEqualTo("val");
+    }
+
+    @Test(timeout = 300_000)
+    public void when_quiescentLeaderBecomesUnreachable_then_newLeaderIsElected() {
+        group = LocalRaftGroup.start(3, config);
+        RaftNodeImpl leader = group.waitUntilLeaderElected();
+        leader.replicate(applyValue("val")).join();
+
+        eventually(() -> assertThat(isQuiescent(leader)).isTrue());
+
+        RaftEndpoint leaderEndpoint = leader.getLocalEndpoint();
+        group.terminateNode(leaderEndpoint);
+
+        eventually(() -> {
+            for (RaftNodeImpl node : group.getNodes()) {
+                RaftEndpoint newLeaderEndpoint = node.getLeaderEndpoint();
+                assertThat(newLeaderEndpoint).isNotNull();
+                assertThat(newLeaderEndpoint).isNotEqualTo(leaderEndpoint);
+            }
+        });
+    }
+
+    @Test(timeout = 300_000)
+    public void when_leaderHasNotQuiesced_then_followerNotReceivingHeartbeatsResetsLeader() {
+        group = LocalRaftGroup.start(3, config);
+        RaftNodeImpl leader = group.waitUntilLeaderElected();
+        leader.replicate(applyValue("val")).join();
+
+        RaftNodeImpl follower = group.getAnyNodeExcept(leader.getLocalEndpoint());
+        eventually(() -> assertThat(getCommitIndex(follower)).isEqualTo(getCommitIndex(leader)));
+
+        // the leader is still reachable but the follower does not receive its
+        // heartbeats, and the leader does not quiesce since the follower does
+        // not respond.
+        group.dropMessagesTo(leader.getLocalEndpoint(), follower.getLocalEndpoint(), AppendEntriesRequest.class);
+
+        eventually(() -> assertThat(follower.getLeaderEndpoint()).isNull());
+        assertThat(isQuiescent(leader)).isFalse();
+    }
+
+}
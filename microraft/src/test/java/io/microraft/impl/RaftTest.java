@@ -53,6 +53,7 @@ import io.microraft.Ordered;
 import io.microraft.RaftConfig;
 import io.microraft.RaftEndpoint;
 import io.microraft.RaftNode;
+import io.microraft.RaftNodeStatus;
 import io.microraft.RaftRole;
 import io.microraft.exception.CannotReplicateException;
 import io.microraft.exception.IndeterminateStateException;
@@ -62,6 +63,8 @@ import io.microraft.impl.local.SimpleStateMachine;
 import io.microraft.model.message.AppendEntriesRequest;
 import io.microraft.model.message.AppendEntriesSuccessResponse;
 import io.microraft.model.message.VoteRequest;
+import io.microraft.report.RaftNodeReport;
+import io.microraft.report.RaftNodeStats;
 import io.microraft.test.util.BaseTest;
 
 public class RaftTest extends BaseTest {
@@ -271,9 +274,26 @@ public class RaftTest extends BaseTest {
         testReplicateEntriesConcurrently(4);
     }
 
+    @Test(timeout = 300_000)
+    public void when_replicationTickIsEnabled_then_leaderReplicatesEntriesConcurrently() {
+        RaftConfig config = RaftConfig.newBuilder().setCommitCountToTakeSnapshot(102).setReplicationTickEnabled(true)
+                .build();
+        testReplicateEntriesConcurrently(3, config);
+    }
+
+    @Test(timeout = 300_000)
+    public void when_replicationTickWindowIsSet_then_leaderReplicatesEntriesConcurrently() {
+        RaftConfig config = RaftConfig.newBuilder().setCommitCountToTakeSnapshot(102).setReplicationTickEnabled(true)
+                .setReplicationTickMicros(500).build();
+        testReplicateEntriesConcurrently(3, config);
+    }
+
     private void testReplicateEntriesConcurrently(int nodeCount) {
+        testReplicateEntriesConcurrently(nodeCount, RaftConfig.newBuilder().setCommitCountToTakeSnapshot(102).build());
+    }
+
+    private void testReplicateEntriesConcurrently(int nodeCount, RaftConfig config) {
         int entryCount = 100;
-        RaftConfig config = RaftConfig.newBuilder().setCommitCountToTakeSnapshot(entryCount + 2).build();
         group = LocalRaftGroup.start(nodeCount, config);
         RaftNodeImpl leader = group.waitUntilLeaderElected();
 
@@ -906,4 +926,45 @@ public class RaftTest extends BaseTest {
         assertThat(learnerCount).isEqualTo(2);
     }
 
+    @Test(timeout = 300_000)
+    public void when_entriesAreCommitted_then_statsReflectRaftNodeState() {
+        int entryCount = 25;
+        RaftConfig config = RaftConfig.newBuilder().setCommitCountToTakeSnapshot(10).build();
+        group = LocalRaftGroup.start(3, config);
+        RaftNodeImpl leader = group.waitUntilLeaderElected();
+
+        for (int i = 0; i < entryCount; i++) {
+            leader.replicate(applyValue("val" + i)).join();
+        }
+
+        RaftNodeStats leaderStats = leader.getStats();
+        assertThat(leaderStats.getRole()).isEqualTo(RaftRole.LEADER);
+        assertThat(leaderStats.getStatus()).isEqualTo(RaftNodeStatus.ACTIVE);
+        assertThat(leaderStats.getTerm()).isEqualTo(getTerm(leader));
+        assertThat(leaderStats.getLeaderEndpoint()).isEqualTo(leader.getLocalEndpoint());
+        assertThat(leaderStats.getCommitIndex()).isEqualTo(entryCount);
+        assertThat(leaderStats.getLastApplied()).isEqualTo(entryCount);
+        assertThat(leaderStats.getLastLogOrSnapshotIndex()).isEqualTo(entryCount);
+        assertThat(leaderStats.getLastLogOrSnapshotTerm()).isEqualTo(getTerm(leader));
+        assertThat(leaderStats.getLastSnapshotIndex()).isEqualTo(20);
+        assertThat(leaderStats.getTakeSnapshotCount()).isEqualTo(2);
+        assertThat(leaderStats.getInstallSnapshotCount()).isEqualTo(0);
+
+        eventually(() -> {
+            for (RaftNode node : group.getNodesExcept(leader.getLocalEndpoint())) {
+                RaftNodeStats stats = node.getStats();
+                assertThat(stats.getRole()).isEqualTo(RaftRole.FOLLOWER);
+                assertThat(stats.getLeaderEndpoint()).isEqualTo(leader.getLocalEndpoint());
+                assertThat(stats.getCommitIndex()).isEqualTo(entryCount);
+                assertThat(stats.getLastLogOrSnapshotIndex()).isEqualTo(entryCount);
+                assertThat(stats.getLastSnapshotIndex()).isEqualTo(20);
+            }
+        });
+
+        RaftNodeReport report = leader.getReport().join().getResult();
+        assertThat(report.getLog().getTakeSnapshotCount()).isEqualTo(leaderStats.getTakeSnapshotCount());
+        assertThat(report.getCommittedMembers().getLogIndex()).isEqualTo(leaderStats.getCommittedMembersLogIndex());
+        assertThat(report.getEffectiveMembers().getLogIndex()).isEqualTo(leaderStats.getEffectiveMembersLogIndex());
+    }
+
 }
@@ -0,0 +1,310 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.microraft.impl;
+
+import static io.microraft.MembershipChangeMode.ADD_OR_PROMOTE_TO_FOLLOWER;
+import static io.microraft.MembershipChangeMode.ADD_WITNESS;
+import static io.microraft.MembershipChangeMode.REMOVE_MEMBER;
+import static io.microraft.QueryPolicy.EVENTUAL_CONSISTENCY;
+import static io.microraft.RaftRole.FOLLOWER;
+import static io.microraft.impl.local.SimpleStateMachine.applyValue;
+import static io.microraft.impl.local.SimpleStateMachine.queryLastValue;
+import static io.microraft.test.util.AssertionUtils.allTheTime;
+import static io.microraft.test.util.AssertionUtils.eventually;
+import static io.microraft.test.util.RaftTestUtils.getCommitIndex;
+import static io.microraft.test.util.RaftTestUtils.getLastLogOrSnapshotEntry;
+import static io.microraft.test.util.RaftTestUtils.getRole;
+import static io.microraft.test.util.RaftTestUtils.getSnapshotEntry;
+import static io.microraft.test.util.RaftTestUtils.majority;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.junit.After;
+import org.junit.Test;
+
+import io.microraft.Ordered;
+import io.microraft.RaftConfig;
+import io.microraft.exception.NotLeaderException;
+import io.microraft.impl.local.LocalRaftGroup;
+import io.microraft.model.log.SnapshotChunk;
+import io.microraft.model.log.WitnessPlaceholder;
+import io.microraft.model.message.AppendEntriesRequest;
+import io.microraft.report.RaftGroupMembers;
+import io.microraft.test.util.BaseTest;
+
+public class WitnessTest extends BaseTest {
+
+    private LocalRaftGroup group;
+
+    @After
+    public void destroy() {
+        if (group != null) {
+            group.destroy();
+        }
+    }
+
+    @Test(timeout = 300_000)
+    public void when_newNodeJoinsAsWitness_then_itAcknowledgesEntriesWithoutRunningStateMachine() {
+        int initialMemberCount = 3;
+        group = LocalRaftGroup.start(initialMemberCount);
+
+        RaftNodeImpl leader = group.waitUntilLeaderElected();
+        leader.replicate(applyValue("val1")).join();
+
+        RaftNodeImpl witness = group.createNewNode();
+
+        Ordered<RaftGroupMembers> result = leader.changeMembership(witness.getLocalEndpoint(), ADD_WITNESS, 0).join();
+
+        for (RaftGroupMembers groupMembers : List.of(result.getResult(), leader.getCommittedMembers(),
+                leader.getEffectiveMembers())) {
+            assertThat(groupMembers.getVotingMembers()).contains(witness.getLocalEndpoint());
+            assertThat(groupMembers.getWitnessMembers()).containsExactly(witness.getLocalEndpoint());
+            assertThat(groupMembers.getMajorityQuorumSize()).isEqualTo(1 + majority(initialMemberCount));
+        }
+
+        long commitIndex = leader.replicate(applyValue("val2")).join().getCommitIndex();
+
+        eventually(() -> {
+            assertThat(getCommitIndex(witness)).isEqualTo(commitIndex);
+            assertThat(witness.getEffectiveMembers().getWitnessMembers()).contains(witness.getLocalEndpoint());
+        });
+
+        assertThat(getRole(witness)).isEqualTo(FOLLOWER);
+        assertThat(getLastLogOrSnapshotEntry(witness).getOperation()).isSameAs(WitnessPlaceholder.INSTANCE);
+        assertThat(group.getStateMachine(witness.getLocalEndpoint()).size()).isEqualTo(0);
+        List<RaftNodeImpl> nodes = group.getNodesExcept(witness.getLocalEndpoint());
+        for (RaftNodeImpl node : nodes) {
+            eventually(() -> assertThat(group.getStateMachine(node.getLocalEndpoint()).valueSet()).contains("val2"));
+        }
+    }
+
+    @Test(timeout = 300_000)
+    public void when_witnessIsBehindSnapshot_then_itInstallsSnapshotWithoutPayload() {
+        int entryCount = 50;
+        RaftConfig config = RaftConfig.newBuilder().setCommitCountToTakeSnapshot(entryCount).build();
+        group = LocalRaftGroup.start(3, config);
+
+        RaftNodeImpl leader = group.waitUntilLeaderElected();
+        for (int i = 0; i < entryCount; i++) {
+            leader.replicate(applyValue("val" + i)).join();
+        }
+
+        eventually(() -> assertThat(getSnapshotEntry(leader).getIndex()).isEqualTo(entryCount));
+
+        RaftNodeImpl witness = group.createNewNode();
+        leader.changeMembership(witness.getLocalEndpoint(), ADD_WITNESS, 0).join();
+
+        long commitIndex = getCommitIndex(leader);
+        eventually(() -> {
+            assertThat(getCommitIndex(witness)).isEqualTo(commitIndex);
+            assertThat(getSnapshotEntry(witness).getIndex()).isEqualTo(entryCount);
+        });
+
+        for (SnapshotChunk chunk : (List<SnapshotChunk>) getSnapshotEntry(witness).getOperation()) {
+            assertThat(chunk.getOperation()).isSameAs(WitnessPlaceholder.INSTANCE);
+        }
+
+        assertThat(group.getStateMachine(witness.getLocalEndpoint()).size()).isEqualTo(0);
+    }
+
+    @Test(timeout = 300_000)
+    public void when_leaderCrashes_then_witnessVotesForNewLeader() {
+        group = LocalRaftGroup.start(3);
+
+        RaftNodeImpl leader = group.waitUntilLeaderElected();
+        leader.replicate(applyValue("val")).join();
+
+        List<RaftNodeImpl> witnesses = addWitnesses(leader, 2);
+        List<RaftNodeImpl> followers = group.getNodesExcept(leader.getLocalEndpoint());
+        followers.removeAll(witnesses);
+
+        long commitIndex = leader.replicate(applyValue("val1")).join().getCommitIndex();
+        for (RaftNodeImpl witness : witnesses) {
+            eventually(() -> assertThat(getCommitIndex(witness)).isEqualTo(commitIndex));
+        }
+
+        group.terminateNode(leader.getLocalEndpoint());
+
+        // the remaining full followers cannot form a majority without a witness
+        RaftNodeImpl newLeader = group.waitUntilLeaderElected();
+        assertThat(followers).contains(newLeader);
+
+        long newCommitIndex = newLeader.replicate(applyValue("val2")).join().getCommitIndex();
+        for (RaftNodeImpl witness : witnesses) {
+            eventually(() -> assertThat(getCommitIndex(witness)).isEqualTo(newCommitIndex));
+            allTheTime(() -> assertThat(witness.getLeaderEndpoint()).isEqualTo(newLeader.getLocalEndpoint()), 3);
+        }
+    }
+
+    @Test(timeout = 300_000)
+    public void when_witnessesWouldNotBeMinority_then_membershipChangeFails() {
+        group = LocalRaftGroup.start(2);
+
+        RaftNodeImpl leader = group.waitUntilLeaderElected();
+        leader.replicate(applyValue("val")).join();
+
+        RaftNodeImpl follower = group.getAnyNodeExcept(leader.getLocalEndpoint());
+        RaftNodeImpl witness1 = group.createNewNode();
+        Ordered<RaftGroupMembers> result = leader.changeMembership(witness1.getLocalEndpoint(), ADD_WITNESS, 0)
+                .join();
+
+        RaftNodeImpl witness2 = group.createNewNode();
+        try {
+            leader.changeMembership(witness2.getLocalEndpoint(), ADD_WITNESS, result.getCommitIndex()).join();
+            fail();
+        } catch (CompletionException e) {
+            assertThat(e).hasCauseInstanceOf(IllegalArgumentException.class);
+        }
+
+        try {
+            leader.changeMembership(follower.getLocalEndpoint(), REMOVE_MEMBER, result.getCommitIndex()).join();
+            fail();
+        } catch (CompletionException e) {
+            assertThat(e).hasCauseInstanceOf(IllegalArgumentException.class);
+        }
+
+        try {
+            leader.changeMembership(witness1.getLocalEndpoint(), ADD_OR_PROMOTE_TO_FOLLOWER, result.getCommitIndex())
+                    .join();
+            fail();
+        } catch (CompletionException e) {
+            assertThat(e).hasCauseInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Test(timeout = 300_000)
+    public void when_witnessIsQueriedOrTargetedForLeadershipTransfer_then_requestsFail() {
+        group = LocalRaftGroup.start(3);
+
+        RaftNodeImpl leader = group.waitUntilLeaderElected();
+        leader.replicate(applyValue("val")).join();
+
+        RaftNodeImpl witness = group.createNewNode();
+        Ordered<RaftGroupMembers> result = leader.changeMembership(witness.getLocalEndpoint(), ADD_WITNESS, 0)
+                .join();
+        eventually(() -> assertThat(getCommitIndex(witness)).isEqualTo(result.getCommitIndex()));
+
+        try {
+            witness.query(queryLastValue(), EVENTUAL_CONSISTENCY, Optional.empty(), Optional.empty()).join();
+            fail();
+        } catch (CompletionException e) {
+            assertThat(e).hasCauseInstanceOf(NotLeaderException.class);
+        }
+
+        try {
+            leader.transferLeadership(witness.getLocalEndpoint()).join();
+            fail();
+        } catch (CompletionException e) {
+            assertThat(e).hasCauseInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Test(timeout = 300_000)
+    public void when_fullFollowersLag_then_witnessAcksDoNotCommitEntry() {
+        group = LocalRaftGroup.start(3);
+
+        RaftNodeImpl leader = group.waitUntilLeaderElected();
+        leader.replicate(applyValue("val0")).join();
+
+        List<RaftNodeImpl> witnesses = addWitnesses(leader, 2);
+        long commitIndex = getCommitIndex(leader);
+
+        for (RaftNodeImpl follower : group.<RaftNodeImpl>getNodesExcept(leader.getLocalEndpoint())) {
+            if (!witnesses.contains(follower)) {
+                group.dropMessagesTo(leader.getLocalEndpoint(), follower.getLocalEndpoint(),
+                        AppendEntriesRequest.class);
+            }
+        }
+
+        // the leader and the witnesses form a majority of the voting members
+        CompletableFuture<Ordered<Object>> future = leader.replicate(applyValue("val"));
+
+        for (RaftNodeImpl witness : witnesses) {
+            eventually(() -> assertThat(getLastLogOrSnapshotEntry(witness).getIndex()).isGreaterThan(commitIndex));
+        }
+
+        allTheTime(() -> assertThat(getCommitIndex(leader)).isEqualTo(commitIndex), 3);
+        assertThat(future).isNotDone();
+
+        for (RaftNodeImpl follower : group.<RaftNodeImpl>getNodesExcept(leader.getLocalEndpoint())) {
+            group.allowAllMessagesTo(leader.getLocalEndpoint(), follower.getLocalEndpoint());
+        }
+
+        future.join();
+    }
+
+    @Test(timeout = 300_000)
+    public void when_leaderCrashesAfterCommitWithWitnessAcksAndLaggingFollower_then_committedEntryIsNotLost() {
+        group = LocalRaftGroup.start(3);
+
+        RaftNodeImpl leader = group.waitUntilLeaderElected();
+        leader.replicate(applyValue("val0")).join();
+
+        List<RaftNodeImpl> witnesses = addWitnesses(leader, 2);
+        List<RaftNodeImpl> followers = group.getNodesExcept(leader.getLocalEndpoint());
+        followers.removeAll(witnesses);
+        RaftNodeImpl laggingFollower = followers.get(0);
+        RaftNodeImpl upToDateFollower = followers.get(1);
+
+        group.dropMessagesTo(leader.getLocalEndpoint(), laggingFollower.getLocalEndpoint(),
+                AppendEntriesRequest.class);
+
+        long commitIndex = leader.replicate(applyValue("val")).join().getCommitIndex();
+
+        assertThat(getCommitIndex(laggingFollower)).isLessThan(commitIndex);
+        assertThat(getLastLogOrSnapshotEntry(upToDateFollower).getIndex()).isGreaterThanOrEqualTo(commitIndex);
+
+        group.terminateNode(leader.getLocalEndpoint());
+
+        RaftNodeImpl newLeader = group.waitUntilLeaderElected();
+        assertThat(newLeader).isSameAs(upToDateFollower);
+
+        long newCommitIndex = newLeader.replicate(applyValue("val2")).join().getCommitIndex();
+        assertThat(newCommitIndex).isGreaterThan(commitIndex);
+
+        for (RaftNodeImpl follower : followers) {
+            eventually(() -> assertThat(group.getStateMachine(follower.getLocalEndpoint()).valueList())
+                    .containsExactly("val0", "val", "val2"));
+        }
+    }
+
+    private List<RaftNodeImpl> addWitnesses(RaftNodeImpl leader, int count) {
+        List<RaftNodeImpl> witnesses = new ArrayList<>();
+        long groupMembersCommitIndex = 0;
+        for (int i = 0; i < count; i++) {
+            RaftNodeImpl witness = group.createNewNode();
+            groupMembersCommitIndex = leader
+                    .changeMembership(witness.getLocalEndpoint(), ADD_WITNESS, groupMembersCommitIndex).join()
+                    .getCommitIndex();
+            witnesses.add(witness);
+        }
+
+        long commitIndex = groupMembersCommitIndex;
+        for (RaftNodeImpl node : group.<RaftNodeImpl>getNodesExcept(leader.getLocalEndpoint())) {
+            eventually(() -> assertThat(getCommitIndex(node)).isGreaterThanOrEqualTo(commitIndex));
+        }
+
+        return witnesses;
+    }
+
+}
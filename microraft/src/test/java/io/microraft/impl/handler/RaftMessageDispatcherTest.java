@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.microraft.impl.handler;
+
+import static io.microraft.impl.handler.RaftMessageDispatcher.INBOX_CAPACITY;
+import static io.microraft.impl.handler.RaftMessageDispatcher.MAX_DRAIN_BATCH_SIZE;
+import static io.microraft.impl.handler.RaftMessageDispatcher.MessageType.APPEND_ENTRIES_FAILURE_RESPONSE;
+import static io.microraft.impl.handler.RaftMessageDispatcher.MessageType.APPEND_ENTRIES_REQUEST;
+import static io.microraft.impl.handler.RaftMessageDispatcher.MessageType.APPEND_ENTRIES_SUCCESS_RESPONSE;
+import static io.microraft.impl.handler.RaftMessageDispatcher.MessageType.INSTALL_SNAPSHOT_REQUEST;
+import static io.microraft.impl.handler.RaftMessageDispatcher.MessageType.INSTALL_SNAPSHOT_RESPONSE;
+import static io.microraft.impl.handler.RaftMessageDispatcher.MessageType.PRE_VOTE_REQUEST;
+import static io.microraft.impl.handler.RaftMessageDispatcher.MessageType.PRE_VOTE_RESPONSE;
+import static io.microraft.impl.handler.RaftMessageDispatcher.MessageType.TRIGGER_LEADER_ELECTION_REQUEST;
+import static io.microraft.impl.handler.RaftMessageDispatcher.MessageType.VOTE_REQUEST;
+import static io.microraft.impl.handler.RaftMessageDispatcher.MessageType.VOTE_RESPONSE;
+import static io.microraft.impl.handler.RaftMessageDispatcher.getMessageType;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import io.microraft.RaftEndpoint;
+import io.microraft.RaftNode;
+import io.microraft.executor.RaftNodeExecutor;
+import io.microraft.impl.RaftNodeImpl;
+import io.microraft.impl.local.LocalRaftEndpoint;
+import io.microraft.impl.local.LocalTransport;
+import io.microraft.impl.local.SimpleStateMachine;
+import io.microraft.model.message.AppendEntriesFailureResponse;
+import io.microraft.model.message.AppendEntriesRequest;
+import io.microraft.model.message.AppendEntriesSuccessResponse;
+import io.microraft.model.message.InstallSnapshotRequest;
+import io.microraft.model.message.InstallSnapshotResponse;
+import io.microraft.model.message.PreVoteRequest;
+import io.microraft.model.message.PreVoteResponse;
+import io.microraft.model.message.RaftMessage;
+import io.microraft.model.message.TriggerLeaderElectionRequest;
+import io.microraft.model.message.VoteRequest;
+import io.microraft.model.message.VoteResponse;
+import io.microraft.test.util.BaseTest;
+
+public class RaftMessageDispatcherTest extends BaseTest {
+
+    @Test
+    public void when_raftMessageIsKnown_then_messageTypeIsResolved() {
+        assertThat(getMessageType(mock(AppendEntriesRequest.class))).isEqualTo(APPEND_ENTRIES_REQUEST);
+        assertThat(getMessageType(mock(AppendEntriesSuccessResponse.class)))
+                .isEqualTo(APPEND_ENTRIES_SUCCESS_RESPONSE);
+        assertThat(getMessageType(mock(AppendEntriesFailureResponse.class)))
+                .isEqualTo(APPEND_ENTRIES_FAILURE_RESPONSE);
+        assertThat(getMessageType(mock(InstallSnapshotRequest.class))).isEqualTo(INSTALL_SNAPSHOT_REQUEST);
+        assertThat(getMessageType(mock(InstallSnapshotResponse.class))).isEqualTo(INSTALL_SNAPSHOT_RESPONSE);
+        assertThat(getMessageType(mock(VoteRequest.class))).isEqualTo(VOTE_REQUEST);
+        assertThat(getMessageType(mock(VoteResponse.class))).isEqualTo(VOTE_RESPONSE);
+        assertThat(getMessageType(mock(PreVoteRequest.class))).isEqualTo(PRE_VOTE_REQUEST);
+        assertThat(getMessageType(mock(PreVoteResponse.class))).isEqualTo(PRE_VOTE_RESPONSE);
+        assertThat(getMessageType(mock(TriggerLeaderElectionRequest.class)))
+                .isEqualTo(TRIGGER_LEADER_ELECTION_REQUEST);
+    }
+
+    @Test
+    public void when_raftMessageIsUnknown_then_messageTypeCannotBeResolved() {
+        RaftMessage message = mock(RaftMessage.class);
+
+        assertThatThrownBy(() -> getMessageType(message)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void when_drainTaskCannotBeResubmitted_then_nextDispatchSubmitsIt() {
+        RaftEndpoint endpoint = LocalRaftEndpoint.newEndpoint();
+        // the Raft node is not started, so the handlers skip the messages
+        RaftNodeImpl node = (RaftNodeImpl) RaftNode.newBuilder().setGroupId("default").setLocalEndpoint(endpoint)
+                .setInitialGroupMembers(List.of(endpoint)).setTransport(new LocalTransport(endpoint))
+                .setStateMachine(new SimpleStateMachine()).build();
+        QueueingExecutor executor = new QueueingExecutor();
+        RaftMessageDispatcher dispatcher = new RaftMessageDispatcher(node, executor);
+
+        for (int i = 0; i <= MAX_DRAIN_BATCH_SIZE; i++) {
+            dispatcher.dispatch(mock(VoteRequest.class));
+        }
+
+        assertThat(executor.tasks).hasSize(1);
+
+        executor.rejecting = true;
+        executor.tasks.poll().run();
+
+        assertThat(executor.tasks).isEmpty();
+        assertThat(dispatcher.pendingMessageCount()).isEqualTo(1);
+
+        executor.rejecting = false;
+        dispatcher.dispatch(mock(VoteRequest.class));
+
+        assertThat(executor.tasks).hasSize(1);
+
+        executor.tasks.poll().run();
+
+        assertThat(dispatcher.pendingMessageCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void when_inboxIsFull_then_messageIsSubmittedWithSeparateTask() {
+        RaftEndpoint endpoint = LocalRaftEndpoint.newEndpoint();
+        RaftNodeImpl node = (RaftNodeImpl) RaftNode.newBuilder().setGroupId("default").setLocalEndpoint(endpoint)
+                .setInitialGroupMembers(List.of(endpoint)).setTransport(new LocalTransport(endpoint))
+                .setStateMachine(new SimpleStateMachine()).build();
+        QueueingExecutor executor = new QueueingExecutor();
+        RaftMessageDispatcher dispatcher = new RaftMessageDispatcher(node, executor);
+
+        for (int i = 0; i < INBOX_CAPACITY; i++) {
+            dispatcher.dispatch(mock(VoteRequest.class));
+        }
+
+        assertThat(executor.tasks).hasSize(1);
+        assertThat(dispatcher.pendingMessageCount()).isEqualTo(INBOX_CAPACITY);
+
+        dispatcher.dispatch(mock(VoteRequest.class));
+
+        assertThat(executor.tasks).hasSize(2);
+        assertThat(dispatcher.pendingMessageCount()).isEqualTo(INBOX_CAPACITY);
+
+        while (!executor.tasks.isEmpty()) {
+            executor.tasks.poll().run();
+        }
+
+        assertThat(dispatcher.pendingMessageCount()).isEqualTo(0);
+    }
+
+    private static final class QueueingExecutor implements RaftNodeExecutor {
+
+        final Queue<Runnable> tasks = new ArrayDeque<>();
+        boolean rejecting;
+
+        @Override
+        public void execute(@Nonnull Runnable task) {
+            submit(task);
+        }
+
+        @Override
+        public void submit(@Nonnull Runnable task) {
+            if (rejecting) {
+                throw new RejectedExecutionException();
+            }
+
+            tasks.add(task);
+        }
+
+        @Override
+        public void schedule(@Nonnull Runnable task, long delay, @Nonnull TimeUnit timeUnit) {
+            submit(task);
+        }
+    }
+
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microraft.impl.jfr;
+
+import static io.microraft.QueryPolicy.LINEARIZABLE;
+import static io.microraft.impl.local.SimpleStateMachine.applyValue;
+import static io.microraft.impl.local.SimpleStateMachine.queryLastValue;
+import static io.microraft.test.util.AssertionUtils.eventually;
+import static io.microraft.test.util.RaftTestUtils.readRaftState;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Test;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import io.microraft.RaftConfig;
+import io.microraft.impl.RaftNodeImpl;
+import io.microraft.impl.local.LocalRaftGroup;
+import io.microraft.test.util.BaseTest;
+
+public class RaftEventTest extends BaseTest {
+
+    private LocalRaftGroup group;
+
+    @After
+    public void destroy() {
+        if (group != null) {
+            group.destroy();
+        }
+    }
+
+    @Test(timeout = 300_000)
+    public void when_recordingIsEnabled_then_hotPathEventsAreRecorded() throws IOException {
+        int entryCount = 10;
+        List<RecordedEvent> events;
+        String leaderEndpointStr;
+        try (Recording recording = new Recording()) {
+            // the other events are enabled by default
+            recording.enable(LogAppendEvent.class);
+            recording.enable(AppendEntriesSendEvent.class);
+            recording.enable(AppendEntriesReceiveEvent.class);
+            recording.start();
+
+            RaftConfig config = RaftConfig.newBuilder().setCommitCountToTakeSnapshot(entryCount).build();
+            group = LocalRaftGroup.start(3, config);
+            RaftNodeImpl leader = group.waitUntilLeaderElected();
+            leaderEndpointStr = leader.localEndpointStr();
+            for (int i = 0; i < entryCount; i++) {
+                leader.replicate(applyValue("val" + i)).join();
+            }
+
+            leader.query(queryLastValue(), LINEARIZABLE, Optional.empty(), Optional.empty()).join();
+            // the query round event is committed after the query future is
+            // completed, so wait until the leader finishes the query round.
+            readRaftState(leader, () -> null);
+            eventually(() -> {
+                for (RaftNodeImpl node : group.getNodes()) {
+                    assertThat(node.getStats().getLastSnapshotIndex()).isEqualTo(entryCount);
+                }
+            });
+
+            recording.stop();
+            Path file = Files.createTempFile("microraft", ".jfr");
+            try {
+                recording.dump(file);
+                events = RecordingFile.readAllEvents(file);
+            } finally {
+                Files.delete(file);
+            }
+        }
+
+        Set<String> eventNames = events.stream().map(event -> event.getEventType().getName()).collect(toSet());
+        assertThat(eventNames).contains("io.microraft.LogAppend", "io.microraft.CommitIndexAdvance",
+                "io.microraft.Apply", "io.microraft.SnapshotTake", "io.microraft.LeaderElection",
+                "io.microraft.QueryRound", "io.microraft.AppendEntriesSend", "io.microraft.AppendEntriesReceive");
+
+        // followers may install the leader's snapshot instead of taking one
+        List<RecordedEvent> snapshotEvents = events.stream()
+                .filter(event -> event.getEventType().getName().equals("io.microraft.SnapshotTake")
+                        && event.getString("raftNode").equals(leaderEndpointStr))
+                .collect(toList());
+        assertThat(snapshotEvents).hasSize(1);
+        assertThat(snapshotEvents.get(0).getLong("snapshotIndex")).isEqualTo(entryCount);
+    }
+
+}
@@ -76,6 +76,7 @@ public final class InMemoryRaftStore implements RaftStore {
     private List<LogEntry> entries = new ArrayList<>();
     private SnapshotPersistenceState snapshotPersistenceState;
     private SnapshotEntry flushedSnapshotEntry;
+    private long flushedLogIndex;
 
     public InMemoryRaftStore() {
     }
@@ -119,6 +120,7 @@ public final class InMemoryRaftStore implements RaftStore {
             }
         }
         entries = newEntries;
+        flushedLogIndex = Math.min(flushedLogIndex, logIndexInclusive - 1);
     }
 
     @Override
@@ -147,6 +149,22 @@ public final class InMemoryRaftStore implements RaftStore {
                 flushedSnapshotEntry = entry;
             }
         }
+
+        if (!entries.isEmpty()) {
+            flushedLogIndex = entries.get(entries.size() - 1).getIndex();
+        }
+        if (flushedSnapshotEntry != null) {
+            flushedLogIndex = Math.max(flushedLogIndex, flushedSnapshotEntry.getIndex());
+        }
+    }
+
+    /**
+     * Returns the highest log or snapshot index covered by the last flush.
+     *
+     * @return the highest log or snapshot index covered by the last flush
+     */
+    public synchronized long getFlushedLogIndex() {
+        return flushedLogIndex;
     }
 
     public synchronized RestoredRaftState toRestoredRaftState() {
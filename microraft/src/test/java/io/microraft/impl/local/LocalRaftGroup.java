@@ -29,6 +29,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.function.BiFunction;
 import java.util.function.Function;
@@ -49,6 +51,7 @@ import io.microraft.persistence.RaftStore;
 import io.microraft.persistence.RestoredRaftState;
 import io.microraft.report.RaftNodeReport;
 import io.microraft.report.RaftNodeReportListener;
+import io.microraft.statemachine.ClientSessionStateMachine;
 import io.microraft.statemachine.StateMachine;
 import io.microraft.test.util.AssertionUtils;
 
@@ -57,10 +60,16 @@ import io.microraft.test.util.AssertionUtils;
  * provides methods to access specific Raft nodes, a set of functionalities over
  * them, such as terminations, creating network partitions, dropping or altering
  * network messages.
+ * <p>
+ * By default, Raft messages are delivered synchronously on the sender's
+ * thread. If a {@link LinkProfile} is given to the builder, Raft messages are
+ * delivered by {@link ShapedLocalTransport} with the configured delay, jitter
+ * and bandwidth.
  *
  * @see LocalRaftEndpoint
  * @see SimpleStateMachine
  * @see Firewall
+ * @see ShapedLocalTransport
  */
 public final class LocalRaftGroup {
 
@@ -71,19 +80,32 @@ public final class LocalRaftGroup {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(LocalRaftGroup.class);
 
+    private final Object groupId;
     private final RaftConfig config;
     private final boolean newTermEntryEnabled;
+    private final boolean clientSessionsEnabled;
     private final List<RaftEndpoint> initialMembers = new ArrayList<>();
     private final Map<RaftEndpoint, RaftNodeContext> nodeContexts = new HashMap<>();
     private final BiFunction<RaftEndpoint, RaftConfig, RaftStore> raftStoreFactory;
+    private final LinkProfile linkProfile;
+    private final ScheduledExecutorService deliveryExecutor;
 
-    private LocalRaftGroup(int groupSize, int votingMemberCount, RaftConfig config, boolean newTermEntryEnabled,
-            BiFunction<RaftEndpoint, RaftConfig, RaftStore> raftStoreFactory) {
+    private LocalRaftGroup(Object groupId, int groupSize, int votingMemberCount, int[] electionPriorities,
+            RaftConfig config, boolean newTermEntryEnabled, boolean clientSessionsEnabled,
+            BiFunction<RaftEndpoint, RaftConfig, RaftStore> raftStoreFactory, LinkProfile linkProfile) {
+        this.groupId = groupId;
         this.config = config;
         this.newTermEntryEnabled = newTermEntryEnabled;
+        this.clientSessionsEnabled = clientSessionsEnabled;
         this.raftStoreFactory = raftStoreFactory;
+        this.linkProfile = linkProfile;
+        this.deliveryExecutor = linkProfile != null ? Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "LocalRaftGroup-" + groupId + "-delivery");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
 
-        createNodes(groupSize, votingMemberCount, config, raftStoreFactory);
+        createNodes(groupSize, votingMemberCount, electionPriorities, config, raftStoreFactory);
     }
 
     /**
@@ -148,10 +170,10 @@ public final class LocalRaftGroup {
         return new LocalRaftGroupBuilder(groupSize, votingMemberCount);
     }
 
-    private void createNodes(int groupSize, int votingMemberCount, RaftConfig config,
+    private void createNodes(int groupSize, int votingMemberCount, int[] electionPriorities, RaftConfig config,
             BiFunction<RaftEndpoint, RaftConfig, RaftStore> raftStoreFactory) {
         for (int i = 0; i < groupSize; i++) {
-            RaftEndpoint endpoint = LocalRaftEndpoint.newEndpoint();
+            RaftEndpoint endpoint = LocalRaftEndpoint.newEndpoint(electionPriorities[i]);
             initialMembers.add(endpoint);
         }
 
@@ -159,11 +181,11 @@ public final class LocalRaftGroup {
 
         for (int i = 0; i < groupSize; i++) {
             RaftEndpoint endpoint = initialMembers.get(i);
-            LocalTransport transport = new LocalTransport(endpoint);
+            LocalTransport transport = newTransport(endpoint);
             SimpleStateMachine stateMachine = new SimpleStateMachine(newTermEntryEnabled);
-            RaftNodeBuilder nodeBuilder = RaftNode.newBuilder().setGroupId("default").setLocalEndpoint(endpoint)
+            RaftNodeBuilder nodeBuilder = RaftNode.newBuilder().setGroupId(groupId).setLocalEndpoint(endpoint)
                     .setInitialGroupMembers(initialMembers, initialVotingMembers).setConfig(config)
-                    .setTransport(transport).setStateMachine(stateMachine)
+                    .setTransport(transport).setStateMachine(decorate(stateMachine))
                     .setRaftNodeReportListener(new RecordingRaftNodeReportListener());
 
             if (raftStoreFactory != null) {
@@ -177,6 +199,18 @@ public final class LocalRaftGroup {
         }
     }
 
+    private StateMachine decorate(SimpleStateMachine stateMachine) {
+        return clientSessionsEnabled ? new ClientSessionStateMachine(stateMachine) : stateMachine;
+    }
+
+    private LocalTransport newTransport(RaftEndpoint endpoint) {
+        if (linkProfile == null) {
+            return new LocalTransport(endpoint);
+        }
+
+        return new ShapedLocalTransport(endpoint, deliveryExecutor, linkProfile);
+    }
+
     /**
      * Enables discovery between the created Raft nodes and starts them.
      */
@@ -208,12 +242,12 @@ public final class LocalRaftGroup {
      */
     public RaftNodeImpl createNewNode() {
         LocalRaftEndpoint endpoint = LocalRaftEndpoint.newEndpoint();
-        LocalTransport transport = new LocalTransport(endpoint);
+        LocalTransport transport = newTransport(endpoint);
         SimpleStateMachine stateMachine = new SimpleStateMachine(newTermEntryEnabled);
         RaftStore raftStore = raftStoreFactory != null ? raftStoreFactory.apply(endpoint, config) : new NopRaftStore();
-        RaftNodeImpl node = (RaftNodeImpl) RaftNode.newBuilder().setGroupId("default").setLocalEndpoint(endpoint)
+        RaftNodeImpl node = (RaftNodeImpl) RaftNode.newBuilder().setGroupId(groupId).setLocalEndpoint(endpoint)
                 .setInitialGroupMembers(initialMembers).setConfig(config).setTransport(transport)
-                .setStateMachine(stateMachine).setStore(raftStore).build();
+                .setStateMachine(decorate(stateMachine)).setStore(raftStore).build();
 
         nodeContexts.put(endpoint,
                 new RaftNodeContext((DefaultRaftNodeExecutor) node.getExecutor(), transport, stateMachine, node));
@@ -254,11 +288,11 @@ public final class LocalRaftGroup {
 
         requireNonNull(restoredState);
 
-        LocalTransport transport = new LocalTransport(
-                restoredState.getLocalEndpointPersistentState().getLocalEndpoint());
+        LocalTransport transport = newTransport(restoredState.getLocalEndpointPersistentState().getLocalEndpoint());
         SimpleStateMachine stateMachine = new SimpleStateMachine(newTermEntryEnabled);
-        RaftNodeImpl node = (RaftNodeImpl) RaftNode.newBuilder().setGroupId("default").setRestoredState(restoredState)
-                .setConfig(config).setTransport(transport).setStateMachine(stateMachine).setStore(store).build();
+        RaftNodeImpl node = (RaftNodeImpl) RaftNode.newBuilder().setGroupId(groupId).setRestoredState(restoredState)
+                .setConfig(config).setTransport(transport).setStateMachine(decorate(stateMachine)).setStore(store)
+                .build();
         nodeContexts.put(restoredState.getLocalEndpointPersistentState().getLocalEndpoint(),
                 new RaftNodeContext((DefaultRaftNodeExecutor) node.getExecutor(), transport, stateMachine, node));
 
@@ -364,6 +398,43 @@ public final class LocalRaftGroup {
         return nodeContexts.get(endpoint).stateMachine;
     }
 
+    /**
+     * Returns the transport object for the given Raft endpoint.
+     *
+     * @param endpoint
+     *            the Raft endpoint to get the transport object
+     *
+     * @return the transport object for the given Raft endpoint
+     */
+    public LocalTransport getTransport(RaftEndpoint endpoint) {
+        requireNonNull(endpoint);
+        return nodeContexts.get(endpoint).transport;
+    }
+
+    /**
+     * Sets the profile of the link from the given source Raft endpoint to the
+     * given target Raft endpoint, e.g., to place them in different
+     * availability zones.
+     *
+     * @param source
+     *            the Raft endpoint sending the Raft messages
+     * @param target
+     *            the Raft endpoint receiving the Raft messages
+     * @param profile
+     *            the link profile
+     *
+     * @throws IllegalStateException
+     *             if the Raft group is not created with a link profile
+     */
+    public void setLinkProfile(RaftEndpoint source, RaftEndpoint target, LinkProfile profile) {
+        LocalTransport transport = getTransport(source);
+        if (!(transport instanceof ShapedLocalTransport)) {
+            throw new IllegalStateException("Raft group " + groupId + " is not created with a link profile!");
+        }
+
+        ((ShapedLocalTransport) transport).setLinkProfile(target, profile);
+    }
+
     private Firewall getFirewall(RaftEndpoint endpoint) {
         requireNonNull(endpoint);
         return nodeContexts.get(endpoint).transport.getFirewall();
@@ -469,6 +540,10 @@ public final class LocalRaftGroup {
             ctx.executor.getExecutor().shutdown();
         }
 
+        if (deliveryExecutor != null) {
+            deliveryExecutor.shutdownNow();
+        }
+
         nodeContexts.clear();
     }
 
@@ -745,9 +820,13 @@ public final class LocalRaftGroup {
 
         private final int groupSize;
         private final int votingMemberCount;
+        private Object groupId = "default";
+        private int[] electionPriorities;
         private RaftConfig config = DEFAULT_RAFT_CONFIG;
         private boolean newTermOperationEnabled;
+        private boolean clientSessionsEnabled;
         private BiFunction<RaftEndpoint, RaftConfig, RaftStore> raftStoreFactory;
+        private LinkProfile linkProfile;
 
         private LocalRaftGroupBuilder(int groupSize) {
             if (groupSize < 1) {
@@ -755,6 +834,7 @@ public final class LocalRaftGroup {
             }
             this.groupSize = groupSize;
             this.votingMemberCount = groupSize;
+            this.electionPriorities = new int[groupSize];
         }
 
         private LocalRaftGroupBuilder(int groupSize, int votingMemberCount) {
@@ -768,6 +848,38 @@ public final class LocalRaftGroup {
             }
             this.groupSize = groupSize;
             this.votingMemberCount = votingMemberCount;
+            this.electionPriorities = new int[groupSize];
+        }
+
+        /**
+         * Sets the group id of the Raft nodes.
+         *
+         * @param groupId
+         *            the group id of the Raft nodes
+         *
+         * @return the builder object for fluent calls
+         */
+        public LocalRaftGroupBuilder setGroupId(Object groupId) {
+            requireNonNull(groupId);
+            this.groupId = groupId;
+            return this;
+        }
+
+        /**
+         * Sets the election priorities of the Raft endpoints in the order they
+         * are created.
+         *
+         * @param electionPriorities
+         *            the election priorities of the Raft endpoints
+         *
+         * @return the builder object for fluent calls
+         */
+        public LocalRaftGroupBuilder setElectionPriorities(int... electionPriorities) {
+            if (electionPriorities.length != groupSize) {
+                throw new IllegalArgumentException("Election priorities must be given for all Raft nodes!");
+            }
+            this.electionPriorities = electionPriorities.clone();
+            return this;
         }
 
         /**
@@ -794,6 +906,17 @@ public final class LocalRaftGroup {
             return this;
         }
 
+        /**
+         * Decorates the state machines of the Raft nodes with
+         * {@link ClientSessionStateMachine}.
+         *
+         * @return the builder object for fluent calls
+         */
+        public LocalRaftGroupBuilder enableClientSessions() {
+            this.clientSessionsEnabled = true;
+            return this;
+        }
+
         /**
          * Sets the factory object for creating Raft state stores.
          *
@@ -809,6 +932,21 @@ public final class LocalRaftGroup {
             return this;
         }
 
+        /**
+         * Sets the profile of the links between the Raft nodes. If set, Raft
+         * messages are delivered asynchronously by {@link ShapedLocalTransport}.
+         *
+         * @param linkProfile
+         *            the profile of the links between the Raft nodes
+         *
+         * @return the builder object for fluent calls
+         */
+        public LocalRaftGroupBuilder setLinkProfile(LinkProfile linkProfile) {
+            requireNonNull(linkProfile);
+            this.linkProfile = linkProfile;
+            return this;
+        }
+
         /**
          * Builds the local Raft group with the configured settings. Please note that
          * the returned Raft group is not started yet.
@@ -816,7 +954,8 @@ public final class LocalRaftGroup {
          * @return the created local Raft group
          */
         public LocalRaftGroup build() {
-            return new LocalRaftGroup(groupSize, votingMemberCount, config, newTermOperationEnabled, raftStoreFactory);
+            return new LocalRaftGroup(groupId, groupSize, votingMemberCount, electionPriorities, config,
+                    newTermOperationEnabled, clientSessionsEnabled, raftStoreFactory, linkProfile);
         }
 
         /**
@@ -825,8 +964,8 @@ public final class LocalRaftGroup {
          * @return the created and started local Raft group
          */
         public LocalRaftGroup start() {
-            LocalRaftGroup group = new LocalRaftGroup(groupSize, votingMemberCount, config, newTermOperationEnabled,
-                    raftStoreFactory);
+            LocalRaftGroup group = new LocalRaftGroup(groupId, groupSize, votingMemberCount, electionPriorities, config,
+                    newTermOperationEnabled, clientSessionsEnabled, raftStoreFactory, linkProfile);
             group.start();
 
             return group;
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microraft.impl.local;
+
+import static io.microraft.impl.local.SimpleStateMachine.applyValue;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Test;
+
+import io.microraft.impl.RaftNodeImpl;
+import io.microraft.model.message.AppendEntriesRequest;
+import io.microraft.test.util.BaseTest;
+
+public class ShapedLocalTransportTest extends BaseTest {
+
+    private LocalRaftGroup group;
+
+    @After
+    public void destroy() {
+        if (group != null) {
+            group.destroy();
+        }
+    }
+
+    @Test(timeout = 300_000)
+    public void when_linksHaveDelay_then_commitTakesRoundTrip() {
+        long delayMillis = 20;
+        group = LocalRaftGroup.newBuilder(3)
+                .setLinkProfile(LinkProfile.newBuilder().setDelay(delayMillis, MILLISECONDS).build()).start();
+        RaftNodeImpl leader = group.waitUntilLeaderElected();
+
+        long start = System.nanoTime();
+        leader.replicate(applyValue("val")).join();
+        long elapsedMillis = NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertThat(elapsedMillis).isGreaterThanOrEqualTo(2 * delayMillis);
+    }
+
+    @Test(timeout = 300_000)
+    public void when_linksHaveLimitedBandwidth_then_largeEntriesTakeTransmissionTime() {
+        int operationSize = 1000;
+        long bandwidthBytesPerSecond = 10_000;
+        group = LocalRaftGroup.newBuilder(3)
+                .setLinkProfile(LinkProfile.newBuilder().setBandwidth(bandwidthBytesPerSecond).build()).start();
+        RaftNodeImpl leader = group.waitUntilLeaderElected();
+        ShapedLocalTransport transport = (ShapedLocalTransport) group.getTransport(leader.getLocalEndpoint());
+        transport.setMessageSizeEstimator(message -> message instanceof AppendEntriesRequest
+                && !((AppendEntriesRequest) message).getLogEntries().isEmpty() ? operationSize : 0);
+        long sentBytesBefore = transport.getSentBytes();
+
+        long start = System.nanoTime();
+        leader.replicate(applyValue("val")).join();
+        long elapsedMillis = NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertThat(elapsedMillis).isGreaterThanOrEqualTo(operationSize * 1000L / bandwidthBytesPerSecond);
+        assertThat(transport.getSentBytes() - sentBytesBefore).isGreaterThanOrEqualTo(operationSize);
+    }
+
+    @Test(timeout = 300_000)
+    public void when_groupIsNotCreatedWithLinkProfile_then_linkProfileCannotBeSet() {
+        group = LocalRaftGroup.start(2);
+        RaftNodeImpl node1 = group.getNodes().get(0);
+        RaftNodeImpl node2 = group.getNodes().get(1);
+
+        try {
+            group.setLinkProfile(node1.getLocalEndpoint(), node2.getLocalEndpoint(), LinkProfile.UNSHAPED);
+            fail();
+        } catch (IllegalStateException ignored) {
+        }
+    }
+
+}
@@ -20,8 +20,12 @@ package io.microraft.impl.log;
 import static io.microraft.impl.local.LocalRaftEndpoint.newEndpoint;
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.nio.ByteBuffer;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
 
 import org.junit.Before;
 import org.junit.Rule;
@@ -29,6 +33,7 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
 import io.microraft.RaftEndpoint;
+import io.microraft.impl.local.InMemoryRaftStore;
 import io.microraft.model.impl.log.DefaultLogEntryOrBuilder;
 import io.microraft.model.impl.log.DefaultRaftGroupMembersViewOrBuilder;
 import io.microraft.model.impl.log.DefaultSnapshotChunkOrBuilder;
@@ -38,6 +43,7 @@ import io.microraft.model.log.LogEntry;
 import io.microraft.model.log.RaftGroupMembersView;
 import io.microraft.model.log.SnapshotChunk;
 import io.microraft.model.log.SnapshotEntry;
+import io.microraft.persistence.RaftStoreSerializer.Serializer;
 
 public class RaftLogTest {
 
@@ -501,4 +507,116 @@ public class RaftLogTest {
         assertThat(snapshotEntry.getOperation()).isEqualTo(List.of(snapshotChunk));
     }
 
+    @Test
+    public void test_flushedLogIndex_advancesOnFlush() {
+        RaftLog log = RaftLog.create(100, new InMemoryRaftStore());
+        log.appendEntries(List.of(new DefaultLogEntryOrBuilder().setTerm(1).setIndex(1).build(),
+                new DefaultLogEntryOrBuilder().setTerm(1).setIndex(2).build()));
+
+        assertThat(log.flushedLogIndex()).isEqualTo(0);
+
+        log.flush();
+
+        assertThat(log.flushedLogIndex()).isEqualTo(2);
+    }
+
+    @Test
+    public void test_flushedLogIndex_decreasesOnTruncation() {
+        RaftLog log = RaftLog.create(100, new InMemoryRaftStore());
+        log.appendEntries(List.of(new DefaultLogEntryOrBuilder().setTerm(1).setIndex(1).build(),
+                new DefaultLogEntryOrBuilder().setTerm(1).setIndex(2).build(),
+                new DefaultLogEntryOrBuilder().setTerm(1).setIndex(3).build()));
+        log.flush();
+
+        log.truncateEntriesFrom(2);
+
+        assertThat(log.flushedLogIndex()).isEqualTo(1);
+    }
+
+    @Test
+    public void test_flushedLogIndex_withoutPersistence() {
+        log.appendEntry(new DefaultLogEntryOrBuilder().setTerm(1).setIndex(1).build());
+
+        assertThat(log.flushedLogIndex()).isEqualTo(1);
+    }
+
+    @Test
+    public void test_serializedForm_isComputedOnce() {
+        LogEntry entry = new DefaultLogEntryOrBuilder().setTerm(1).setIndex(1).build();
+        AtomicInteger serializations = new AtomicInteger();
+        Serializer<LogEntry> serializer = newSerializer(serializations, 3);
+
+        ByteBuffer first = entry.getOrComputeSerializedForm(serializer);
+        first.get();
+        ByteBuffer second = entry.getOrComputeSerializedForm(serializer);
+
+        assertThat(serializations.get()).isEqualTo(1);
+        assertThat(second.remaining()).isEqualTo(3);
+    }
+
+    @Test
+    public void test_serializedForm_isRecomputedForDifferentSerializer() {
+        LogEntry entry = new DefaultLogEntryOrBuilder().setTerm(1).setIndex(1).build();
+        Serializer<LogEntry> serializer1 = newSerializer(new AtomicInteger(), 1);
+        Serializer<LogEntry> serializer2 = newSerializer(new AtomicInteger(), 2);
+
+        assertThat(entry.getOrComputeSerializedForm(serializer1).remaining()).isEqualTo(1);
+        assertThat(entry.getOrComputeSerializedForm(serializer2).remaining()).isEqualTo(2);
+        assertThat(entry.getOrComputeSerializedForm(serializer1).remaining()).isEqualTo(1);
+    }
+
+    @Test
+    public void test_serializedForm_isKeptOnFlush() {
+        RaftLog log = RaftLog.create(100, new InMemoryRaftStore());
+        List<LogEntry> entries = List.of(new DefaultLogEntryOrBuilder().setTerm(1).setIndex(1).build(),
+                new DefaultLogEntryOrBuilder().setTerm(1).setIndex(2).build());
+        AtomicInteger serializations = new AtomicInteger();
+        Serializer<LogEntry> serializer = newSerializer(serializations, 1);
+        log.appendEntries(entries);
+        entries.forEach(entry -> entry.getOrComputeSerializedForm(serializer));
+
+        log.flush();
+        // lagging followers still reuse the serialized forms
+        entries.forEach(entry -> entry.getOrComputeSerializedForm(serializer));
+
+        assertThat(serializations.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void test_serializedForm_isReleasedOnTruncation() {
+        List<LogEntry> entries = List.of(new DefaultLogEntryOrBuilder().setTerm(1).setIndex(1).build(),
+                new DefaultLogEntryOrBuilder().setTerm(1).setIndex(2).build(),
+                new DefaultLogEntryOrBuilder().setTerm(1).setIndex(3).build());
+        log.appendEntries(entries);
+        AtomicInteger serializations = new AtomicInteger();
+        Serializer<LogEntry> serializer = newSerializer(serializations, 1);
+        entries.forEach(entry -> entry.getOrComputeSerializedForm(serializer));
+
+        log.truncateEntriesFrom(3);
+        log.setSnapshot(new DefaultSnapshotEntryOrBuilder().setTerm(1).setIndex(1).setGroupMembersView(groupMembersView)
+                .build());
+
+        entries.forEach(entry -> entry.getOrComputeSerializedForm(serializer));
+
+        // entries 1 and 3 are truncated, entry 2 keeps its serialized form
+        assertThat(serializations.get()).isEqualTo(5);
+    }
+
+    private static Serializer<LogEntry> newSerializer(AtomicInteger serializations, int size) {
+        return new Serializer<LogEntry>() {
+            @Nonnull
+            @Override
+            public byte[] serialize(@Nonnull LogEntry element) {
+                serializations.incrementAndGet();
+                return new byte[size];
+            }
+
+            @Nonnull
+            @Override
+            public LogEntry deserialize(@Nonnull byte[] element) {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
 }
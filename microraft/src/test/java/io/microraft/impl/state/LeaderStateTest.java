@@ -20,6 +20,8 @@ package io.microraft.impl.state;
 import static io.microraft.impl.local.LocalRaftEndpoint.newEndpoint;
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -117,4 +119,52 @@ public class LeaderStateTest {
         assertThat(indices[indices.length - 1]).isEqualTo(0);
     }
 
+    @Test
+    public void test_quorumMatchIndex_matchesSortedIndices() {
+        RaftEndpoint leader = newEndpoint();
+        List<RaftEndpoint> members = new ArrayList<>(remoteEndpoints);
+        members.add(leader);
+        RaftGroupMembersState groupMembers = new RaftGroupMembersState(0, members, members, leader);
+        int quorumSize = groupMembers.getMajorityQuorumSize();
+
+        for (int round = 0; round < 1000; round++) {
+            RaftEndpoint follower = remoteEndpoints.get(random.nextInt(remoteEndpoints.size()));
+            state.matchIndex(follower, random.nextInt(50));
+            long leaderLogIndex = random.nextInt(50);
+
+            long[] indices = state.matchIndices(remoteEndpoints);
+            indices[indices.length - 1] = leaderLogIndex;
+            Arrays.sort(indices);
+            long expected = indices[members.size() - quorumSize];
+
+            assertThat(state.quorumMatchIndex(groupMembers, quorumSize, leaderLogIndex)).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    public void test_quorumMatchIndex_nonVotingMembers() {
+        RaftEndpoint leader = newEndpoint();
+        List<RaftEndpoint> members = new ArrayList<>(remoteEndpoints);
+        members.add(leader);
+        List<RaftEndpoint> votingMembers = new ArrayList<>(members);
+        RaftEndpoint learner = votingMembers.remove(0);
+        RaftGroupMembersState groupMembers = new RaftGroupMembersState(0, members, votingMembers, leader);
+
+        state.matchIndex(learner, 100);
+        state.quorumMatchIndex(groupMembers, 3, 10);
+        state.matchIndex(learner, 200);
+        long logIndex = 10;
+        for (RaftEndpoint follower : votingMembers) {
+            if (!follower.equals(leader)) {
+                state.matchIndex(follower, ++logIndex);
+            }
+        }
+
+        // voting follower indices: [11, 12, 13] + leader index: 10 => quorum size: 3
+        assertThat(state.quorumMatchIndex(groupMembers, 3, 10)).isEqualTo(11);
+        // the leader is leaving the group
+        assertThat(state.quorumMatchIndex(groupMembers, 3, -1)).isEqualTo(11);
+        assertThat(state.quorumMatchIndex(groupMembers, 2, -1)).isEqualTo(12);
+    }
+
 }
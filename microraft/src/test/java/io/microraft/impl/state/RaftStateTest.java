@@ -39,6 +39,8 @@ import org.junit.rules.ExpectedException;
 import io.microraft.RaftEndpoint;
 import io.microraft.impl.local.LocalRaftEndpoint;
 import io.microraft.impl.log.RaftLog;
+import io.microraft.impl.state.QueryState.QueryContainer;
+import io.microraft.impl.util.OrderedFuture;
 import io.microraft.model.impl.DefaultRaftModelFactory;
 import io.microraft.model.impl.log.DefaultLogEntryOrBuilder;
 import io.microraft.model.impl.log.DefaultRaftGroupMembersViewOrBuilder;
@@ -322,4 +324,19 @@ public class RaftStateTest {
         assertThat(state.role()).isEqualTo(LEARNER);
     }
 
+    @Test
+    public void test_collectedScheduledQueriesAreRemoved() {
+        QueryContainer query1 = new QueryContainer("query1", new OrderedFuture<>());
+        QueryContainer query2 = new QueryContainer("query2", new OrderedFuture<>());
+        state.addScheduledQuery(3, query1);
+        state.addScheduledQuery(5, query2);
+
+        state.lastApplied(4);
+
+        assertThat(state.collectScheduledQueriesToExecute()).containsExactly(query1);
+        assertThat(state.collectScheduledQueriesToExecute()).isEmpty();
+        assertThat(state.removeScheduledQuery(3, query1)).isFalse();
+        assertThat(state.removeScheduledQuery(5, query2)).isTrue();
+    }
+
 }
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.microraft.impl.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+import io.microraft.test.util.BaseTest;
+
+public class MpscArrayQueueTest extends BaseTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCapacityMustBePowerOfTwo() {
+        new MpscArrayQueue<>(3);
+    }
+
+    @Test
+    public void testElementsArePolledInOfferOrder() {
+        MpscArrayQueue<Integer> queue = new MpscArrayQueue<>(4);
+
+        assertThat(queue.poll()).isNull();
+        assertThat(queue.isEmpty()).isTrue();
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(queue.offer(i)).isTrue();
+            assertThat(queue.offer(i + 100)).isTrue();
+            assertThat(queue.size()).isEqualTo(2);
+            assertThat(queue.poll()).isEqualTo(i);
+            assertThat(queue.poll()).isEqualTo(i + 100);
+        }
+
+        assertThat(queue.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void testOfferFailsWhenQueueIsFull() {
+        MpscArrayQueue<Integer> queue = new MpscArrayQueue<>(4);
+        for (int i = 0; i < queue.capacity(); i++) {
+            assertThat(queue.offer(i)).isTrue();
+        }
+
+        assertThat(queue.offer(4)).isFalse();
+        assertThat(queue.poll()).isEqualTo(0);
+        assertThat(queue.offer(4)).isTrue();
+        assertThat(queue.size()).isEqualTo(4);
+    }
+
+    @Test(timeout = 300_000)
+    public void testConcurrentProducers() throws InterruptedException {
+        int producerCount = 4;
+        int elementCountPerProducer = 100_000;
+        MpscArrayQueue<int[]> queue = new MpscArrayQueue<>(64);
+        CountDownLatch startLatch = new CountDownLatch(1);
+        List<Thread> producers = new ArrayList<>();
+        for (int i = 0; i < producerCount; i++) {
+            int producer = i;
+            Thread thread = new Thread(() -> {
+                try {
+                    startLatch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+
+                for (int j = 0; j < elementCountPerProducer; j++) {
+                    int[] element = {producer, j};
+                    while (!queue.offer(element)) {
+                        Thread.yield();
+                    }
+                }
+            });
+            thread.start();
+            producers.add(thread);
+        }
+
+        startLatch.countDown();
+
+        int[] nextElements = new int[producerCount];
+        for (int polled = 0; polled < producerCount * elementCountPerProducer;) {
+            int[] element = queue.poll();
+            if (element == null) {
+                Thread.yield();
+                continue;
+            }
+
+            // elements of each producer are polled in order
+            assertThat(element[1]).isEqualTo(nextElements[element[0]]++);
+            polled++;
+        }
+
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        assertThat(queue.isEmpty()).isTrue();
+    }
+
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2023, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.microraft.model.impl;
+
+import static io.microraft.MembershipChangeMode.ADD_LEARNER;
+import static io.microraft.MembershipChangeMode.ADD_OR_PROMOTE_TO_FOLLOWER;
+import static io.microraft.MembershipChangeMode.ADD_WITNESS;
+import static io.microraft.MembershipChangeMode.JOINT;
+import static io.microraft.MembershipChangeMode.REMOVE_MEMBER;
+import static io.microraft.impl.local.LocalRaftEndpoint.newEndpoint;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import io.microraft.MembershipChangeMode;
+import io.microraft.RaftEndpoint;
+import io.microraft.model.groupop.UpdateRaftGroupMembersOp;
+import io.microraft.model.impl.groupop.DefaultUpdateRaftGroupMembersOpOrBuilder;
+import io.microraft.model.impl.log.DefaultLogEntryOrBuilder;
+import io.microraft.model.impl.log.DefaultRaftGroupMembersViewOrBuilder;
+import io.microraft.model.impl.log.DefaultSnapshotChunkOrBuilder;
+import io.microraft.model.log.LogEntry;
+import io.microraft.model.log.RaftGroupMembersView;
+import io.microraft.model.log.SnapshotChunk;
+import io.microraft.model.log.WitnessPlaceholder;
+import io.microraft.persistence.RaftStoreSerializer.BufferSerializer;
+
+public class DefaultModelSerializersTest {
+
+    private final RaftEndpoint endpoint1 = newEndpoint();
+    private final RaftEndpoint endpoint2 = newEndpoint();
+    private final RaftEndpoint endpoint3 = newEndpoint();
+    private final EndpointSerializer endpointSerializer = new EndpointSerializer(endpoint1, endpoint2, endpoint3);
+    private final StringSerializer operationSerializer = new StringSerializer();
+
+    private final BufferSerializer<LogEntry> logEntrySerializer = DefaultModelSerializers
+            .logEntrySerializer(operationSerializer, endpointSerializer);
+    private final BufferSerializer<SnapshotChunk> snapshotChunkSerializer = DefaultModelSerializers
+            .snapshotChunkSerializer(operationSerializer, endpointSerializer);
+    private final BufferSerializer<RaftGroupMembersView> groupMembersViewSerializer = DefaultModelSerializers
+            .raftGroupMembersViewSerializer(endpointSerializer);
+
+    @Test
+    public void testLogEntryWithUserOperation() {
+        LogEntry entry = new DefaultLogEntryOrBuilder().setIndex(5).setTerm(2).setOperation("val").build();
+
+        LogEntry deserialized = roundTrip(logEntrySerializer, entry);
+
+        assertThat(deserialized.getIndex()).isEqualTo(5);
+        assertThat(deserialized.getTerm()).isEqualTo(2);
+        assertThat(deserialized.getOperation()).isEqualTo("val");
+    }
+
+    @Test
+    public void testLogEntryWithUpdateRaftGroupMembersOp() {
+        UpdateRaftGroupMembersOp op = new DefaultUpdateRaftGroupMembersOpOrBuilder()
+                .setMembers(List.of(endpoint1, endpoint2, endpoint3)).setVotingMembers(List.of(endpoint1, endpoint3))
+                .setWitnessMembers(List.of(endpoint3)).setEndpoint(endpoint3).setMode(ADD_WITNESS).build();
+        LogEntry entry = new DefaultLogEntryOrBuilder().setIndex(10).setTerm(3).setOperation(op).build();
+
+        LogEntry deserialized = roundTrip(logEntrySerializer, entry);
+
+        assertThat(deserialized.getOperation()).isInstanceOf(UpdateRaftGroupMembersOp.class);
+        UpdateRaftGroupMembersOp deserializedOp = (UpdateRaftGroupMembersOp) deserialized.getOperation();
+        assertThat(deserializedOp.getMembers()).containsExactly(endpoint1, endpoint2, endpoint3);
+        assertThat(deserializedOp.getVotingMembers()).containsExactly(endpoint1, endpoint3);
+        assertThat(deserializedOp.getWitnessMembers()).containsExactly(endpoint3);
+        assertThat(deserializedOp.getEndpoint()).isEqualTo(endpoint3);
+        assertThat(deserializedOp.getMode()).isEqualTo(ADD_WITNESS);
+    }
+
+    @Test
+    public void testMembershipChangeModesHaveStableCodes() {
+        Map<MembershipChangeMode, Byte> codes = Map.of(ADD_LEARNER, (byte) 0, ADD_OR_PROMOTE_TO_FOLLOWER, (byte) 1,
+                REMOVE_MEMBER, (byte) 2, ADD_WITNESS, (byte) 3, JOINT, (byte) 4);
+
+        assertThat(codes.keySet()).containsExactlyInAnyOrder(MembershipChangeMode.values());
+        for (Entry<MembershipChangeMode, Byte> e : codes.entrySet()) {
+            UpdateRaftGroupMembersOp op = new DefaultUpdateRaftGroupMembersOpOrBuilder()
+                    .setMembers(List.of(endpoint1)).setVotingMembers(List.of(endpoint1)).setEndpoint(endpoint1)
+                    .setMode(e.getKey()).build();
+            LogEntry entry = new DefaultLogEntryOrBuilder().setIndex(1).setTerm(1).setOperation(op).build();
+            ByteBuffer buffer = ByteBuffer.allocate(logEntrySerializer.serializedSize(entry));
+            logEntrySerializer.serialize(entry, buffer);
+
+            // the mode is the last byte of the entry
+            assertThat(buffer.get(buffer.limit() - 1)).isEqualTo(e.getValue());
+            buffer.flip();
+            assertThat(((UpdateRaftGroupMembersOp) logEntrySerializer.deserialize(buffer).getOperation()).getMode())
+                    .isEqualTo(e.getKey());
+        }
+    }
+
+    @Test
+    public void testLogEntryWithWitnessPlaceholder() {
+        LogEntry entry = new DefaultLogEntryOrBuilder().setIndex(1).setTerm(1)
+                .setOperation(WitnessPlaceholder.INSTANCE).build();
+
+        assertThat(roundTrip(logEntrySerializer, entry).getOperation()).isSameAs(WitnessPlaceholder.INSTANCE);
+    }
+
+    @Test
+    public void testSnapshotChunk() {
+        RaftGroupMembersView view = new DefaultRaftGroupMembersViewOrBuilder().setLogIndex(3)
+                .setMembers(List.of(endpoint1, endpoint2)).setVotingMembers(List.of(endpoint1, endpoint2)).build();
+        SnapshotChunk chunk = new DefaultSnapshotChunkOrBuilder().setIndex(50).setTerm(4).setSnapshotChunkIndex(1)
+                .setSnapshotChunkCount(3).setGroupMembersView(view).setOperation("chunk").build();
+
+        SnapshotChunk deserialized = roundTrip(snapshotChunkSerializer, chunk);
+
+        assertThat(deserialized.getIndex()).isEqualTo(50);
+        assertThat(deserialized.getTerm()).isEqualTo(4);
+        assertThat(deserialized.getSnapshotChunkIndex()).isEqualTo(1);
+        assertThat(deserialized.getSnapshotChunkCount()).isEqualTo(3);
+        assertThat(deserialized.getOperation()).isEqualTo("chunk");
+        assertThat(deserialized.getGroupMembersView().getLogIndex()).isEqualTo(3);
+        assertThat(deserialized.getGroupMembersView().getMembers()).containsExactly(endpoint1, endpoint2);
+        assertThat(deserialized.getGroupMembersView().getWitnessMembers()).isEmpty();
+    }
+
+    @Test
+    public void testGroupMembersViewWithLearner() {
+        RaftGroupMembersView view = new DefaultRaftGroupMembersViewOrBuilder().setLogIndex(7)
+                .setMembers(List.of(endpoint1, endpoint2, endpoint3)).setVotingMembers(List.of(endpoint1, endpoint2))
+                .build();
+
+        RaftGroupMembersView deserialized = roundTrip(groupMembersViewSerializer, view);
+
+        assertThat(deserialized.getLogIndex()).isEqualTo(7);
+        assertThat(deserialized.getMembers()).containsExactly(endpoint1, endpoint2, endpoint3);
+        assertThat(deserialized.getVotingMembers()).containsExactly(endpoint1, endpoint2);
+    }
+
+    @Test
+    public void testElementsAreWrittenBackToBackIntoSharedBuffer() {
+        LogEntry entry1 = new DefaultLogEntryOrBuilder().setIndex(1).setTerm(1).setOperation("a").build();
+        LogEntry entry2 = new DefaultLogEntryOrBuilder().setIndex(2).setTerm(1).setOperation("bb").build();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(
+                logEntrySerializer.serializedSize(entry1) + logEntrySerializer.serializedSize(entry2));
+
+        logEntrySerializer.serialize(entry1, buffer);
+        logEntrySerializer.serialize(entry2, buffer);
+        assertThat(buffer.hasRemaining()).isFalse();
+        buffer.flip();
+
+        assertThat(logEntrySerializer.deserialize(buffer).getOperation()).isEqualTo("a");
+        assertThat(logEntrySerializer.deserialize(buffer).getOperation()).isEqualTo("bb");
+        assertThat(buffer.hasRemaining()).isFalse();
+    }
+
+    private static <T> T roundTrip(BufferSerializer<T> serializer, T element) {
+        byte[] bytes = serializer.serialize(element);
+        assertThat(bytes.length).isEqualTo(serializer.serializedSize(element));
+        return serializer.deserialize(bytes);
+    }
+
+    private static final class StringSerializer implements BufferSerializer<Object> {
+        @Override
+        public int serializedSize(@Nonnull Object element) {
+            return 4 + ((String) element).getBytes(UTF_8).length;
+        }
+
+        @Override
+        public void serialize(@Nonnull Object element, @Nonnull ByteBuffer target) {
+            byte[] bytes = ((String) element).getBytes(UTF_8);
+            target.putInt(bytes.length).put(bytes);
+        }
+
+        @Nonnull
+        @Override
+        public Object deserialize(@Nonnull ByteBuffer source) {
+            byte[] bytes = new byte[source.getInt()];
+            source.get(bytes);
+            return new String(bytes, UTF_8);
+        }
+    }
+
+    private static final class EndpointSerializer implements BufferSerializer<RaftEndpoint> {
+        private final StringSerializer idSerializer = new StringSerializer();
+        private final Map<Object, RaftEndpoint> endpoints = new HashMap<>();
+
+        EndpointSerializer(RaftEndpoint... endpoints) {
+            for (RaftEndpoint endpoint : endpoints) {
+                this.endpoints.put(endpoint.getId(), endpoint);
+            }
+        }
+
+        @Override
+        public int serializedSize(@Nonnull RaftEndpoint endpoint) {
+            return idSerializer.serializedSize(endpoint.getId());
+        }
+
+        @Override
+        public void serialize(@Nonnull RaftEndpoint endpoint, @Nonnull ByteBuffer target) {
+            idSerializer.serialize(endpoint.getId(), target);
+        }
+
+        @Nonnull
+        @Override
+        public RaftEndpoint deserialize(@Nonnull ByteBuffer source) {
+            return endpoints.get(idSerializer.deserialize(source));
+        }
+    }
+
+}
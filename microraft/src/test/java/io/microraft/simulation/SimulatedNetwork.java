@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microraft.simulation;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+
+import io.microraft.RaftEndpoint;
+import io.microraft.RaftNode;
+import io.microraft.impl.local.ShapedLocalTransport;
+import io.microraft.model.message.RaftMessage;
+
+/**
+ * Delivers Raft messages between the Raft nodes of a simulation with
+ * configurable latency, jitter, bandwidth and message loss.
+ * <p>
+ * Each directed link between two Raft nodes transmits one message at a time,
+ * so a message waits for the messages sent before it on the same link. The
+ * transmission time of a message is computed from its estimated size and the
+ * bandwidth. After the transmission, the message arrives at its target after
+ * the latency plus a random jitter. Since the jitter is random, messages can be
+ * reordered. Lost messages are dropped before they are transmitted. All random
+ * decisions are taken with the given seeded {@link Random}, so the same
+ * simulation delivers the same messages at the same virtual times each time it
+ * is run.
+ */
+public final class SimulatedNetwork {
+
+    private final SimulationScheduler scheduler;
+    private final Random random;
+    private final Map<RaftEndpoint, RaftNode> nodes = new HashMap<>();
+    private final Map<SimpleImmutableEntry<RaftEndpoint, RaftEndpoint>, Long> linkFreeAtNanos = new HashMap<>();
+    private final Set<RaftEndpoint> disconnectedEndpoints = new HashSet<>();
+    private long latencyNanos;
+    private long jitterNanos;
+    private long bandwidthBytesPerSecond;
+    private double lossRate;
+    private ToIntFunction<RaftMessage> messageSizeEstimator = ShapedLocalTransport.DEFAULT_MESSAGE_SIZE_ESTIMATOR;
+    private long sentMessageCount;
+    private long droppedMessageCount;
+
+    public SimulatedNetwork(SimulationScheduler scheduler, Random random) {
+        this.scheduler = requireNonNull(scheduler);
+        this.random = requireNonNull(random);
+    }
+
+    /**
+     * Sets the one-way latency of the messages.
+     *
+     * @param latency
+     *            the one-way latency
+     * @param timeUnit
+     *            the time unit of the latency
+     */
+    public void setLatency(long latency, TimeUnit timeUnit) {
+        this.latencyNanos = timeUnit.toNanos(latency);
+    }
+
+    /**
+     * Sets the maximum random delay added to the latency of each message.
+     *
+     * @param jitter
+     *            the maximum random delay
+     * @param timeUnit
+     *            the time unit of the jitter
+     */
+    public void setJitter(long jitter, TimeUnit timeUnit) {
+        this.jitterNanos = timeUnit.toNanos(jitter);
+    }
+
+    /**
+     * Sets the bandwidth of each directed link. 0 means unlimited bandwidth.
+     *
+     * @param bandwidthBytesPerSecond
+     *            the bandwidth of each directed link in bytes per second
+     */
+    public void setBandwidth(long bandwidthBytesPerSecond) {
+        if (bandwidthBytesPerSecond < 0) {
+            throw new IllegalArgumentException("bandwidth: " + bandwidthBytesPerSecond + " cannot be negative!");
+        }
+
+        this.bandwidthBytesPerSecond = bandwidthBytesPerSecond;
+    }
+
+    /**
+     * Sets the probability of dropping a message.
+     *
+     * @param lossRate
+     *            the probability of dropping a message, between 0 and 1
+     */
+    public void setLossRate(double lossRate) {
+        if (lossRate < 0 || lossRate > 1) {
+            throw new IllegalArgumentException("loss rate: " + lossRate + " must be between 0 and 1!");
+        }
+
+        this.lossRate = lossRate;
+    }
+
+    /**
+     * Sets the function to estimate the sizes of the messages for computing
+     * their transmission times.
+     * {@link ShapedLocalTransport#DEFAULT_MESSAGE_SIZE_ESTIMATOR} is used by
+     * default.
+     *
+     * @param messageSizeEstimator
+     *            the function to estimate the sizes of the messages in bytes
+     */
+    public void setMessageSizeEstimator(ToIntFunction<RaftMessage> messageSizeEstimator) {
+        this.messageSizeEstimator = requireNonNull(messageSizeEstimator);
+    }
+
+    /**
+     * Cuts the given Raft endpoint off from the network. Messages sent from or
+     * to it are dropped, including the ones that are in flight.
+     *
+     * @param endpoint
+     *            the Raft endpoint to disconnect
+     */
+    public void disconnect(RaftEndpoint endpoint) {
+        disconnectedEndpoints.add(requireNonNull(endpoint));
+    }
+
+    /**
+     * Connects the given Raft endpoint back to the network.
+     *
+     * @param endpoint
+     *            the Raft endpoint to connect
+     */
+    public void connect(RaftEndpoint endpoint) {
+        disconnectedEndpoints.remove(requireNonNull(endpoint));
+    }
+
+    /**
+     * Returns the number of messages sent so far.
+     *
+     * @return the number of messages sent so far
+     */
+    public long getSentMessageCount() {
+        return sentMessageCount;
+    }
+
+    /**
+     * Returns the number of messages dropped so far, either randomly or because
+     * of a disconnected Raft endpoint.
+     *
+     * @return the number of messages dropped so far
+     */
+    public long getDroppedMessageCount() {
+        return droppedMessageCount;
+    }
+
+    void register(RaftNode node) {
+        nodes.put(node.getLocalEndpoint(), node);
+    }
+
+    boolean isReachable(RaftEndpoint source, RaftEndpoint target) {
+        return nodes.containsKey(target) && !disconnectedEndpoints.contains(source)
+                && !disconnectedEndpoints.contains(target);
+    }
+
+    void send(RaftEndpoint source, RaftEndpoint target, RaftMessage message, long sentAtNanos) {
+        sentMessageCount++;
+        if (!isReachable(source, target) || (lossRate > 0 && random.nextDouble() < lossRate)) {
+            droppedMessageCount++;
+            return;
+        }
+
+        long transmissionNanos = 0;
+        if (bandwidthBytesPerSecond > 0) {
+            long size = messageSizeEstimator.applyAsInt(message);
+            transmissionNanos = size * TimeUnit.SECONDS.toNanos(1) / bandwidthBytesPerSecond;
+        }
+
+        SimpleImmutableEntry<RaftEndpoint, RaftEndpoint> link = new SimpleImmutableEntry<>(source, target);
+        long transmittedAtNanos = Math.max(sentAtNanos, linkFreeAtNanos.getOrDefault(link, 0L))
+                + transmissionNanos;
+        linkFreeAtNanos.put(link, transmittedAtNanos);
+
+        long jitter = jitterNanos > 0 ? (long) (random.nextDouble() * jitterNanos) : 0;
+        scheduler.scheduleAt(() -> deliver(source, target, message), transmittedAtNanos + latencyNanos + jitter);
+    }
+
+    private void deliver(RaftEndpoint source, RaftEndpoint target, RaftMessage message) {
+        if (!isReachable(source, target)) {
+            droppedMessageCount++;
+            return;
+        }
+
+        nodes.get(target).handle(message);
+    }
+
+}
@@ -0,0 +1,375 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microraft.simulation;
+
+import static io.microraft.RaftConfig.DEFAULT_RAFT_CONFIG;
+import static io.microraft.RaftNodeStatus.isTerminal;
+import static io.microraft.impl.local.SimpleStateMachine.applyValue;
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import javax.annotation.Nonnull;
+
+import io.microraft.RaftConfig;
+import io.microraft.RaftEndpoint;
+import io.microraft.RaftNode;
+import io.microraft.RaftRole;
+import io.microraft.impl.RaftNodeImpl;
+import io.microraft.impl.local.InMemoryRaftStore;
+import io.microraft.impl.local.SimpleStateMachine;
+import io.microraft.persistence.NopRaftStore;
+import io.microraft.persistence.RaftStore;
+
+/**
+ * Runs a Raft group deterministically in virtual time for performance and
+ * fault testing.
+ * <p>
+ * All Raft nodes run on a single {@link SimulationScheduler}, read the virtual
+ * time via its clock, and talk to each other over a {@link SimulatedNetwork}.
+ * If an fsync latency is configured, the Raft nodes persist their state to
+ * {@link SimulatedRaftStore} instances. All random decisions of the Raft nodes
+ * and the network are derived from a single seed, hence a simulation produces
+ * the same results each time it is run with the same seed and the same inputs.
+ * <p>
+ * All methods of this class must be called from the same thread, which also
+ * runs the Raft nodes while the simulation is run via
+ * {@link #runFor(long, TimeUnit)} or
+ * {@link #runUntil(BooleanSupplier, long, TimeUnit)}. Hence, futures returned
+ * by the Raft nodes must not be waited with blocking calls.
+ */
+public final class SimulatedRaftGroup {
+
+    private static final long LEADER_ELECTION_TIMEOUT_SECONDS = 60;
+
+    private final SimulationScheduler scheduler = new SimulationScheduler();
+    private final SimulatedNetwork network;
+    private final List<RaftNodeImpl> nodes = new ArrayList<>();
+    private final List<SimulatedRaftStore> stores = new ArrayList<>();
+
+    private SimulatedRaftGroup(SimulatedRaftGroupBuilder builder) {
+        Random random = new Random(builder.seed);
+        this.network = new SimulatedNetwork(scheduler, new Random(random.nextLong()));
+        network.setLatency(builder.latencyNanos, TimeUnit.NANOSECONDS);
+        network.setJitter(builder.jitterNanos, TimeUnit.NANOSECONDS);
+        network.setBandwidth(builder.bandwidthBytesPerSecond);
+        network.setLossRate(builder.lossRate);
+
+        List<RaftEndpoint> members = new ArrayList<>();
+        for (int i = 1; i <= builder.nodeCount; i++) {
+            members.add(new SimulatedRaftEndpoint("node" + i));
+        }
+
+        for (RaftEndpoint endpoint : members) {
+            SimulatedRaftNodeExecutor executor = new SimulatedRaftNodeExecutor(scheduler);
+            RaftStore store = new NopRaftStore();
+            if (builder.fsyncLatencyNanos >= 0) {
+                SimulatedRaftStore simulatedStore = new SimulatedRaftStore(new InMemoryRaftStore(), executor,
+                        builder.fsyncLatencyNanos, TimeUnit.NANOSECONDS);
+                stores.add(simulatedStore);
+                store = simulatedStore;
+            }
+
+            RaftNodeImpl node = (RaftNodeImpl) RaftNode.newBuilder().setGroupId("simulation")
+                    .setLocalEndpoint(endpoint).setInitialGroupMembers(members).setConfig(builder.config)
+                    .setExecutor(executor).setTransport(new SimulatedTransport(endpoint, network, executor))
+                    .setStateMachine(new SimpleStateMachine()).setStore(store)
+                    .setRandom(new Random(random.nextLong())).setClock(scheduler.getClock()).build();
+            nodes.add(node);
+            network.register(node);
+        }
+    }
+
+    /**
+     * Returns a new builder to create a simulated Raft group with the given
+     * number of Raft nodes and seed.
+     *
+     * @param nodeCount
+     *            the number of Raft nodes
+     * @param seed
+     *            the seed of the random decisions
+     *
+     * @return the builder to create the simulated Raft group
+     */
+    public static SimulatedRaftGroupBuilder newBuilder(int nodeCount, long seed) {
+        return new SimulatedRaftGroupBuilder(nodeCount, seed);
+    }
+
+    /**
+     * Starts the Raft nodes. The Raft nodes run only while the simulation is run.
+     */
+    public void start() {
+        nodes.forEach(RaftNode::start);
+    }
+
+    public SimulationScheduler getScheduler() {
+        return scheduler;
+    }
+
+    public SimulatedNetwork getNetwork() {
+        return network;
+    }
+
+    public List<RaftNodeImpl> getNodes() {
+        return Collections.unmodifiableList(nodes);
+    }
+
+    /**
+     * Returns the simulated Raft stores of the Raft nodes in the same order
+     * with {@link #getNodes()}, or an empty list if no fsync latency is
+     * configured.
+     *
+     * @return the simulated Raft stores of the Raft nodes
+     */
+    public List<SimulatedRaftStore> getStores() {
+        return Collections.unmodifiableList(stores);
+    }
+
+    /**
+     * Runs the simulation for the given duration of virtual time.
+     *
+     * @param duration
+     *            the duration of virtual time to run
+     * @param timeUnit
+     *            the time unit of the duration
+     */
+    public void runFor(long duration, TimeUnit timeUnit) {
+        scheduler.runFor(duration, timeUnit);
+    }
+
+    /**
+     * Runs the simulation until the given condition is satisfied, or the given
+     * duration of virtual time passes.
+     *
+     * @param condition
+     *            the condition to check after each task
+     * @param timeout
+     *            the maximum duration of virtual time to run
+     * @param timeUnit
+     *            the time unit of the timeout
+     *
+     * @return true if the condition is satisfied, false otherwise
+     */
+    public boolean runUntil(BooleanSupplier condition, long timeout, TimeUnit timeUnit) {
+        return scheduler.runUntil(condition, timeout, timeUnit);
+    }
+
+    /**
+     * Returns the Raft node which is the leader with the highest term, or null
+     * if there is no leader.
+     *
+     * @return the Raft node which is the leader with the highest term, or null
+     *         if there is no leader
+     */
+    public RaftNodeImpl getLeader() {
+        RaftNodeImpl leader = null;
+        for (RaftNodeImpl node : nodes) {
+            if (!isTerminal(node.getStatus()) && node.state().role() == RaftRole.LEADER
+                    && (leader == null || node.getTerm().getTerm() > leader.getTerm().getTerm())) {
+                leader = node;
+            }
+        }
+
+        return leader;
+    }
+
+    /**
+     * Runs the simulation until a leader is elected.
+     *
+     * @return the leader Raft node
+     *
+     * @throws AssertionError
+     *             if no leader is elected in a minute of virtual time
+     */
+    public RaftNodeImpl waitUntilLeaderElected() {
+        if (!runUntil(() -> getLeader() != null, LEADER_ELECTION_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            throw new AssertionError("No leader is elected in " + LEADER_ELECTION_TIMEOUT_SECONDS + " seconds!");
+        }
+
+        return getLeader();
+    }
+
+    /**
+     * Replicates the given number of operations via the current leader, one
+     * operation per the given interval of virtual time, and returns the commit
+     * latencies of the committed operations in nanoseconds, in the order of the
+     * operations. The latency of an operation is the duration of virtual time
+     * between its submission and its commit. An operation is skipped if there is
+     * no leader at its submission time.
+     *
+     * @param count
+     *            the number of operations to replicate
+     * @param interval
+     *            the interval between the submissions of the operations
+     * @param timeUnit
+     *            the time unit of the interval
+     *
+     * @return the commit latencies of the committed operations in nanoseconds
+     */
+    public List<Long> measureCommitLatencies(int count, long interval, TimeUnit timeUnit) {
+        List<Long> latencies = new ArrayList<>();
+        int[] completed = new int[1];
+        for (int i = 0; i < count; i++) {
+            Object operation = applyValue("value" + i);
+            scheduler.schedule(() -> {
+                RaftNodeImpl leader = getLeader();
+                if (leader == null) {
+                    completed[0]++;
+                    return;
+                }
+
+                long submittedAtNanos = scheduler.nowNanos();
+                leader.replicate(operation).whenComplete((result, throwable) -> {
+                    completed[0]++;
+                    if (throwable == null) {
+                        latencies.add(scheduler.nowNanos() - submittedAtNanos);
+                    }
+                });
+            }, i * interval, timeUnit);
+        }
+
+        long timeoutNanos = timeUnit.toNanos(count * interval) + TimeUnit.MINUTES.toNanos(1);
+        if (!runUntil(() -> completed[0] == count, timeoutNanos, TimeUnit.NANOSECONDS)) {
+            throw new AssertionError("Only " + completed[0] + " of " + count + " operations are completed!");
+        }
+
+        return latencies;
+    }
+
+    /**
+     * Builder for {@link SimulatedRaftGroup}.
+     */
+    public static final class SimulatedRaftGroupBuilder {
+
+        private final int nodeCount;
+        private final long seed;
+        private RaftConfig config = DEFAULT_RAFT_CONFIG;
+        private long latencyNanos;
+        private long jitterNanos;
+        private long bandwidthBytesPerSecond;
+        private double lossRate;
+        private long fsyncLatencyNanos = -1;
+
+        private SimulatedRaftGroupBuilder(int nodeCount, long seed) {
+            if (nodeCount < 1) {
+                throw new IllegalArgumentException("node count: " + nodeCount + " must be positive!");
+            }
+
+            this.nodeCount = nodeCount;
+            this.seed = seed;
+        }
+
+        public SimulatedRaftGroupBuilder setConfig(@Nonnull RaftConfig config) {
+            this.config = requireNonNull(config);
+            return this;
+        }
+
+        /**
+         * @see SimulatedNetwork#setLatency(long, TimeUnit)
+         */
+        public SimulatedRaftGroupBuilder setLatency(long latency, TimeUnit timeUnit) {
+            this.latencyNanos = timeUnit.toNanos(latency);
+            return this;
+        }
+
+        /**
+         * @see SimulatedNetwork#setJitter(long, TimeUnit)
+         */
+        public SimulatedRaftGroupBuilder setJitter(long jitter, TimeUnit timeUnit) {
+            this.jitterNanos = timeUnit.toNanos(jitter);
+            return this;
+        }
+
+        /**
+         * @see SimulatedNetwork#setBandwidth(long)
+         */
+        public SimulatedRaftGroupBuilder setBandwidth(long bandwidthBytesPerSecond) {
+            this.bandwidthBytesPerSecond = bandwidthBytesPerSecond;
+            return this;
+        }
+
+        /**
+         * @see SimulatedNetwork#setLossRate(double)
+         */
+        public SimulatedRaftGroupBuilder setLossRate(double lossRate) {
+            this.lossRate = lossRate;
+            return this;
+        }
+
+        /**
+         * Enables persistence with the given fsync latency. Persistence is
+         * disabled by default.
+         *
+         * @see SimulatedRaftStore
+         */
+        public SimulatedRaftGroupBuilder setFsyncLatency(long fsyncLatency, TimeUnit timeUnit) {
+            if (fsyncLatency < 0) {
+                throw new IllegalArgumentException("fsync latency: " + fsyncLatency + " cannot be negative!");
+            }
+
+            this.fsyncLatencyNanos = timeUnit.toNanos(fsyncLatency);
+            return this;
+        }
+
+        public SimulatedRaftGroup build() {
+            return new SimulatedRaftGroup(this);
+        }
+
+        public SimulatedRaftGroup start() {
+            SimulatedRaftGroup group = build();
+            group.start();
+            return group;
+        }
+
+    }
+
+    private static final class SimulatedRaftEndpoint implements RaftEndpoint {
+
+        private final String id;
+
+        SimulatedRaftEndpoint(String id) {
+            this.id = id;
+        }
+
+        @Nonnull
+        @Override
+        public Object getId() {
+            return id;
+        }
+
+        @Override
+        public int hashCode() {
+            return id.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof SimulatedRaftEndpoint && id.equals(((SimulatedRaftEndpoint) o).id);
+        }
+
+        @Override
+        public String toString() {
+            return "SimulatedRaftEndpoint{" + "id=" + id + '}';
+        }
+
+    }
+
+}
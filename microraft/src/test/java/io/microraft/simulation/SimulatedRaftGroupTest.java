@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microraft.simulation;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import io.microraft.RaftConfig;
+import io.microraft.impl.RaftNodeImpl;
+import io.microraft.test.util.BaseTest;
+
+public class SimulatedRaftGroupTest extends BaseTest {
+
+    private static final int NODE_COUNT = 3;
+    private static final int OPERATION_COUNT = 100;
+
+    @Test(timeout = 300_000)
+    public void when_sameSeedIsUsed_then_simulationIsReproduced() {
+        SimulationResult result1 = simulate(42);
+        SimulationResult result2 = simulate(42);
+
+        assertThat(result1.latencies).hasSize(OPERATION_COUNT);
+        assertThat(result2.latencies).isEqualTo(result1.latencies);
+        assertThat(result2.leaderId).isEqualTo(result1.leaderId);
+        assertThat(result2.term).isEqualTo(result1.term);
+        assertThat(result2.endTimeNanos).isEqualTo(result1.endTimeNanos);
+        assertThat(result2.sentMessageCount).isEqualTo(result1.sentMessageCount);
+    }
+
+    @Test(timeout = 300_000)
+    public void when_messagesAreLost_then_operationsAreCommitted() {
+        SimulatedRaftGroup group = SimulatedRaftGroup.newBuilder(NODE_COUNT, 7).setLatency(1, MILLISECONDS)
+                .setLossRate(0.1).start();
+        group.waitUntilLeaderElected();
+
+        List<Long> latencies = group.measureCommitLatencies(OPERATION_COUNT, 10, MILLISECONDS);
+
+        assertThat(latencies).isNotEmpty();
+        assertThat(group.getNetwork().getDroppedMessageCount()).isGreaterThan(0);
+        long commitIndex = group.getLeader().state().commitIndex();
+        assertThat(commitIndex).isGreaterThanOrEqualTo(latencies.size());
+    }
+
+    @Test(timeout = 300_000)
+    public void when_fsyncIsSlow_then_commitLatencyIncludesFsync() {
+        long networkLatencyMillis = 1;
+        long fsyncLatencyMillis = 5;
+        SimulatedRaftGroup group = SimulatedRaftGroup.newBuilder(NODE_COUNT, 13)
+                .setLatency(networkLatencyMillis, MILLISECONDS).setFsyncLatency(fsyncLatencyMillis, MILLISECONDS)
+                .start();
+        group.waitUntilLeaderElected();
+
+        List<Long> latencies = group.measureCommitLatencies(OPERATION_COUNT, 50, MILLISECONDS);
+
+        assertThat(latencies).hasSize(OPERATION_COUNT);
+        // the leader and a follower flush the entry, and the entry travels
+        // to the follower and its response travels back to the leader.
+        long minLatencyNanos = MILLISECONDS.toNanos(fsyncLatencyMillis + 2 * networkLatencyMillis);
+        for (long latency : latencies) {
+            assertThat(latency).isGreaterThanOrEqualTo(minLatencyNanos);
+        }
+        for (SimulatedRaftStore store : group.getStores()) {
+            assertThat(store.getFlushCount()).isGreaterThan(0);
+        }
+    }
+
+    private SimulationResult simulate(long seed) {
+        RaftConfig config = RaftConfig.newBuilder().setLeaderHeartbeatPeriodSecs(1).setLeaderHeartbeatTimeoutSecs(5)
+                .build();
+        SimulatedRaftGroup group = SimulatedRaftGroup.newBuilder(NODE_COUNT, seed).setConfig(config)
+                .setLatency(2, MILLISECONDS).setJitter(1, MILLISECONDS).setBandwidth(1_000_000)
+                .setLossRate(0.01).setFsyncLatency(1, MILLISECONDS).start();
+        RaftNodeImpl leader = group.waitUntilLeaderElected();
+
+        SimulationResult result = new SimulationResult();
+        result.latencies = group.measureCommitLatencies(OPERATION_COUNT, 5, MILLISECONDS);
+        group.runFor(1, SECONDS);
+        result.leaderId = leader.getLocalEndpoint().getId();
+        result.term = leader.getTerm().getTerm();
+        result.endTimeNanos = group.getScheduler().nowNanos();
+        result.sentMessageCount = group.getNetwork().getSentMessageCount();
+
+        return result;
+    }
+
+    private static class SimulationResult {
+        List<Long> latencies;
+        Object leaderId;
+        int term;
+        long endTimeNanos;
+        long sentMessageCount;
+    }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microraft.simulation;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import io.microraft.executor.RaftNodeExecutor;
+
+/**
+ * Runs the tasks of a single Raft node on a {@link SimulationScheduler}.
+ * <p>
+ * A Raft node can be stalled for a duration of virtual time via
+ * {@link #stall(long, TimeUnit)}, e.g., to simulate a blocking disk write.
+ * The tasks that become ready while the Raft node is stalled run in the same
+ * order after the stall ends, and the messages sent by the Raft node while it
+ * is stalled leave it after the stall ends.
+ */
+public final class SimulatedRaftNodeExecutor implements RaftNodeExecutor {
+
+    private final SimulationScheduler scheduler;
+    private long stalledUntilNanos;
+
+    public SimulatedRaftNodeExecutor(SimulationScheduler scheduler) {
+        this.scheduler = requireNonNull(scheduler);
+    }
+
+    @Override
+    public void execute(@Nonnull Runnable task) {
+        submit(task);
+    }
+
+    @Override
+    public void submit(@Nonnull Runnable task) {
+        scheduler.schedule(new StallAwareTask(task), 0, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void schedule(@Nonnull Runnable task, long delay, @Nonnull TimeUnit timeUnit) {
+        scheduler.schedule(new StallAwareTask(task), delay, timeUnit);
+    }
+
+    /**
+     * Blocks the Raft node for the given duration of virtual time. Can be called
+     * while running a task of the Raft node, in which case the next task of the
+     * Raft node runs after the stall.
+     *
+     * @param duration
+     *            the duration to block the Raft node
+     * @param timeUnit
+     *            the time unit of the duration
+     */
+    public void stall(long duration, TimeUnit timeUnit) {
+        stalledUntilNanos = Math.max(stalledUntilNanos, scheduler.nowNanos()) + timeUnit.toNanos(duration);
+    }
+
+    /**
+     * Returns the virtual time at which the Raft node becomes available again,
+     * i.e., the current time if the Raft node is not stalled.
+     *
+     * @return the virtual time at which the Raft node becomes available again
+     */
+    public long getAvailableAtNanos() {
+        return Math.max(stalledUntilNanos, scheduler.nowNanos());
+    }
+
+    private final class StallAwareTask implements Runnable {
+        final Runnable task;
+
+        StallAwareTask(Runnable task) {
+            this.task = requireNonNull(task);
+        }
+
+        @Override
+        public void run() {
+            if (scheduler.nowNanos() < stalledUntilNanos) {
+                scheduler.scheduleAt(this, stalledUntilNanos);
+                return;
+            }
+
+            task.run();
+        }
+    }
+
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microraft.simulation;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import io.microraft.model.log.LogEntry;
+import io.microraft.model.log.RaftGroupMembersView;
+import io.microraft.model.log.SnapshotChunk;
+import io.microraft.model.persistence.RaftEndpointPersistentState;
+import io.microraft.model.persistence.RaftTermPersistentState;
+import io.microraft.persistence.RaftStore;
+
+/**
+ * Simulates a disk with fsync latency on top of another {@link RaftStore}.
+ * <p>
+ * Since Raft nodes flush their {@link RaftStore} on their own thread, each
+ * flush stalls the Raft node's {@link SimulatedRaftNodeExecutor} for the fsync
+ * latency in virtual time. Writes without a flush are free.
+ */
+public final class SimulatedRaftStore implements RaftStore {
+
+    private final RaftStore delegate;
+    private final SimulatedRaftNodeExecutor executor;
+    private final long fsyncLatencyNanos;
+    private long flushCount;
+
+    public SimulatedRaftStore(RaftStore delegate, SimulatedRaftNodeExecutor executor, long fsyncLatency,
+            TimeUnit timeUnit) {
+        this.delegate = requireNonNull(delegate);
+        this.executor = requireNonNull(executor);
+        this.fsyncLatencyNanos = timeUnit.toNanos(fsyncLatency);
+    }
+
+    /**
+     * Returns the number of flushes, including the ones done while persisting
+     * the local endpoint, initial group members and term.
+     *
+     * @return the number of flushes
+     */
+    public long getFlushCount() {
+        return flushCount;
+    }
+
+    @Override
+    public void persistAndFlushLocalEndpoint(@Nonnull RaftEndpointPersistentState localEndpointPersistentState)
+            throws IOException {
+        delegate.persistAndFlushLocalEndpoint(localEndpointPersistentState);
+        fsync();
+    }
+
+    @Override
+    public void persistAndFlushInitialGroupMembers(@Nonnull RaftGroupMembersView initialGroupMembers)
+            throws IOException {
+        delegate.persistAndFlushInitialGroupMembers(initialGroupMembers);
+        fsync();
+    }
+
+    @Override
+    public void persistAndFlushTerm(@Nonnull RaftTermPersistentState termPersistentState) throws IOException {
+        delegate.persistAndFlushTerm(termPersistentState);
+        fsync();
+    }
+
+    @Override
+    public void persistLogEntries(@Nonnull List<LogEntry> logEntries) throws IOException {
+        delegate.persistLogEntries(logEntries);
+    }
+
+    @Override
+    public void persistSnapshotChunk(@Nonnull SnapshotChunk snapshotChunk) throws IOException {
+        delegate.persistSnapshotChunk(snapshotChunk);
+    }
+
+    @Override
+    public void truncateLogEntriesFrom(long logIndexInclusive) throws IOException {
+        delegate.truncateLogEntriesFrom(logIndexInclusive);
+    }
+
+    @Override
+    public void truncateLogEntriesUntil(long logIndexInclusive) throws IOException {
+        delegate.truncateLogEntriesUntil(logIndexInclusive);
+    }
+
+    @Override
+    public void deleteSnapshotChunks(long logIndex, int snapshotChunkCount) throws IOException {
+        delegate.deleteSnapshotChunks(logIndex, snapshotChunkCount);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        delegate.flush();
+        fsync();
+    }
+
+    private void fsync() {
+        flushCount++;
+        executor.stall(fsyncLatencyNanos, TimeUnit.NANOSECONDS);
+    }
+
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microraft.simulation;
+
+import static java.util.Objects.requireNonNull;
+
+import javax.annotation.Nonnull;
+
+import io.microraft.RaftEndpoint;
+import io.microraft.model.message.RaftMessage;
+import io.microraft.transport.Transport;
+
+/**
+ * Sends the Raft messages of a single Raft node over a
+ * {@link SimulatedNetwork}. Messages sent while the Raft node is stalled by
+ * its {@link SimulatedRaftNodeExecutor} are sent when the stall ends, so that
+ * a blocking disk write delays the messages sent after it.
+ */
+public final class SimulatedTransport implements Transport {
+
+    private final RaftEndpoint localEndpoint;
+    private final SimulatedNetwork network;
+    private final SimulatedRaftNodeExecutor executor;
+
+    public SimulatedTransport(RaftEndpoint localEndpoint, SimulatedNetwork network,
+            SimulatedRaftNodeExecutor executor) {
+        this.localEndpoint = requireNonNull(localEndpoint);
+        this.network = requireNonNull(network);
+        this.executor = requireNonNull(executor);
+    }
+
+    @Override
+    public void send(@Nonnull RaftEndpoint target, @Nonnull RaftMessage message) {
+        if (localEndpoint.equals(target)) {
+            throw new IllegalArgumentException(localEndpoint.getId() + " cannot send " + message + " to itself!");
+        }
+
+        network.send(localEndpoint, target, message, executor.getAvailableAtNanos());
+    }
+
+    @Override
+    public boolean isReachable(@Nonnull RaftEndpoint endpoint) {
+        return network.isReachable(localEndpoint, endpoint);
+    }
+
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microraft.simulation;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Runs the tasks of a simulation in a single thread in virtual time.
+ * <p>
+ * Tasks are ordered by their virtual execution time and then by the order they
+ * are scheduled, so a simulation runs the same tasks in the same order each
+ * time it is run with the same inputs. The virtual time jumps to the execution
+ * time of the next task instead of waiting for it, hence hours of virtual time
+ * can be simulated in a few seconds. Running a task does not advance the
+ * virtual time. The virtual time starts from 0.
+ */
+public final class SimulationScheduler {
+
+    private final PriorityQueue<ScheduledTask> tasks = new PriorityQueue<>();
+    private final Clock clock = new VirtualClock();
+    private long nowNanos;
+    private long sequence;
+
+    /**
+     * Returns the current virtual time in nanoseconds.
+     *
+     * @return the current virtual time in nanoseconds
+     */
+    public long nowNanos() {
+        return nowNanos;
+    }
+
+    /**
+     * Returns a clock which reads the virtual time of this scheduler.
+     *
+     * @return a clock which reads the virtual time of this scheduler
+     */
+    public Clock getClock() {
+        return clock;
+    }
+
+    /**
+     * Schedules the given task to run after the given delay in virtual time.
+     *
+     * @param task
+     *            the task to run
+     * @param delay
+     *            the delay in virtual time
+     * @param timeUnit
+     *            the time unit of the delay
+     */
+    public void schedule(Runnable task, long delay, TimeUnit timeUnit) {
+        scheduleAt(task, nowNanos + timeUnit.toNanos(Math.max(0, delay)));
+    }
+
+    /**
+     * Schedules the given task to run at the given virtual time, or now if the
+     * given time has already passed.
+     *
+     * @param task
+     *            the task to run
+     * @param timeNanos
+     *            the virtual time in nanoseconds to run the task
+     */
+    public void scheduleAt(Runnable task, long timeNanos) {
+        tasks.add(new ScheduledTask(requireNonNull(task), Math.max(nowNanos, timeNanos), sequence++));
+    }
+
+    /**
+     * Runs the next task, if there is any, after advancing the virtual time to
+     * its execution time.
+     *
+     * @return true if a task is run, false if there is no task
+     */
+    public boolean runNext() {
+        ScheduledTask task = tasks.poll();
+        if (task == null) {
+            return false;
+        }
+
+        nowNanos = task.timeNanos;
+        task.task.run();
+        return true;
+    }
+
+    /**
+     * Runs the tasks scheduled until the given duration of virtual time passes.
+     *
+     * @param duration
+     *            the duration of virtual time to run
+     * @param timeUnit
+     *            the time unit of the duration
+     */
+    public void runFor(long duration, TimeUnit timeUnit) {
+        long deadlineNanos = nowNanos + timeUnit.toNanos(duration);
+        while (!tasks.isEmpty() && tasks.peek().timeNanos <= deadlineNanos) {
+            runNext();
+        }
+
+        nowNanos = Math.max(nowNanos, deadlineNanos);
+    }
+
+    /**
+     * Runs the tasks until the given condition is satisfied, or the given
+     * duration of virtual time passes.
+     *
+     * @param condition
+     *            the condition to check after each task
+     * @param timeout
+     *            the maximum duration of virtual time to run
+     * @param timeUnit
+     *            the time unit of the timeout
+     *
+     * @return true if the condition is satisfied, false otherwise
+     */
+    public boolean runUntil(BooleanSupplier condition, long timeout, TimeUnit timeUnit) {
+        long deadlineNanos = nowNanos + timeUnit.toNanos(timeout);
+        while (!condition.getAsBoolean()) {
+            if (tasks.isEmpty() || tasks.peek().timeNanos > deadlineNanos) {
+                nowNanos = Math.max(nowNanos, deadlineNanos);
+                return false;
+            }
+
+            runNext();
+        }
+
+        return true;
+    }
+
+    private static final class ScheduledTask implements Comparable<ScheduledTask> {
+        final Runnable task;
+        final long timeNanos;
+        final long sequence;
+
+        ScheduledTask(Runnable task, long timeNanos, long sequence) {
+            this.task = task;
+            this.timeNanos = timeNanos;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(ScheduledTask other) {
+            int c = Long.compare(timeNanos, other.timeNanos);
+            return c != 0 ? c : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private final class VirtualClock extends Clock {
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long millis() {
+            return TimeUnit.NANOSECONDS.toMillis(nowNanos);
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochSecond(0, nowNanos);
+        }
+    }
+
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microraft.statemachine;
+
+import static io.microraft.QueryPolicy.LINEARIZABLE;
+import static io.microraft.impl.local.SimpleStateMachine.applyValue;
+import static io.microraft.test.util.AssertionUtils.eventually;
+import static io.microraft.test.util.RaftTestUtils.TEST_RAFT_CONFIG;
+import static io.microraft.test.util.RaftTestUtils.getCommitIndex;
+import static io.microraft.test.util.RaftTestUtils.getLastLogOrSnapshotEntry;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+
+import org.junit.After;
+import org.junit.Test;
+
+import io.microraft.Ordered;
+import io.microraft.RaftEndpoint;
+import io.microraft.RaftNode;
+import io.microraft.impl.RaftNodeImpl;
+import io.microraft.impl.local.LocalRaftEndpoint;
+import io.microraft.impl.local.LocalRaftGroup;
+import io.microraft.impl.local.LocalTransport;
+import io.microraft.impl.local.SimpleStateMachine;
+import io.microraft.model.message.AppendEntriesSuccessResponse;
+import io.microraft.test.util.BaseTest;
+
+public class ClientSessionStateMachineTest extends BaseTest {
+
+    private final SimpleStateMachine simpleStateMachine = new SimpleStateMachine();
+    private RaftNode raftNode;
+    private LocalRaftGroup group;
+
+    @After
+    public void destroy() {
+        if (raftNode != null) {
+            raftNode.terminate().join();
+        }
+        if (group != null) {
+            group.destroy();
+        }
+    }
+
+    @Test
+    public void when_clientOperationIsRetried_then_cachedResponseIsReturned() {
+        ClientSessionStateMachine stateMachine = new ClientSessionStateMachine(simpleStateMachine);
+
+        Object result1 = stateMachine.runOperation(1, new ClientOperation("client", 1, applyValue("val")));
+        Object result2 = stateMachine.runOperation(2, new ClientOperation("client", 1, applyValue("val")));
+
+        assertThat(result1).isEqualTo("val");
+        assertThat(result2).isEqualTo("val");
+        assertThat(simpleStateMachine.size()).isEqualTo(1);
+        Ordered<Object> cachedResponse = stateMachine.getCachedResponse("client", 1).get();
+        assertThat(cachedResponse.getCommitIndex()).isEqualTo(1);
+        assertThat(cachedResponse.getResult()).isEqualTo("val");
+    }
+
+    @Test
+    public void when_clientsUseSameSequenceNumber_then_operationsAreRun() {
+        ClientSessionStateMachine stateMachine = new ClientSessionStateMachine(simpleStateMachine);
+
+        stateMachine.runOperation(1, new ClientOperation("client1", 1, applyValue("val1")));
+        stateMachine.runOperation(2, new ClientOperation("client2", 1, applyValue("val2")));
+
+        assertThat(simpleStateMachine.valueList()).containsExactly("val1", "val2");
+        assertThat(stateMachine.getSessionCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void when_operationIsNotWrapped_then_itIsRunEachTime() {
+        ClientSessionStateMachine stateMachine = new ClientSessionStateMachine(simpleStateMachine);
+
+        stateMachine.runOperation(1, applyValue("val"));
+        stateMachine.runOperation(2, applyValue("val"));
+
+        assertThat(simpleStateMachine.size()).isEqualTo(2);
+        assertThat(stateMachine.getSessionCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void when_cachedResponseIsEvicted_then_retryFails() {
+        ClientSessionStateMachine stateMachine = new ClientSessionStateMachine(simpleStateMachine, 10, 2);
+        for (int i = 1; i <= 3; i++) {
+            stateMachine.runOperation(i, new ClientOperation("client", i, applyValue("val" + i)));
+        }
+
+        Object result = stateMachine.runOperation(4, new ClientOperation("client", 1, applyValue("val1")));
+
+        assertThat(result).isInstanceOf(IllegalStateException.class);
+        assertThat(simpleStateMachine.size()).isEqualTo(3);
+        assertThat(stateMachine.getCachedResponse("client", 1).isPresent()).isFalse();
+        assertThat(stateMachine.getCachedResponse("client", 3).isPresent()).isTrue();
+    }
+
+    @Test
+    public void when_sessionCountExceedsLimit_then_leastRecentlyActiveSessionIsEvicted() {
+        ClientSessionStateMachine stateMachine = new ClientSessionStateMachine(simpleStateMachine, 2, 10);
+        stateMachine.runOperation(1, new ClientOperation("client1", 1, applyValue("val1")));
+        stateMachine.runOperation(2, new ClientOperation("client2", 1, applyValue("val2")));
+        stateMachine.runOperation(3, new ClientOperation("client1", 2, applyValue("val3")));
+
+        stateMachine.runOperation(4, new ClientOperation("client3", 1, applyValue("val4")));
+
+        assertThat(stateMachine.getSessionCount()).isEqualTo(2);
+        assertThat(stateMachine.getCachedResponse("client1", 2).isPresent()).isTrue();
+        assertThat(stateMachine.getCachedResponse("client2", 1).isPresent()).isFalse();
+        assertThat(stateMachine.getCachedResponse("client3", 1).isPresent()).isTrue();
+    }
+
+    @Test
+    public void when_snapshotIsInstalled_then_sessionsAreRestored() {
+        ClientSessionStateMachine stateMachine = new ClientSessionStateMachine(simpleStateMachine);
+        stateMachine.runOperation(1, new ClientOperation("client", 1, applyValue("val1")));
+        stateMachine.runOperation(2, new ClientOperation("client", 2, applyValue("val2")));
+        List<Object> snapshotChunks = new ArrayList<>();
+        stateMachine.takeSnapshot(2, snapshotChunks::add);
+
+        SimpleStateMachine restoredSimpleStateMachine = new SimpleStateMachine();
+        ClientSessionStateMachine restoredStateMachine = new ClientSessionStateMachine(restoredSimpleStateMachine);
+        restoredStateMachine.installSnapshot(2, snapshotChunks);
+        Object result = restoredStateMachine.runOperation(3, new ClientOperation("client", 2, applyValue("val2")));
+
+        assertThat(snapshotChunks.get(0)).isInstanceOf(ClientSessionStateMachine.SessionsSnapshotChunk.class);
+        assertThat(result).isEqualTo("val2");
+        assertThat(restoredSimpleStateMachine.valueList()).containsExactly("val1", "val2");
+        assertThat(restoredStateMachine.getCachedResponse("client", 1).get().getCommitIndex()).isEqualTo(1);
+    }
+
+    @Test(timeout = 300_000)
+    public void when_retriedOperationIsReplicated_then_itIsRunOnce() {
+        RaftEndpoint endpoint = LocalRaftEndpoint.newEndpoint();
+        ClientSessionStateMachine stateMachine = new ClientSessionStateMachine(simpleStateMachine);
+        raftNode = RaftNode.newBuilder().setGroupId("default").setLocalEndpoint(endpoint)
+                .setInitialGroupMembers(singletonList(endpoint)).setTransport(new LocalTransport(endpoint))
+                .setStateMachine(stateMachine).build();
+        raftNode.start();
+
+        Ordered<Object> result1 = raftNode.replicate(new ClientOperation("client", 1, applyValue("val"))).join();
+        Ordered<Object> result2 = raftNode.replicate(new ClientOperation("client", 1, applyValue("val"))).join();
+
+        assertThat(result1.getResult()).isEqualTo("val");
+        assertThat(result2.getResult()).isEqualTo("val");
+        assertThat(result2.getCommitIndex()).isGreaterThan(result1.getCommitIndex());
+        assertThat(simpleStateMachine.size()).isEqualTo(1);
+    }
+
+    @Test(timeout = 300_000)
+    public void when_operationIsRetriedOnNewLeader_then_itIsRunOnceOnAllRaftNodes() {
+        group = LocalRaftGroup.newBuilder(3).setConfig(TEST_RAFT_CONFIG).enableClientSessions().start();
+        RaftNodeImpl leader = group.waitUntilLeaderElected();
+        List<RaftNodeImpl> followers = group.getNodesExcept(leader.getLocalEndpoint());
+        for (RaftNodeImpl follower : followers) {
+            group.dropMessagesTo(follower.getLocalEndpoint(), leader.getLocalEndpoint(),
+                    AppendEntriesSuccessResponse.class);
+        }
+
+        leader.replicate(new ClientOperation("client", 1, applyValue("val")));
+
+        eventually(() -> {
+            for (RaftNodeImpl follower : followers) {
+                assertThat(getLastLogOrSnapshotEntry(follower).getIndex()).isEqualTo(1);
+            }
+        });
+
+        // the first attempt is not committed from the client's point of view
+        group.terminateNode(leader.getLocalEndpoint());
+        RaftNodeImpl newLeader = group.waitUntilLeaderElected();
+
+        Ordered<Object> result = newLeader.replicate(new ClientOperation("client", 1, applyValue("val"))).join();
+
+        assertThat(result.getResult()).isEqualTo("val");
+        assertThat(result.getCommitIndex()).isGreaterThan(1);
+        eventually(() -> {
+            for (RaftNodeImpl follower : followers) {
+                assertThat(getCommitIndex(follower)).isEqualTo(result.getCommitIndex());
+                assertThat(group.getStateMachine(follower.getLocalEndpoint()).valueList()).containsExactly("val");
+            }
+        });
+    }
+
+    @Test(timeout = 300_000)
+    public void when_clientOperationIsQueried_then_queryFails() {
+        group = LocalRaftGroup.newBuilder(3).setConfig(TEST_RAFT_CONFIG).enableClientSessions().start();
+        RaftNodeImpl leader = group.waitUntilLeaderElected();
+
+        try {
+            leader.query(new ClientOperation("client", 1, applyValue("val")), LINEARIZABLE, Optional.empty(),
+                    Optional.empty()).join();
+            fail("Client operations cannot be queried");
+        } catch (CompletionException e) {
+            assertThat(e).hasCauseInstanceOf(IllegalArgumentException.class);
+        }
+
+        assertThat(group.getStateMachine(leader.getLocalEndpoint()).size()).isEqualTo(0);
+    }
+
+}
@@ -142,6 +142,15 @@ public final class RaftTestUtils {
         return readRaftState(leader, task);
     }
 
+    public static boolean isQuiescent(RaftNodeImpl leader) {
+        Callable<Boolean> task = () -> {
+            LeaderState leaderState = leader.state().leaderState();
+            return leaderState != null && leaderState.isQuiescent();
+        };
+
+        return readRaftState(leader, task);
+    }
+
     public static RaftNodeStatus getStatus(RaftNodeImpl node) {
         return readRaftReport(node, RaftNodeReport::getStatus);
     }
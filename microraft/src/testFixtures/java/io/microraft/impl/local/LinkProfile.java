@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microraft.impl.local;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Describes the characteristics of a directed network link between two Raft
+ * nodes for {@link ShapedLocalTransport}: the one-way delay, the maximum
+ * random jitter added to the delay, and the bandwidth.
+ * <p>
+ * For instance, a link between two availability zones of a cloud region can be
+ * modelled with a delay of 1 millisecond, a jitter of 200 microseconds and a
+ * bandwidth of a few hundred megabytes per second.
+ */
+public final class LinkProfile {
+
+    /**
+     * A link profile without any delay or bandwidth limit.
+     */
+    public static final LinkProfile UNSHAPED = newBuilder().build();
+
+    private final long delayNanos;
+    private final long jitterNanos;
+    private final long bandwidthBytesPerSecond;
+
+    private LinkProfile(long delayNanos, long jitterNanos, long bandwidthBytesPerSecond) {
+        this.delayNanos = delayNanos;
+        this.jitterNanos = jitterNanos;
+        this.bandwidthBytesPerSecond = bandwidthBytesPerSecond;
+    }
+
+    /**
+     * Returns a new builder to create a link profile.
+     *
+     * @return a new builder to create a link profile
+     */
+    public static LinkProfileBuilder newBuilder() {
+        return new LinkProfileBuilder();
+    }
+
+    public long getDelayNanos() {
+        return delayNanos;
+    }
+
+    public long getJitterNanos() {
+        return jitterNanos;
+    }
+
+    /**
+     * Returns the bandwidth of the link in bytes per second. 0 means unlimited
+     * bandwidth.
+     *
+     * @return the bandwidth of the link in bytes per second
+     */
+    public long getBandwidthBytesPerSecond() {
+        return bandwidthBytesPerSecond;
+    }
+
+    /**
+     * Returns the duration of putting a message of the given size on the link.
+     *
+     * @param messageSize
+     *            the size of the message in bytes
+     *
+     * @return the duration of putting the message on the link in nanoseconds
+     */
+    public long getTransmissionNanos(int messageSize) {
+        if (bandwidthBytesPerSecond == 0) {
+            return 0;
+        }
+
+        return messageSize * TimeUnit.SECONDS.toNanos(1) / bandwidthBytesPerSecond;
+    }
+
+    @Override
+    public String toString() {
+        return "LinkProfile{" + "delayNanos=" + delayNanos + ", jitterNanos=" + jitterNanos
+                + ", bandwidthBytesPerSecond=" + bandwidthBytesPerSecond + '}';
+    }
+
+    /**
+     * Builder for {@link LinkProfile}.
+     */
+    public static final class LinkProfileBuilder {
+
+        private long delayNanos;
+        private long jitterNanos;
+        private long bandwidthBytesPerSecond;
+
+        private LinkProfileBuilder() {
+        }
+
+        /**
+         * Sets the one-way delay of the link.
+         *
+         * @param delay
+         *            the one-way delay of the link
+         * @param timeUnit
+         *            the time unit of the delay
+         *
+         * @return the builder object for fluent calls
+         */
+        public LinkProfileBuilder setDelay(long delay, TimeUnit timeUnit) {
+            if (delay < 0) {
+                throw new IllegalArgumentException("delay: " + delay + " cannot be negative!");
+            }
+
+            this.delayNanos = timeUnit.toNanos(delay);
+            return this;
+        }
+
+        /**
+         * Sets the maximum random delay added to the one-way delay of each
+         * message.
+         *
+         * @param jitter
+         *            the maximum random delay
+         * @param timeUnit
+         *            the time unit of the jitter
+         *
+         * @return the builder object for fluent calls
+         */
+        public LinkProfileBuilder setJitter(long jitter, TimeUnit timeUnit) {
+            if (jitter < 0) {
+                throw new IllegalArgumentException("jitter: " + jitter + " cannot be negative!");
+            }
+
+            this.jitterNanos = timeUnit.toNanos(jitter);
+            return this;
+        }
+
+        /**
+         * Sets the bandwidth of the link. 0 means unlimited bandwidth.
+         *
+         * @param bandwidthBytesPerSecond
+         *            the bandwidth of the link in bytes per second
+         *
+         * @return the builder object for fluent calls
+         */
+        public LinkProfileBuilder setBandwidth(long bandwidthBytesPerSecond) {
+            if (bandwidthBytesPerSecond < 0) {
+                throw new IllegalArgumentException("bandwidth: " + bandwidthBytesPerSecond + " cannot be negative!");
+            }
+
+            this.bandwidthBytesPerSecond = bandwidthBytesPerSecond;
+            return this;
+        }
+
+        public LinkProfile build() {
+            return new LinkProfile(delayNanos, jitterNanos, bandwidthBytesPerSecond);
+        }
+
+    }
+
+}
@@ -12,9 +12,16 @@ public final class LocalRaftEndpoint implements RaftEndpoint {
 
     private static final AtomicInteger COUNTER = new AtomicInteger();
     private final String id;
+    private final int electionPriority;
 
+    // used by the serializers which recreate endpoints from their ids
     private LocalRaftEndpoint(String id) {
+        this(id, 0);
+    }
+
+    private LocalRaftEndpoint(String id, int electionPriority) {
         this.id = requireNonNull(id);
+        this.electionPriority = electionPriority;
     }
 
     /**
@@ -23,7 +30,19 @@ public final class LocalRaftEndpoint implements RaftEndpoint {
      * @return a new unique Raft endpoint
      */
     public static LocalRaftEndpoint newEndpoint() {
-        return new LocalRaftEndpoint("node" + COUNTER.incrementAndGet());
+        return newEndpoint(0);
+    }
+
+    /**
+     * Returns a new unique Raft endpoint with the given election priority.
+     *
+     * @param electionPriority
+     *            the election priority of the Raft endpoint
+     *
+     * @return a new unique Raft endpoint
+     */
+    public static LocalRaftEndpoint newEndpoint(int electionPriority) {
+        return new LocalRaftEndpoint("node" + COUNTER.incrementAndGet(), electionPriority);
     }
 
     @Nonnull
@@ -32,6 +51,11 @@ public final class LocalRaftEndpoint implements RaftEndpoint {
         return id;
     }
 
+    @Override
+    public int getElectionPriority() {
+        return electionPriority;
+    }
+
     @Override
     public int hashCode() {
         return id.hashCode();
@@ -65,12 +65,37 @@ public class LocalTransport implements Transport {
                 return;
             }
 
-            node.handle(maybeAlteredMessage);
+            deliver(target, node, maybeAlteredMessage);
         } catch (Exception e) {
             LOGGER.error("Send " + message + " to " + target + " failed.", e);
         }
     }
 
+    /**
+     * Passes the given Raft message to the Raft node of the given target Raft
+     * endpoint. Called after the firewall rules are applied. Delivers the Raft
+     * message synchronously on the caller thread by default.
+     *
+     * @param target
+     *            the target Raft endpoint
+     * @param node
+     *            the Raft node of the target Raft endpoint
+     * @param message
+     *            the Raft message to deliver
+     */
+    protected void deliver(RaftEndpoint target, RaftNode node, RaftMessage message) {
+        node.handle(message);
+    }
+
+    /**
+     * Returns the local Raft endpoint of this transport object.
+     *
+     * @return the local Raft endpoint of this transport object
+     */
+    protected RaftEndpoint getLocalEndpoint() {
+        return localEndpoint;
+    }
+
     @Override
     public boolean isReachable(@Nonnull RaftEndpoint endpoint) {
         return nodes.containsKey(endpoint);
@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2020, MicroRaft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microraft.impl.local;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToIntFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.microraft.RaftEndpoint;
+import io.microraft.RaftNode;
+import io.microraft.model.log.BaseLogEntry;
+import io.microraft.model.message.AppendEntriesRequest;
+import io.microraft.model.message.InstallSnapshotRequest;
+import io.microraft.model.message.RaftMessage;
+
+/**
+ * A {@link LocalTransport} which delivers Raft messages asynchronously over
+ * simulated network links.
+ * <p>
+ * Each directed link from this transport to a target Raft endpoint has its own
+ * queue and {@link LinkProfile}. A link transmits one message at a time, so a
+ * message waits for the messages sent before it on the same link and then
+ * occupies the link for its estimated size divided by the bandwidth. After
+ * that, the message arrives at its target after the one-way delay plus a
+ * random jitter. Like a TCP connection, a link never reorders messages. The
+ * messages are delivered by the given scheduled executor, which can be shared
+ * by all transports in a process.
+ * <p>
+ * Firewall rules are applied when a message is sent, hence messages already in
+ * flight are not affected by the rules added later.
+ */
+public class ShapedLocalTransport extends LocalTransport {
+
+    /**
+     * Estimates the size of a Raft message as a fixed header plus the sizes of
+     * the log entries or the snapshot chunk it carries. The size of an
+     * operation is its length if it is a byte array or a string, and a fixed
+     * size otherwise.
+     */
+    public static final ToIntFunction<RaftMessage> DEFAULT_MESSAGE_SIZE_ESTIMATOR = ShapedLocalTransport::estimateSize;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ShapedLocalTransport.class);
+    private static final int MESSAGE_HEADER_SIZE = 64;
+    private static final int LOG_ENTRY_HEADER_SIZE = 32;
+    private static final int DEFAULT_OPERATION_SIZE = 64;
+
+    private final ScheduledExecutorService deliveryExecutor;
+    private final Map<RaftEndpoint, Link> links = new ConcurrentHashMap<>();
+    private final AtomicLong sentMessageCount = new AtomicLong();
+    private final AtomicLong sentBytes = new AtomicLong();
+    private volatile LinkProfile defaultLinkProfile;
+    private volatile ToIntFunction<RaftMessage> messageSizeEstimator = DEFAULT_MESSAGE_SIZE_ESTIMATOR;
+
+    public ShapedLocalTransport(RaftEndpoint localEndpoint, ScheduledExecutorService deliveryExecutor,
+            LinkProfile defaultLinkProfile) {
+        super(localEndpoint);
+        this.deliveryExecutor = requireNonNull(deliveryExecutor);
+        this.defaultLinkProfile = requireNonNull(defaultLinkProfile);
+    }
+
+    /**
+     * Sets the profile of the links which do not have a specific profile. The
+     * new profile applies to the messages sent after this call.
+     *
+     * @param profile
+     *            the link profile
+     */
+    public void setDefaultLinkProfile(LinkProfile profile) {
+        this.defaultLinkProfile = requireNonNull(profile);
+    }
+
+    /**
+     * Sets the profile of the link to the given target Raft endpoint, e.g., to
+     * place it in another availability zone. The new profile applies to the
+     * messages sent after this call.
+     *
+     * @param target
+     *            the target Raft endpoint of the link
+     * @param profile
+     *            the link profile
+     */
+    public void setLinkProfile(RaftEndpoint target, LinkProfile profile) {
+        requireNonNull(profile);
+        getLink(target).profile = profile;
+    }
+
+    /**
+     * Sets the function to estimate the sizes of the Raft messages in bytes.
+     *
+     * @param messageSizeEstimator
+     *            the function to estimate the sizes of the Raft messages
+     */
+    public void setMessageSizeEstimator(ToIntFunction<RaftMessage> messageSizeEstimator) {
+        this.messageSizeEstimator = requireNonNull(messageSizeEstimator);
+    }
+
+    /**
+     * Returns the number of Raft messages put on the links so far.
+     *
+     * @return the number of Raft messages put on the links so far
+     */
+    public long getSentMessageCount() {
+        return sentMessageCount.get();
+    }
+
+    /**
+     * Returns the estimated total size of the Raft messages put on the links so
+     * far.
+     *
+     * @return the estimated total size of the Raft messages in bytes
+     */
+    public long getSentBytes() {
+        return sentBytes.get();
+    }
+
+    @Override
+    protected void deliver(RaftEndpoint target, RaftNode node, RaftMessage message) {
+        int size = messageSizeEstimator.applyAsInt(message);
+        sentMessageCount.incrementAndGet();
+        sentBytes.addAndGet(size);
+        getLink(target).enqueue(node, message, size);
+    }
+
+    private Link getLink(RaftEndpoint target) {
+        return links.computeIfAbsent(requireNonNull(target), t -> new Link(t, defaultLinkProfile));
+    }
+
+    private static int estimateSize(RaftMessage message) {
+        int size = MESSAGE_HEADER_SIZE;
+        if (message instanceof AppendEntriesRequest) {
+            for (BaseLogEntry entry : ((AppendEntriesRequest) message).getLogEntries()) {
+                size += estimateSize(entry);
+            }
+        } else if (message instanceof InstallSnapshotRequest) {
+            BaseLogEntry chunk = ((InstallSnapshotRequest) message).getSnapshotChunk();
+            if (chunk != null) {
+                size += estimateSize(chunk);
+            }
+        }
+
+        return size;
+    }
+
+    private static int estimateSize(BaseLogEntry entry) {
+        Object operation = entry.getOperation();
+        if (operation instanceof byte[]) {
+            return LOG_ENTRY_HEADER_SIZE + ((byte[]) operation).length;
+        } else if (operation instanceof String) {
+            return LOG_ENTRY_HEADER_SIZE + ((String) operation).length();
+        }
+
+        return LOG_ENTRY_HEADER_SIZE + DEFAULT_OPERATION_SIZE;
+    }
+
+    /**
+     * The queue of messages in flight to a single target. At most one delivery
+     * task is scheduled for a link at a time and it delivers the messages in
+     * the queue order.
+     */
+    private final class Link {
+        final RaftEndpoint target;
+        final Queue<InFlightMessage> queue = new ArrayDeque<>();
+        volatile LinkProfile profile;
+        long freeAtNanos;
+        long lastArrivalNanos;
+
+        Link(RaftEndpoint target, LinkProfile profile) {
+            this.target = target;
+            this.profile = profile;
+        }
+
+        synchronized void enqueue(RaftNode node, RaftMessage message, int size) {
+            LinkProfile profile = this.profile;
+            long now = System.nanoTime();
+            freeAtNanos = Math.max(now, freeAtNanos) + profile.getTransmissionNanos(size);
+            long jitter = profile.getJitterNanos() > 0
+                    ? ThreadLocalRandom.current().nextLong(profile.getJitterNanos())
+                    : 0;
+            lastArrivalNanos = Math.max(freeAtNanos + profile.getDelayNanos() + jitter, lastArrivalNanos);
+            queue.add(new InFlightMessage(node, message, lastArrivalNanos));
+            if (queue.size() == 1) {
+                scheduleDelivery(lastArrivalNanos - now);
+            }
+        }
+
+        synchronized void deliverArrivedMessages() {
+            long now = System.nanoTime();
+            InFlightMessage head;
+            while ((head = queue.peek()) != null && head.arrivalNanos <= now) {
+                queue.poll();
+                try {
+                    head.node.handle(head.message);
+                } catch (Exception e) {
+                    LOGGER.error("Deliver " + head.message + " to " + target + " failed.", e);
+                }
+            }
+
+            if (head != null) {
+                scheduleDelivery(head.arrivalNanos - now);
+            }
+        }
+
+        void scheduleDelivery(long delayNanos) {
+            try {
+                deliveryExecutor.schedule(this::deliverArrivedMessages, delayNanos, NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                LOGGER.debug("{} dropped messages to {} since the delivery executor is shut down.",
+                        getLocalEndpoint().getId(), target.getId());
+                queue.clear();
+            }
+        }
+    }
+
+    private static final class InFlightMessage {
+        final RaftNode node;
+        final RaftMessage message;
+        final long arrivalNanos;
+
+        InFlightMessage(RaftNode node, RaftMessage message, long arrivalNanos) {
+            this.node = node;
+            this.message = message;
+            this.arrivalNanos = arrivalNanos;
+        }
+    }
+
+}
@@ -43,6 +43,12 @@ public final class ParserTestUtils {
         assertThat(config.getMaxPendingLogEntryCount()).isEqualTo(1500);
         assertThat(config.isTransferSnapshotsFromFollowersEnabled()).isFalse();
         assertThat(config.getRaftNodeReportPublishPeriodSecs()).isEqualTo(20);
+        assertThat(config.isReplicationTickEnabled()).isTrue();
+        assertThat(config.getReplicationTickMicros()).isEqualTo(250L);
+        assertThat(config.isQuiescenceEnabled()).isTrue();
+        assertThat(config.isFastLeadershipTransferEnabled()).isTrue();
+        assertThat(config.getMaxLearnerCount()).isEqualTo(3);
+        assertThat(config.getMaxLearnerPromotionLag()).isEqualTo(50);
     }
 
     public static void assertLongTimeoutConfig(RaftConfig config) {
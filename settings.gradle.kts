@@ -1,10 +1,14 @@
 rootProject.name = "MicroRaft"
 
 include("microraft")
+include("microraft-benchmark")
 include("microraft-hocon")
+include("microraft-kv")
 include("microraft-metrics")
 include("microraft-store-sqlite")
+include("microraft-store-wal")
 include("microraft-tutorial")
+include("microraft-virtual-threads")
 include("microraft-yaml")
 
 dependencyResolutionManagement {